@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.BlurFilter;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+
+/**
+ * Benchmarks for blurs of growing radius. The Gaussian blur should slow down in proportion to
+ * the radius, and the box blur should take the same time at every radius.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class BlurBenchmark {
+
+  @Param({SyntheticImages.THUMBNAIL, SyntheticImages.HD, SyntheticImages.MEGAPIXELS_12})
+  public String size;
+
+  @Param({"1", "5", "25", "100"})
+  public int radius;
+
+  private ImageEditorModel model;
+  private BlurFilter gaussian;
+  private BlurFilter box;
+
+  /**
+   * Loads an image of the benchmarked size into a new model and makes the blurs.
+   * @throws IOException if the image cannot be written to a temporary file
+   */
+  @Setup
+  public void setup() throws IOException {
+    model = new ImageEditorModelImpl();
+    SyntheticImages.load(model, size, "source");
+    gaussian = BlurFilter.gaussian(radius);
+    box = BlurFilter.box(radius);
+  }
+
+  @Benchmark
+  public void gaussianBlur() {
+    model.blur(gaussian, "source", "result");
+  }
+
+  @Benchmark
+  public void boxBlur() {
+    model.blur(box, "source", "result");
+  }
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Image;
+import model.ImageUtil;
+import model.PackedImage;
+
+/**
+ * Benchmarks for reading and writing image files. The read benchmarks go through every row of
+ * the image they read, since binary PPM files are mapped and only decoded when their pixels are
+ * read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class CodecBenchmark {
+
+  @Param({SyntheticImages.THUMBNAIL, SyntheticImages.HD, SyntheticImages.MEGAPIXELS_12,
+          SyntheticImages.MEGAPIXELS_50})
+  public String size;
+
+  private PackedImage image;
+  private String plainPPM;
+  private String rawPPM;
+  private String png;
+  private String output;
+
+  /**
+   * Creates an image of the benchmarked size and writes it to the files the read benchmarks
+   * read.
+   * @throws IOException if the files cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    image = SyntheticImages.create(size);
+    plainPPM = SyntheticImages.createFile("ppm");
+    ImageUtil.writePPM(plainPPM, image);
+    rawPPM = SyntheticImages.createFile("ppm");
+    ImageUtil.writeRawPPM(rawPPM, image);
+    png = SyntheticImages.createFile("png");
+    ImageUtil.writeImage(png, image, "png");
+    output = SyntheticImages.createFile("out");
+  }
+
+  /**
+   * Reads every row of an image, so that lazily decoded images are decoded.
+   */
+  private static long readRows(Image image) {
+    int[] row = new int[image.getWidth()];
+    long sum = 0;
+    for (int i = 0; i < image.getHeight(); i++) {
+      image.getRow(i, row);
+      sum += row[i % row.length];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long readPlainPPM() {
+    return readRows(ImageUtil.readPPM(plainPPM));
+  }
+
+  @Benchmark
+  public long readRawPPM() {
+    return readRows(ImageUtil.readPPM(rawPPM));
+  }
+
+  @Benchmark
+  public long readPNG() {
+    return readRows(ImageUtil.readImage(png));
+  }
+
+  @Benchmark
+  public void writePlainPPM() throws IOException {
+    ImageUtil.writePPM(output, image);
+  }
+
+  @Benchmark
+  public void writeRawPPM() throws IOException {
+    ImageUtil.writeRawPPM(output, image);
+  }
+
+  @Benchmark
+  public void writePNG() throws IOException {
+    ImageUtil.writeImage(output, image, "png");
+  }
+
+  @Benchmark
+  public void writeJPG() throws IOException {
+    ImageUtil.writeImage(output, image, "jpg");
+  }
+}
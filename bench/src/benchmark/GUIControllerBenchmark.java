@@ -0,0 +1,145 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.Features;
+import controller.GUIController;
+import model.Histogram;
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import view.ImageEditorGUI;
+
+/**
+ * Benchmarks for updating the GUI with the current image. The controller updates the view every
+ * time an image is selected, which hands the view a share of the image and computes its four
+ * histograms. The view of the benchmark hands what it is given to a Blackhole instead of drawing
+ * it, so only the work of the controller and the model is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g", "-Djava.awt.headless=true"})
+public class GUIControllerBenchmark {
+
+  @Param({SyntheticImages.THUMBNAIL, SyntheticImages.HD, SyntheticImages.MEGAPIXELS_12,
+          SyntheticImages.MEGAPIXELS_50})
+  public String size;
+
+  private GUIController controller;
+  private BlackholeView view;
+
+  /**
+   * Creates a controller with a model that holds an image of the benchmarked size.
+   * @param blackhole the blackhole the view hands what it is given to
+   * @throws IOException if the image cannot be written to a temporary file
+   */
+  @Setup
+  public void setup(Blackhole blackhole) throws IOException {
+    ImageEditorModel model = new ImageEditorModelImpl();
+    SyntheticImages.load(model, size, "image");
+    controller = new GUIController(model);
+    view = new BlackholeView(blackhole);
+    controller.setView(view);
+  }
+
+  /**
+   * Selects the image, which updates the view.
+   */
+  @Benchmark
+  public void updateView() {
+    controller.setCurFile("image");
+  }
+
+  /**
+   * A view that draws nothing.
+   */
+  private static final class BlackholeView implements ImageEditorGUI {
+    private final Blackhole blackhole;
+
+    BlackholeView(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void renderMessage(String message) {
+      blackhole.consume(message);
+    }
+
+    @Override
+    public String openFile() {
+      return "";
+    }
+
+    @Override
+    public String chooseFileName() {
+      return "";
+    }
+
+    @Override
+    public void addImage(String filename, Features features) {
+      // the benchmark only selects an image that is already loaded
+    }
+
+    @Override
+    public String getScale() {
+      return "0";
+    }
+
+    @Override
+    public String getRadius() {
+      return "2";
+    }
+
+    @Override
+    public void updateImage(Image image) {
+      blackhole.consume(image);
+    }
+
+    @Override
+    public void updateHistogram(Histogram histogram) {
+      blackhole.consume(histogram);
+    }
+
+    @Override
+    public void showProgress(int done, int total) {
+      blackhole.consume(done);
+    }
+
+    @Override
+    public void hideProgress() {
+      // the benchmark runs edits on its own thread
+    }
+
+    @Override
+    public String getFileType() {
+      return "";
+    }
+
+    @Override
+    public String savePath() {
+      return "";
+    }
+
+    @Override
+    public void addFeatures(Features features) {
+      // the benchmark calls the controller directly
+    }
+  }
+}
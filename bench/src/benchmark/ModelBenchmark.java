@@ -0,0 +1,141 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Histogram;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+
+/**
+ * Benchmarks for every operation of the model. Each operation reads the image "source" and
+ * stores its result under "result", so the source is never edited in place and every
+ * invocation does the same work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ModelBenchmark {
+
+  @Param({SyntheticImages.THUMBNAIL, SyntheticImages.HD, SyntheticImages.MEGAPIXELS_12,
+          SyntheticImages.MEGAPIXELS_50})
+  public String size;
+
+  private ImageEditorModel model;
+
+  /**
+   * Loads an image of the benchmarked size into a new model.
+   * @throws IOException if the image cannot be written to a temporary file
+   */
+  @Setup
+  public void setup() throws IOException {
+    model = new ImageEditorModelImpl();
+    SyntheticImages.load(model, size, "source");
+  }
+
+  @Benchmark
+  public void blur() {
+    model.blur("source", "result");
+  }
+
+  @Benchmark
+  public void sharpen() {
+    model.sharpen("source", "result");
+  }
+
+  @Benchmark
+  public void brighten() {
+    model.brighten(10, "source", "result");
+  }
+
+  @Benchmark
+  public void darken() {
+    model.darken(10, "source", "result");
+  }
+
+  @Benchmark
+  public void visualizeRed() {
+    model.visualizeRed("source", "result");
+  }
+
+  @Benchmark
+  public void visualizeGreen() {
+    model.visualizeGreen("source", "result");
+  }
+
+  @Benchmark
+  public void visualizeBlue() {
+    model.visualizeBlue("source", "result");
+  }
+
+  @Benchmark
+  public void visualizeValue() {
+    model.visualizeValue("source", "result");
+  }
+
+  @Benchmark
+  public void visualizeIntensity() {
+    model.visualizeIntensity("source", "result");
+  }
+
+  @Benchmark
+  public void visualizeLuma() {
+    model.visualizeLuma("source", "result");
+  }
+
+  @Benchmark
+  public void visualizeSepia() {
+    model.visualizeSepia("source", "result");
+  }
+
+  @Benchmark
+  public void flipHorizontal() {
+    model.flipHorizontal("source", "result");
+  }
+
+  @Benchmark
+  public void flipVertical() {
+    model.flipVertical("source", "result");
+  }
+
+  @Benchmark
+  public Histogram histogram() {
+    return model.calculateHistogram("source");
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> redHistogram() {
+    return model.calculateRedHistogram("source", "source");
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> greenHistogram() {
+    return model.calculateGreenHistogram("source", "source");
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> blueHistogram() {
+    return model.calculateBlueHistogram("source", "source");
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> intensityHistogram() {
+    return model.calculateIntensityHistogram("source", "source");
+  }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ColorMatrix;
+import model.PixelKernels;
+
+/**
+ * Benchmarks for the loops of the pixel backends over a 12 megapixel array, comparing the
+ * scalar backend with the vector one. The vector backend needs the simd classes on the class
+ * path, which the forked JVM is started with the Vector API module for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class PixelKernelsBenchmark {
+  @Param({PixelKernels.SCALAR, PixelKernels.VECTOR})
+  public String kernels;
+
+  private PixelKernels backend;
+  private int[] src;
+  private int[] dst;
+
+  /**
+   * Chooses the backend and fills the pixels.
+   */
+  @Setup
+  public void setup() {
+    backend = PixelKernels.named(kernels);
+    src = new int[4000 * 3000];
+    for (int i = 0; i < src.length; i++) {
+      src[i] = (int) ((i * 2654435761L) & 0xFFFFFF);
+    }
+    dst = new int[src.length];
+  }
+
+  @Benchmark
+  public int[] add() {
+    backend.add(src, dst, 0, src.length, 20);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] channel() {
+    backend.channel(src, dst, 0, src.length, 8);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] value() {
+    backend.value(src, dst, 0, src.length);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] intensity() {
+    backend.intensity(src, dst, 0, src.length);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] grey() {
+    backend.transform(src, dst, 0, src.length, ColorMatrix.LUMA);
+    return dst;
+  }
+
+  @Benchmark
+  public int[] transform() {
+    backend.transform(src, dst, 0, src.length, ColorMatrix.SEPIA);
+    return dst;
+  }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.ImageEditorModel;
+import model.ImageUtil;
+import model.PackedImage;
+
+/**
+ * Creates the images the benchmarks run on. The images are generated when a benchmark is set
+ * up, so the results do not depend on image files that may differ between machines. Their
+ * pixels are a hash of their index, which looks like noise and keeps codecs from compressing
+ * them unrealistically well.
+ */
+final class SyntheticImages {
+
+  /**
+   * The image sizes the benchmarks run on, from a thumbnail to a 50 megapixel photo.
+   */
+  static final String THUMBNAIL = "160x120";
+  static final String HD = "1920x1080";
+  static final String MEGAPIXELS_12 = "4000x3000";
+  static final String MEGAPIXELS_50 = "8660x5774";
+
+  private SyntheticImages() {
+  }
+
+  /**
+   * Creates an image of the given size.
+   * @param size the size of the image, as width x height
+   * @return the image
+   */
+  static PackedImage create(String size) {
+    int separator = size.indexOf('x');
+    int width = Integer.parseInt(size.substring(0, separator));
+    int height = Integer.parseInt(size.substring(separator + 1));
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      int hash = i * 0x9E3779B1;
+      pixels[i] = (hash ^ (hash >>> 15)) & 0xFFFFFF;
+    }
+    return new PackedImage(width, height, pixels);
+  }
+
+  /**
+   * Creates a temporary file that is deleted when the benchmark exits.
+   * @param extension the extension of the file
+   * @return the pathname of the file
+   * @throws IOException if the file cannot be created
+   */
+  static String createFile(String extension) throws IOException {
+    File file = File.createTempFile("benchmark", "." + extension);
+    file.deleteOnExit();
+    return file.getPath();
+  }
+
+  /**
+   * Loads an image of the given size into a model under the given name. The image is flipped
+   * twice after it is loaded, so the model holds it in memory instead of mapped from its file.
+   * @param model the model to load the image into
+   * @param size the size of the image, as width x height
+   * @param name the name of the image in the model
+   * @throws IOException if the image cannot be written to a temporary file
+   */
+  static void load(ImageEditorModel model, String size, String name) throws IOException {
+    String pathname = createFile("ppm");
+    ImageUtil.writeRawPPM(pathname, create(size));
+    model.load(pathname, name, "ppm");
+    model.flipHorizontal(name, name);
+    model.flipHorizontal(name, name);
+    new File(pathname).delete();
+  }
+}
@@ -0,0 +1,129 @@
+package model;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The pixel backend that works on a whole SIMD register of pixels at a time with the
+ * incubating Vector API: 8 pixels, or 24 samples, with 256-bit registers and 16 pixels with
+ * 512-bit ones. The samples are unpacked from the pixels with shifts and masks, worked on in
+ * separate registers and packed again, and the pixels after the last full register are left to
+ * the scalar backend.
+ *
+ * <p>Color matrices are applied with their 16.16 fixed point coefficients, with the same
+ * integer multiplies and arithmetic shift as ColorMatrix, and grayscale matrices with a single
+ * weighted sum.
+ *
+ * <p>This class is loaded by name from PixelKernels, and is compiled and run with
+ * --add-modules jdk.incubator.vector.
+ */
+final class VectorPixelKernels extends PixelKernels {
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+  // n / 3 == (n * THIRD) >>> THIRD_SHIFT for every sum of three samples, 0 to 765
+  private static final int THIRD = 0xAAAB;
+  private static final int THIRD_SHIFT = 17;
+
+  @Override
+  public String getName() {
+    return VECTOR;
+  }
+
+  @Override
+  public void add(int[] src, int[] dst, int from, int to, int amount) {
+    int clamped = clampAmount(amount);
+    int i = from;
+    for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+      IntVector rgb = IntVector.fromArray(INTS, src, i);
+      IntVector red = sample(rgb, 16).add(clamped).max(0).min(255);
+      IntVector green = sample(rgb, 8).add(clamped).max(0).min(255);
+      IntVector blue = sample(rgb, 0).add(clamped).max(0).min(255);
+      pack(red, green, blue).intoArray(dst, i);
+    }
+    for (; i < to; i++) {
+      dst[i] = ScalarPixelKernels.add(src[i], clamped);
+    }
+  }
+
+  @Override
+  public void channel(int[] src, int[] dst, int from, int to, int shift) {
+    int i = from;
+    for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+      grey(sample(IntVector.fromArray(INTS, src, i), shift)).intoArray(dst, i);
+    }
+    for (; i < to; i++) {
+      dst[i] = ScalarPixelKernels.channel(src[i], shift);
+    }
+  }
+
+  @Override
+  public void value(int[] src, int[] dst, int from, int to) {
+    int i = from;
+    for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+      IntVector rgb = IntVector.fromArray(INTS, src, i);
+      grey(sample(rgb, 16).max(sample(rgb, 8)).max(sample(rgb, 0))).intoArray(dst, i);
+    }
+    for (; i < to; i++) {
+      dst[i] = ScalarPixelKernels.value(src[i]);
+    }
+  }
+
+  @Override
+  public void intensity(int[] src, int[] dst, int from, int to) {
+    int i = from;
+    for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+      IntVector rgb = IntVector.fromArray(INTS, src, i);
+      IntVector sum = sample(rgb, 16).add(sample(rgb, 8)).add(sample(rgb, 0));
+      grey(sum.mul(THIRD).lanewise(VectorOperators.LSHR, THIRD_SHIFT)).intoArray(dst, i);
+    }
+    for (; i < to; i++) {
+      dst[i] = ScalarPixelKernels.intensity(src[i]);
+    }
+  }
+
+  @Override
+  public void transform(int[] src, int[] dst, int from, int to, ColorMatrix matrix) {
+    int[] fixed = matrix.getFixedCoefficients();
+    boolean grey = matrix.isGrey();
+    int i = from;
+    for (int end = from + INTS.loopBound(to - from); i < end; i += INTS.length()) {
+      IntVector rgb = IntVector.fromArray(INTS, src, i);
+      IntVector red = sample(rgb, 16);
+      IntVector green = sample(rgb, 8);
+      IntVector blue = sample(rgb, 0);
+      IntVector newRed = weigh(fixed, 0, red, green, blue);
+      if (grey) {
+        grey(newRed).intoArray(dst, i);
+      } else {
+        pack(newRed, weigh(fixed, 3, red, green, blue), weigh(fixed, 6, red, green, blue))
+                .intoArray(dst, i);
+      }
+    }
+    for (; i < to; i++) {
+      dst[i] = matrix.applyAsInt(src[i]);
+    }
+  }
+
+  /**
+   * Makes the weighted sum of one row of a matrix, rounded down and clamped to 0 to 255.
+   */
+  private static IntVector weigh(int[] fixed, int row, IntVector red, IntVector green,
+                                 IntVector blue) {
+    return red.mul(fixed[row]).add(green.mul(fixed[row + 1])).add(blue.mul(fixed[row + 2]))
+            .lanewise(VectorOperators.ASHR, 16).max(0).min(255);
+  }
+
+  private static IntVector sample(IntVector rgb, int shift) {
+    return rgb.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+  }
+
+  private static IntVector pack(IntVector red, IntVector green, IntVector blue) {
+    return red.lanewise(VectorOperators.LSHL, 16)
+            .or(green.lanewise(VectorOperators.LSHL, 8)).or(blue);
+  }
+
+  private static IntVector grey(IntVector value) {
+    return value.mul(0x010101);
+  }
+}
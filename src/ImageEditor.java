@@ -1,14 +1,33 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
+import controller.BatchController;
+import controller.CommandStats;
 import controller.GUIController;
 import controller.ImageEditorController;
 import controller.ImageEditorControllerImpl;
+import controller.ParallelScriptController;
+import controller.SessionServer;
+import model.BudgetedImageStore;
+import model.ConcurrentImageEditorModel;
+import model.ConcurrentImageStore;
 import model.ImageEditorModel;
 import model.ImageEditorModelImpl;
+import model.ImageStore;
+import model.MapImageStore;
+import model.PixelKernels;
+import model.RowExecutor;
+import model.SharedImages;
 import view.ImageEditorGUIView;
 import view.ImageEditorTextView;
 import view.ImageEditorView;
@@ -21,39 +40,137 @@ public class ImageEditor {
 
   /**
    * The main method for running the program which can be ran in interactive mode, script mode,
-   * or GUI mode.
+   * or GUI mode. Adding -lazy to the arguments defers and fuses per-pixel edits until their
+   * result is needed, and adding -budget followed by a number of megabytes keeps the images in
+   * memory under that size by moving the least recently used ones to disk. Scripts run with
+   * -file run the commands that do not depend on each other in parallel, and -batch runs a
+   * script on every image of a directory or glob, writing the results to an output directory.
+   * Adding -stats followed by a pathname writes how long each type of command took to that file
+   * when the program exits, and -pixels followed by scalar or vector chooses the backend of the
+   * per-pixel loops. -server followed by a port or the pathname of a Unix-domain socket serves
+   * a session of interactive commands to every client that connects.
    * @param args - The command line arguments for the program.
    */
   public static void main(String[] args) {
-    ImageEditorModel model = new ImageEditorModelImpl();
+    List<String> options = new ArrayList<String>();
+    boolean lazy = false;
+    ImageStore store = null;
+    long budget = Runtime.getRuntime().maxMemory() / 2;
+    CommandStats stats = new CommandStats();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equalsIgnoreCase("-lazy")) {
+        lazy = true;
+      } else if (args[i].equalsIgnoreCase("-budget") && i + 1 < args.length) {
+        try {
+          budget = Long.parseLong(args[++i]) << 20;
+          store = new BudgetedImageStore(budget);
+        } catch (IllegalArgumentException e) {
+          System.out.println("Invalid budget " + args[i] + "!");
+          return;
+        }
+      } else if (args[i].equalsIgnoreCase("-pixels") && i + 1 < args.length) {
+        try {
+          PixelKernels.setDefault(PixelKernels.named(args[++i]));
+        } catch (IllegalArgumentException e) {
+          System.out.println(e.getMessage() + "!");
+          return;
+        }
+      } else if (args[i].equalsIgnoreCase("-stats") && i + 1 < args.length) {
+        dumpAtExit(stats, args[++i]);
+      } else {
+        options.add(args[i]);
+      }
+    }
+    args = options.toArray(new String[0]);
+
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.common(), lazy,
+            store == null ? new MapImageStore() : store);
     ImageEditorView view = new ImageEditorTextView(System.out);
     Readable readable = new InputStreamReader(System.in);
     if (args.length == 0) {
-      GUIController controller = new GUIController(model);
+      // only the background thread that runs the edits uses the model
+      GUIController controller = GUIController.inBackground(model, stats);
       ImageEditorGUIView frame = new ImageEditorGUIView("Image Editor", model);
       controller.setView(frame);
     }
     else if (args[0].equalsIgnoreCase("-text")) {
-      ImageEditorController controller = new ImageEditorControllerImpl(model, view, readable);
+      ImageEditorController controller = new ImageEditorControllerImpl(model, view, readable,
+              stats);
       controller.start();
     } else if (args[0].equalsIgnoreCase("-file")) {
-      Scanner sc;
-      try {
-        sc = new Scanner(new FileInputStream(args[1]));
-      } catch (FileNotFoundException e) {
-        System.out.println("File " + args[1] + " not found!");
+      String script = readScript(args[1]);
+      if (script == null) {
         return;
       }
-      StringBuilder builder = new StringBuilder();
-      while (sc.hasNextLine()) {
-        String s = sc.nextLine();
-        builder.append(s + System.lineSeparator());
+      readable = new StringReader(script);
+      model = new ConcurrentImageEditorModel(RowExecutor.common(), lazy,
+              store == null ? new ConcurrentImageStore() : store);
+      ImageEditorController controller = new ParallelScriptController(model, view, readable,
+              Runtime.getRuntime().availableProcessors(), stats);
+      controller.start();
+    } else if (args[0].equalsIgnoreCase("-batch") && args.length == 4) {
+      String script = readScript(args[2]);
+      if (script == null) {
+        return;
       }
-      readable = new StringReader(builder.toString());
-      ImageEditorController controller = new ImageEditorControllerImpl(model, view, readable);
+      List<Path> inputs;
+      try {
+        inputs = BatchController.findInputs(args[1]);
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
+        return;
+      }
+      ImageEditorController controller = new BatchController(view, inputs, script,
+              Paths.get(args[3]), Runtime.getRuntime().availableProcessors(), budget, lazy, store,
+              stats);
       controller.start();
+    } else if (args[0].equalsIgnoreCase("-server") && args.length == 2) {
+      SessionServer server;
+      try {
+        server = new SessionServer(SessionServer.parseAddress(args[1]), RowExecutor.common(),
+                lazy, new SharedImages(store == null ? new ConcurrentImageStore() : store), stats);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        System.out.println(e.getMessage() + "!");
+        return;
+      }
+      System.out.println("Listening on " + server.getAddress());
+      server.start();
     }
   }
 
+  /**
+   * Writes the statistics of the commands to a file when the program exits.
+   * @param stats the statistics to write
+   * @param pathname the pathname of the file
+   */
+  private static void dumpAtExit(CommandStats stats, String pathname) {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try (Writer writer = Files.newBufferedWriter(Paths.get(pathname))) {
+        stats.print(writer);
+      } catch (IOException e) {
+        System.out.println("Unable to write stats to " + pathname + "!");
+      }
+    }));
+  }
 
+  /**
+   * Reads a whole script file.
+   * @param pathname the pathname of the script
+   * @return the script, or null if the file was not found
+   */
+  private static String readScript(String pathname) {
+    Scanner sc;
+    try {
+      sc = new Scanner(new FileInputStream(pathname));
+    } catch (FileNotFoundException e) {
+      System.out.println("File " + pathname + " not found!");
+      return null;
+    }
+    StringBuilder builder = new StringBuilder();
+    while (sc.hasNextLine()) {
+      String s = sc.nextLine();
+      builder.append(s + System.lineSeparator());
+    }
+    return builder.toString();
+  }
 }
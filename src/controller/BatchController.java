@@ -0,0 +1,496 @@
+package controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import controller.commands.ImageEditCommand;
+import controller.commands.Load;
+import controller.commands.Save;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageStore;
+import model.ImageUtil;
+import model.MapImageStore;
+import model.RowExecutor;
+import model.SessionImageEditorModel;
+import model.SharedImages;
+import view.ImageEditorView;
+
+/**
+ * A controller that runs one script on many image files. In the script, {in} stands for the
+ * pathname of the input file and {out} for the pathname of the output file without its
+ * extension, which is the name of the input file without its extension in the output
+ * directory. For example:
+ * <pre>
+ * load {in} image
+ * brighten 10 image image
+ * save {out}.png image png
+ * </pre>
+ *
+ * <p>Each file is run as a pipeline of three stages with their own threads: the loads at the
+ * start of the script decode the file, the commands in the middle process it, and the saves at
+ * the end encode it. The stages are linked by bounded queues, so a fast stage waits for a slow
+ * one instead of piling up images, and the images being worked on may take at most a given
+ * number of bytes, estimated as four bytes per pixel of the images the loads decode. A file
+ * reserves its bytes from the headers of its images before they are decoded. Every file has its
+ * own model, so the names in the script do not clash between files. The models defer per-pixel
+ * edits if the batch is lazy, and keep their images in their own namespace of a shared store if
+ * the batch is given one, such as a store with a budget.
+ *
+ * <p>Messages of the script are shown with the name of the file they belong to, a file whose
+ * load fails is reported and skipped, and at the end the number of images and bytes per second
+ * read and written is shown.
+ */
+public class BatchController implements ImageEditorController {
+  private static final String[] EXTENSIONS = {"ppm", "pgm", "png", "jpg", "jpeg", "bmp"};
+
+  private final ImageEditorView view;
+  private final List<Path> inputs;
+  private final String script;
+  private final Path output;
+  private final int threads;
+  private final long memory;
+  private final boolean lazy;
+  private final SharedImages shared;
+  private final CommandStats stats;
+
+  /**
+   * Creates a controller that runs the script on the given files.
+   * @param view the view to show the messages of the batch on
+   * @param inputs the files to run the script on
+   * @param script the script, with {in} and {out} standing for the input and output pathnames
+   * @param output the directory to write the output files to
+   * @param threads the number of threads of each stage of the pipeline
+   * @param memory the number of bytes the images being worked on may take
+   * @throws IllegalArgumentException if any of the arguments is null, threads is less than 1 or
+   *         memory is negative
+   */
+  public BatchController(ImageEditorView view, List<Path> inputs, String script, Path output,
+                         int threads, long memory) throws IllegalArgumentException {
+    this(view, inputs, script, output, threads, memory, new CommandStats());
+  }
+
+  /**
+   * Creates a controller that runs the script on the given files, and records the commands it
+   * runs in the given statistics.
+   * @param view the view to show the messages of the batch on
+   * @param inputs the files to run the script on
+   * @param script the script, with {in} and {out} standing for the input and output pathnames
+   * @param output the directory to write the output files to
+   * @param threads the number of threads of each stage of the pipeline
+   * @param memory the number of bytes the images being worked on may take
+   * @param stats the statistics the commands are recorded in
+   * @throws IllegalArgumentException if any of the arguments is null, threads is less than 1 or
+   *         memory is negative
+   */
+  public BatchController(ImageEditorView view, List<Path> inputs, String script, Path output,
+                         int threads, long memory, CommandStats stats)
+          throws IllegalArgumentException {
+    this(view, inputs, script, output, threads, memory, false, null, stats);
+  }
+
+  /**
+   * Creates a controller that runs the script on the given files with models built from the
+   * given options, and records the commands it runs in the given statistics.
+   * @param view the view to show the messages of the batch on
+   * @param inputs the files to run the script on
+   * @param script the script, with {in} and {out} standing for the input and output pathnames
+   * @param output the directory to write the output files to
+   * @param threads the number of threads of each stage of the pipeline
+   * @param memory the number of bytes the images being worked on may take
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @param store the store the images of every file are kept in, which must be safe to use from
+   *              many threads, or null to keep the images of each file in a store of its own
+   * @param stats the statistics the commands are recorded in
+   * @throws IllegalArgumentException if any of the arguments but the store is null, threads is
+   *         less than 1 or memory is negative
+   */
+  public BatchController(ImageEditorView view, List<Path> inputs, String script, Path output,
+                         int threads, long memory, boolean lazy, ImageStore store,
+                         CommandStats stats) throws IllegalArgumentException {
+    if (view == null || inputs == null || script == null || output == null || stats == null) {
+      throw new IllegalArgumentException("Must provide view, inputs, script, and output");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("Must use at least one thread");
+    }
+    if (memory < 0) {
+      throw new IllegalArgumentException("Memory cannot be negative");
+    }
+    this.view = view;
+    this.inputs = new ArrayList<Path>(inputs);
+    this.script = script;
+    this.output = output;
+    this.threads = threads;
+    this.memory = memory;
+    this.lazy = lazy;
+    this.shared = store == null ? null : new SharedImages(store);
+    this.stats = stats;
+  }
+
+  /**
+   * Finds the image files in a directory, or the files matching a glob such as
+   * "photos/*.jpg" or "photos/**.ppm".
+   * @param pattern the directory or the glob
+   * @return the files found, sorted by their pathnames
+   * @throws IllegalArgumentException if the directory or the directory of the glob cannot be read
+   */
+  public static List<Path> findInputs(String pattern) throws IllegalArgumentException {
+    Path directory;
+    PathMatcher matcher;
+    int depth;
+    if (Files.isDirectory(Paths.get(pattern))) {
+      directory = Paths.get(pattern);
+      matcher = path -> hasImageExtension(path.getFileName().toString());
+      depth = 1;
+    } else {
+      // the directory is the part of the glob before the first name with a wildcard
+      String normalized = pattern.replace('\\', '/');
+      int wildcard = indexOfWildcard(normalized);
+      int slash = normalized.lastIndexOf('/', wildcard);
+      directory = Paths.get(slash < 0 ? "." : slash == 0 ? "/" : normalized.substring(0, slash));
+      String glob = normalized.substring(slash + 1);
+      matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+      depth = glob.contains("**") ? Integer.MAX_VALUE : glob.split("/").length;
+    }
+
+    Path root = directory;
+    try (Stream<Path> paths = Files.walk(root, depth)) {
+      List<Path> found = new ArrayList<Path>();
+      paths.filter(Files::isRegularFile)
+              .filter(path -> matcher.matches(root.relativize(path)))
+              .forEach(found::add);
+      Collections.sort(found);
+      return found;
+    } catch (IOException | UncheckedIOException e) {
+      throw new IllegalArgumentException("Unable to read " + directory);
+    }
+  }
+
+  private static int indexOfWildcard(String glob) {
+    for (int i = 0; i < glob.length(); i++) {
+      if ("*?[{".indexOf(glob.charAt(i)) >= 0) {
+        return i;
+      }
+    }
+    return glob.length();
+  }
+
+  private static boolean hasImageExtension(String name) {
+    String lower = name.toLowerCase(Locale.ROOT);
+    for (String extension : EXTENSIONS) {
+      if (lower.endsWith("." + extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void start() throws IllegalStateException {
+    try {
+      Files.createDirectories(output);
+    } catch (IOException e) {
+      renderMessage("Unable to create " + output);
+      return;
+    }
+
+    BlockingQueue<Job> decodeQueue = new ArrayBlockingQueue<Job>(2 * threads);
+    BlockingQueue<Job> processQueue = new ArrayBlockingQueue<Job>(2 * threads);
+    BlockingQueue<Job> encodeQueue = new ArrayBlockingQueue<Job>(2 * threads);
+    BlockingQueue<Job> doneQueue = new ArrayBlockingQueue<Job>(2 * threads);
+    Budget budget = new Budget(memory);
+    ExecutorService pool = Executors.newFixedThreadPool(3 * threads);
+
+    long start = System.nanoTime();
+    int processed = 0;
+    long bytesRead = 0;
+    long bytesWritten = 0;
+    try {
+      stage(pool, decodeQueue, processQueue, job -> {
+        job.bytesRead = Files.size(job.input);
+        // a job waits here until the images being worked on leave room for the ones it decodes
+        job.memory = job.estimateMemory();
+        budget.acquire(job.memory);
+        run(job, job.decode);
+      });
+      stage(pool, processQueue, encodeQueue, job -> run(job, job.process));
+      stage(pool, encodeQueue, doneQueue, job -> {
+        run(job, job.encode);
+        job.bytesWritten = job.outputSize();
+      });
+
+      int submitted = 0;
+      int finished = 0;
+      Job next = null;
+      while (finished < inputs.size()) {
+        // keep the decode queue full without blocking, so finished jobs are always taken
+        while (submitted < inputs.size()) {
+          if (next == null) {
+            next = createJob(submitted);
+          }
+          if (!decodeQueue.offer(next)) {
+            break;
+          }
+          next = null;
+          submitted++;
+        }
+        Job job = submitted < inputs.size()
+                ? doneQueue.poll(10, TimeUnit.MILLISECONDS) : doneQueue.take();
+        if (job == null) {
+          continue;
+        }
+        finished++;
+        budget.release(job.memory);
+        job.close();
+        for (String message : job.messages) {
+          renderMessage(job.name + ": " + message);
+        }
+        if (job.failure == null) {
+          processed++;
+          bytesRead += job.bytesRead;
+          bytesWritten += job.bytesWritten;
+        } else {
+          renderMessage("Failed to process " + job.input + ": " + job.failure.getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while running the batch");
+    } finally {
+      pool.shutdownNow();
+    }
+
+    double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+    renderMessage(String.format(Locale.ROOT,
+            "Processed %d of %d images in %.2f s: %.1f images/s, read %.1f MB/s, wrote %.1f MB/s",
+            processed, inputs.size(), seconds, processed / seconds,
+            bytesRead / seconds / (1 << 20), bytesWritten / seconds / (1 << 20)));
+  }
+
+  /**
+   * Starts the threads of one stage of the pipeline. A job that fails in a stage skips the
+   * stages after it and goes straight to the output queue.
+   */
+  private void stage(ExecutorService pool, BlockingQueue<Job> in, BlockingQueue<Job> out,
+                     Task task) {
+    for (int i = 0; i < threads; i++) {
+      pool.execute(() -> {
+        try {
+          while (true) {
+            Job job = in.take();
+            if (job.failure == null) {
+              try {
+                task.run(job);
+              } catch (IOException | RuntimeException e) {
+                job.failure = e;
+              }
+            }
+            out.put(job);
+          }
+        } catch (InterruptedException e) {
+          // the batch is over
+        }
+      });
+    }
+  }
+
+  private static void run(Job job, List<ImageEditCommand> commands) {
+    for (ImageEditCommand command : commands) {
+      command.execute(job.model);
+    }
+  }
+
+  /**
+   * Reads the script for one file and splits it into its stages.
+   */
+  private Job createJob(int index) {
+    Path input = inputs.get(index);
+    // the files of the batch already keep every thread busy
+    Job job = new Job(input, shared == null
+            ? new ImageEditorModelImpl(RowExecutor.sequential(), lazy, new MapImageStore())
+            : new SessionImageEditorModel(RowExecutor.sequential(), lazy, shared,
+                    "batch-" + index));
+    String name = input.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String out = output.resolve(dot > 0 ? name.substring(0, dot) : name).toString();
+    Scanner sc = new Scanner(script.replace("{in}", input.toString()).replace("{out}", out));
+    HashMap<String, CommandTable.CommandFactory> knownCommands = CommandTable.create(stats);
+
+    List<ImageEditCommand> commands = new ArrayList<ImageEditCommand>();
+    while (sc.hasNext()) {
+      String command = sc.next();
+      if (command.equalsIgnoreCase("q") || command.equalsIgnoreCase("quit")) {
+        break;
+      }
+      CommandTable.CommandFactory cmd = knownCommands.getOrDefault(command, null);
+      if (cmd == null) {
+        job.messages.add("Unknown Command. Try again!");
+      } else {
+        try {
+          commands.add(cmd.create(sc, job));
+        } catch (NoSuchElementException nse) {
+          job.messages.add("Illegal arguments for " + command);
+        }
+      }
+    }
+
+    int decodeEnd = 0;
+    while (decodeEnd < commands.size() && unwrap(commands.get(decodeEnd)) instanceof Load) {
+      decodeEnd++;
+    }
+    int encodeStart = commands.size();
+    while (encodeStart > decodeEnd && unwrap(commands.get(encodeStart - 1)) instanceof Save) {
+      encodeStart--;
+    }
+    job.decode = commands.subList(0, decodeEnd);
+    job.process = commands.subList(decodeEnd, encodeStart);
+    job.encode = commands.subList(encodeStart, commands.size());
+    return job;
+  }
+
+  private static ImageEditCommand unwrap(ImageEditCommand command) {
+    return command instanceof InstrumentedCommand
+            ? ((InstrumentedCommand) command).getCommand() : command;
+  }
+
+  /**
+   * Helper method used for rendering messages from the view.
+   * @param message The message to be rendered
+   * @throws IllegalStateException if the view cannot render the message.
+   */
+  private void renderMessage(String message) throws IllegalStateException {
+    try {
+      this.view.renderMessage(message);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to render message");
+    }
+  }
+
+  /**
+   * The work of one stage on one job.
+   */
+  private interface Task {
+    void run(Job job) throws IOException, InterruptedException;
+  }
+
+  /**
+   * One file of the batch, with its own model. A job is also the view of its commands, keeping
+   * their messages until the job is done.
+   */
+  private static final class Job implements ImageEditorView {
+    private final Path input;
+    private final String name;
+    private final ImageEditorModel model;
+    private final List<String> messages;
+    private List<ImageEditCommand> decode;
+    private List<ImageEditCommand> process;
+    private List<ImageEditCommand> encode;
+    private long memory;
+    private long bytesRead;
+    private long bytesWritten;
+    private Exception failure;
+
+    Job(Path input, ImageEditorModel model) {
+      this.input = input;
+      this.name = input.getFileName().toString();
+      this.model = model;
+      this.messages = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    /**
+     * Estimates the heap the images the decode stage loads will take, from the headers of their
+     * files. A file whose header cannot be read counts for nothing, and its load reports why.
+     */
+    long estimateMemory() {
+      long bytes = 0;
+      for (ImageEditCommand command : decode) {
+        for (String resource : command.reads()) {
+          String pathname = resource.substring("file:".length());
+          String filetype = pathname.substring(Math.max(pathname.length() - 3, 0));
+          try {
+            int[] size = ImageUtil.getSize(pathname, filetype);
+            bytes += 4L * size[0] * size[1];
+          } catch (IllegalArgumentException | IllegalStateException e) {
+            // the load fails the job
+          }
+        }
+      }
+      return bytes;
+    }
+
+    /**
+     * Removes the images of the job from a store it shares with other jobs.
+     */
+    void close() {
+      if (model instanceof SessionImageEditorModel) {
+        ((SessionImageEditorModel) model).close();
+      }
+    }
+
+    /**
+     * Adds up the sizes of the files the encode stage wrote.
+     */
+    long outputSize() throws IOException {
+      long bytes = 0;
+      for (ImageEditCommand command : encode) {
+        for (String resource : command.writes()) {
+          Path path = Paths.get(resource.substring("file:".length()));
+          if (Files.exists(path)) {
+            bytes += Files.size(path);
+          }
+        }
+      }
+      return bytes;
+    }
+
+    @Override
+    public void renderMessage(String message) {
+      messages.add(message);
+    }
+  }
+
+  /**
+   * A number of bytes that the images being worked on may take. A job that does not fit waits
+   * until others are done, unless nothing else is being worked on, so that an image larger than
+   * the whole budget still gets through on its own.
+   */
+  private static final class Budget {
+    private final long limit;
+    private long used;
+
+    Budget(long limit) {
+      this.limit = limit;
+    }
+
+    synchronized void acquire(long bytes) throws InterruptedException {
+      while (used > 0 && used + bytes > limit) {
+        wait();
+      }
+      used += bytes;
+    }
+
+    synchronized void release(long bytes) {
+      used -= bytes;
+      notifyAll();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Timing and allocation statistics of the commands a controller has run, kept for each type of
+ * command. For each type it counts the commands run, the pixels of the images they wrote and the
+ * bytes they allocated, and keeps a histogram of how long they took, from which the median, the
+ * 99th percentile and the maximum are reported. Commands may be recorded from many threads at
+ * once.
+ *
+ * <p>The histogram has 16 buckets for every power of two of nanoseconds, so the percentiles are
+ * rounded up by at most one sixteenth, while the maximum is exact.
+ */
+public final class CommandStats {
+  private static final int SUB_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 4;
+
+  private final Map<String, Entry> entries;
+
+  /**
+   * Creates statistics with no commands recorded.
+   */
+  public CommandStats() {
+    entries = new TreeMap<String, Entry>();
+  }
+
+  /**
+   * Records one run of a command.
+   * @param name the type of the command
+   * @param nanos how long the command took, in nanoseconds
+   * @param allocated the bytes the command allocated, or a negative number if they are unknown
+   * @param pixels the pixels of the image the command wrote or saved
+   */
+  public synchronized void record(String name, long nanos, long allocated, long pixels) {
+    Entry entry = entries.computeIfAbsent(name, key -> new Entry());
+    entry.count++;
+    entry.nanos += nanos;
+    entry.max = Math.max(entry.max, nanos);
+    entry.pixels += pixels;
+    if (allocated >= 0) {
+      entry.allocated += allocated;
+    } else {
+      entry.allocationKnown = false;
+    }
+    entry.buckets[bucketOf(Math.max(nanos, 0))]++;
+  }
+
+  /**
+   * Gets the number of times a type of command was recorded.
+   * @param name the type of the command
+   * @return the number of runs recorded
+   */
+  public synchronized long getCount(String name) {
+    Entry entry = entries.get(name);
+    return entry == null ? 0 : entry.count;
+  }
+
+  /**
+   * Gets a percentile of how long a type of command took.
+   * @param name the type of the command
+   * @param percentile the percentile, between 0 and 100
+   * @return the percentile in nanoseconds, or 0 if the command was never recorded
+   * @throws IllegalArgumentException if the percentile is not between 0 and 100
+   */
+  public synchronized long getPercentile(String name, double percentile)
+          throws IllegalArgumentException {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    Entry entry = entries.get(name);
+    return entry == null ? 0 : entry.percentile(percentile);
+  }
+
+  /**
+   * Gets the longest a type of command took.
+   * @param name the type of the command
+   * @return the maximum in nanoseconds, or 0 if the command was never recorded
+   */
+  public synchronized long getMax(String name) {
+    Entry entry = entries.get(name);
+    return entry == null ? 0 : entry.max;
+  }
+
+  /**
+   * Writes a table of the statistics, with one line for each type of command.
+   * @param output where to write the table
+   * @throws IOException if the table cannot be written
+   */
+  public synchronized void print(Appendable output) throws IOException {
+    output.append(String.format(Locale.ROOT, "%-20s %8s %10s %10s %10s %12s %12s %12s%n",
+            "command", "count", "p50 ms", "p99 ms", "max ms", "total ms", "allocated MB",
+            "Mpixels/s"));
+    for (Map.Entry<String, Entry> next : entries.entrySet()) {
+      Entry entry = next.getValue();
+      output.append(String.format(Locale.ROOT,
+              "%-20s %8d %10.3f %10.3f %10.3f %12.3f %12s %12.1f%n",
+              next.getKey(), entry.count, entry.percentile(50) / 1e6, entry.percentile(99) / 1e6,
+              entry.max / 1e6, entry.nanos / 1e6,
+              entry.allocationKnown
+                      ? String.format(Locale.ROOT, "%.1f", entry.allocated / (double) (1 << 20))
+                      : "n/a",
+              entry.nanos == 0 ? 0 : entry.pixels * 1e3 / entry.nanos));
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    try {
+      print(builder);
+    } catch (IOException e) {
+      // a StringBuilder does not throw
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Gets the histogram bucket of a duration. Durations under 16 nanoseconds have a bucket each,
+   * and every power of two above that is split into 16 buckets.
+   */
+  private static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Gets the largest duration in a histogram bucket.
+   */
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long sub = bucket % SUB_BUCKETS;
+    return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  /**
+   * The statistics of one type of command.
+   */
+  private static final class Entry {
+    private final long[] buckets = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long nanos;
+    private long max;
+    private long allocated;
+    private boolean allocationKnown = true;
+    private long pixels;
+
+    long percentile(double percentile) {
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank) {
+          return Math.min(upperBoundOf(i), max);
+        }
+      }
+      return max;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.Scanner;
+
+import controller.commands.ApplyColorMatrix;
+import controller.commands.Blur;
+import controller.commands.BoxBlur;
+import controller.commands.Brighten;
+import controller.commands.Darken;
+import controller.commands.FlipHorizontal;
+import controller.commands.FlipVertical;
+import controller.commands.ImageEditCommand;
+import controller.commands.Load;
+import controller.commands.Save;
+import controller.commands.Sharpen;
+import controller.commands.Stats;
+import controller.commands.VisualizeBlue;
+import controller.commands.VisualizeGreen;
+import controller.commands.VisualizeIntensity;
+import controller.commands.VisualizeLuma;
+import controller.commands.VisualizeRed;
+import controller.commands.VisualizeSepia;
+import controller.commands.VisualizeValue;
+import view.ImageEditorView;
+
+/**
+ * The table of script commands shared by the controllers that read scripts. Each command name is
+ * mapped to a factory that reads the arguments of the command from a Scanner and creates the
+ * command with the view it should report errors to. The commands created by the table record
+ * how long they take in a CommandStats.
+ */
+public final class CommandTable {
+
+  private CommandTable() {
+  }
+
+  /**
+   * Creates a command from its arguments.
+   */
+  public interface CommandFactory {
+
+    /**
+     * Reads the arguments of a command and creates it.
+     * @param sc the scanner to read the arguments from
+     * @param view the view the command renders its error messages to
+     * @return the command
+     * @throws java.util.NoSuchElementException if the arguments are missing or invalid
+     */
+    ImageEditCommand create(Scanner sc, ImageEditorView view);
+  }
+
+  /**
+   * Creates the map from command names to the factories of the commands. Every command is
+   * recorded in the given statistics, which the stats command shows.
+   * @param stats the statistics to record the commands in
+   * @return the known commands
+   */
+  public static HashMap<String, CommandFactory> create(CommandStats stats) {
+    HashMap<String, CommandFactory> knownCommands = new HashMap<>();
+    knownCommands.put("load", (sc, view) -> new Load(sc.next(), sc.next()));
+    knownCommands.put("save", (sc, view) -> new Save(sc.next(), sc.next(), sc.next(), view));
+    knownCommands.put("visualize-red", (sc, view) -> new VisualizeRed(sc.next(), sc.next(),
+            view));
+    knownCommands.put("visualize-green", (sc, view) -> new VisualizeGreen(sc.next(), sc.next(),
+            view));
+    knownCommands.put("visualize-blue", (sc, view) -> new VisualizeBlue(sc.next(), sc.next(),
+            view));
+    knownCommands.put("visualize-value", (sc, view) -> new VisualizeValue(sc.next(), sc.next(),
+            view));
+    knownCommands.put("visualize-intensity", (sc, view) -> new VisualizeIntensity(sc.next(),
+            sc.next(), view));
+    knownCommands.put("visualize-luma", (sc, view) -> new VisualizeLuma(sc.next(), sc.next(),
+            view));
+    knownCommands.put("flip-horizontal", (sc, view) -> new FlipHorizontal(sc.next(), sc.next(),
+            view));
+    knownCommands.put("flip-vertical", (sc, view) -> new FlipVertical(sc.next(), sc.next(),
+            view));
+    knownCommands.put("brighten", (sc, view) -> new Brighten(sc.nextInt(), sc.next(), sc.next(),
+            view));
+    knownCommands.put("darken", (sc, view) -> new Darken(sc.nextInt(), sc.next(), sc.next(),
+            view));
+    // the radius follows -r, so that an image whose name is a number is not taken for one
+    knownCommands.put("blur", (sc, view) -> sc.hasNext("-r")
+            ? new Blur(readRadius(sc), sc.next(), sc.next(), view)
+            : new Blur(sc.next(), sc.next(), view));
+    knownCommands.put("box-blur", (sc, view) -> new BoxBlur(sc.nextInt(), sc.next(), sc.next(),
+            view));
+    knownCommands.put("sharpen", (sc, view) -> new Sharpen(sc.next(), sc.next(), view));
+    knownCommands.put("color-matrix", (sc, view) -> new ApplyColorMatrix(readCoefficients(sc),
+            sc.next(), sc.next(), view));
+    knownCommands.put("visualize-sepia", (sc, view) -> new VisualizeSepia(sc.next(), sc.next(),
+            view));
+    knownCommands.replaceAll((name, factory) ->
+        (sc, view) -> new InstrumentedCommand(factory.create(sc, view), stats));
+    knownCommands.put("stats", (sc, view) -> new Stats(stats, view));
+
+    return knownCommands;
+  }
+
+  /**
+   * Reads the -r option and the radius after it.
+   * @throws java.util.NoSuchElementException if there is no whole number after the option
+   */
+  private static int readRadius(Scanner sc) {
+    sc.next();
+    return sc.nextInt();
+  }
+
+  /**
+   * Reads the nine coefficients of a color matrix, row by row.
+   * @throws java.util.NoSuchElementException if there are fewer than nine numbers
+   */
+  private static double[] readCoefficients(Scanner sc) {
+    double[] coefficients = new double[9];
+    for (int i = 0; i < coefficients.length; i++) {
+      coefficients[i] = sc.nextDouble();
+    }
+    return coefficients;
+  }
+}
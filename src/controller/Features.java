@@ -30,12 +30,27 @@ public interface Features {
 
   public void blur();
 
+  /**
+   * Asks the view for a radius and blurs the current image with a Gaussian blur of that radius.
+   */
+  public void gaussianBlur();
+
+  /**
+   * Asks the view for a radius and blurs the current image with a box blur of that radius.
+   */
+  public void boxBlur();
+
   public void sharpen();
 
   public void brighten();
 
   public void darken();
 
+  /**
+   * Cancels the edits that have not finished yet, and puts back the image they were editing.
+   */
+  public void cancel();
+
   public void setCurFile(String filename);
 
   public void setView(ImageEditorGUI v);
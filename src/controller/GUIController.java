@@ -1,6 +1,15 @@
 package controller;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
 import controller.commands.Blur;
+import controller.commands.BoxBlur;
 import controller.commands.Brighten;
 import controller.commands.Darken;
 import controller.commands.FlipHorizontal;
@@ -17,22 +26,92 @@ import controller.commands.VisualizeRed;
 import controller.commands.VisualizeSepia;
 import controller.commands.VisualizeValue;
 import model.Image;
+import model.Histogram;
 import model.ImageEditorModel;
-import model.Pixel;
+import model.LookupTable;
+import model.PackedImage;
 import view.ImageEditorGUI;
+import view.ImageEditorView;
 
 /**
  * Class representing the controller for the GUI version of the program. This implements the
  * Features interface which offers methods for all the actions the user has access to in the GUI.
+ *
+ * <p>Edits are run by a worker executor and the view is updated by a display executor, which
+ * are the calling thread for both unless the controller is created with inBackground. Edits
+ * that are asked for while others are still running are queued, and a run of queued edits on
+ * the same image updates the view once, after the last of them. Before such a run the image is
+ * shared under a backup name, so that cancelling it can put the image back. An edit that has
+ * already started cannot be stopped, but its result is thrown away. Loads are queued with the
+ * edits, so the window never reads or counts an image while it opens, and the edits asked for
+ * after a load run on the loaded image. Saves are queued as well, and the images the view is
+ * given are fetched by the worker, so only the worker uses the model and it need not be safe to
+ * use from several threads.
  */
 public class GUIController implements Features {
+  // the name the image being edited is kept under until its edits finish
+  private static final String BACKUP = "\u0000before edits";
+
   private ImageEditorGUI view;
   private ImageEditorModel model;
-  private String curFile;
+  private volatile String curFile;
+  private final CommandStats stats;
+  private final Executor worker;
+  private final Executor display;
+  // the image the view shows, only used by the display executor
+  private PackedImage shown;
+
+  private final Deque<Edit> pending = new ArrayDeque<>();
+  private boolean running;
+  private int generation;
 
   public GUIController(ImageEditorModel model) {
+    this(model, new CommandStats());
+  }
+
+  /**
+   * Creates a controller for the given model that records the edits it runs in the given
+   * statistics.
+   * @param model the model the edits are run on
+   * @param stats the statistics the edits are recorded in
+   */
+  public GUIController(ImageEditorModel model, CommandStats stats) {
+    this(model, stats, Runnable::run, Runnable::run);
+  }
+
+  /**
+   * Creates a controller that runs its edits with one executor and updates the view with
+   * another.
+   * @param model the model the edits are run on
+   * @param stats the statistics the edits are recorded in
+   * @param worker the executor that runs the edits, one at a time
+   * @param display the executor that runs the updates of the view
+   */
+  public GUIController(ImageEditorModel model, CommandStats stats, Executor worker,
+                       Executor display) {
     this.model = model;
     this.curFile = "";
+    this.stats = stats;
+    this.worker = worker;
+    this.display = display;
+  }
+
+  /**
+   * Creates a controller that runs its edits on a background thread and updates the view on
+   * the Swing event dispatch thread, so the window keeps responding while an image is edited.
+   * Only the background thread uses the model, which lets it edit the images the window is not
+   * showing in place.
+   * @param model the model the edits are run on
+   * @param stats the statistics the edits are recorded in
+   * @return the controller
+   */
+  public static GUIController inBackground(ImageEditorModel model, CommandStats stats) {
+    ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "image-edits");
+      thread.setDaemon(true);
+      return thread;
+    });
+    return new GUIController(model, stats, worker, SwingUtilities::invokeLater);
   }
 
   /**
@@ -48,7 +127,7 @@ public class GUIController implements Features {
 
   public void setCurFile(String filename) {
     curFile = filename;
-    updateView();
+    worker.execute(() -> updateView(filename));
   }
 
   @Override
@@ -57,10 +136,7 @@ public class GUIController implements Features {
 
     if (pathname.length() > 0) {
       curFile = view.chooseFileName();
-      ImageEditCommand cmd = new Load(pathname, curFile);
-      cmd.execute(model);
-      this.updateView();
-      view.addImage(curFile, this);
+      enqueue(new Edit(curFile, new Load(pathname, curFile), true, false));
     }
   }
 
@@ -70,100 +146,252 @@ public class GUIController implements Features {
     String pathname = view.savePath();
 
     if (pathname.length() > 0) {
-      ImageEditCommand cmd = new Save(pathname, curFile, filetype, view);
-      cmd.execute(model);
+      enqueue(new Edit(curFile, new Save(pathname, curFile, filetype, messages()), false, true));
     }
   }
 
-  private void updateView() {
-    Image curImage = model.getImage(curFile);
-    Pixel[][] pixels = new Pixel[curImage.getHeight()][curImage.getWidth()];
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel oldPixel = curImage.getPixelAt(i, j);
-        pixels[i][j] = new Pixel(oldPixel.getRed(), oldPixel.getGreen(), oldPixel.getBlue());
-      }
+  /**
+   * Gets the image with the given name and counts its histograms on the calling thread, and
+   * shows them with the display executor if the image is still the current one. The view is
+   * given a share of a packed image instead of a copy, which keeps the model from editing its
+   * pixels in place while it is shown. The share of the image shown before is given up once the
+   * view has the new one. If there is no image with the name, such as after its load failed or
+   * was cancelled, the view shows a message instead.
+   */
+  private void updateView(String filename) {
+    Image curImage = model.getImage(filename);
+    if (curImage == null) {
+      display.execute(() -> view.renderMessage("No image named " + filename + " is loaded"));
+      return;
     }
+    PackedImage image = curImage instanceof PackedImage
+            ? ((PackedImage) curImage).share() : PackedImage.copyOf(curImage);
+    Histogram histogram = model.calculateHistogram(filename);
 
-    view.updateImage(curImage.getWidth(), curImage.getHeight(), pixels);
-    view.updateHistogram(model.calculateRedHistogram(curFile, curFile),
-            model.calculateGreenHistogram(curFile, curFile),
-            model.calculateBlueHistogram(curFile, curFile),
-            model.calculateIntensityHistogram(curFile, curFile));
+    display.execute(() -> {
+      if (!filename.equals(curFile)) {
+        image.release();
+        return;
+      }
+      view.updateImage(image);
+      view.updateHistogram(histogram);
+      if (shown != null) {
+        shown.release();
+      }
+      shown = image;
+    });
+  }
+
+  /**
+   * A view for the commands run by the worker, which shows their messages with the display
+   * executor.
+   */
+  private ImageEditorView messages() {
+    return message -> display.execute(() -> view.renderMessage(message));
   }
 
+  /**
+   * Queues an edit of the current image, unless no image has been loaded yet.
+   */
   private void executeEdit(ImageEditCommand cmd) {
-    try {
-      cmd.execute(model);
-      this.updateView();
-    } catch (NullPointerException e) {
+    if (curFile.isEmpty()) {
+      view.renderMessage("Load an image first");
       return;
     }
+    enqueue(new Edit(curFile, cmd, false, false));
+  }
+
+  /**
+   * Queues an edit, and starts the worker if it is not running.
+   */
+  private void enqueue(Edit edit) {
+    synchronized (pending) {
+      pending.add(edit);
+      if (running) {
+        return;
+      }
+      running = true;
+    }
+    worker.execute(this::runEdits);
+  }
+
+  /**
+   * Runs queued edits until none are left, a run of edits on the same image at a time.
+   */
+  private void runEdits() {
+    while (true) {
+      Edit first;
+      int started;
+      synchronized (pending) {
+        first = pending.poll();
+        if (first == null) {
+          running = false;
+          break;
+        }
+        started = generation;
+      }
+      runEdits(first, started);
+    }
+    display.execute(() -> view.hideProgress());
+  }
+
+  private void runEdits(Edit first, int started) {
+    String filename = first.filename;
+    boolean backedUp = share(filename, BACKUP);
+    boolean cancelled = false;
+    boolean loaded = false;
+    boolean edited = false;
+    int done = 0;
+    Edit edit = first;
+    while (edit != null) {
+      int total;
+      synchronized (pending) {
+        total = done + 1 + pending.size();
+      }
+      int progress = done;
+      display.execute(() -> view.showProgress(progress, total));
+      try {
+        new InstrumentedCommand(edit.command, stats).execute(model);
+        loaded |= edit.load;
+        edited |= !edit.save;
+      } catch (RuntimeException e) {
+        String message = e.getMessage() == null ? e.toString() : e.getMessage();
+        display.execute(() -> view.renderMessage(message));
+      }
+      done++;
+
+      synchronized (pending) {
+        if (generation != started) {
+          cancelled = true;
+          break;
+        }
+        edit = filename.equals(pending.isEmpty() ? null : pending.peek().filename)
+                ? pending.poll() : null;
+      }
+    }
+
+    if (backedUp) {
+      // put the image back, or let the backup share the edited image instead of keeping the
+      // pixels it had before
+      if (cancelled) {
+        share(BACKUP, filename);
+      } else {
+        share(filename, BACKUP);
+      }
+    }
+    if (!cancelled && edited && model.getImage(filename) != null) {
+      updateView(filename);
+      if (loaded) {
+        display.execute(() -> view.addImage(filename, this));
+      }
+    }
+  }
+
+  /**
+   * Stores the image with the given name under another name without copying its pixels.
+   * @return false if there is no image with the given name
+   */
+  private boolean share(String filename, String destination) {
+    try {
+      model.applyLookupTable(LookupTable.identity(), filename, destination);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void cancel() {
+    synchronized (pending) {
+      pending.clear();
+      generation++;
+    }
+    display.execute(() -> view.hideProgress());
   }
 
   @Override
   public void visualizeRed() {
-    ImageEditCommand cmd = new VisualizeRed(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeRed(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void visualizeGreen() {
-    ImageEditCommand cmd = new VisualizeGreen(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeGreen(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void visualizeBlue() {
-    ImageEditCommand cmd = new VisualizeBlue(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeBlue(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void visualizeIntensity() {
-    ImageEditCommand cmd = new VisualizeIntensity(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeIntensity(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void visualizeValue() {
-    ImageEditCommand cmd = new VisualizeValue(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeValue(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void visualizeLuma() {
-    ImageEditCommand cmd = new VisualizeLuma(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeLuma(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void visualizeSepia() {
-    ImageEditCommand cmd = new VisualizeSepia(curFile, curFile, this.view);
+    ImageEditCommand cmd = new VisualizeSepia(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void flipHorizontal() {
-    ImageEditCommand cmd = new FlipHorizontal(curFile, curFile, this.view);
+    ImageEditCommand cmd = new FlipHorizontal(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void flipVertical() {
-    ImageEditCommand cmd = new FlipVertical(curFile, curFile, this.view);
+    ImageEditCommand cmd = new FlipVertical(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
   @Override
   public void blur() {
-    ImageEditCommand cmd = new Blur(curFile, curFile, this.view);
+    ImageEditCommand cmd = new Blur(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
+  @Override
+  public void gaussianBlur() {
+    try {
+      int radius = Integer.parseInt(view.getRadius());
+      executeEdit(new Blur(radius, curFile, curFile, messages()));
+    } catch (NumberFormatException e) {
+      view.renderMessage("Illegal input for radius");
+    }
+  }
+
+  @Override
+  public void boxBlur() {
+    try {
+      int radius = Integer.parseInt(view.getRadius());
+      executeEdit(new BoxBlur(radius, curFile, curFile, messages()));
+    } catch (NumberFormatException e) {
+      view.renderMessage("Illegal input for radius");
+    }
+  }
+
   @Override
   public void sharpen() {
-    ImageEditCommand cmd = new Sharpen(curFile, curFile, this.view);
+    ImageEditCommand cmd = new Sharpen(curFile, curFile, messages());
     executeEdit(cmd);
   }
 
@@ -172,7 +400,7 @@ public class GUIController implements Features {
     int scale;
     try {
       scale = Integer.parseInt(view.getScale());
-      ImageEditCommand cmd = new Brighten(scale,curFile, curFile, this.view);
+      ImageEditCommand cmd = new Brighten(scale,curFile, curFile, messages());
       executeEdit(cmd);
     } catch (NumberFormatException e) {
       view.renderMessage("Illegal input for scale");
@@ -184,11 +412,29 @@ public class GUIController implements Features {
     int scale;
     try {
       scale = Integer.parseInt(view.getScale());
-      ImageEditCommand cmd = new Darken(scale, curFile, curFile, this.view);
+      ImageEditCommand cmd = new Darken(scale, curFile, curFile, messages());
       executeEdit(cmd);
     } catch (NumberFormatException e) {
       view.renderMessage("Illegal input for scale");
     }
   }
 
+  /**
+   * An edit that is waiting to run, with the name of the image it edits, whether it loads that
+   * image, which adds the image to the view once it has been loaded, and whether it only saves
+   * the image, which leaves the view as it is.
+   */
+  private static final class Edit {
+    private final String filename;
+    private final ImageEditCommand command;
+    private final boolean load;
+    private final boolean save;
+
+    Edit(String filename, ImageEditCommand command, boolean load, boolean save) {
+      this.filename = filename;
+      this.command = command;
+      this.load = load;
+      this.save = save;
+    }
+  }
 }
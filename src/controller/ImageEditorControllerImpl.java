@@ -4,24 +4,8 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
-import java.util.function.Function;
 
-import controller.commands.Blur;
-import controller.commands.Brighten;
-import controller.commands.Darken;
-import controller.commands.FlipHorizontal;
-import controller.commands.FlipVertical;
 import controller.commands.ImageEditCommand;
-import controller.commands.Load;
-import controller.commands.Save;
-import controller.commands.Sharpen;
-import controller.commands.VisualizeBlue;
-import controller.commands.VisualizeGreen;
-import controller.commands.VisualizeIntensity;
-import controller.commands.VisualizeLuma;
-import controller.commands.VisualizeRed;
-import controller.commands.VisualizeSepia;
-import controller.commands.VisualizeValue;
 import model.ImageEditorModel;
 import view.ImageEditorView;
 
@@ -33,6 +17,7 @@ public class ImageEditorControllerImpl implements ImageEditorController {
   private final ImageEditorModel model;
   private final ImageEditorView view;
   private final Readable input;
+  private final CommandStats stats;
 
   /**
    * The Controller takes in a model, view, and input from the user in the form of a Readable.
@@ -41,35 +26,26 @@ public class ImageEditorControllerImpl implements ImageEditorController {
    * @param input The input from the user.
    */
   public ImageEditorControllerImpl(ImageEditorModel model, ImageEditorView view, Readable input) {
-    if (model == null || view == null || input == null) {
+    this(model, view, input, new CommandStats());
+  }
+
+  /**
+   * The Controller takes in a model, view, input from the user in the form of a Readable, and
+   * the statistics to record the commands it runs in.
+   * @param model The model, the controller will be sending information to
+   * @param view The view the controller will call to display information
+   * @param input The input from the user.
+   * @param stats The statistics the commands are recorded in
+   */
+  public ImageEditorControllerImpl(ImageEditorModel model, ImageEditorView view, Readable input,
+                                   CommandStats stats) {
+    if (model == null || view == null || input == null || stats == null) {
       throw new IllegalArgumentException("Must provide model, view, and Readable");
     }
     this.model = model;
     this.view = view;
     this.input = input;
-  }
-
-  private HashMap<String, Function<Scanner, ImageEditCommand>> initKnownCommands() {
-    HashMap<String, Function<Scanner, ImageEditCommand>> knownCommands = new HashMap<>();
-    knownCommands.put("load", sc -> new Load(sc.next(), sc.next()));
-    knownCommands.put("save", sc -> new Save(sc.next(), sc.next(), sc.next(), this.view));
-    knownCommands.put("visualize-red", sc -> new VisualizeRed(sc.next(), sc.next(), this.view));
-    knownCommands.put("visualize-green", sc -> new VisualizeGreen(sc.next(), sc.next(), this.view));
-    knownCommands.put("visualize-blue", sc -> new VisualizeBlue(sc.next(), sc.next(), this.view));
-    knownCommands.put("visualize-value", sc -> new VisualizeValue(sc.next(), sc.next(), this.view));
-    knownCommands.put("visualize-intensity", sc -> new VisualizeIntensity(sc.next(), sc.next(),
-            this.view));
-    knownCommands.put("visualize-luma", sc -> new VisualizeLuma(sc.next(), sc.next(), this.view));
-    knownCommands.put("flip-horizontal", sc -> new FlipHorizontal(sc.next(), sc.next(), this.view));
-    knownCommands.put("flip-vertical", sc -> new FlipVertical(sc.next(), sc.next(), this.view));
-    knownCommands.put("brighten", sc -> new Brighten(sc.nextInt(), sc.next(), sc.next(),
-            this.view));
-    knownCommands.put("darken", sc -> new Darken(sc.nextInt(), sc.next(), sc.next(), this.view));
-    knownCommands.put("blur", sc -> new Blur(sc.next(), sc.next(), this.view));
-    knownCommands.put("sharpen", sc -> new Sharpen(sc.next(), sc.next(), this.view));
-    knownCommands.put("visualize-sepia", sc -> new VisualizeSepia(sc.next(), sc.next(), this.view));
-
-    return knownCommands;
+    this.stats = stats;
   }
 
   /**
@@ -80,7 +56,7 @@ public class ImageEditorControllerImpl implements ImageEditorController {
   public void start() {
     Scanner sc = new Scanner(this.input);
     String input;
-    HashMap<String, Function<Scanner, ImageEditCommand>> knownCommands = initKnownCommands();
+    HashMap<String, CommandTable.CommandFactory> knownCommands = CommandTable.create(stats);
 
     while (sc.hasNext()) {
       ImageEditCommand c;
@@ -90,21 +66,28 @@ public class ImageEditorControllerImpl implements ImageEditorController {
         this.renderMessage("Successfully Quit");
         return;
       }
-      Function<Scanner, ImageEditCommand> cmd =
-              knownCommands.getOrDefault(input, null);
+      CommandTable.CommandFactory cmd = knownCommands.getOrDefault(input, null);
       if (cmd == null) {
         this.renderMessage("Unknown Command. Try again!");
       } else {
         try {
-          c = cmd.apply(sc);
-          c.execute(model);
+          c = cmd.create(sc, this.view);
+          execute(input, c);
         } catch (NoSuchElementException nse) {
           this.renderMessage("Illegal arguments for " + input);
         }
       }
     }
   }
-
+  /**
+   * Runs a command on the model. Exceptions the command throws end start, unless a subclass
+   * handles them.
+   * @param name the name the command was given by
+   * @param command the command to run
+   */
+  protected void execute(String name, ImageEditCommand command) {
+    command.execute(model);
+  }
 
   /**
    * Helper method used for rendering messages from the view.
@@ -0,0 +1,122 @@
+package controller;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import controller.commands.ImageEditCommand;
+import model.ImageEditorModel;
+
+/**
+ * A command that runs another command and records how long it took, how many bytes it
+ * allocated and how many pixels it wrote in a CommandStats. The type of a command is its class
+ * name in the form used by scripts, so a VisualizeRed command is recorded as "visualize-red".
+ *
+ * <p>Allocated bytes are read from the ThreadMXBean of the JVM and only count what the thread
+ * running the command allocated, not what the threads it splits its rows between allocated.
+ * They are unknown on JVMs that do not measure them.
+ */
+public class InstrumentedCommand implements ImageEditCommand {
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final boolean MEASURES_ALLOCATION = measuresAllocation();
+
+  private final ImageEditCommand command;
+  private final CommandStats stats;
+  private final String name;
+
+  /**
+   * Creates a command that records the runs of the given command.
+   * @param command the command to run
+   * @param stats the statistics to record the runs in
+   * @throws IllegalArgumentException if the command or the statistics are null
+   */
+  public InstrumentedCommand(ImageEditCommand command, CommandStats stats)
+          throws IllegalArgumentException {
+    if (command == null || stats == null) {
+      throw new IllegalArgumentException("Must provide command and stats");
+    }
+    this.command = command;
+    this.stats = stats;
+    this.name = nameOf(command);
+  }
+
+  private static boolean measuresAllocation() {
+    if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+      return false;
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+    return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+  }
+
+  private static long allocatedBytes() {
+    if (!MEASURES_ALLOCATION) {
+      return -1;
+    }
+    return ((com.sun.management.ThreadMXBean) THREADS)
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Gets the type of a command as it is written in scripts.
+   * @param command the command
+   * @return the name of the class of the command in lower case, with a dash between words
+   */
+  public static String nameOf(ImageEditCommand command) {
+    return command.getClass().getSimpleName().replaceAll("([a-z0-9])([A-Z])", "$1-$2")
+            .toLowerCase();
+  }
+
+  /**
+   * Gets the command this command runs.
+   * @return the command that is recorded
+   */
+  public ImageEditCommand getCommand() {
+    return command;
+  }
+
+  @Override
+  public void execute(ImageEditorModel model) {
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    try {
+      command.execute(model);
+    } finally {
+      long nanos = System.nanoTime() - start;
+      long allocatedAfter = allocatedBytes();
+      stats.record(name, nanos,
+              allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore, pixelsOf(model));
+    }
+  }
+
+  /**
+   * Counts the pixels of the image the command wrote, or of the image it read if it only wrote
+   * a file.
+   */
+  private long pixelsOf(ImageEditorModel model) {
+    long pixels = pixelsOf(model, command.writes());
+    return pixels > 0 ? pixels : pixelsOf(model, command.reads());
+  }
+
+  private static long pixelsOf(ImageEditorModel model, List<String> resources) {
+    if (resources == null) {
+      return 0;
+    }
+    long pixels = 0;
+    for (String resource : resources) {
+      if (!resource.startsWith("file:")) {
+        pixels += model.getPixelCount(resource);
+      }
+    }
+    return pixels;
+  }
+
+  @Override
+  public List<String> reads() {
+    return command.reads();
+  }
+
+  @Override
+  public List<String> writes() {
+    return command.writes();
+  }
+}
@@ -0,0 +1,335 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import controller.commands.ImageEditCommand;
+import model.ImageEditorModel;
+import view.ImageEditorView;
+
+/**
+ * A controller that reads a whole script before running it and runs the commands that do not
+ * depend on each other at the same time on a pool of threads. The model must be safe to use
+ * from many threads, like ConcurrentImageEditorModel.
+ *
+ * <p>A command depends on the last earlier command that wrote an image or file it reads or
+ * writes, and on the earlier commands that read an image or file it writes, so every command
+ * sees the same images as it would if the script ran one command at a time. Messages are kept
+ * for each command and shown in the order of the script. If a command throws an exception, the
+ * commands before it in the script still run, no command after it is started, and the exception
+ * is thrown once the messages before it have been shown, just like a script that runs one
+ * command at a time.
+ *
+ * <p>Because only loads can fail with an exception, commands that write files also wait for
+ * every earlier load, and a load of a file that does not exist waits for every earlier command,
+ * so that no file is written and nothing is printed that a failed load would have prevented.
+ */
+public class ParallelScriptController implements ImageEditorController {
+  private final ImageEditorModel model;
+  private final ImageEditorView view;
+  private final Readable input;
+  private final int threads;
+  private final CommandStats stats;
+
+  /**
+   * Creates a controller that runs the script read from the given input on the given number of
+   * threads.
+   * @param model the model to run the commands on, which must be safe to use from many threads
+   * @param view the view to show the messages of the script on
+   * @param input the script
+   * @param threads the number of commands that may run at the same time
+   * @throws IllegalArgumentException if any of the arguments is null or threads is less than 1
+   */
+  public ParallelScriptController(ImageEditorModel model, ImageEditorView view, Readable input,
+                                  int threads) throws IllegalArgumentException {
+    this(model, view, input, threads, new CommandStats());
+  }
+
+  /**
+   * Creates a controller that runs the script read from the given input on the given number of
+   * threads, and records the commands it runs in the given statistics.
+   * @param model the model to run the commands on, which must be safe to use from many threads
+   * @param view the view to show the messages of the script on
+   * @param input the script
+   * @param threads the number of commands that may run at the same time
+   * @param stats the statistics the commands are recorded in
+   * @throws IllegalArgumentException if any of the arguments is null or threads is less than 1
+   */
+  public ParallelScriptController(ImageEditorModel model, ImageEditorView view, Readable input,
+                                  int threads, CommandStats stats)
+          throws IllegalArgumentException {
+    if (model == null || view == null || input == null || stats == null) {
+      throw new IllegalArgumentException("Must provide model, view, and Readable");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("Must use at least one thread");
+    }
+    this.model = model;
+    this.view = view;
+    this.input = input;
+    this.threads = threads;
+    this.stats = stats;
+  }
+
+  @Override
+  public void start() {
+    List<Step> steps = parse();
+    link(steps);
+    run(steps);
+  }
+
+  /**
+   * Reads every command of the script, the same way ImageEditorControllerImpl reads them.
+   * Unknown commands and commands with illegal arguments become steps that only show their
+   * message.
+   */
+  private List<Step> parse() {
+    Scanner sc = new Scanner(this.input);
+    HashMap<String, CommandTable.CommandFactory> knownCommands = CommandTable.create(stats);
+    List<Step> steps = new ArrayList<Step>();
+
+    while (sc.hasNext()) {
+      String input = sc.next();
+      Step step = new Step(steps.size());
+      steps.add(step);
+
+      if (input.equalsIgnoreCase("q") || input.equalsIgnoreCase("quit")) {
+        step.messages.add("Successfully Quit");
+        step.done = true;
+        break;
+      }
+      CommandTable.CommandFactory cmd = knownCommands.getOrDefault(input, null);
+      if (cmd == null) {
+        step.messages.add("Unknown Command. Try again!");
+      } else {
+        try {
+          step.command = cmd.create(sc, step);
+        } catch (NoSuchElementException nse) {
+          step.messages.add("Illegal arguments for " + input);
+        }
+      }
+      step.done = step.command == null;
+    }
+    return steps;
+  }
+
+  /**
+   * Finds the steps each step depends on.
+   */
+  private void link(List<Step> steps) {
+    HashMap<String, Step> writers = new HashMap<String, Step>();
+    HashMap<String, List<Step>> readers = new HashMap<String, List<Step>>();
+    List<Step> fileReaders = new ArrayList<Step>();
+    List<Step> earlier = new ArrayList<Step>();
+    Step barrier = null;
+
+    for (Step step : steps) {
+      if (step.command == null) {
+        continue;
+      }
+      List<String> reads = step.command.reads();
+      List<String> writes = step.command.writes();
+      if (reads == null || writes == null) {
+        // a command that does not say what it uses runs after and before everything else
+        step.dependOn(barrier);
+        step.dependOnAll(earlier);
+        barrier = step;
+        earlier.clear();
+        writers.clear();
+        readers.clear();
+        fileReaders.clear();
+        continue;
+      }
+
+      step.dependOn(barrier);
+      boolean readsFile = false;
+      for (String resource : reads) {
+        step.dependOn(writers.get(resource));
+        readers.computeIfAbsent(resource, name -> new ArrayList<Step>()).add(step);
+        if (isFile(resource)) {
+          readsFile = true;
+          if (writers.get(resource) == null && !Files.exists(Paths.get(pathOf(resource)))) {
+            step.dependOnAll(earlier);
+          }
+        }
+      }
+      for (String resource : writes) {
+        step.dependOn(writers.get(resource));
+        step.dependOnAll(readers.getOrDefault(resource, Collections.emptyList()));
+        readers.remove(resource);
+        writers.put(resource, step);
+        if (isFile(resource)) {
+          step.dependOnAll(fileReaders);
+        }
+      }
+      if (readsFile) {
+        fileReaders.add(step);
+      }
+      earlier.add(step);
+    }
+
+    for (Step step : steps) {
+      step.dependencies.remove(step);
+      step.remaining = step.dependencies.size();
+      for (Step dependency : step.dependencies) {
+        dependency.dependents.add(step);
+      }
+    }
+  }
+
+  private static boolean isFile(String resource) {
+    return resource.startsWith("file:");
+  }
+
+  private static String pathOf(String resource) {
+    return resource.substring("file:".length());
+  }
+
+  /**
+   * Runs the steps on the pool, showing the messages of each step once it and every step before
+   * it have finished.
+   */
+  private void run(List<Step> steps) {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    BlockingQueue<Step> finished = new LinkedBlockingQueue<Step>();
+    int running = 0;
+    int failed = steps.size();
+    int shown = 0;
+
+    try {
+      for (Step step : steps) {
+        if (!step.done && step.remaining == 0) {
+          submit(pool, finished, step);
+          running++;
+        }
+      }
+      shown = show(steps, shown, failed);
+
+      while (running > 0) {
+        Step step;
+        try {
+          step = finished.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while running the script");
+        }
+        running--;
+        step.done = true;
+        if (step.failure != null) {
+          failed = Math.min(failed, step.index);
+        }
+        for (Step dependent : step.dependents) {
+          dependent.remaining--;
+          if (dependent.remaining == 0 && step.failure == null && dependent.index < failed) {
+            submit(pool, finished, dependent);
+            running++;
+          }
+        }
+        shown = show(steps, shown, failed);
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    if (failed < steps.size()) {
+      Step step = steps.get(failed);
+      for (String message : step.messages) {
+        renderMessage(message);
+      }
+      if (step.failure instanceof Error) {
+        throw (Error) step.failure;
+      }
+      throw (RuntimeException) step.failure;
+    }
+  }
+
+  private void submit(ExecutorService pool, BlockingQueue<Step> finished, Step step) {
+    pool.execute(() -> {
+      try {
+        step.command.execute(model);
+      } catch (RuntimeException | Error e) {
+        step.failure = e;
+      } finally {
+        finished.add(step);
+      }
+    });
+  }
+
+  /**
+   * Shows the messages of the finished steps that follow the steps already shown, up to the
+   * first step that failed.
+   * @return the index of the first step whose messages have not been shown
+   */
+  private int show(List<Step> steps, int shown, int failed) {
+    while (shown < failed && shown < steps.size() && steps.get(shown).done) {
+      for (String message : steps.get(shown).messages) {
+        renderMessage(message);
+      }
+      shown++;
+    }
+    return shown;
+  }
+
+  /**
+   * Helper method used for rendering messages from the view.
+   * @param message The message to be rendered
+   * @throws IllegalStateException if the view cannot render the message.
+   */
+  private void renderMessage(String message) throws IllegalStateException {
+    try {
+      this.view.renderMessage(message);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to render message");
+    }
+  }
+
+  /**
+   * A command of the script together with the steps it depends on. A step is also the view of
+   * its command, keeping the messages of the command until they can be shown in order.
+   */
+  private static final class Step implements ImageEditorView {
+    private final int index;
+    private final List<String> messages;
+    private final Set<Step> dependencies;
+    private final List<Step> dependents;
+    private ImageEditCommand command;
+    private int remaining;
+    private boolean done;
+    private volatile Throwable failure;
+
+    Step(int index) {
+      this.index = index;
+      this.messages = Collections.synchronizedList(new ArrayList<String>());
+      this.dependencies = new LinkedHashSet<Step>();
+      this.dependents = new ArrayList<Step>();
+    }
+
+    void dependOn(Step step) {
+      if (step != null) {
+        dependencies.add(step);
+      }
+    }
+
+    void dependOnAll(List<Step> steps) {
+      dependencies.addAll(steps);
+    }
+
+    @Override
+    public void renderMessage(String message) {
+      messages.add(message);
+    }
+  }
+}
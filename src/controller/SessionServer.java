@@ -0,0 +1,211 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import controller.commands.ImageEditCommand;
+import model.RowExecutor;
+import model.SessionImageEditorModel;
+import model.SharedImages;
+import view.ImageEditorTextView;
+import view.ImageEditorView;
+
+/**
+ * A controller that serves many clients from one JVM. It listens on a local TCP port or a
+ * Unix-domain socket, and runs the commands each connection sends, exactly as in interactive
+ * mode, on a thread of its own, writing the messages back to the connection. A session ends when
+ * the client sends q or quit or closes the connection. A command that fails sends its message to
+ * the client and the session goes on with the next one.
+ *
+ * <p>Every session has its own model, whose images are kept in its own namespace of a store
+ * shared by all sessions, so clients can use the same names without clashing while a file that
+ * several of them load is read once. The images of a session are removed when it ends.
+ *
+ * <p>Sessions run on virtual threads when the JVM has them, which are looked up by reflection
+ * so the server still runs on a JVM without them, where it falls back to a cached pool of
+ * platform threads.
+ */
+public class SessionServer implements ImageEditorController, Closeable {
+  private final ServerSocketChannel server;
+  private final SocketAddress address;
+  private final RowExecutor executor;
+  private final boolean lazy;
+  private final SharedImages shared;
+  private final CommandStats stats;
+  private final AtomicLong nextSession;
+
+  /**
+   * Creates a server listening on the given address.
+   * @param address an InetSocketAddress, or a UnixDomainSocketAddress whose file must not exist
+   * @param executor the executor that splits the rows of images between threads
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @param shared the images the sessions share
+   * @param stats the statistics the commands of every session are recorded in
+   * @throws IllegalArgumentException if any of the arguments is null
+   * @throws IllegalStateException if the server cannot listen on the address
+   */
+  public SessionServer(SocketAddress address, RowExecutor executor, boolean lazy,
+                       SharedImages shared, CommandStats stats)
+          throws IllegalArgumentException, IllegalStateException {
+    if (address == null || executor == null || shared == null || stats == null) {
+      throw new IllegalArgumentException("Must provide address, executor, images, and stats");
+    }
+    try {
+      server = address instanceof UnixDomainSocketAddress
+              ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+      server.bind(address);
+      this.address = server.getLocalAddress();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to listen on " + address);
+    }
+    if (address instanceof UnixDomainSocketAddress) {
+      ((UnixDomainSocketAddress) address).getPath().toFile().deleteOnExit();
+    }
+    this.executor = executor;
+    this.lazy = lazy;
+    this.shared = shared;
+    this.stats = stats;
+    this.nextSession = new AtomicLong();
+  }
+
+  /**
+   * Parses the address to listen on: a port number listens on that port of the loopback
+   * address, and anything else is the pathname of a Unix-domain socket.
+   * @param address the port or pathname
+   * @return the address
+   * @throws IllegalArgumentException if the port is larger than 65535
+   */
+  public static SocketAddress parseAddress(String address) throws IllegalArgumentException {
+    if (address.matches("\\d{1,5}")) {
+      return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+    }
+    return UnixDomainSocketAddress.of(address);
+  }
+
+  /**
+   * Gets the address the server listens on, with the port it was given if it asked for port 0.
+   * @return the address
+   */
+  public SocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Accepts connections until the server is closed, and returns once it is. Sessions that are
+   * still running when it is closed are left to finish.
+   */
+  @Override
+  public void start() {
+    ExecutorService sessions = createSessionExecutor();
+    try {
+      while (true) {
+        SocketChannel channel = server.accept();
+        String session = Long.toString(nextSession.incrementAndGet());
+        sessions.execute(() -> serve(channel, session));
+      }
+    } catch (ClosedChannelException e) {
+      // closed by close()
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to accept connections");
+    } finally {
+      sessions.shutdown();
+    }
+  }
+
+  /**
+   * Runs the commands of one connection until the client quits or goes away.
+   */
+  private void serve(SocketChannel channel, String session) {
+    SessionImageEditorModel model = new SessionImageEditorModel(executor, lazy, shared, session);
+    try (SocketChannel connection = channel) {
+      // flushes every message, which ends with a newline
+      ImageEditorView view = new ImageEditorTextView(new PrintStream(
+              Channels.newOutputStream(connection), true, StandardCharsets.UTF_8));
+      Reader input = Channels.newReader(connection, StandardCharsets.UTF_8);
+      new SessionController(model, view, input, stats).start();
+    } catch (IOException e) {
+      // the client went away while the connection was being closed
+    } finally {
+      model.close();
+    }
+  }
+
+  /**
+   * Creates the executor that runs one session per thread, with a virtual thread for each
+   * session if the JVM has them and a cached pool of daemon threads otherwise.
+   */
+  static ExecutorService createSessionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+              .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // virtual threads are missing, or are a preview feature that was not enabled
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "image-session");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Stops accepting connections, and removes the file of a Unix-domain socket.
+   * @throws IllegalStateException if the server cannot be closed
+   */
+  @Override
+  public void close() throws IllegalStateException {
+    try {
+      server.close();
+      if (address instanceof UnixDomainSocketAddress) {
+        Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to close the server");
+    }
+  }
+
+  /**
+   * The controller of one session, which reports a command that fails to its client instead of
+   * ending the session.
+   */
+  private static final class SessionController extends ImageEditorControllerImpl {
+    private final ImageEditorView view;
+
+    SessionController(SessionImageEditorModel model, ImageEditorView view, Reader input,
+                      CommandStats stats) {
+      super(model, view, input, stats);
+      this.view = view;
+    }
+
+    @Override
+    protected void execute(String name, ImageEditCommand command) {
+      try {
+        super.execute(name, command);
+      } catch (RuntimeException e) {
+        boolean explained = (e instanceof IllegalArgumentException
+                || e instanceof IllegalStateException) && e.getMessage() != null;
+        try {
+          view.renderMessage(explained ? e.getMessage() : "Illegal arguments for " + name);
+        } catch (IOException ignored) {
+          // the client went away, which ends the session once its input runs out
+        }
+      }
+    }
+  }
+}
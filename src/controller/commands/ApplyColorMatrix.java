@@ -0,0 +1,60 @@
+package controller.commands;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import model.ColorMatrix;
+import model.ImageEditorModel;
+import view.ImageEditorView;
+
+/**
+ * Represents the color-matrix command which multiplies the red, green and blue values of every
+ * pixel of an image by a 3x3 matrix.
+ */
+public class ApplyColorMatrix implements ImageEditCommand {
+  private final double[] coefficients;
+  private final String filename;
+  private final String destination;
+  private final ImageEditorView view;
+
+  /**
+   * Constructs a color matrix object which takes the coefficients of the matrix, a filename,
+   * destination, and view. The view is used to display an error message if necessary, such as
+   * when a coefficient is too large.
+   * @param coefficients the nine coefficients of the matrix, row by row
+   * @param filename the file to be edited
+   * @param destination the final image that has been transformed
+   * @param view used for sending error messages.
+   */
+  public ApplyColorMatrix(double[] coefficients, String filename, String destination,
+                          ImageEditorView view) {
+    this.coefficients = coefficients.clone();
+    this.filename = filename;
+    this.destination = destination;
+    this.view = view;
+  }
+
+  @Override
+  public void execute(ImageEditorModel model) {
+    try {
+      model.applyColorMatrix(ColorMatrix.of(coefficients), filename, destination);
+    } catch (IllegalArgumentException e) {
+      try {
+        view.renderMessage(e.getMessage());
+      } catch (IOException ie) {
+        throw new IllegalStateException("Unable to render error message");
+      }
+    }
+  }
+
+  @Override
+  public List<String> reads() {
+    return Collections.singletonList(filename);
+  }
+
+  @Override
+  public List<String> writes() {
+    return Collections.singletonList(destination);
+  }
+}
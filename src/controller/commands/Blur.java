@@ -1,15 +1,20 @@
 package controller.commands;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
+import model.BlurFilter;
 import model.ImageEditorModel;
 import view.ImageEditorView;
 
 /**
  * Represents the blur command which can blur an image by manipulating all the pixels' color
- * values by filtering through a kernel.
+ * values by filtering through a kernel. Given a radius, it applies a Gaussian blur of that
+ * radius instead of the 3x3 kernel.
  */
 public class Blur implements ImageEditCommand {
+  private final Integer radius;
   private final String filename;
   private final String destination;
   private final ImageEditorView view;
@@ -23,6 +28,19 @@ public class Blur implements ImageEditCommand {
    * @param view used for sending error messages.
    */
   public Blur(String filename, String destination, ImageEditorView view) {
+    this(null, filename, destination, view);
+  }
+
+  /**
+   * Constructs a blur object which applies a Gaussian blur of the given radius. The view is
+   * used to display an error message if necessary, such as when the radius is out of range.
+   * @param radius the radius of the blur, or null for the 3x3 kernel
+   * @param filename the file to be edited
+   * @param destination the final image that has been blurred
+   * @param view used for sending error messages.
+   */
+  public Blur(Integer radius, String filename, String destination, ImageEditorView view) {
+    this.radius = radius;
     this.filename = filename;
     this.destination = destination;
     this.view = view;
@@ -31,7 +49,11 @@ public class Blur implements ImageEditCommand {
   @Override
   public void execute(ImageEditorModel model) {
     try {
-      model.blur(filename, destination);
+      if (radius == null) {
+        model.blur(filename, destination);
+      } else {
+        model.blur(BlurFilter.gaussian(radius), filename, destination);
+      }
     } catch (IllegalArgumentException e) {
       try {
         view.renderMessage(e.getMessage());
@@ -40,4 +62,14 @@ public class Blur implements ImageEditCommand {
       }
     }
   }
+
+  @Override
+  public List<String> reads() {
+    return Collections.singletonList(filename);
+  }
+
+  @Override
+  public List<String> writes() {
+    return Collections.singletonList(destination);
+  }
 }
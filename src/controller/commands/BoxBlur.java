@@ -0,0 +1,59 @@
+package controller.commands;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import model.BlurFilter;
+import model.ImageEditorModel;
+import view.ImageEditorView;
+
+/**
+ * Represents the box-blur command which sets every pixel of an image to the mean of the square
+ * of pixels around it.
+ */
+public class BoxBlur implements ImageEditCommand {
+  private final int radius;
+  private final String filename;
+  private final String destination;
+  private final ImageEditorView view;
+
+  /**
+   * Constructs a box blur object which takes a radius, filename, destination, and view. The
+   * view is used to display an error message if necessary, such as when the radius is out of
+   * range.
+   * @param radius the number of pixels on each side of a pixel that are averaged into it
+   * @param filename the file to be edited
+   * @param destination the final image that has been blurred
+   * @param view used for sending error messages.
+   */
+  public BoxBlur(int radius, String filename, String destination, ImageEditorView view) {
+    this.radius = radius;
+    this.filename = filename;
+    this.destination = destination;
+    this.view = view;
+  }
+
+  @Override
+  public void execute(ImageEditorModel model) {
+    try {
+      model.blur(BlurFilter.box(radius), filename, destination);
+    } catch (IllegalArgumentException e) {
+      try {
+        view.renderMessage(e.getMessage());
+      } catch (IOException ie) {
+        throw new IllegalStateException("Unable to render error message");
+      }
+    }
+  }
+
+  @Override
+  public List<String> reads() {
+    return Collections.singletonList(filename);
+  }
+
+  @Override
+  public List<String> writes() {
+    return Collections.singletonList(destination);
+  }
+}
@@ -1,6 +1,8 @@
 package controller.commands;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 import model.ImageEditorModel;
 import view.ImageEditorView;
@@ -43,4 +45,14 @@ public class Darken implements ImageEditCommand {
       }
     }
   }
+
+  @Override
+  public List<String> reads() {
+    return Collections.singletonList(filename);
+  }
+
+  @Override
+  public List<String> writes() {
+    return Collections.singletonList(destination);
+  }
 }
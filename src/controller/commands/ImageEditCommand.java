@@ -1,11 +1,19 @@
 package controller.commands;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.List;
+
 import model.ImageEditorModel;
 
 /**
  * An interface for editing commands. Implementations of this interface represent commands that
  * can be by the model to edit an image. It has one method that executes the command that it
  * represents using the given model.
+ *
+ * <p>Commands also tell which images and files they read and write, so that a scheduler can run
+ * commands that do not depend on each other at the same time. Images are named by their names in
+ * the model and files by fileResource.
  */
 public interface ImageEditCommand {
 
@@ -14,4 +22,36 @@ public interface ImageEditCommand {
    * @param model The model with which to execute the command.
    */
   void execute(ImageEditorModel model);
+
+  /**
+   * Gets the images and files this command reads.
+   * @return the names of the images and the file resources this command reads, or null if they
+   *         are not known, in which case the command is treated as reading everything
+   */
+  default List<String> reads() {
+    return null;
+  }
+
+  /**
+   * Gets the images and files this command writes.
+   * @return the names of the images and the file resources this command writes, or null if they
+   *         are not known, in which case the command is treated as writing everything
+   */
+  default List<String> writes() {
+    return null;
+  }
+
+  /**
+   * Gets the name that stands for a file in reads and writes. Two pathnames of the same file
+   * give the same name.
+   * @param pathname the pathname of the file
+   * @return the name of the file resource
+   */
+  static String fileResource(String pathname) {
+    try {
+      return "file:" + Paths.get(pathname).toAbsolutePath().normalize();
+    } catch (InvalidPathException e) {
+      return "file:" + pathname;
+    }
+  }
 }
@@ -1,5 +1,8 @@
 package controller.commands;
 
+import java.util.Collections;
+import java.util.List;
+
 import model.ImageEditorModel;
 
 /**
@@ -25,4 +28,14 @@ public class Load implements ImageEditCommand {
     String filetype = pathname.substring(pathname.length() - 3);
     model.load(pathname, filename, filetype);
   }
+
+  @Override
+  public List<String> reads() {
+    return Collections.singletonList(ImageEditCommand.fileResource(pathname));
+  }
+
+  @Override
+  public List<String> writes() {
+    return Collections.singletonList(filename);
+  }
 }
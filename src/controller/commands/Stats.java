@@ -0,0 +1,37 @@
+package controller.commands;
+
+import java.io.IOException;
+
+import controller.CommandStats;
+import model.ImageEditorModel;
+import view.ImageEditorView;
+
+/**
+ * Represents the stats command which shows how long the commands run so far took, how much they
+ * allocated and how many pixels per second they processed. It does not say which images it
+ * reads, so a scheduler runs it after every command before it.
+ */
+public class Stats implements ImageEditCommand {
+  private final CommandStats stats;
+  private final ImageEditorView view;
+
+  /**
+   * Constructs a stats object which shows the given statistics on the given view.
+   * @param stats the statistics to show
+   * @param view used for showing the statistics
+   */
+  public Stats(CommandStats stats, ImageEditorView view) {
+    this.stats = stats;
+    this.view = view;
+  }
+
+  @Override
+  public void execute(ImageEditorModel model) {
+    String table = stats.toString();
+    try {
+      view.renderMessage(table.substring(0, table.length() - System.lineSeparator().length()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to render stats");
+    }
+  }
+}
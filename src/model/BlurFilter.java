@@ -0,0 +1,308 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Represents a blur of any radius that can be applied to an image. Unlike a Kernel, whose cost
+ * grows with the square of its size, a blur filter is applied as a horizontal pass followed by
+ * a vertical pass over the rows of the image:
+ *
+ * <ul>
+ *   <li>A Gaussian blur weighs the 2 * radius + 1 neighbors in each direction with a Gaussian
+ *   of standard deviation radius / 2, so its cost grows with the radius.</li>
+ *   <li>A box blur averages the (2 * radius + 1) * (2 * radius + 1) square around each pixel
+ *   with running sums, adding the sample that enters the square and subtracting the one that
+ *   leaves it, so its cost does not depend on the radius at all.</li>
+ * </ul>
+ *
+ * <p>Both blurs work with integer arithmetic and round to the nearest value. Pixels outside of
+ * the image take the value of the nearest edge pixel, so an image of a single color stays that
+ * color and the edges do not darken.
+ */
+public final class BlurFilter {
+
+  /**
+   * The largest radius a blur can have.
+   */
+  public static final int MAX_RADIUS = 1000;
+
+  private static final int WEIGHT_BITS = 14;
+  private static final int FRACTION_BITS = 8;
+
+  private final int radius;
+  private final int[] weights;
+
+  private BlurFilter(int radius, int[] weights) {
+    this.radius = radius;
+    this.weights = weights;
+  }
+
+  /**
+   * Creates a Gaussian blur of the given radius. The weights are those of a Gaussian with a
+   * standard deviation of half the radius, scaled to integers that add up to exactly 2^14.
+   * @param radius the number of neighbors on each side of a pixel that are blurred into it
+   * @return the blur
+   * @throws IllegalArgumentException if the radius is not between 1 and MAX_RADIUS
+   */
+  public static BlurFilter gaussian(int radius) throws IllegalArgumentException {
+    checkRadius(radius);
+    double sigma = radius / 2.0;
+    double[] gaussian = new double[2 * radius + 1];
+    double total = 0;
+    for (int i = -radius; i <= radius; i++) {
+      gaussian[i + radius] = Math.exp(-(i * i) / (2 * sigma * sigma));
+      total += gaussian[i + radius];
+    }
+    int[] weights = new int[2 * radius + 1];
+    int sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = (int) Math.round(gaussian[i] / total * (1 << WEIGHT_BITS));
+      sum += weights[i];
+    }
+    weights[radius] += (1 << WEIGHT_BITS) - sum;
+    return new BlurFilter(radius, weights);
+  }
+
+  /**
+   * Creates a box blur of the given radius, which sets every pixel to the mean of the square
+   * of pixels around it.
+   * @param radius the number of neighbors on each side of a pixel that are averaged into it
+   * @return the blur
+   * @throws IllegalArgumentException if the radius is not between 1 and MAX_RADIUS
+   */
+  public static BlurFilter box(int radius) throws IllegalArgumentException {
+    checkRadius(radius);
+    return new BlurFilter(radius, null);
+  }
+
+  private static void checkRadius(int radius) throws IllegalArgumentException {
+    if (radius < 1 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("Blur radius must be between 1 and " + MAX_RADIUS);
+    }
+  }
+
+  /**
+   * Gets the number of neighbors on each side of a pixel that are blurred into it.
+   * @return the radius of the blur
+   */
+  public int getRadius() {
+    return radius;
+  }
+
+  /**
+   * Checks whether this is a box blur rather than a Gaussian blur.
+   * @return true if every pixel in the square around a pixel has the same weight
+   */
+  public boolean isBox() {
+    return weights == null;
+  }
+
+  /**
+   * Applies this blur to an image, splitting the rows of each pass between the threads of the
+   * given executor. The result does not depend on how the rows are split.
+   * @param image the image to blur
+   * @param executor the executor to run the rows on
+   * @return a new packed image holding the blurred pixels
+   */
+  public PackedImage apply(Image image, RowExecutor executor) {
+    PackedImage source = image instanceof PackedImage
+            ? (PackedImage) image : PackedImage.copyOf(image);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    return new PackedImage(width, height, filter(source.getData(), width, height, executor));
+  }
+
+  /**
+   * Blurs packed pixels.
+   * @param pixels the width * height packed pixels to blur, which are not changed
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param executor the executor to run the rows on
+   * @return a new array holding the blurred pixels
+   */
+  int[] filter(int[] pixels, int width, int height, RowExecutor executor) {
+    int[] result = new int[width * height];
+    if (result.length == 0) {
+      return result;
+    }
+    if (weights == null) {
+      int[][] sums = new int[3][width * height];
+      executor.forEachBand(width, height,
+              (band, rowStart, rowEnd) -> boxRows(pixels, sums, width, rowStart, rowEnd));
+      executor.forEachBand(width, height,
+              (band, rowStart, rowEnd) -> boxColumns(sums, result, width, height, rowStart,
+                      rowEnd));
+    } else {
+      char[][] planes = new char[3][width * height];
+      executor.forEachBand(width, height,
+              (band, rowStart, rowEnd) -> gaussianRows(pixels, planes, width, rowStart, rowEnd));
+      executor.forEachBand(width, height,
+              (band, rowStart, rowEnd) -> gaussianColumns(planes, result, width, height,
+                      rowStart, rowEnd));
+    }
+    return result;
+  }
+
+  /**
+   * Splits a row into its red, green and blue samples, repeating the samples at either end
+   * radius times so that every pixel of the row has all of its neighbors.
+   */
+  private void padRow(int[] pixels, int offset, int width, int[][] padded) {
+    int[] red = padded[0];
+    int[] green = padded[1];
+    int[] blue = padded[2];
+    for (int col = 0; col < width; col++) {
+      int rgb = pixels[offset + col];
+      red[radius + col] = (rgb >> 16) & 0xFF;
+      green[radius + col] = (rgb >> 8) & 0xFF;
+      blue[radius + col] = rgb & 0xFF;
+    }
+    for (int[] band : padded) {
+      Arrays.fill(band, 0, radius, band[radius]);
+      Arrays.fill(band, radius + width, width + 2 * radius, band[radius + width - 1]);
+    }
+  }
+
+  /**
+   * Weighs the neighbors of each pixel in the rows from rowStart up to but not including rowEnd,
+   * keeping the sums with 8 fractional bits. The sums are built one weight at a time across the
+   * whole row, which keeps the inner loop simple enough for the JIT to vectorize, and the two
+   * neighbors that share a weight are added before they are weighed.
+   */
+  private void gaussianRows(int[] pixels, char[][] planes, int width, int rowStart,
+                            int rowEnd) {
+    int[][] padded = new int[3][width + 2 * radius];
+    int[] sums = new int[width];
+    int shift = WEIGHT_BITS - FRACTION_BITS;
+    int half = 1 << (shift - 1);
+    int center = weights[radius];
+    for (int row = rowStart; row < rowEnd; row++) {
+      int offset = row * width;
+      padRow(pixels, offset, width, padded);
+      for (int band = 0; band < 3; band++) {
+        int[] samples = padded[band];
+        char[] plane = planes[band];
+        for (int col = 0; col < width; col++) {
+          sums[col] = center * samples[col + radius];
+        }
+        for (int tap = 0; tap < radius; tap++) {
+          int weight = weights[tap];
+          int mirror = 2 * radius - tap;
+          for (int col = 0; col < width; col++) {
+            sums[col] += weight * (samples[col + tap] + samples[col + mirror]);
+          }
+        }
+        for (int col = 0; col < width; col++) {
+          plane[offset + col] = (char) ((sums[col] + half) >> shift);
+        }
+      }
+    }
+  }
+
+  /**
+   * Weighs the rows above and below each row from rowStart up to but not including rowEnd, and
+   * packs the rounded results.
+   */
+  private void gaussianColumns(char[][] planes, int[] result, int width, int height,
+                               int rowStart, int rowEnd) {
+    int[][] sums = new int[3][width];
+    int shift = WEIGHT_BITS + FRACTION_BITS;
+    int half = 1 << (shift - 1);
+    int center = weights[radius];
+    for (int row = rowStart; row < rowEnd; row++) {
+      int offset = row * width;
+      for (int band = 0; band < 3; band++) {
+        int[] sum = sums[band];
+        char[] plane = planes[band];
+        for (int col = 0; col < width; col++) {
+          sum[col] = half + center * plane[offset + col];
+        }
+        for (int tap = 0; tap < radius; tap++) {
+          int weight = weights[tap];
+          int above = clamp(row + tap - radius, height) * width;
+          int below = clamp(row + radius - tap, height) * width;
+          for (int col = 0; col < width; col++) {
+            sum[col] += weight * (plane[above + col] + plane[below + col]);
+          }
+        }
+      }
+      for (int col = 0; col < width; col++) {
+        result[offset + col] = PackedImage.pack(sums[0][col] >> shift, sums[1][col] >> shift,
+                sums[2][col] >> shift);
+      }
+    }
+  }
+
+  /**
+   * Sums the 2 * radius + 1 samples around each pixel in the rows from rowStart up to but not
+   * including rowEnd, sliding the sum along the row.
+   */
+  private void boxRows(int[] pixels, int[][] sums, int width, int rowStart, int rowEnd) {
+    int[][] padded = new int[3][width + 2 * radius];
+    int span = 2 * radius + 1;
+    for (int row = rowStart; row < rowEnd; row++) {
+      int offset = row * width;
+      padRow(pixels, offset, width, padded);
+      for (int band = 0; band < 3; band++) {
+        int[] samples = padded[band];
+        int[] rowSums = sums[band];
+        int sum = 0;
+        for (int i = 0; i < span; i++) {
+          sum += samples[i];
+        }
+        for (int col = 0; col < width; col++) {
+          rowSums[offset + col] = sum;
+          if (col + 1 < width) {
+            sum += samples[col + span] - samples[col];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sums the row sums of the 2 * radius + 1 rows around each row from rowStart up to but not
+   * including rowEnd, sliding the sums down the rows, and packs the rounded means.
+   */
+  private void boxColumns(int[][] sums, int[] result, int width, int height, int rowStart,
+                          int rowEnd) {
+    int area = (2 * radius + 1) * (2 * radius + 1);
+    int half = area / 2;
+    int[][] columns = new int[3][width];
+    for (int band = 0; band < 3; band++) {
+      int[] column = columns[band];
+      int[] rowSums = sums[band];
+      for (int i = rowStart - radius; i <= rowStart + radius; i++) {
+        int from = clamp(i, height) * width;
+        for (int col = 0; col < width; col++) {
+          column[col] += rowSums[from + col];
+        }
+      }
+    }
+    for (int row = rowStart; row < rowEnd; row++) {
+      int offset = row * width;
+      int[] red = columns[0];
+      int[] green = columns[1];
+      int[] blue = columns[2];
+      for (int col = 0; col < width; col++) {
+        result[offset + col] = PackedImage.pack((red[col] + half) / area,
+                (green[col] + half) / area, (blue[col] + half) / area);
+      }
+      if (row + 1 < rowEnd) {
+        int entering = clamp(row + radius + 1, height) * width;
+        int leaving = clamp(row - radius, height) * width;
+        for (int band = 0; band < 3; band++) {
+          int[] column = columns[band];
+          int[] rowSums = sums[band];
+          for (int col = 0; col < width; col++) {
+            column[col] += rowSums[entering + col] - rowSums[leaving + col];
+          }
+        }
+      }
+    }
+  }
+
+  private static int clamp(int row, int height) {
+    return row < 0 ? 0 : row >= height ? height - 1 : row;
+  }
+}
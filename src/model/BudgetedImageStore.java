@@ -0,0 +1,247 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An image store that keeps the images it holds in memory under a budget of heap bytes. When
+ * the images take more than the budget, the least recently used ones are written to binary PPM
+ * (P6) files in a spill directory and dropped from memory. An image that has been spilled is
+ * memory-mapped from its file the next time it is asked for, so reading it back costs no heap.
+ *
+ * <p>The size of an image is an estimate of the heap it keeps alive: four bytes per pixel for
+ * packed images, nothing for memory-mapped images, and a rough estimate of the Pixel objects of
+ * other images. The store counts hits, which are images found in memory, misses, which are
+ * images read back from their spill file, and spills.
+ */
+public class BudgetedImageStore implements ImageStore {
+  // a rough size of a Pixel object and the reference to it in its row
+  private static final long PIXEL_OBJECT_SIZE = 36;
+
+  private final long budget;
+  private final File directory;
+  private final LinkedHashMap<String, Entry> entries;
+  private long size;
+  private long hits;
+  private long misses;
+  private long spills;
+  private int nextFile;
+
+  /**
+   * Creates a store with the given budget that spills images to a new temporary directory.
+   * @param budget the number of heap bytes the images in memory may take
+   * @throws IllegalArgumentException if the budget is negative
+   * @throws IllegalStateException if the temporary directory cannot be created
+   */
+  public BudgetedImageStore(long budget)
+          throws IllegalArgumentException, IllegalStateException {
+    this(budget, createDirectory());
+  }
+
+  /**
+   * Creates a store with the given budget that spills images to the given directory.
+   * @param budget the number of heap bytes the images in memory may take
+   * @param directory the directory to write spilled images to
+   * @throws IllegalArgumentException if the budget is negative or the directory is null
+   */
+  public BudgetedImageStore(long budget, File directory) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative");
+    }
+    if (directory == null) {
+      throw new IllegalArgumentException("Spill directory cannot be null");
+    }
+    this.budget = budget;
+    this.directory = directory;
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  }
+
+  private static File createDirectory() throws IllegalStateException {
+    try {
+      File directory = Files.createTempDirectory("image-editor-spill").toFile();
+      directory.deleteOnExit();
+      return directory;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create a spill directory");
+    }
+  }
+
+  @Override
+  public synchronized Image get(String name) throws IllegalStateException {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.image == null) {
+      misses++;
+      entry.image = ImageUtil.readPPM(entry.file.getPath());
+    } else {
+      hits++;
+    }
+    // a deferred image may have been materialized since it was stored
+    resize(entry);
+    evict(name);
+    return entry.image;
+  }
+
+  @Override
+  public synchronized Image put(String name, Image image) throws IllegalStateException {
+    Entry old = entries.remove(name);
+    Image replaced = null;
+    if (old != null) {
+      size -= old.size;
+      replaced = old.image;
+      deleteFile(old);
+    }
+    Entry entry = new Entry(image);
+    entries.put(name, entry);
+    resize(entry);
+    evict(name);
+    return replaced;
+  }
+
+  @Override
+  public synchronized boolean containsKey(String name) {
+    return entries.containsKey(name);
+  }
+
+  @Override
+  public synchronized Image remove(String name) {
+    Entry old = entries.remove(name);
+    if (old == null) {
+      return null;
+    }
+    size -= old.size;
+    deleteFile(old);
+    return old.image;
+  }
+
+  /**
+   * Gets the number of heap bytes the images in memory may take.
+   * @return the budget of this store
+   */
+  public long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Gets the estimated number of heap bytes the images in memory take.
+   * @return the size of the images in memory
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the number of times an image was found in memory.
+   * @return the number of hits
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of times an image had to be read back from its spill file.
+   * @return the number of misses
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of times an image was written to a spill file.
+   * @return the number of spills
+   */
+  public synchronized long getSpills() {
+    return spills;
+  }
+
+  private void resize(Entry entry) {
+    long newSize = sizeOf(entry.image);
+    size += newSize - entry.size;
+    entry.size = newSize;
+  }
+
+  /**
+   * Spills the least recently used images until the images in memory fit in the budget. The
+   * image with the given name was just used and is kept in memory.
+   * @throws IllegalStateException if an image cannot be written to its spill file
+   */
+  private void evict(String keep) throws IllegalStateException {
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while (size > budget && iterator.hasNext()) {
+      Map.Entry<String, Entry> next = iterator.next();
+      Entry entry = next.getValue();
+      if (entry.size == 0 || next.getKey().equals(keep)) {
+        continue;
+      }
+      try {
+        spill(entry);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to spill " + next.getKey() + " to "
+                + directory + ", the images are over budget");
+      }
+    }
+  }
+
+  private void spill(Entry entry) throws IOException {
+    if (entry.file == null) {
+      File file = new File(directory, "spill-" + nextFile++ + ".ppm");
+      file.deleteOnExit();
+      ImageUtil.writeRawPPM(file.getPath(), entry.image);
+      // only set once the file is complete, so a failed spill is tried again
+      entry.file = file;
+    }
+    if (entry.image instanceof PackedImage) {
+      ((PackedImage) entry.image).release();
+    } else if (entry.image instanceof DeferredImage) {
+      ((DeferredImage) entry.image).release();
+    }
+    entry.image = null;
+    size -= entry.size;
+    entry.size = 0;
+    spills++;
+  }
+
+  private void deleteFile(Entry entry) {
+    if (entry.file != null) {
+      // a file that is still mapped cannot be deleted on some systems, it is deleted on exit
+      entry.file.delete();
+    }
+  }
+
+  /**
+   * Estimates the number of heap bytes an image keeps alive.
+   * @param image the image
+   * @return the estimated size of the image
+   */
+  static long sizeOf(Image image) {
+    if (image == null || image instanceof MappedImage || image instanceof TiledImage) {
+      return 0;
+    }
+    long pixels = (long) image.getWidth() * image.getHeight();
+    if (image instanceof PackedImage) {
+      return 4 * pixels;
+    } else if (image instanceof DeferredImage) {
+      return ((DeferredImage) image).isHoldingPixels() ? 4 * pixels : 0;
+    }
+    return PIXEL_OBJECT_SIZE * pixels;
+  }
+
+  /**
+   * An image in the store, or the file it was spilled to.
+   */
+  private static final class Entry {
+    private Image image;
+    private File file;
+    private long size;
+
+    Entry(Image image) {
+      this.image = image;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a color operation that multiplies the red, green and blue samples of a pixel by a
+ * 3x3 matrix. Each row of the matrix gives one new sample as a weighted sum of the old ones:
+ * row 0 the red sample, row 1 the green one and row 2 the blue one.
+ *
+ * <p>The coefficients are kept as integers in 16.16 fixed point, so a pixel is transformed with
+ * integer multiplies, an arithmetic shift that rounds down and a clamp to 0 to 255. Because the
+ * coefficients are rounded to the nearest 1/65536, a sample can differ by one from the same
+ * matrix evaluated in double precision. When all three rows are the same, as they are for
+ * grayscale matrices such as LUMA, only one weighted sum is made per pixel.
+ *
+ * <p>Matrices are immutable. Two matrices can be composed with andThen into their product,
+ * which transforms a pixel in one step instead of two.
+ */
+public final class ColorMatrix implements IntUnaryOperator {
+
+  /**
+   * The grayscale matrix that replaces each sample with the luma of the pixel.
+   */
+  public static final ColorMatrix LUMA = of(
+      0.2126, 0.7152, 0.0722,
+      0.2126, 0.7152, 0.0722,
+      0.2126, 0.7152, 0.0722);
+
+  /**
+   * The matrix that tones an image in sepia.
+   */
+  public static final ColorMatrix SEPIA = of(
+      0.393, 0.769, 0.189,
+      0.349, 0.686, 0.168,
+      0.272, 0.534, 0.131);
+
+  /**
+   * The largest absolute value a coefficient can have, which keeps every weighted sum of three
+   * samples in an int.
+   */
+  public static final double MAX_COEFFICIENT = 32;
+
+  private static final int SHIFT = 16;
+  private static final int ONE = 1 << SHIFT;
+
+  private final double[] coefficients;
+  private final int[] fixed;
+  private final boolean grey;
+
+  private ColorMatrix(double[] coefficients) {
+    this.coefficients = coefficients;
+    this.fixed = new int[9];
+    for (int i = 0; i < 9; i++) {
+      fixed[i] = (int) Math.round(coefficients[i] * ONE);
+    }
+    this.grey = fixed[0] == fixed[3] && fixed[0] == fixed[6]
+            && fixed[1] == fixed[4] && fixed[1] == fixed[7]
+            && fixed[2] == fixed[5] && fixed[2] == fixed[8];
+  }
+
+  /**
+   * Creates a matrix from its nine coefficients, row by row.
+   * @param coefficients the coefficients of the red, green and blue rows, three each
+   * @return the matrix
+   * @throws IllegalArgumentException if there are not nine coefficients, or any of them is not
+   *                                  a number between -MAX_COEFFICIENT and MAX_COEFFICIENT
+   */
+  public static ColorMatrix of(double... coefficients) throws IllegalArgumentException {
+    if (coefficients == null || coefficients.length != 9) {
+      throw new IllegalArgumentException("A color matrix needs 9 coefficients");
+    }
+    for (double coefficient : coefficients) {
+      if (!(Math.abs(coefficient) <= MAX_COEFFICIENT)) {
+        throw new IllegalArgumentException("Color matrix coefficients must be between -"
+                + (int) MAX_COEFFICIENT + " and " + (int) MAX_COEFFICIENT);
+      }
+    }
+    return new ColorMatrix(coefficients.clone());
+  }
+
+  /**
+   * Composes this matrix with another one into their product, which applies this matrix first.
+   * The product does not clamp or round the samples in between, so it only gives the same
+   * pixels as applying the two matrices one after the other, give or take one, when both
+   * matrices stay in range; otherwise the differences can be much larger.
+   * @param next the matrix to apply to the results of this matrix
+   * @return the composed matrix
+   * @throws IllegalArgumentException if the matrix is null, or a coefficient of the product is
+   *                                  larger than MAX_COEFFICIENT
+   */
+  public ColorMatrix andThen(ColorMatrix next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("Matrix cannot be null");
+    }
+    return of(multiply(next));
+  }
+
+  /**
+   * Composes this matrix with another one into their product when that gives the same pixels
+   * as applying them one after the other, give or take one, which is when both stay in range.
+   * @param next the matrix to apply to the results of this matrix
+   * @return the composed matrix, or null if the two matrices cannot be composed
+   */
+  ColorMatrix fuse(ColorMatrix next) {
+    if (!staysInRange() || !next.staysInRange()) {
+      return null;
+    }
+    return new ColorMatrix(multiply(next));
+  }
+
+  private double[] multiply(ColorMatrix next) {
+    double[] product = new double[9];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        for (int k = 0; k < 3; k++) {
+          product[row * 3 + col] += next.coefficients[row * 3 + k] * coefficients[k * 3 + col];
+        }
+      }
+    }
+    return product;
+  }
+
+  /**
+   * Checks whether this matrix keeps every sample between 0 and 255, which is the case when no
+   * coefficient is negative and no row adds up to more than one, allowing for the rounding of
+   * the coefficients. Such a matrix is never clamped.
+   * @return true if no sample is ever clamped
+   */
+  public boolean staysInRange() {
+    for (int row = 0; row < 3; row++) {
+      int sum = fixed[row * 3] + fixed[row * 3 + 1] + fixed[row * 3 + 2];
+      if (fixed[row * 3] < 0 || fixed[row * 3 + 1] < 0 || fixed[row * 3 + 2] < 0
+              || (255 * sum) >> SHIFT > 255) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether all three rows of this matrix are the same, so it turns every pixel grey.
+   * @return true if every new sample of a pixel is the same
+   */
+  public boolean isGrey() {
+    return grey;
+  }
+
+  /**
+   * Gets one coefficient of this matrix as it was given.
+   * @param row the row of the coefficient, 0 for red, 1 for green and 2 for blue
+   * @param col the column of the coefficient, the sample it weighs
+   * @return the coefficient
+   */
+  public double getCoefficient(int row, int col) {
+    return coefficients[row * 3 + col];
+  }
+
+  /**
+   * Gets the 16.16 fixed point coefficients the matrix is applied with, row by row.
+   * @return a copy of the nine coefficients
+   */
+  int[] getFixedCoefficients() {
+    return fixed.clone();
+  }
+
+  /**
+   * Applies this matrix to a pixel.
+   * @param rgb the 0xRRGGBB value of the pixel
+   * @return the new 0xRRGGBB value
+   */
+  @Override
+  public int applyAsInt(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
+    int newRed = PackedImage.clamp((fixed[0] * red + fixed[1] * green + fixed[2] * blue)
+            >> SHIFT);
+    if (grey) {
+      return (newRed << 16) | (newRed << 8) | newRed;
+    }
+    int newGreen = PackedImage.clamp((fixed[3] * red + fixed[4] * green + fixed[5] * blue)
+            >> SHIFT);
+    int newBlue = PackedImage.clamp((fixed[6] * red + fixed[7] * green + fixed[8] * blue)
+            >> SHIFT);
+    return (newRed << 16) | (newGreen << 8) | newBlue;
+  }
+}
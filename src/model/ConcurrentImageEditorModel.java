@@ -0,0 +1,169 @@
+package model;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A model that can be used by many threads at once, for example to run several scripts or
+ * sessions against the same images. Images are kept in a ConcurrentHashMap and are never
+ * changed once they have been stored: every edit writes a new image and publishes it by storing
+ * it, so a thread reading an image always sees a complete one.
+ *
+ * <p>Edits that store their result under the same name run one at a time, using a lock picked
+ * by the hash of the destination name. This keeps an edit such as "brighten 10 a a" that two
+ * threads run at once from losing one of the two results, while edits to different names run in
+ * parallel. Reads, saves and histograms take no lock.
+ */
+public class ConcurrentImageEditorModel extends ImageEditorModelImpl {
+  private static final int STRIPES = 64;
+
+  private final ReentrantLock[] locks;
+
+  /**
+   * Creates a concurrent model that splits the rows of large images between the threads of the
+   * common ForkJoinPool.
+   */
+  public ConcurrentImageEditorModel() {
+    this(RowExecutor.common(), false);
+  }
+
+  /**
+   * Creates a concurrent model that runs its editing loops on the given executor, and that
+   * defers and fuses per-pixel operations if lazy is true.
+   * @param executor the executor that splits the rows of images between threads
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @throws IllegalArgumentException if the executor is null
+   */
+  public ConcurrentImageEditorModel(RowExecutor executor, boolean lazy)
+          throws IllegalArgumentException {
+    this(executor, lazy, new ConcurrentImageStore());
+  }
+
+  /**
+   * Creates a concurrent model that keeps its images in the given store, which must be safe to
+   * use from many threads.
+   * @param executor the executor that splits the rows of images between threads
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @param store the store to keep the images of the model in
+   * @throws IllegalArgumentException if the executor or the store is null
+   */
+  public ConcurrentImageEditorModel(RowExecutor executor, boolean lazy, ImageStore store)
+          throws IllegalArgumentException {
+    super(executor, lazy, store);
+    locks = new ReentrantLock[STRIPES];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  @Override
+  protected boolean allowsInPlaceEdits() {
+    return false;
+  }
+
+  /**
+   * Runs an edit while holding the lock of the name it stores its result under.
+   * @param destination the name the edit stores its result under
+   * @param edit the edit to run
+   */
+  private void locked(String destination, Runnable edit) {
+    int hash = destination.hashCode();
+    ReentrantLock lock = locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    lock.lock();
+    try {
+      edit.run();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void load(String pathname, String filename, String filetype)
+          throws IllegalArgumentException {
+    locked(filename, () -> super.load(pathname, filename, filetype));
+  }
+
+  @Override
+  public void visualizeRed(String filename, String destination) {
+    locked(destination, () -> super.visualizeRed(filename, destination));
+  }
+
+  @Override
+  public void visualizeGreen(String filename, String destination) {
+    locked(destination, () -> super.visualizeGreen(filename, destination));
+  }
+
+  @Override
+  public void visualizeBlue(String filename, String destination) {
+    locked(destination, () -> super.visualizeBlue(filename, destination));
+  }
+
+  @Override
+  public void visualizeValue(String filename, String destination) {
+    locked(destination, () -> super.visualizeValue(filename, destination));
+  }
+
+  @Override
+  public void visualizeIntensity(String filename, String destination) {
+    locked(destination, () -> super.visualizeIntensity(filename, destination));
+  }
+
+  @Override
+  public void visualizeLuma(String filename, String destination) {
+    locked(destination, () -> super.visualizeLuma(filename, destination));
+  }
+
+  @Override
+  public void visualizeSepia(String filename, String destination) {
+    locked(destination, () -> super.visualizeSepia(filename, destination));
+  }
+
+  @Override
+  public void flipHorizontal(String filename, String destination) {
+    locked(destination, () -> super.flipHorizontal(filename, destination));
+  }
+
+  @Override
+  public void flipVertical(String filename, String destination) {
+    locked(destination, () -> super.flipVertical(filename, destination));
+  }
+
+  @Override
+  public void brighten(int scale, String filename, String destination) {
+    locked(destination, () -> super.brighten(scale, filename, destination));
+  }
+
+  @Override
+  public void darken(int scale, String filename, String destination) {
+    locked(destination, () -> super.darken(scale, filename, destination));
+  }
+
+  @Override
+  public void applyLookupTable(LookupTable table, String filename, String destination) {
+    locked(destination, () -> super.applyLookupTable(table, filename, destination));
+  }
+
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix, String filename, String destination) {
+    locked(destination, () -> super.applyColorMatrix(matrix, filename, destination));
+  }
+
+  @Override
+  public void filter(Kernel kernel, String filename, String destination) {
+    locked(destination, () -> super.filter(kernel, filename, destination));
+  }
+
+  @Override
+  public void blur(BlurFilter blur, String filename, String destination) {
+    locked(destination, () -> super.blur(blur, filename, destination));
+  }
+
+  @Override
+  public void blur(String filename, String destination) {
+    locked(destination, () -> super.blur(filename, destination));
+  }
+
+  @Override
+  public void sharpen(String filename, String destination) {
+    locked(destination, () -> super.sharpen(filename, destination));
+  }
+}
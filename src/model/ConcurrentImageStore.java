@@ -0,0 +1,35 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An image store that keeps every image in memory in a ConcurrentHashMap, so images can be
+ * read and stored by many threads at once without blocking each other.
+ */
+public class ConcurrentImageStore implements ImageStore {
+  private final ConcurrentHashMap<String, Image> images;
+
+  public ConcurrentImageStore() {
+    images = new ConcurrentHashMap<String, Image>();
+  }
+
+  @Override
+  public Image get(String name) {
+    return images.get(name);
+  }
+
+  @Override
+  public Image put(String name, Image image) {
+    return images.put(name, image);
+  }
+
+  @Override
+  public boolean containsKey(String name) {
+    return images.containsKey(name);
+  }
+
+  @Override
+  public Image remove(String name) {
+    return images.remove(name);
+  }
+}
@@ -0,0 +1,215 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Applies a Kernel to the packed pixels of an image. Every output pixel is the weighted sum of
+ * the source pixels under the kernel, computed separately for red, green and blue and clamped
+ * to 0 to 255. Neighbors that fall outside of the image are left out of the sum.
+ *
+ * <p>The pixels are split into an interior, where the whole kernel lies inside of the image and
+ * the neighbors are read without any bounds checks, and a border of kernel-radius width around
+ * it that checks each neighbor. Kernels with power-of-two weights are applied with integer
+ * arithmetic.
+ */
+public final class Convolution {
+  private final int width;
+  private final int height;
+  private final int radius;
+  private final int[] rowOffsets;
+  private final int[] colOffsets;
+  private final int[] offsets;
+  private final int[] fixedWeights;
+  private final double[] weights;
+  private final int shift;
+
+  /**
+   * Prepares a kernel to be applied to images of the given size.
+   * @param kernel the kernel to apply
+   * @param width the width of the images
+   * @param height the height of the images
+   */
+  Convolution(Kernel kernel, int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.radius = kernel.getSize() / 2;
+
+    int taps = 0;
+    for (int i = 0; i < kernel.getSize(); i++) {
+      for (int j = 0; j < kernel.getSize(); j++) {
+        if (kernel.getWeight(i, j) != 0) {
+          taps++;
+        }
+      }
+    }
+
+    rowOffsets = new int[taps];
+    colOffsets = new int[taps];
+    offsets = new int[taps];
+    weights = new double[taps];
+    fixedWeights = kernel.isFixedPoint() ? new int[taps] : null;
+    shift = kernel.isFixedPoint() ? kernel.getShift() : 0;
+
+    int tap = 0;
+    for (int i = 0; i < kernel.getSize(); i++) {
+      for (int j = 0; j < kernel.getSize(); j++) {
+        if (kernel.getWeight(i, j) != 0) {
+          rowOffsets[tap] = i - radius;
+          colOffsets[tap] = j - radius;
+          offsets[tap] = (i - radius) * width + (j - radius);
+          weights[tap] = kernel.getWeight(i, j);
+          if (fixedWeights != null) {
+            fixedWeights[tap] = kernel.getFixedWeight(i, j);
+          }
+          tap++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies a kernel to an image on the calling thread.
+   * @param kernel the kernel to apply
+   * @param image the image to filter
+   * @return a new packed image holding the filtered pixels
+   */
+  public static PackedImage apply(Kernel kernel, Image image) {
+    return apply(kernel, image, RowExecutor.sequential());
+  }
+
+  /**
+   * Applies a kernel to an image, splitting its rows between the threads of the given executor.
+   * Every row is filtered from the unchanged source, so the result does not depend on how the
+   * rows are split.
+   * @param kernel the kernel to apply
+   * @param image the image to filter
+   * @param executor the executor to run the rows on
+   * @return a new packed image holding the filtered pixels
+   */
+  public static PackedImage apply(Kernel kernel, Image image, RowExecutor executor) {
+    PackedImage source = image instanceof PackedImage
+            ? (PackedImage) image : PackedImage.copyOf(image);
+    int[] pixels = source.getData();
+    int[] result = new int[pixels.length];
+    Convolution convolution = new Convolution(kernel, source.getWidth(), source.getHeight());
+    executor.forEachBand(source.getWidth(), source.getHeight(),
+            (band, rowStart, rowEnd) -> convolution.filterRows(pixels, result, rowStart, rowEnd));
+    return new PackedImage(source.getWidth(), source.getHeight(), result);
+  }
+
+  /**
+   * Filters the rows from rowStart up to but not including rowEnd.
+   * @param src the packed pixels of the whole source image
+   * @param dst the array to write the filtered pixels of the rows to
+   * @param rowStart the first row to filter
+   * @param rowEnd the row after the last row to filter
+   */
+  void filterRows(int[] src, int[] dst, int rowStart, int rowEnd) {
+    int interiorStart = Math.min(radius, width);
+    int interiorEnd = Math.max(width - radius, interiorStart);
+    int[][] sums = new int[3][interiorEnd - interiorStart];
+
+    for (int row = rowStart; row < rowEnd; row++) {
+      if (row < radius || row >= height - radius) {
+        filterChecked(src, dst, row, 0, width);
+        continue;
+      }
+      filterChecked(src, dst, row, 0, interiorStart);
+      if (fixedWeights != null) {
+        filterFixed(src, dst, sums, row, interiorStart, interiorEnd);
+      } else {
+        filterDouble(src, dst, row, interiorStart, interiorEnd);
+      }
+      filterChecked(src, dst, row, interiorEnd, width);
+    }
+  }
+
+  /**
+   * Filters pixels whose whole kernel lies inside of the image using integer weights. The sums
+   * are built one kernel weight at a time across the whole run of pixels, which keeps the inner
+   * loop simple enough for the JIT to vectorize.
+   */
+  private void filterFixed(int[] src, int[] dst, int[][] sums, int row, int colStart,
+                           int colEnd) {
+    int count = colEnd - colStart;
+    int[] red = sums[0];
+    int[] green = sums[1];
+    int[] blue = sums[2];
+    Arrays.fill(red, 0);
+    Arrays.fill(green, 0);
+    Arrays.fill(blue, 0);
+    int start = row * width + colStart;
+    for (int tap = 0; tap < offsets.length; tap++) {
+      int from = start + offsets[tap];
+      int weight = fixedWeights[tap];
+      for (int i = 0; i < count; i++) {
+        int rgb = src[from + i];
+        red[i] += weight * ((rgb >> 16) & 0xFF);
+        green[i] += weight * ((rgb >> 8) & 0xFF);
+        blue[i] += weight * (rgb & 0xFF);
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      dst[start + i] = PackedImage.pack(red[i] >> shift, green[i] >> shift, blue[i] >> shift);
+    }
+  }
+
+  /**
+   * Filters pixels whose whole kernel lies inside of the image using floating point weights.
+   */
+  private void filterDouble(int[] src, int[] dst, int row, int colStart, int colEnd) {
+    int taps = offsets.length;
+    for (int center = row * width + colStart, end = row * width + colEnd; center < end;
+         center++) {
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      for (int tap = 0; tap < taps; tap++) {
+        int rgb = src[center + offsets[tap]];
+        double weight = weights[tap];
+        red += weight * ((rgb >> 16) & 0xFF);
+        green += weight * ((rgb >> 8) & 0xFF);
+        blue += weight * (rgb & 0xFF);
+      }
+      dst[center] = PackedImage.pack((int) red, (int) green, (int) blue);
+    }
+  }
+
+  /**
+   * Filters pixels near the edge of the image, leaving out neighbors outside of the image.
+   */
+  private void filterChecked(int[] src, int[] dst, int row, int colStart, int colEnd) {
+    for (int col = colStart; col < colEnd; col++) {
+      int center = row * width + col;
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      int fixedRed = 0;
+      int fixedGreen = 0;
+      int fixedBlue = 0;
+      for (int tap = 0; tap < offsets.length; tap++) {
+        int r = row + rowOffsets[tap];
+        int c = col + colOffsets[tap];
+        if (r < 0 || r >= height || c < 0 || c >= width) {
+          continue;
+        }
+        int rgb = src[center + offsets[tap]];
+        if (fixedWeights != null) {
+          fixedRed += fixedWeights[tap] * ((rgb >> 16) & 0xFF);
+          fixedGreen += fixedWeights[tap] * ((rgb >> 8) & 0xFF);
+          fixedBlue += fixedWeights[tap] * (rgb & 0xFF);
+        } else {
+          red += weights[tap] * ((rgb >> 16) & 0xFF);
+          green += weights[tap] * ((rgb >> 8) & 0xFF);
+          blue += weights[tap] * (rgb & 0xFF);
+        }
+      }
+      if (fixedWeights != null) {
+        dst[center] = PackedImage.pack(fixedRed >> shift, fixedGreen >> shift,
+                fixedBlue >> shift);
+      } else {
+        dst[center] = PackedImage.pack((int) red, (int) green, (int) blue);
+      }
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents an image that has not been computed yet: a source image and a per-pixel operation
+ * that still has to be applied to it. Applying another per-pixel operation to a deferred image
+ * composes the two operations instead of computing the first one, so a chain of point
+ * operations is fused into a single pass over the source pixels. Consecutive lookup tables are
+ * composed into one table, and so are consecutive color matrices when the first one never
+ * clamps a sample, which may change samples by one because the product is rounded once. Other
+ * operations are kept in a chain and applied one after the other rather than nested into one
+ * another, so applying a long chain cannot overflow the stack.
+ *
+ * <p>Reading single pixels or rows applies the operation on the fly, which lets an image be
+ * saved without ever storing its pixels. Operations that need the whole image, such as kernel
+ * filters, flips and histograms, materialize it once into a packed image that is kept for all
+ * later reads.
+ *
+ * <p>A deferred image keeps a share of a packed source image until it has been materialized, so
+ * the source is copied instead of changed in place while the deferred image still needs it.
+ */
+final class DeferredImage implements Image {
+  private final Image source;
+  private final Chain chain;
+  // the operations of the chain in the order they are applied, listed when first needed
+  private IntUnaryOperator[] operations;
+  private PackedImage result;
+
+  private DeferredImage(Image source, Chain chain) {
+    this.source = source;
+    this.chain = chain;
+  }
+
+  /**
+   * Creates the image that results from applying an operation to every pixel of an image. If
+   * the image is itself deferred and has not been materialized, the operations are fused.
+   * @param image the image to apply the operation to
+   * @param operation the operation to apply to each 0xRRGGBB value
+   * @return the deferred result
+   */
+  static DeferredImage of(Image image, IntUnaryOperator operation) {
+    if (image instanceof DeferredImage) {
+      DeferredImage deferred = (DeferredImage) image;
+      synchronized (deferred) {
+        if (deferred.result != null) {
+          return new DeferredImage(deferred.result.share(), new Chain(null, operation));
+        }
+        Chain chain = deferred.chain;
+        IntUnaryOperator fused = null;
+        if (chain.operation instanceof LookupTable && operation instanceof LookupTable) {
+          fused = ((LookupTable) chain.operation).andThen((LookupTable) operation);
+        } else if (chain.operation instanceof ColorMatrix && operation instanceof ColorMatrix) {
+          fused = ((ColorMatrix) chain.operation).fuse((ColorMatrix) operation);
+        }
+        return new DeferredImage(retain(deferred.source), fused == null
+                ? new Chain(chain, operation) : new Chain(chain.previous, fused));
+      }
+    }
+    return new DeferredImage(retain(image), new Chain(null, operation));
+  }
+
+  private static Image retain(Image image) {
+    if (image instanceof PackedImage) {
+      return ((PackedImage) image).share();
+    }
+    return image;
+  }
+
+  /**
+   * Creates a deferred image with the same source and operation, which shares the pixels of
+   * this image if it has already been materialized.
+   * @return the new deferred image
+   */
+  synchronized DeferredImage share() {
+    if (result == null) {
+      return new DeferredImage(retain(source), chain);
+    }
+    PackedImage shared = result.share();
+    DeferredImage copy = new DeferredImage(shared, chain);
+    copy.result = shared;
+    return copy;
+  }
+
+  /**
+   * Gives up the shares this image has in its source and in its materialized pixels.
+   */
+  synchronized void release() {
+    if (source instanceof PackedImage) {
+      ((PackedImage) source).release();
+    }
+    if (result != null) {
+      result.release();
+    }
+  }
+
+  /**
+   * Gets the packed pixels of this image, computing them the first time they are needed.
+   * @param executor the executor to split the rows of the image between threads
+   * @return the packed image with the result of the operation
+   */
+  synchronized PackedImage materialize(RowExecutor executor) {
+    if (result == null) {
+      int width = source.getWidth();
+      int[] pixels = new int[width * source.getHeight()];
+      IntUnaryOperator[] applied = operations();
+      executor.forEachBand(width, source.getHeight(), (band, rowStart, rowEnd) -> {
+        int[] row = new int[width];
+        for (int i = rowStart; i < rowEnd; i++) {
+          source.getRow(i, row);
+          apply(applied, row, width);
+          System.arraycopy(row, 0, pixels, i * width, width);
+        }
+      });
+      result = new PackedImage(width, source.getHeight(), pixels);
+      if (source instanceof PackedImage) {
+        // the source is not read again, so it may now be changed in place
+        ((PackedImage) source).release();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Lists the operations of the chain in the order they are applied, without recursing, the
+   * first time they are needed.
+   */
+  private synchronized IntUnaryOperator[] operations() {
+    if (operations == null) {
+      operations = new IntUnaryOperator[chain.length];
+      for (Chain link = chain; link != null; link = link.previous) {
+        operations[link.length - 1] = link.operation;
+      }
+    }
+    return operations;
+  }
+
+  /**
+   * Applies the operations to the first pixels of a row, one operation at a time across them.
+   */
+  private static void apply(IntUnaryOperator[] operations, int[] row, int width) {
+    for (IntUnaryOperator operation : operations) {
+      for (int j = 0; j < width; j++) {
+        row[j] = operation.applyAsInt(row[j]);
+      }
+    }
+  }
+
+  private synchronized PackedImage getResult() {
+    return result;
+  }
+
+  /**
+   * Checks whether this image keeps a packed array of pixels alive, either its materialized
+   * pixels or a packed source.
+   */
+  synchronized boolean isHoldingPixels() {
+    return result != null || source instanceof PackedImage;
+  }
+
+  @Override
+  public int getHeight() {
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return source.getWidth();
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGB(row, col);
+    return new Pixel(PackedImage.red(rgb), PackedImage.green(rgb), PackedImage.blue(rgb));
+  }
+
+  @Override
+  public int getRGB(int row, int col) throws IllegalArgumentException {
+    PackedImage computed = getResult();
+    if (computed != null) {
+      return computed.getRGB(row, col);
+    }
+    int rgb = source.getRGB(row, col);
+    for (IntUnaryOperator operation : operations()) {
+      rgb = operation.applyAsInt(rgb);
+    }
+    return rgb;
+  }
+
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    PackedImage computed = getResult();
+    if (computed != null) {
+      computed.getRow(row, dest);
+      return;
+    }
+    source.getRow(row, dest);
+    apply(operations(), dest, getWidth());
+  }
+
+  /**
+   * A link of a chain of per-pixel operations, with the operation applied last and the links
+   * applied before it. Links are never changed, so deferred images share the start of a chain.
+   */
+  private static final class Chain {
+    private final Chain previous;
+    private final IntUnaryOperator operation;
+    private final int length;
+
+    Chain(Chain previous, IntUnaryOperator operation) {
+      this.previous = previous;
+      this.operation = operation;
+      this.length = previous == null ? 1 : previous.length + 1;
+    }
+  }
+}
@@ -53,4 +53,21 @@ public class GenericImage implements Image {
     return image[row][col];
   }
 
+  @Override
+  public int getRGB(int row, int col) throws IllegalArgumentException {
+    Pixel pixel = getPixelAt(row, col);
+    return PackedImage.pack(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+  }
+
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    if (row < 0 || row > this.height - 1) {
+      throw new IllegalArgumentException("Invalid row");
+    }
+    for (int j = 0; j < width; j++) {
+      Pixel pixel = image[row][j];
+      dest[j] = PackedImage.pack(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+    }
+  }
+
 }
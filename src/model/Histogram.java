@@ -0,0 +1,270 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The histograms of the red, green, blue and intensity values of an image, counted together in
+ * one pass over its pixels. Each histogram is an array of 256 counts, where the count at index v
+ * is the number of pixels whose value is v. The intensity of a pixel is the average of its
+ * three components, rounded down.
+ *
+ * <p>When the rows of an image are split between threads, every band of rows is counted into
+ * its own arrays and the arrays are added up at the end, so the threads never share a counter.
+ *
+ * <p>The histograms of an image edited by a point operation can often be worked out from the
+ * histograms of the original image in 256 steps, without going through its pixels: see remap
+ * and grey.
+ */
+public final class Histogram {
+  private static final int VALUES = 256;
+  private static final int GREEN = VALUES;
+  private static final int BLUE = 2 * VALUES;
+  private static final int INTENSITY = 3 * VALUES;
+
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+  private final int[] intensity;
+
+  private Histogram(int[] red, int[] green, int[] blue, int[] intensity) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+    this.intensity = intensity;
+  }
+
+  /**
+   * Counts the values of every pixel of an image on the current thread.
+   * @param image the image
+   * @return the histograms of the image
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static Histogram of(Image image) throws IllegalArgumentException {
+    return of(image, RowExecutor.sequential());
+  }
+
+  /**
+   * Counts the values of every pixel of an image, splitting its rows between the threads of the
+   * given executor. Packed images are read from their pixel array, tiled images a tile at a time
+   * on the calling thread, and other images a row at a time, so the image is never copied.
+   * @param image the image
+   * @param executor the executor that splits the rows between threads
+   * @return the histograms of the image
+   * @throws IllegalArgumentException if the image or the executor is null
+   */
+  public static Histogram of(Image image, RowExecutor executor)
+          throws IllegalArgumentException {
+    int[] total = countBands(image, executor, 4 * VALUES, Histogram::count);
+    return new Histogram(
+            Arrays.copyOfRange(total, 0, GREEN),
+            Arrays.copyOfRange(total, GREEN, BLUE),
+            Arrays.copyOfRange(total, BLUE, INTENSITY),
+            Arrays.copyOfRange(total, INTENSITY, 4 * VALUES));
+  }
+
+  /**
+   * Counts values of every pixel of an image into one array for each band of rows, and adds the
+   * arrays up.
+   */
+  private static int[] countBands(Image image, RowExecutor executor, int size, Counter counter)
+          throws IllegalArgumentException {
+    if (image == null || executor == null) {
+      throw new IllegalArgumentException("Image and executor cannot be null");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] counts = new int[executor.bands(width, height)][size];
+
+    if (image instanceof PackedImage) {
+      int[] pixels = ((PackedImage) image).getData();
+      executor.forEachBand(width, height, (band, rowStart, rowEnd) -> {
+        counter.count(pixels, rowStart * width, rowEnd * width, counts[band]);
+      });
+    } else if (image instanceof TiledImage) {
+      // a tile at a time, so each tile is loaded once however small the cache is
+      ((TiledImage) image).forEachTile((top, left, rows, cols, pixels) -> {
+        counter.count(pixels, 0, rows * cols, counts[0]);
+      });
+    } else {
+      executor.forEachBand(width, height, (band, rowStart, rowEnd) -> {
+        int[] row = new int[width];
+        for (int i = rowStart; i < rowEnd; i++) {
+          image.getRow(i, row);
+          counter.count(row, 0, width, counts[band]);
+        }
+      });
+    }
+
+    int[] total = counts[0];
+    for (int band = 1; band < counts.length; band++) {
+      for (int i = 0; i < total.length; i++) {
+        total[i] += counts[band][i];
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Gets the histograms of a grey image, whose red, green, blue and intensity values are all the
+   * same, from the counts of those values. For example the histograms of an image made by
+   * visualizing the red component of another image are the red counts of the other image.
+   * @param counts the 256 counts of the values of the grey image
+   * @return the histograms of the grey image
+   */
+  public static Histogram grey(int[] counts) {
+    return new Histogram(counts, counts, counts, counts);
+  }
+
+  /**
+   * Gets the histograms of the image made by applying a lookup table to the image these are the
+   * histograms of. Each component is moved to the bin the table maps it to. The intensity of a
+   * pixel depends on all three of its components, so its histogram can only be worked out when
+   * the table adds the same amount to every value the image has in every component, like
+   * brightening an image that does not reach 255. Otherwise the intensity histogram of the
+   * result is left out, and must be counted with complete before the result is used.
+   * @param table the lookup table applied to the image
+   * @return the histograms of the new image
+   */
+  public Histogram remap(LookupTable table) {
+    int[] newRed = new int[VALUES];
+    int[] newGreen = new int[VALUES];
+    int[] newBlue = new int[VALUES];
+    for (int value = 0; value < VALUES; value++) {
+      newRed[table.getRed(value)] += red[value];
+      newGreen[table.getGreen(value)] += green[value];
+      newBlue[table.getBlue(value)] += blue[value];
+    }
+    if (intensity == null) {
+      return new Histogram(newRed, newGreen, newBlue, null);
+    }
+
+    int shift = table.getRed(firstValue()) - firstValue();
+    for (int value = 0; value < VALUES; value++) {
+      if ((red[value] != 0 && table.getRed(value) - value != shift)
+              || (green[value] != 0 && table.getGreen(value) - value != shift)
+              || (blue[value] != 0 && table.getBlue(value) - value != shift)) {
+        return new Histogram(newRed, newGreen, newBlue, null);
+      }
+    }
+    // no value is clamped, so every average moves by the same amount as its components
+    int[] newIntensity = new int[VALUES];
+    for (int value = 0; value < VALUES; value++) {
+      if (intensity[value] != 0) {
+        newIntensity[value + shift] += intensity[value];
+      }
+    }
+    return new Histogram(newRed, newGreen, newBlue, newIntensity);
+  }
+
+  /**
+   * Tells whether the intensity histogram is known. Only histograms made by remap may leave it
+   * out.
+   * @return whether all four histograms are known
+   */
+  public boolean isComplete() {
+    return intensity != null;
+  }
+
+  /**
+   * Counts the intensity values of the image these are the histograms of, if they are not known
+   * yet. This goes through every pixel of the image, but counts only one histogram instead of
+   * four.
+   * @param image the image these are the histograms of
+   * @param executor the executor that splits the rows between threads
+   * @return complete histograms of the image
+   * @throws IllegalArgumentException if the image or the executor is null
+   */
+  public Histogram complete(Image image, RowExecutor executor) throws IllegalArgumentException {
+    if (isComplete()) {
+      return this;
+    }
+    return new Histogram(red, green, blue,
+            countBands(image, executor, VALUES, Histogram::countIntensity));
+  }
+
+  /**
+   * Gets the smallest red value of the image, or 0 if the image has no pixels.
+   */
+  private int firstValue() {
+    for (int value = 0; value < VALUES; value++) {
+      if (red[value] != 0) {
+        return value;
+      }
+    }
+    return 0;
+  }
+
+  private static void count(int[] pixels, int start, int end, int[] counts) {
+    for (int i = start; i < end; i++) {
+      int rgb = pixels[i];
+      int r = (rgb >> 16) & 0xFF;
+      int g = (rgb >> 8) & 0xFF;
+      int b = rgb & 0xFF;
+      counts[r]++;
+      counts[GREEN + g]++;
+      counts[BLUE + b]++;
+      counts[INTENSITY + (r + g + b) / 3]++;
+    }
+  }
+
+  private static void countIntensity(int[] pixels, int start, int end, int[] counts) {
+    for (int i = start; i < end; i++) {
+      int rgb = pixels[i];
+      counts[(((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3]++;
+    }
+  }
+
+  /**
+   * Gets the histogram of the red values. The array is not copied and must not be changed.
+   * @return the 256 counts of the red values
+   */
+  public int[] getRed() {
+    return red;
+  }
+
+  /**
+   * Gets the histogram of the green values. The array is not copied and must not be changed.
+   * @return the 256 counts of the green values
+   */
+  public int[] getGreen() {
+    return green;
+  }
+
+  /**
+   * Gets the histogram of the blue values. The array is not copied and must not be changed.
+   * @return the 256 counts of the blue values
+   */
+  public int[] getBlue() {
+    return blue;
+  }
+
+  /**
+   * Gets the histogram of the intensity values. The array is not copied and must not be
+   * changed.
+   * @return the 256 counts of the intensity values, or null if they are not known
+   */
+  public int[] getIntensity() {
+    return intensity;
+  }
+
+  /**
+   * Converts one of the histograms to a map from every value to its count.
+   * @param counts the 256 counts of a histogram
+   * @return the map from every value between 0 and 255 to its count
+   */
+  public static HashMap<Integer, Integer> toMap(int[] counts) {
+    HashMap<Integer, Integer> histogram = new HashMap<Integer, Integer>();
+    for (int i = 0; i < counts.length; i++) {
+      histogram.put(i, counts[i]);
+    }
+    return histogram;
+  }
+
+  /**
+   * Counts values of the pixels of part of an image.
+   */
+  private interface Counter {
+    void count(int[] pixels, int start, int end, int[] counts);
+  }
+}
@@ -27,4 +27,19 @@ public interface Image {
    * @return the Pixel object at the given location
    */
   Pixel getPixelAt(int row, int col);
+
+  /**
+   * Gets the color of the pixel at a given row and column location packed into one integer.
+   * @param row the row location of the pixel
+   * @param col the column location of the pixel
+   * @return the color of the pixel as a 0xRRGGBB value
+   */
+  int getRGB(int row, int col);
+
+  /**
+   * Copies the packed colors of a whole row into the first width values of the given array.
+   * @param row the row to copy
+   * @param dest the array to copy the 0xRRGGBB values into
+   */
+  void getRow(int row, int[] dest);
 }
@@ -10,6 +10,17 @@ public interface ImageEditorModel {
 
   Image getImage(String key);
 
+  /**
+   * Gets the number of pixels of the image with the given name, without computing an image
+   * whose edits have been deferred.
+   * @param key the name of the image
+   * @return the number of pixels of the image, or 0 if there is no image with that name
+   */
+  default long getPixelCount(String key) {
+    Image image = getImage(key);
+    return image == null ? 0 : (long) image.getWidth() * image.getHeight();
+  }
+
   /**
    * Loads a file from a given pathname and refer to it by a given image name.
    * @param pathname The path to get the file from
@@ -18,7 +29,9 @@ public interface ImageEditorModel {
   void load(String pathname, String filename, String filetype) throws IllegalArgumentException;
 
   /**
-   * Saves the image with the given file name to the specified path.
+   * Saves the image with the given file name to the specified path. The filetype ppm (or p3)
+   * saves a plain PPM file, p6 a binary PPM file and pgm (or p5) a binary greyscale PGM file.
+   * Any other filetype is saved through ImageIO.
    * @param pathname The name of the filepath to save the image to
    * @param filename The name of the image in the image editor to save.
    */
@@ -104,12 +117,64 @@ public interface ImageEditorModel {
    */
   void darken(int scale, String filename, String destination);
 
+  /**
+   * Creates an image by applying the given lookup table to every red, green and blue sample of
+   * the image with the given file name and refers to it by the given destination.
+   * @param table The table of new sample values
+   * @param filename The name of the file to be edited
+   * @param destination The name to refer the newly edited file
+   */
+  void applyLookupTable(LookupTable table, String filename, String destination);
+
+  /**
+   * Creates an image by multiplying the red, green and blue samples of every pixel of the image
+   * with the given file name by the given color matrix, and refers to it by the given
+   * destination.
+   * @param matrix The matrix to apply
+   * @param filename The name of the file to be edited
+   * @param destination The name to refer the newly edited file
+   */
+  void applyColorMatrix(ColorMatrix matrix, String filename, String destination);
+
+  /**
+   * Creates an image by applying the given kernel to every pixel of the image with the given
+   * file name and refers to it by the given destination.
+   * @param kernel The kernel to filter the image with
+   * @param filename The name of the file to be edited
+   * @param destination The name to refer the newly edited file
+   */
+  void filter(Kernel kernel, String filename, String destination);
+
+  /**
+   * Creates an image by applying the given blur to the image with the given file name and
+   * refers to it by the given destination.
+   * @param blur The blur to apply, such as BlurFilter.gaussian(radius)
+   * @param filename The name of the file to be edited
+   * @param destination The name to refer the newly edited file
+   */
+  void blur(BlurFilter blur, String filename, String destination);
+
   void blur(String filename, String destination);
 
   void sharpen(String filename, String destination);
 
   void visualizeSepia(String filename, String destination);
 
+  /**
+   * Counts the red, green, blue and intensity values of the image with the given name in one
+   * pass over its pixels.
+   * @param filename the name of the image
+   * @return the histograms of the image
+   * @throws IllegalArgumentException if there is no image with the given name
+   */
+  default Histogram calculateHistogram(String filename) throws IllegalArgumentException {
+    Image image = getImage(filename);
+    if (image == null) {
+      throw new IllegalArgumentException("This file has not been loaded yet.");
+    }
+    return Histogram.of(image);
+  }
+
   HashMap<Integer, Integer> calculateRedHistogram(String filename, String destination);
 
   HashMap<Integer, Integer> calculateGreenHistogram(String filename, String destination);
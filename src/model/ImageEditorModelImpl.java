@@ -2,33 +2,198 @@ package model;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
 
 /**
  * The model of the program which does the editing of images through their pixels. Images that
- * have been loaded are stored in a hashmap with their name.
+ * have been loaded are kept in an ImageStore by their name, which is a hashmap unless another
+ * store is given. Edited images are stored as packed images, so the editing loops work on packed
+ * 0xRRGGBB values instead of Pixel objects. The loops over the rows of large images are split
+ * between threads by a RowExecutor.
+ *
+ * <p>In lazy mode, per-pixel operations such as brighten, darken, the color transformations and
+ * the visualizations are not computed right away. Their results are stored as deferred images,
+ * and a chain of them is fused into one pass over the pixels that only runs when the image is
+ * saved, displayed, or read by an operation that needs the whole image.
+ *
+ * <p>Packed images are shared instead of copied where possible. An edit that leaves an image
+ * unchanged stores a share of its pixels under the new name, an edit whose destination is its
+ * own source writes into the pixels in place when no other image shares them, and an image that
+ * is replaced gives up its share of its pixels.
+ *
+ * <p>Tiled images, which are loaded for files too large to be edited in memory, stay tiled:
+ * point operations, filters and flips on them produce new tiled images a tile at a time.
+ *
+ * <p>The histograms of every image are kept once they have been counted, together with the
+ * image they were counted for, and are only used while that image is still stored under its
+ * name. Flips keep the histograms of their source, and point operations whose histograms follow
+ * from the histograms of their source work them out without counting, so an image that is edited
+ * and displayed over and over is only counted once.
  */
 public class ImageEditorModelImpl implements ImageEditorModel {
-  protected HashMap<String, Image> images;
+  protected ImageStore images;
+  private final RowExecutor executor;
+  private final boolean lazy;
+  private final PixelKernels kernels;
+  private final Map<String, CachedHistogram> histograms = new ConcurrentHashMap<>();
 
+  /**
+   * Creates a model that splits the rows of large images between the threads of the common
+   * ForkJoinPool.
+   */
   public ImageEditorModelImpl() {
-    images = new HashMap<String, Image>();
+    this(RowExecutor.common());
+  }
+
+  /**
+   * Creates a model that runs its editing loops on the given executor.
+   * @param executor the executor that splits the rows of images between threads
+   * @throws IllegalArgumentException if the executor is null
+   */
+  public ImageEditorModelImpl(RowExecutor executor) throws IllegalArgumentException {
+    this(executor, false);
+  }
+
+  /**
+   * Creates a model that runs its editing loops on the given executor, and that defers and
+   * fuses per-pixel operations if lazy is true.
+   * @param executor the executor that splits the rows of images between threads
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @throws IllegalArgumentException if the executor is null
+   */
+  public ImageEditorModelImpl(RowExecutor executor, boolean lazy)
+          throws IllegalArgumentException {
+    this(executor, lazy, new MapImageStore());
   }
 
+  /**
+   * Creates a model that runs its editing loops on the given executor and keeps its images in
+   * the given store.
+   * @param executor the executor that splits the rows of images between threads
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @param store the store to keep the images of the model in
+   * @throws IllegalArgumentException if the executor or the store is null
+   */
+  public ImageEditorModelImpl(RowExecutor executor, boolean lazy, ImageStore store)
+          throws IllegalArgumentException {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor cannot be null");
+    }
+    if (store == null) {
+      throw new IllegalArgumentException("Image store cannot be null");
+    }
+    images = store;
+    this.executor = executor;
+    this.lazy = lazy;
+    this.kernels = PixelKernels.getDefault();
+  }
+
+  /**
+   * Gets the image with the given name. The image may be changed in place by a later edit that
+   * stores its result under the same name, so callers that keep it should keep a share of it.
+   * @param key the name of the image
+   * @return the image, or null if there is no image with that name
+   */
   public Image getImage(String key) {
-    return images.get(key);
+    Image image = images.get(key);
+    if (image instanceof DeferredImage) {
+      return ((DeferredImage) image).materialize(executor);
+    }
+    return image;
+  }
+
+  @Override
+  public long getPixelCount(String key) {
+    Image image = images.get(key);
+    return image == null ? 0 : (long) image.getWidth() * image.getHeight();
   }
 
   @Override
   public void load(String pathname, String filename, String filetype)
           throws IllegalArgumentException {
-    Image newImage;
-    if (filetype.equalsIgnoreCase("ppm")) {
-      newImage = ImageUtil.readPPM(pathname);
-    } else {
-      newImage = ImageUtil.readImage(pathname);
+    store(filename, read(pathname, filetype));
+  }
+
+  /**
+   * Reads the image that load stores. Models that share the images they load with other models
+   * override this to read each file only once.
+   * @param pathname the pathname of the file
+   * @param filetype the type of the file, such as ppm or png
+   * @return the image in the file
+   * @throws IllegalArgumentException if the file cannot be read
+   */
+  protected Image read(String pathname, String filetype) throws IllegalArgumentException {
+    if (filetype.equalsIgnoreCase("ppm") || filetype.equalsIgnoreCase("pgm")) {
+      return ImageUtil.readPPM(pathname);
+    }
+    return ImageUtil.readImage(pathname);
+  }
+
+  /**
+   * Stores an image under the given name, and releases the image it replaces.
+   * @param name the name of the image
+   * @param image the image to store
+   */
+  private void store(String name, Image image) {
+    Image old = images.put(name, image);
+    histograms.remove(name);
+    if (old != null && old != image) {
+      if (old instanceof PackedImage) {
+        ((PackedImage) old).release();
+      } else if (old instanceof DeferredImage) {
+        ((DeferredImage) old).release();
+      }
+    }
+  }
+
+  /**
+   * Creates an image that is the same as the given image without copying its pixels.
+   */
+  static Image share(Image image) {
+    if (image instanceof PackedImage) {
+      return ((PackedImage) image).share();
+    } else if (image instanceof DeferredImage) {
+      return ((DeferredImage) image).share();
     }
+    return image;
+  }
 
-    images.put(filename, newImage);
+  /**
+   * Gets the image with the given name if it is tiled.
+   * @param filename the name of the image
+   * @return the tiled image, or null if the image is not tiled
+   * @throws IllegalArgumentException if there is no image with the given name
+   */
+  private TiledImage tiled(String filename) throws IllegalArgumentException {
+    checkFile(filename);
+    Image image = images.get(filename);
+    return image instanceof TiledImage ? (TiledImage) image : null;
+  }
+
+  /**
+   * Checks whether an edit can write its result into the pixels of its source, which is the
+   * case when it stores the result under the name of the source and nothing else shares them.
+   * @param filename the name of the image to edit
+   * @param destination the name to refer to the new image by
+   * @return true if the edit can change its source in place
+   */
+  private boolean isInPlace(String filename, String destination) {
+    Image image = images.get(filename);
+    return allowsInPlaceEdits() && filename.equals(destination) && image instanceof PackedImage
+            && !((PackedImage) image).isShared();
+  }
+
+  /**
+   * Checks whether edits may change the pixels of a stored image in place. Models whose images
+   * can be read by other threads while they are edited must return false, so that an image
+   * never changes once it has been stored.
+   * @return true if edits may write into the pixels of their source
+   */
+  protected boolean allowsInPlaceEdits() {
+    return true;
   }
 
   @Override
@@ -40,252 +205,305 @@ public class ImageEditorModelImpl implements ImageEditorModel {
     }
 
     Image saveImage = images.get(filename);
-    Pixel[][] imagePix = this.copyPixels(saveImage);
-    if (filetype.equalsIgnoreCase("ppm")) {
-      try {
-        ImageUtil.writePPM(pathname, saveImage.getWidth(), saveImage.getHeight(), imagePix);
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
-    } else {
-      try {
-        ImageUtil.writeImage(pathname, saveImage.getWidth(), saveImage.getHeight(),
-                imagePix, filetype);
-      } catch (IOException e) {
-        e.printStackTrace();
+    try {
+      if (filetype.equalsIgnoreCase("ppm") || filetype.equalsIgnoreCase("p3")) {
+        ImageUtil.writePPM(pathname, saveImage);
+      } else if (filetype.equalsIgnoreCase("p6")) {
+        ImageUtil.writeRawPPM(pathname, saveImage);
+      } else if (filetype.equalsIgnoreCase("pgm") || filetype.equalsIgnoreCase("p5")) {
+        ImageUtil.writePGM(pathname, saveImage);
+      } else {
+        ImageUtil.writeImage(pathname, saveImage, filetype);
       }
+    } catch (IOException e) {
+      e.printStackTrace();
     }
   }
 
-  private Image startVisualize(String filename) {
+  /**
+   * Gets the image with the given name as a packed image that can be read from but must not be
+   * changed. Images that are not packed yet are converted.
+   * @param filename the name of the image
+   * @return the packed pixels of the image
+   */
+  private PackedImage source(String filename) {
+    checkFile(filename);
+    Image image = images.get(filename);
+    if (image instanceof PackedImage) {
+      return (PackedImage) image;
+    }
+    if (image instanceof DeferredImage) {
+      return ((DeferredImage) image).materialize(executor);
+    }
+    return PackedImage.copyOf(image);
+  }
+
+  /**
+   * Creates a new image by applying the given operation to every packed pixel of the image with
+   * the given name, and stores it under the destination name. In lazy mode the operation is
+   * only recorded, fused with the operations that the image itself is still waiting on. Images
+   * that are not packed are read a row at a time instead of being copied first.
+   * @param filename the name of the image to edit
+   * @param destination the name to refer to the new image by
+   * @param operation the operation to apply to each 0xRRGGBB value
+   */
+  private void mapPixels(String filename, String destination, IntUnaryOperator operation) {
+    mapPixels(filename, destination, operation, null);
+  }
+
+  /**
+   * Creates a new image like mapPixels does, but runs the given loop of the pixel backend over
+   * the pixel arrays of packed images instead of applying the operation to one pixel at a time.
+   * The loop must give the same pixels as the operation.
+   * @param filename the name of the image to edit
+   * @param destination the name to refer to the new image by
+   * @param operation the operation to apply to each 0xRRGGBB value
+   * @param loop the loop over runs of packed pixels, or null to apply the operation
+   */
+  private void mapPixels(String filename, String destination, IntUnaryOperator operation,
+                         PixelLoop loop) {
     checkFile(filename);
-    Image oldImage = images.get(filename);
-    Image curImage = copyImage(oldImage);
-    return curImage;
-  }
-
-  private void visualizeColor(String filename, String destination, String col) {
-    Image curImage = startVisualize(filename);
-    int newColor;
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = curImage.getPixelAt(i, j);
-        if (col.equals("red")) {
-          newColor = curPixel.getRed();
+    Image curImage = images.get(filename);
+    if (curImage instanceof TiledImage) {
+      store(destination, ((TiledImage) curImage).map(operation, executor));
+      return;
+    }
+    if (lazy) {
+      store(destination, DeferredImage.of(curImage, operation));
+      return;
+    }
+    int width = curImage.getWidth();
+    int height = curImage.getHeight();
+    boolean inPlace = isInPlace(filename, destination);
+    if (inPlace) {
+      histograms.remove(destination);
+    }
+    int[] newPixels = inPlace
+            ? ((PackedImage) curImage).getWritableData() : new int[width * height];
+
+    if (curImage instanceof PackedImage) {
+      int[] oldPixels = ((PackedImage) curImage).getData();
+      executor.forEachBand(width, height, (band, rowStart, rowEnd) -> {
+        if (loop != null) {
+          loop.run(oldPixels, newPixels, rowStart * width, rowEnd * width);
+          return;
         }
-        else if (col.equals("green")) {
-          newColor = curPixel.getGreen();
+        for (int i = rowStart * width; i < rowEnd * width; i++) {
+          newPixels[i] = operation.applyAsInt(oldPixels[i]);
         }
-        else {
-          newColor = curPixel.getBlue();
+      });
+    } else {
+      executor.forEachBand(width, height, (band, rowStart, rowEnd) -> {
+        int[] row = new int[width];
+        for (int i = rowStart; i < rowEnd; i++) {
+          curImage.getRow(i, row);
+          for (int j = 0; j < width; j++) {
+            newPixels[i * width + j] = operation.applyAsInt(row[j]);
+          }
         }
+      });
+    }
 
-        curPixel.changeRed(newColor);
-        curPixel.changeGreen(newColor);
-        curPixel.changeBlue(newColor);
-      }
+    if (!inPlace) {
+      store(destination, new PackedImage(width, height, newPixels));
     }
+  }
+
+  // grey 0xRRGGBB values by sample value, and by the sum of the three samples of a pixel
+  private static final int[] GREY = new int[256];
+  private static final int[] GREY_AVERAGE = new int[3 * 255 + 1];
 
-    images.put(destination, curImage);
+  static {
+    for (int i = 0; i < GREY.length; i++) {
+      GREY[i] = grey(i);
+    }
+    for (int i = 0; i < GREY_AVERAGE.length; i++) {
+      GREY_AVERAGE[i] = grey(i / 3);
+    }
+  }
+
+  private static int grey(int value) {
+    return (value << 16) | (value << 8) | value;
+  }
+
+  private void visualizeColor(String filename, String destination, int shift) {
+    mapPixels(filename, destination, rgb -> grey((rgb >> shift) & 0xFF),
+            (src, dst, from, to) -> kernels.channel(src, dst, from, to, shift));
   }
 
   @Override
   public void visualizeRed(String filename, String destination) {
-    visualizeColor(filename, destination, "red");
+    CachedHistogram before = cachedHistogram(filename);
+    visualizeColor(filename, destination, 16);
+    deriveHistogram(before, filename, destination,
+            histogram -> Histogram.grey(histogram.getRed()));
   }
 
   @Override
   public void visualizeGreen(String filename, String destination)
           throws IllegalArgumentException {
 
-    visualizeColor(filename, destination, "green");
+    CachedHistogram before = cachedHistogram(filename);
+    visualizeColor(filename, destination, 8);
+    deriveHistogram(before, filename, destination,
+            histogram -> Histogram.grey(histogram.getGreen()));
   }
 
   @Override
   public void visualizeBlue(String filename, String destination)
           throws IllegalArgumentException {
 
-    visualizeColor(filename, destination, "blue");
+    CachedHistogram before = cachedHistogram(filename);
+    visualizeColor(filename, destination, 0);
+    deriveHistogram(before, filename, destination,
+            histogram -> Histogram.grey(histogram.getBlue()));
   }
 
   @Override
   public void visualizeValue(String filename, String destination)
           throws IllegalArgumentException {
 
-    Image curImage = startVisualize(filename);
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = curImage.getPixelAt(i, j);
-        int maxRG = Math.max(curPixel.getRed(), curPixel.getGreen());
-        int max = Math.max(curPixel.getBlue(), maxRG);
-
-        curPixel.changeRed(max);
-        curPixel.changeGreen(max);
-        curPixel.changeBlue(max);
-
-      }
-    }
-
-    images.put(destination, curImage);
+    mapPixels(filename, destination, rgb -> {
+      int maxRG = Math.max(PackedImage.red(rgb), PackedImage.green(rgb));
+      return GREY[Math.max(PackedImage.blue(rgb), maxRG)];
+    }, kernels::value);
   }
 
   @Override
   public void visualizeIntensity(String filename, String destination)
           throws IllegalArgumentException {
 
-    Image curImage = startVisualize(filename);
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = curImage.getPixelAt(i, j);
-        int averageBrightness = ((curPixel.getRed()) + (curPixel.getBlue())
-                + (curPixel.getGreen())) / 3;
-        curPixel.changeRed(averageBrightness);
-        curPixel.changeGreen(averageBrightness);
-        curPixel.changeBlue(averageBrightness);
-      }
-    }
-
-    images.put(destination, curImage);
+    CachedHistogram before = cachedHistogram(filename);
+    mapPixels(filename, destination, rgb -> GREY_AVERAGE[PackedImage.red(rgb)
+            + PackedImage.green(rgb) + PackedImage.blue(rgb)], kernels::intensity);
+    deriveHistogram(before, filename, destination, histogram -> histogram.isComplete()
+            ? Histogram.grey(histogram.getIntensity()) : null);
   }
 
   @Override
   public void visualizeLuma(String filename, String destination)
           throws IllegalArgumentException {
 
-    double[][] lumaFilter = new double[3][3];
-    for (int i = 0; i < lumaFilter.length; i++) {
-      lumaFilter[i][0] = 0.2126;
-      lumaFilter[i][1] = 0.7152;
-      lumaFilter[i][2] = 0.0722;
-    }
-    colorTransformation(lumaFilter, filename, destination);
+    applyColorMatrix(ColorMatrix.LUMA, filename, destination);
   }
 
   @Override
   public void flipHorizontal(String filename, String destination)
           throws IllegalArgumentException {
-    Image curImage = startVisualize(filename);
-    Pixel[][] tempImage = new Pixel[curImage.getHeight()][curImage.getWidth()];
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = new Pixel(curImage.getPixelAt(i, j).getRed(),
-                curImage.getPixelAt(i, j).getGreen(), curImage.getPixelAt(i, j).getBlue());
-        tempImage[i][(curImage.getWidth() - 1) - j] = curPixel;
-      }
+    CachedHistogram before = cachedHistogram(filename);
+    TiledImage tiledImage = tiled(filename);
+    if (tiledImage != null) {
+      store(destination, tiledImage.flipHorizontal(executor));
+      deriveHistogram(before, filename, destination, UnaryOperator.identity());
+      return;
+    }
+    PackedImage curImage = source(filename);
+    int width = curImage.getWidth();
+    if (isInPlace(filename, destination)) {
+      int[] pixels = curImage.getWritableData();
+      executor.forEachBand(width, curImage.getHeight(), (band, rowStart, rowEnd) -> {
+        for (int start = rowStart * width; start < rowEnd * width; start += width) {
+          for (int j = 0, k = width - 1; j < k; j++, k--) {
+            int swap = pixels[start + j];
+            pixels[start + j] = pixels[start + k];
+            pixels[start + k] = swap;
+          }
+        }
+      });
+      return;
     }
+    int[] oldPixels = curImage.getData();
+    int[] newPixels = new int[oldPixels.length];
 
-    curImage = new GenericImage(curImage.getWidth(), curImage.getHeight(), tempImage);
+    executor.forEachBand(width, curImage.getHeight(), (band, rowStart, rowEnd) -> {
+      for (int start = rowStart * width; start < rowEnd * width; start += width) {
+        for (int j = 0; j < width; j++) {
+          newPixels[start + (width - 1) - j] = oldPixels[start + j];
+        }
+      }
+    });
 
-    images.put(destination, curImage);
+    store(destination, new PackedImage(width, curImage.getHeight(), newPixels));
+    deriveHistogram(before, filename, destination, UnaryOperator.identity());
   }
 
   @Override
   public void flipVertical(String filename, String destination)
           throws IllegalArgumentException {
 
-    Image curImage = startVisualize(filename);
-    Pixel[][] tempImage = new Pixel[curImage.getHeight()][curImage.getWidth()];
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = new Pixel(curImage.getPixelAt(i, j).getRed(),
-                curImage.getPixelAt(i, j).getGreen(), curImage.getPixelAt(i, j).getBlue());
-        tempImage[(curImage.getHeight() - 1) - i][j] = curPixel;
-      }
+    CachedHistogram before = cachedHistogram(filename);
+    TiledImage tiledImage = tiled(filename);
+    if (tiledImage != null) {
+      store(destination, tiledImage.flipVertical(executor));
+      deriveHistogram(before, filename, destination, UnaryOperator.identity());
+      return;
     }
+    PackedImage curImage = source(filename);
+    int width = curImage.getWidth();
+    int height = curImage.getHeight();
+    if (isInPlace(filename, destination)) {
+      int[] pixels = curImage.getWritableData();
+      // swap the rows of the top half with the rows of the bottom half
+      executor.forEachBand(width, height / 2, (band, rowStart, rowEnd) -> {
+        int[] swap = new int[width];
+        for (int i = rowStart; i < rowEnd; i++) {
+          int other = ((height - 1) - i) * width;
+          System.arraycopy(pixels, i * width, swap, 0, width);
+          System.arraycopy(pixels, other, pixels, i * width, width);
+          System.arraycopy(swap, 0, pixels, other, width);
+        }
+      });
+      return;
+    }
+    int[] oldPixels = curImage.getData();
+    int[] newPixels = new int[oldPixels.length];
 
-    curImage = new GenericImage(curImage.getWidth(), curImage.getHeight(), tempImage);
+    executor.forEachBand(width, height, (band, rowStart, rowEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+        System.arraycopy(oldPixels, i * width, newPixels, ((height - 1) - i) * width, width);
+      }
+    });
 
-    images.put(destination, curImage);
+    store(destination, new PackedImage(width, height, newPixels));
+    deriveHistogram(before, filename, destination, UnaryOperator.identity());
   }
 
   @Override
   public void brighten(int scale, String filename, String destination) {
-    Image curImage = startVisualize(filename);
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = curImage.getPixelAt(i, j);
-
-        if (curPixel.getRed() >= 255 - scale) {
-          curPixel.changeRed(255);
-        } else {
-          curPixel.changeRed(curPixel.getRed() + scale);
-        }
-
-        if (curPixel.getGreen() >= 255 - scale) {
-          curPixel.changeGreen(255);
-        } else {
-          curPixel.changeGreen(curPixel.getGreen() + scale);
-        }
-
-        if (curPixel.getBlue() >= 255 - scale) {
-          curPixel.changeBlue(255);
-        } else {
-          curPixel.changeBlue(curPixel.getBlue() + scale);
-        }
-      }
-    }
-
-    images.put(destination, curImage);
+    int amount = PixelKernels.clampAmount(scale);
+    applyLookupTable(LookupTable.brighten(amount), filename, destination,
+            (src, dst, from, to) -> kernels.add(src, dst, from, to, amount));
   }
 
   @Override
   public void darken(int scale, String filename, String destination) {
+    // clamped before it is negated, which would overflow for Integer.MIN_VALUE
+    int amount = -PixelKernels.clampAmount(scale);
+    applyLookupTable(LookupTable.brighten(amount), filename, destination,
+            (src, dst, from, to) -> kernels.add(src, dst, from, to, amount));
+  }
 
-    Image curImage = startVisualize(filename);
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        Pixel curPixel = curImage.getPixelAt(i, j);
-
-        if (curPixel.getRed() <= scale) {
-          curPixel.changeRed(0);
-        } else {
-          curPixel.changeRed(curPixel.getRed() - scale);
-        }
-
-        if (curPixel.getGreen() <= scale) {
-          curPixel.changeGreen(0);
-        } else {
-          curPixel.changeGreen(curPixel.getGreen() - scale);
-        }
-
-        if (curPixel.getBlue() <= scale) {
-          curPixel.changeBlue(0);
-        } else {
-          curPixel.changeBlue(curPixel.getBlue() - scale);
-        }
-      }
-    }
-
-    images.put(destination, curImage);
+  @Override
+  public void applyLookupTable(LookupTable table, String filename, String destination) {
+    applyLookupTable(table, filename, destination, null);
   }
 
   /**
-   * Creates a copy of a given Image.
-   * @param old original image to be copied
-   * @return a newly copied image
+   * Applies a lookup table, running the given loop of the pixel backend over packed images.
    */
-  private Image copyImage(Image old) {
-    Pixel[][] pixels = this.copyPixels(old);
-
-    Image newImage = new GenericImage(old.getWidth(), old.getHeight(), pixels);
-    return newImage;
-  }
-
-  private Pixel[][] copyPixels(Image old) {
-    Pixel[][] pixels = new Pixel[old.getHeight()][old.getWidth()];
-    for (int i = 0; i < old.getHeight(); i++) {
-      for (int j = 0; j < old.getWidth(); j++) {
-        Pixel oldPixel = old.getPixelAt(i, j);
-        pixels[i][j] = new Pixel(oldPixel.getRed(), oldPixel.getGreen(), oldPixel.getBlue());
+  private void applyLookupTable(LookupTable table, String filename, String destination,
+                                PixelLoop loop) {
+    CachedHistogram before = cachedHistogram(filename);
+    if (table.isIdentity()) {
+      checkFile(filename);
+      if (!filename.equals(destination)) {
+        store(destination, share(images.get(filename)));
+        deriveHistogram(before, filename, destination, UnaryOperator.identity());
       }
+      return;
     }
-    return pixels;
+    mapPixels(filename, destination, table, loop);
+    deriveHistogram(before, filename, destination, histogram -> histogram.remap(table));
   }
 
   protected void checkFile(String filename) throws IllegalArgumentException {
@@ -295,379 +513,142 @@ public class ImageEditorModelImpl implements ImageEditorModel {
   }
 
   @Override
-  public void blur(String filename, String destination) {
-    Image curImage = startVisualize(filename);
-
-    double sumRed = 0;
-    double sumGreen = 0;
-    double sumBlue = 0;
-
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        sumRed = 0;
-        sumGreen = 0;
-        sumBlue = 0;
-
-        sumRed += 1.0 * curImage.getPixelAt(i, j).getRed() * (1.0 / 4.0);
-        sumGreen += 1.0 * curImage.getPixelAt(i, j).getGreen() * (1.0 / 4.0);
-        sumBlue += 1.0 * curImage.getPixelAt(i, j).getBlue() * (1.0 / 4.0);
-        if (i != 0) {
-          sumRed += 1.0 * curImage.getPixelAt(i - 1, j).getRed() * (1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i - 1, j).getGreen() * (1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt(i - 1, j).getBlue() * (1.0 / 8.0);
-
-          if (j != 0) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 1, j - 1).getRed() * (1.0 / 16.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 1, j - 1).getGreen() * (1.0 / 16.0);
-            sumBlue += 1.0 * curImage.getPixelAt(i - 1, j - 1).getBlue() * (1.0 / 16.0);
-          }
-
-          if (j != curImage.getWidth() - 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 1, j + 1).getRed() * (1.0 / 16.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 1, j + 1).getGreen() * (1.0 / 16.0);
-            sumBlue += 1.0 * curImage.getPixelAt(i - 1, j + 1).getBlue() * (1.0 / 16.0);
-          }
-        }
-
-        if (j != 0) {
-          sumRed += 1.0 * curImage.getPixelAt(i, j - 1).getRed() * (1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i, j - 1).getGreen() * (1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt(i, j - 1).getBlue() * (1.0 / 8.0);
-        }
-
-        if (j != curImage.getWidth() - 1) {
-          sumRed += 1.0 * curImage.getPixelAt(i, j + 1).getRed() * (1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i, j + 1).getGreen() * (1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i, j + 1).getBlue() * (1.0 / 8.0);
-        }
-
-        if (i != curImage.getHeight() - 1) {
-          sumRed += 1.0 * curImage.getPixelAt(i + 1, j).getRed() * (1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i + 1, j).getGreen() * (1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i + 1, j).getBlue() * (1.0 / 8.0);
-
-          if (j != 0) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 1, j - 1).getRed() * (1.0 / 16.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 1, j - 1).getGreen() * (1.0 / 16.0);
-            sumBlue += 1.0 * curImage.getPixelAt(i + 1, j - 1).getBlue() * (1.0 / 16.0);
-          }
-
-          if (j != curImage.getWidth() - 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 1, j + 1).getRed() * (1.0 / 16.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 1, j + 1).getGreen() * (1.0 / 16.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 1, j + 1).getBlue() * (1.0 / 16.0);
-          }
-        }
-
-        curImage.getPixelAt(i, j).changeRed((int) sumRed);
-        curImage.getPixelAt(i, j).changeGreen((int) sumGreen);
-        curImage.getPixelAt(i, j).changeBlue((int) sumBlue);
-      }
+  public void filter(Kernel kernel, String filename, String destination) {
+    TiledImage tiledImage = tiled(filename);
+    if (tiledImage != null) {
+      store(destination, tiledImage.filter(kernel, executor));
+      return;
     }
+    PackedImage curImage = source(filename);
+    store(destination, Convolution.apply(kernel, curImage, executor));
+  }
 
-    images.put(destination, curImage);
+  @Override
+  public void blur(BlurFilter blur, String filename, String destination) {
+    TiledImage tiledImage = tiled(filename);
+    if (tiledImage != null) {
+      store(destination, tiledImage.blur(blur, executor));
+      return;
+    }
+    PackedImage curImage = source(filename);
+    store(destination, blur.apply(curImage, executor));
+  }
 
+  @Override
+  public void blur(String filename, String destination) {
+    filter(Kernel.GAUSSIAN_BLUR, filename, destination);
   }
 
   @Override
   public void sharpen(String filename, String destination) {
-    Image curImage = startVisualize(filename);
-
-    double sumRed = 0;
-    double sumGreen = 0;
-    double sumBlue = 0;
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        sumRed = 0;
-        sumGreen = 0;
-        sumBlue = 0;
-
-        sumRed += 1.0 * curImage.getPixelAt(i, j).getRed();
-        sumGreen += 1.0 * curImage.getPixelAt(i, j).getGreen();
-        sumBlue += 1.0 * curImage.getPixelAt(i, j).getBlue();
-        if (j >= 1) {
-          sumRed += 1.0 * curImage.getPixelAt(i, j - 1).getRed() * (1.0 / 4.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i, j - 1).getGreen() * (1.0 / 4.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i, j - 1).getBlue() * (1.0 / 4.0);
-        }
-
-        if (j >= 2) {
-          sumRed += 1.0 * curImage.getPixelAt(i, j - 2).getRed() * (-1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i, j - 2).getGreen() * (-1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i, j - 2).getBlue() * (-1.0 / 8.0);
-        }
-
-        if (j < curImage.getWidth() - 1) {
-          sumRed += 1.0 * curImage.getPixelAt(i, j + 1).getRed() * (1.0 / 4.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i, j + 1).getGreen() * (1.0 / 4.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i, j + 1).getBlue() * (1.0 / 4.0);
-        }
-
-        if (j < curImage.getWidth() - 2) {
-          sumRed += 1.0 * curImage.getPixelAt(i, j + 2).getRed() * (-1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i, j + 2).getGreen() * (-1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i, j + 2).getBlue() * (-1.0 / 8.0);
-        }
-
-        if (i >= 1) {
-          sumRed += 1.0 * curImage.getPixelAt(i - 1, j).getRed() * (1.0 / 4.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i - 1, j).getGreen() * (1.0 / 4.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i - 1, j).getBlue() * (1.0 / 4.0);
-
-          if (j >= 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 1, j - 1).getRed() * (1.0 / 4.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 1, j - 1).getGreen() * (1.0 / 4.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 1, j - 1).getBlue() * (1.0 / 4.0);
-          }
-
-          if (j >= 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 1, j - 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 1, j - 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 1, j - 2).getBlue() * (-1.0 / 8.0);
-          }
-
-          if (j < curImage.getWidth() - 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 1, j + 1).getRed() * (1.0 / 4.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 1, j + 1).getGreen() * (1.0 / 4.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 1, j + 1).getBlue() * (1.0 / 4.0);
-          }
-
-          if (j < curImage.getWidth() - 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 1, j + 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 1, j + 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 1, j + 2).getBlue() * (-1.0 / 8.0);
-          }
-        }
-
-        if (i >= 2) {
-          sumRed += 1.0 * curImage.getPixelAt(i - 2, j).getRed() * (-1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i - 2, j).getGreen() * (-1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i - 2, j).getBlue() * (-1.0 / 8.0);
-
-          if (j >= 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 2, j - 1).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 2, j - 1).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 2, j - 1).getBlue() * (-1.0 / 8.0);
-          }
-
-          if (j >= 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 2, j - 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 2, j - 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 2, j - 2).getBlue() * (-1.0 / 8.0);
-          }
-
-          if (j < curImage.getWidth() - 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 2, j + 1).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 2, j + 1).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 2, j + 1).getBlue() * (-1.0 / 8.0);
-          }
-
-          if (j < curImage.getWidth() - 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i - 2, j + 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i - 2, j + 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i - 2, j + 2).getBlue() * (-1.0 / 8.0);
-          }
-        }
-
-        if (i < curImage.getHeight() - 1) {
-          sumRed += 1.0 * curImage.getPixelAt(i + 1, j).getRed() * (1.0 / 4.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i + 1, j).getGreen() * (1.0 / 4.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i + 1, j).getBlue() * (1.0 / 4.0);
-
-          if (j >= 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 1, j - 1).getRed() * (1.0 / 4.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 1, j - 1).getGreen() * (1.0 / 4.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 1, j - 1).getBlue() * (1.0 / 4.0);
-          }
-
-          if (j >= 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 1, j - 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 1, j - 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 1, j - 2).getBlue() * (-1.0 / 8.0);
-          }
-
-          if (j < curImage.getWidth() - 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 1, j + 1).getRed() * (1.0 / 4.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 1, j + 1).getGreen() * (1.0 / 4.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 1, j + 1).getBlue() * (1.0 / 4.0);
-          }
-
-          if (j < curImage.getWidth() - 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 1, j + 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 1, j + 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 1, j + 2).getBlue() * (-1.0 / 8.0);
-          }
-        }
-
-        if (i < curImage.getHeight() - 2) {
-          sumRed += 1.0 * curImage.getPixelAt(i + 2, j).getRed() * (-1.0 / 8.0);
-          sumGreen += 1.0 * curImage.getPixelAt(i + 2, j).getGreen() * (-1.0 / 8.0);
-          sumBlue += 1.0 * curImage.getPixelAt( i + 2, j).getBlue() * (-1.0 / 8.0);
-
-          if (j >= 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 2, j - 1).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 2, j - 1).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 2, j - 1).getBlue() * (-1.0 / 8.0);
-          }
-
-          if (j >= 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 2, j - 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 2, j - 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 2, j - 2).getBlue() * (-1.0 / 8.0);
-          }
+    filter(Kernel.SHARPEN, filename, destination);
+  }
 
-          if (j < curImage.getWidth() - 1) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 2, j + 1).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 2, j + 1).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 2, j + 1).getBlue() * (-1.0 / 8.0);
-          }
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix, String filename, String destination) {
+    mapPixels(filename, destination, matrix,
+            (src, dst, from, to) -> kernels.transform(src, dst, from, to, matrix));
+  }
 
-          if (j < curImage.getWidth() - 2) {
-            sumRed += 1.0 * curImage.getPixelAt(i + 2, j + 2).getRed() * (-1.0 / 8.0);
-            sumGreen += 1.0 * curImage.getPixelAt(i + 2, j + 2).getGreen() * (-1.0 / 8.0);
-            sumBlue += 1.0 * curImage.getPixelAt( i + 2, j + 2).getBlue() * (-1.0 / 8.0);
-          }
-        }
+  @Override
+  public void visualizeSepia(String filename, String destination) {
+    applyColorMatrix(ColorMatrix.SEPIA, filename, destination);
+  }
 
-        curImage.getPixelAt(i, j).changeRed((int) sumRed);
-        curImage.getPixelAt(i, j).changeGreen((int) sumGreen);
-        curImage.getPixelAt(i, j).changeBlue((int) sumBlue);
-      }
+  /**
+   * Counts the values of the image with the given name, unless they have been counted or worked
+   * out since the image was stored. A packed image is read from its pixel array and any other
+   * image a row at a time, so the image is not copied.
+   */
+  @Override
+  public Histogram calculateHistogram(String filename) throws IllegalArgumentException {
+    checkFile(filename);
+    Image stored = images.get(filename);
+    CachedHistogram cached = histograms.get(filename);
+    if (cached != null && cached.image == stored && cached.histogram.isComplete()) {
+      return cached.histogram;
     }
-
-    images.put(destination, curImage);
+    Image image = stored;
+    if (image instanceof DeferredImage) {
+      image = ((DeferredImage) image).materialize(executor);
+    }
+    Histogram histogram = cached != null && cached.image == stored
+            ? cached.histogram.complete(image, executor) : Histogram.of(image, executor);
+    histograms.put(filename, new CachedHistogram(stored, histogram));
+    return histogram;
   }
 
-  private void colorTransformation(double[][] filter, String filename, String destination) {
-    Image curImage = startVisualize(filename);
-
-    int newRed;
-    int newGreen;
-    int newBlue;
-
-    Pixel curPixel;
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        curPixel = curImage.getPixelAt(i, j);
-        newRed = (int) (filter[0][0] * curPixel.getRed() + filter[0][1] * curPixel.getGreen() +
-                filter[0][2] * curPixel.getBlue());
-        newGreen = (int) (filter[1][0] * curPixel.getRed() + filter[1][1] * curPixel.getGreen() +
-                filter[1][2] * curPixel.getBlue());
-        newBlue = (int) (filter[2][0] * curPixel.getRed() + filter[2][1] * curPixel.getGreen() +
-                filter[2][2] * curPixel.getBlue());
+  /**
+   * Gets the histograms kept for the image with the given name, if they are still those of the
+   * image stored under it.
+   * @param filename the name of the image
+   * @return the histograms of the image and the image, or null if they are not known
+   */
+  private CachedHistogram cachedHistogram(String filename) {
+    CachedHistogram cached = histograms.get(filename);
+    return cached != null && cached.image == images.get(filename) ? cached : null;
+  }
 
-        curImage.getPixelAt(i, j).changeRed(newRed);
-        curImage.getPixelAt(i, j).changeGreen(newGreen);
-        curImage.getPixelAt(i, j).changeBlue(newBlue);
-      }
+  /**
+   * Keeps the histograms of an edited image, worked out from the histograms of its source as
+   * they were before the edit. Nothing is kept if those were not known or cannot be worked out,
+   * or if another thread replaced the source while it was edited.
+   * @param before the histograms of the source before the edit, or null if they were not known
+   * @param filename the name of the source
+   * @param destination the name the edited image was stored under
+   * @param derivation works out the histograms of the edited image, or returns null
+   */
+  private void deriveHistogram(CachedHistogram before, String filename, String destination,
+                               UnaryOperator<Histogram> derivation) {
+    boolean sameSource = before != null
+            && (filename.equals(destination) || before.image == images.get(filename));
+    Histogram after = sameSource ? derivation.apply(before.histogram) : null;
+    if (after == null) {
+      histograms.remove(destination);
+    } else {
+      histograms.put(destination, new CachedHistogram(images.get(destination), after));
     }
-
-    images.put(destination, curImage);
   }
 
-  @Override
-  public void visualizeSepia(String filename, String destination) {
-
-    double[][] sepiaFilter = new double[3][3];
-    sepiaFilter[0][0] = 0.393;
-    sepiaFilter[0][1] = 0.769;
-    sepiaFilter[0][2] = 0.189;
-    sepiaFilter[1][0] = 0.349;
-    sepiaFilter[1][1] = 0.686;
-    sepiaFilter[1][2] = 0.168;
-    sepiaFilter[2][0] = 0.272;
-    sepiaFilter[2][1] = 0.534;
-    sepiaFilter[2][2] = 0.131;
-
-    colorTransformation(sepiaFilter, filename, destination);
-
+  /**
+   * A loop of the pixel backend over the packed pixels from index from up to but not including
+   * index to.
+   */
+  private interface PixelLoop {
+    void run(int[] src, int[] dst, int from, int to);
   }
 
-  private HashMap<Integer, Integer> initHistogram() {
-    HashMap<Integer, Integer> histogram = new HashMap<Integer, Integer>();
+  /**
+   * Histograms together with the image they belong to.
+   */
+  private static final class CachedHistogram {
+    private final Image image;
+    private final Histogram histogram;
 
-    for (int i = 0; i < 256; i++) {
-      histogram.put(i, 0);
+    CachedHistogram(Image image, Histogram histogram) {
+      this.image = image;
+      this.histogram = histogram;
     }
-
-    return histogram;
   }
 
   @Override
   public HashMap<Integer, Integer> calculateRedHistogram(String filename, String destination) {
-    HashMap<Integer, Integer> histogram = initHistogram();
-    Image curImage = startVisualize(filename);
-    Pixel curPixel;
-    int redVal;
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        curPixel = curImage.getPixelAt(i, j);
-        redVal = curPixel.getRed();
-        int oldFrequency = histogram.get(redVal);
-        histogram.put(redVal, oldFrequency + 1);
-      }
-    }
-    return histogram;
+    return Histogram.toMap(calculateHistogram(filename).getRed());
   }
 
   @Override
   public HashMap<Integer, Integer> calculateGreenHistogram(String filename, String destination) {
-    HashMap<Integer, Integer> histogram = initHistogram();
-    Image curImage = startVisualize(filename);
-    Pixel curPixel;
-    int greenVal;
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        curPixel = curImage.getPixelAt(i, j);
-        greenVal = curPixel.getGreen();
-        int oldFrequency = histogram.get(greenVal);
-        histogram.put(greenVal, oldFrequency + 1);
-      }
-    }
-    return histogram;
+    return Histogram.toMap(calculateHistogram(filename).getGreen());
   }
 
   @Override
   public HashMap<Integer, Integer> calculateBlueHistogram(String filename, String destination) {
-    HashMap<Integer, Integer> histogram = initHistogram();
-    Image curImage = startVisualize(filename);
-    Pixel curPixel;
-    int blueVal;
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        curPixel = curImage.getPixelAt(i, j);
-        blueVal = curPixel.getBlue();
-        int oldFrequency = histogram.get(blueVal);
-        histogram.put(blueVal, oldFrequency + 1);
-      }
-    }
-    return histogram;
+    return Histogram.toMap(calculateHistogram(filename).getBlue());
   }
 
   @Override
   public HashMap<Integer, Integer> calculateIntensityHistogram(
           String filename, String destination) {
-    HashMap<Integer, Integer> histogram = initHistogram();
-    Image curImage = startVisualize(filename);
-    Pixel curPixel;
-    int averageVal;
-
-    for (int i = 0; i < curImage.getHeight(); i++) {
-      for (int j = 0; j < curImage.getWidth(); j++) {
-        curPixel = curImage.getPixelAt(i, j);
-        averageVal = (curPixel.getRed() + curPixel.getGreen() + curPixel.getBlue()) / 3;
-        int oldFrequency = histogram.get(averageVal);
-        histogram.put(averageVal, oldFrequency + 1);
-      }
-    }
-    return histogram;
+    return Histogram.toMap(calculateHistogram(filename).getIntensity());
   }
-
-
 }
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Holds the images of a model by their names. Stores decide where an image is kept, so a store
+ * can keep every image in memory or move images that have not been used in a while to disk and
+ * bring them back when they are asked for.
+ */
+public interface ImageStore {
+
+  /**
+   * Gets the image with the given name, reading it back in if it was moved out of memory.
+   * @param name the name of the image
+   * @return the image, or null if there is no image with that name
+   */
+  Image get(String name);
+
+  /**
+   * Stores an image under the given name, replacing any image already stored under it.
+   * @param name the name of the image
+   * @param image the image to store
+   * @return the image that was replaced if it was still in memory, otherwise null
+   */
+  Image put(String name, Image image);
+
+  /**
+   * Checks whether there is an image with the given name, without reading it back in.
+   * @param name the name of the image
+   * @return true if an image is stored under the name
+   */
+  boolean containsKey(String name);
+
+  /**
+   * Removes the image with the given name from this store.
+   * @param name the name of the image
+   * @return the image that was removed if it was still in memory, otherwise null
+   */
+  Image remove(String name);
+}
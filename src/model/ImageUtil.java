@@ -1,22 +1,31 @@
 package model;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
-import java.util.Scanner;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
 import java.io.FileNotFoundException;
 import java.io.FileInputStream;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 
 /**
- * This class contains utility methods to read a PPM image from file and simply print its contents.
- * Feel free to change this method as required.
+ * This class contains utility methods to read and write images. PPM files can be read and written
+ * in the plain (P3) and binary (P6) formats and greyscale images as binary PGM (P5) files. Other
+ * image types are read and written through ImageIO.
  */
 public class ImageUtil {
 
@@ -27,8 +36,9 @@ public class ImageUtil {
    * @return the width of the given filename
    */
   public static int getWidth(String filename) {
-    Scanner sc = initScanner(filename);
-    return sc.nextInt();
+    try (PPMReader reader = PPMReader.open(filename)) {
+      return reader.getWidth();
+    }
   }
 
   /**
@@ -38,9 +48,46 @@ public class ImageUtil {
    * @return the height of the given filename
    */
   public static int getHeight(String filename) {
-    Scanner sc = initScanner(filename);
-    sc.next();
-    return sc.nextInt();
+    try (PPMReader reader = PPMReader.open(filename)) {
+      return reader.getHeight();
+    }
+  }
+
+  /**
+   * Gets the width and height of the image in a file from its header, without decoding its
+   * pixels. PPM and PGM files are read by the PPM reader and other files through ImageIO.
+   * @param pathname the pathname of the file
+   * @param filetype the type of the file, such as ppm or png
+   * @return the width and the height of the image
+   * @throws IllegalArgumentException if the file cannot be found or its header cannot be read
+   * @throws IllegalStateException if the PPM or PGM file cannot be read
+   */
+  public static int[] getSize(String pathname, String filetype)
+          throws IllegalArgumentException, IllegalStateException {
+    if (filetype.equalsIgnoreCase("ppm") || filetype.equalsIgnoreCase("pgm")) {
+      try (PPMReader reader = PPMReader.open(pathname)) {
+        return new int[] {reader.getWidth(), reader.getHeight()};
+      }
+    }
+    File file = new File(pathname);
+    if (!file.isFile()) {
+      throw new IllegalArgumentException("File Not Found");
+    }
+    try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        throw new IllegalArgumentException("Unable to read the header of " + pathname);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        return new int[] {reader.getWidth(0), reader.getHeight(0)};
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to read the header of " + pathname);
+    }
   }
 
   /**
@@ -50,10 +97,9 @@ public class ImageUtil {
    * @return the maximum color value of the given filename
    */
   public static int getMaxValue(String filename) {
-    Scanner sc = initScanner(filename);
-    sc.next();
-    sc.next();
-    return sc.nextInt();
+    try (PPMReader reader = PPMReader.open(filename)) {
+      return reader.getMaxValue();
+    }
   }
 
   /**
@@ -63,19 +109,12 @@ public class ImageUtil {
    * @return the complete 2d array of pixels from the given filename
    */
   public static Pixel[][] getImagePixels(String filename) {
-    Scanner sc = initScanner(filename);
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    sc.next();
-    Pixel[][] result = new Pixel[height][width];
+    Image image = readPPM(filename);
+    Pixel[][] result = new Pixel[image.getHeight()][image.getWidth()];
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        Pixel p = new Pixel(r, g, b);
-        result[i][j] = p;
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        result[i][j] = image.getPixelAt(i, j);
       }
     }
 
@@ -83,65 +122,34 @@ public class ImageUtil {
   }
 
   /**
-   * Ensures that a given PPM file is in the proper format and returns
-   * the scanner with remaining PPM file information.
-   *
-   * @param filename the name of the PPM file to look through
-   * @return the remaining Scanner after the file has been confirmed to be in the PPM format
+   * Reads a PPMImage with a given pathname and returns an Image. Plain P3 files are read once
+   * from start to end and their pixels are stored directly in a packed image. Binary P6 and P5
+   * files are memory-mapped and the returned image reads its pixels from the mapped file.
+   * @param pathname the pathname of the file being read in.
+   * @return returns an Image with the attributes from the PPMImage.
+   * @throws IllegalArgumentException if the file cannot be found or is not a valid PPM file
    */
-  public static Scanner initScanner(String filename) {
-    Scanner sc;
-
-    try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
-      System.out.println("File " + filename + " not found!");
-      return null;
-    }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
-
-    return sc;
+  public static Image readPPM(String pathname) throws IllegalArgumentException {
+    return PPMReader.read(pathname);
   }
 
   /**
-   * Reads a PPMImage with a given pathname and returns an Image.
+   * Reads a PPM or PGM file into a tiled image, which keeps its tiles in a temporary file and
+   * only the recently used ones in memory. readPPM already does this for images that are too
+   * large to be edited in memory.
    * @param pathname the pathname of the file being read in.
-   * @return returns an Image with the attributes from the PPMImage.
+   * @param tileSize the width and height of the tiles
+   * @return a tiled image with the pixels of the file
+   * @throws IllegalArgumentException if the file cannot be found or is not a valid PPM file
    */
-  public static Image readPPM(String pathname) {
-    Image newImage;
-    try {
-      int width = ImageUtil.getWidth(pathname);
-      int height = ImageUtil.getHeight(pathname);
-      Pixel[][] image = ImageUtil.getImagePixels(pathname);
-      newImage = new GenericImage(width, height, image);
-
-    } catch (NullPointerException e) {
-      throw new IllegalArgumentException("The file " + pathname + " could not be found");
-    }
-    return newImage;
-
+  public static TiledImage readTiledPPM(String pathname, int tileSize)
+          throws IllegalArgumentException {
+    return PPMReader.readTiled(pathname, tileSize);
   }
 
   /**
-   * Reads a conventional image file with a given pathname and returns an Image.
+   * Reads a conventional image file with a given pathname and returns an Image. The decoded
+   * pixels are copied out of the image's data buffer in bulk.
    * @param pathname the pathname of the file being read in.
    * @return an Image with the attributes from the conventional image.
    */
@@ -159,16 +167,7 @@ public class ImageUtil {
       throw new IllegalStateException("IOException");
     }
 
-    Pixel[][] imagePixels = new Pixel[input.getHeight()][input.getWidth()];
-    for (int i = 0; i < input.getHeight(); i++) {
-      for (int j = 0; j < input.getWidth(); j++) {
-        int color = input.getRGB(j, i);
-        Color c = new Color(color);
-        imagePixels[i][j] = new Pixel(c.getRed(), c.getGreen(),c.getBlue());
-      }
-    }
-    Image newImage = new GenericImage(input.getWidth(), input.getHeight(), imagePixels);
-    return newImage;
+    return RasterUtil.toImage(input);
   }
 
   /**
@@ -182,44 +181,89 @@ public class ImageUtil {
    */
   public static void writePPM(String pathname, int width, int height, Pixel[][] pixels)
           throws IOException {
+    writePPM(pathname, new GenericImage(width, height, pixels));
+  }
 
-    OutputStream output;
-    PrintStream str;
-    try {
-      output = new FileOutputStream(pathname);
-      str = new PrintStream(output);
-    } catch (FileNotFoundException e) {
-      File newFile = new File(pathname);
-      newFile.createNewFile();
-      output = new FileOutputStream(newFile);
-      str = new PrintStream(output);
-
-    }
-
-    str.append("P3\n");
-    str.append(String.format("%s", width));
-    str.append(" " + height + "\n");
-    str.append(String.format("%s\n", 255));
-
+  /**
+   * Writes an image to a PPM file at the given pathname, creating the file if it does not
+   * exist yet.
+   * @param pathname the pathname to save the file to
+   * @param image the image to be converted into PPM format
+   * @throws IOException if the given file path name is invalid
+   */
+  public static void writePPM(String pathname, Image image) throws IOException {
+    writeFile(pathname, output -> PPMWriter.writePlain(output, image));
+  }
 
-    StringBuilder pixList = new StringBuilder();
+  /**
+   * Writes an image to a binary PPM (P6) file at the given pathname, creating the file if it
+   * does not exist yet.
+   * @param pathname the pathname to save the file to
+   * @param image the image to be converted into binary PPM format
+   * @throws IOException if the given file path name is invalid
+   */
+  public static void writeRawPPM(String pathname, Image image) throws IOException {
+    writeFile(pathname, output -> PPMWriter.writeRaw(output, image));
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
+  /**
+   * Writes an image to a binary greyscale PGM (P5) file at the given pathname, creating the
+   * file if it does not exist yet. Colored pixels are saved as their luma value.
+   * @param pathname the pathname to save the file to
+   * @param image the image to be converted into binary PGM format
+   * @throws IOException if the given file path name is invalid
+   */
+  public static void writePGM(String pathname, Image image) throws IOException {
+    writeFile(pathname, output -> PPMWriter.writeGrey(output, image));
+  }
 
-        if (i == height - 1 && j == width - 1) {
-          pixList.append(String.format("%s\n", pixels[i][j].getRed()));
-          pixList.append(String.format("%s\n", pixels[i][j].getGreen()));
-          pixList.append(String.format("%s", pixels[i][j].getBlue()));
-        } else {
-          pixList.append(String.format("%s\n", pixels[i][j].getRed()));
-          pixList.append(String.format("%s\n", pixels[i][j].getGreen()));
-          pixList.append(String.format("%s\n", pixels[i][j].getBlue()));
-        }
+  /**
+   * Writes the contents of a file next to the given path and then moves it into place. Images
+   * loaded from binary files stay mapped to those files, so an existing file is replaced
+   * instead of being overwritten while it may still be read from. The new file is created with
+   * the permissions the umask gives it, or with those of the file it replaces.
+   * @param pathname the pathname of the file being written to
+   * @param contents writes the contents of the file to the given stream
+   * @throws IOException if the file fails to be written to
+   */
+  private static void writeFile(String pathname, FileContents contents) throws IOException {
+    Path target = Paths.get(pathname).toAbsolutePath();
+    Path temp = null;
+    OutputStream output = null;
+    while (output == null) {
+      temp = target.resolveSibling("." + target.getFileName() + "."
+              + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+      try {
+        output = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+      } catch (FileAlreadyExistsException e) {
+        // another writer picked the same name, so try another one
       }
     }
+    try {
+      try (OutputStream file = output) {
+        contents.write(file);
+      }
+      if (Files.exists(target)
+              && Files.getFileAttributeView(target, PosixFileAttributeView.class) != null) {
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+      }
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
 
-    str.append(String.format("%s", pixList));
+  /**
+   * Writes the contents of a file to an output stream.
+   */
+  private interface FileContents {
+    void write(OutputStream output) throws IOException;
   }
 
   /**
@@ -234,34 +278,20 @@ public class ImageUtil {
   public static void writeImage(String pathname, int width, int height, Pixel[][] pixels,
                                 String filetype)
           throws IOException {
-    BufferedImage newImage = new BufferedImage(width, height,
-            BufferedImage.TYPE_INT_RGB);
-
-    Pixel curPixel;
-    int rgb;
-
-    for (int i = 0; i < newImage.getHeight(); i++) {
-      for (int j = 0; j < newImage.getWidth(); j++) {
-        curPixel = pixels[i][j];
-        rgb = new Color(curPixel.getRed(), curPixel.getGreen(), curPixel.getBlue()).getRGB();
-        newImage.setRGB(j, i, rgb);
-      }
-    }
-
-    OutputStream output;
-    try {
-      output = new FileOutputStream(pathname);
-    } catch (FileNotFoundException e) {
-      File newFile = new File(pathname);
-      try {
-        newFile.createNewFile();
-        output = new FileOutputStream(newFile);
-      } catch (IOException ie) {
-        throw new IllegalStateException("Unable to create new file");
-      }
+    writeImage(pathname, new GenericImage(width, height, pixels), filetype);
+  }
 
-    }
-    ImageIO.write(newImage, filetype, output);
+  /**
+   * Writes an image to a conventional image file of the given type.
+   * @param pathname the pathname of the file being written to.
+   * @param image the image to write.
+   * @param filetype the type of file being created.
+   * @throws IOException if the file fails to be written to.
+   */
+  public static void writeImage(String pathname, Image image, String filetype)
+          throws IOException {
+    BufferedImage newImage = RasterUtil.toBufferedImage(image);
+    writeFile(pathname, output -> ImageIO.write(newImage, filetype, output));
   }
 
   /**
@@ -0,0 +1,138 @@
+package model;
+
+/**
+ * Represents a square filter kernel with an odd size that can be applied to an image by the
+ * Convolution engine. The weight at the center of the kernel is applied to the pixel being
+ * filtered and the other weights to its neighbors.
+ *
+ * <p>When every weight is a whole multiple of a power of two no smaller than 1/65536, such as
+ * 1/16 or -1/8, the kernel also keeps its weights as integers scaled by that power of two. The
+ * engine then filters with integer arithmetic and a shift, which gives exactly the same result
+ * as the floating point weights.
+ */
+public final class Kernel {
+
+  /**
+   * The 3x3 Gaussian kernel used for blurring an image.
+   */
+  public static final Kernel GAUSSIAN_BLUR = new Kernel(new double[][] {
+    {1.0 / 16.0, 1.0 / 8.0, 1.0 / 16.0},
+    {1.0 / 8.0, 1.0 / 4.0, 1.0 / 8.0},
+    {1.0 / 16.0, 1.0 / 8.0, 1.0 / 16.0}});
+
+  /**
+   * The 5x5 kernel used for sharpening an image.
+   */
+  public static final Kernel SHARPEN = new Kernel(new double[][] {
+    {-1.0 / 8.0, -1.0 / 8.0, -1.0 / 8.0, -1.0 / 8.0, -1.0 / 8.0},
+    {-1.0 / 8.0, 1.0 / 4.0, 1.0 / 4.0, 1.0 / 4.0, -1.0 / 8.0},
+    {-1.0 / 8.0, 1.0 / 4.0, 1.0, 1.0 / 4.0, -1.0 / 8.0},
+    {-1.0 / 8.0, 1.0 / 4.0, 1.0 / 4.0, 1.0 / 4.0, -1.0 / 8.0},
+    {-1.0 / 8.0, -1.0 / 8.0, -1.0 / 8.0, -1.0 / 8.0, -1.0 / 8.0}});
+
+  private static final int MAX_SHIFT = 16;
+
+  private final int size;
+  private final double[] weights;
+  private final int[] fixedWeights;
+  private final int shift;
+
+  /**
+   * Creates a kernel from a square array of weights. The array is copied.
+   * @param weights the weights of the kernel, indexed by row and then column
+   * @throws IllegalArgumentException if the array is null, not square, has an even size or
+   *                                  contains a weight that is not a finite number
+   */
+  public Kernel(double[][] weights) throws IllegalArgumentException {
+    if (weights == null || weights.length % 2 == 0) {
+      throw new IllegalArgumentException("Kernel must be a square with an odd size");
+    }
+    this.size = weights.length;
+    this.weights = new double[size * size];
+    for (int i = 0; i < size; i++) {
+      if (weights[i] == null || weights[i].length != size) {
+        throw new IllegalArgumentException("Kernel must be a square with an odd size");
+      }
+      for (int j = 0; j < size; j++) {
+        if (Double.isNaN(weights[i][j]) || Double.isInfinite(weights[i][j])) {
+          throw new IllegalArgumentException("Kernel weights must be finite numbers");
+        }
+        this.weights[i * size + j] = weights[i][j];
+      }
+    }
+
+    this.shift = findShift(this.weights);
+    if (shift < 0) {
+      this.fixedWeights = null;
+    } else {
+      this.fixedWeights = new int[size * size];
+      for (int i = 0; i < fixedWeights.length; i++) {
+        fixedWeights[i] = (int) Math.scalb(this.weights[i], shift);
+      }
+    }
+  }
+
+  /**
+   * Finds the smallest power of two that turns every weight into an integer, as long as the
+   * scaled sum of a full kernel of 255 values still fits in an int.
+   * @return the exponent of that power of two, or -1 if there is none
+   */
+  private static int findShift(double[] weights) {
+    for (int shift = 0; shift <= MAX_SHIFT; shift++) {
+      double total = 0;
+      boolean whole = true;
+      for (double weight : weights) {
+        double scaled = Math.scalb(weight, shift);
+        if (scaled != Math.rint(scaled)) {
+          whole = false;
+          break;
+        }
+        total += Math.abs(scaled);
+      }
+      if (whole) {
+        return total * 255 < Integer.MAX_VALUE ? shift : -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the number of rows and columns of this kernel.
+   * @return the size of the kernel
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the weight at the given row and column of this kernel.
+   * @param row the row of the weight
+   * @param col the column of the weight
+   * @return the weight
+   */
+  public double getWeight(int row, int col) {
+    return weights[row * size + col];
+  }
+
+  /**
+   * Checks whether this kernel can be applied with integer arithmetic.
+   * @return true if the kernel has integer weights and a shift
+   */
+  boolean isFixedPoint() {
+    return fixedWeights != null;
+  }
+
+  /**
+   * Gets the weight at the given row and column scaled by 2 to the power of the shift.
+   */
+  int getFixedWeight(int row, int col) {
+    return fixedWeights[row * size + col];
+  }
+
+  /**
+   * Gets the power of two that the integer weights of this kernel are scaled by.
+   */
+  int getShift() {
+    return shift;
+  }
+}
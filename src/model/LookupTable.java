@@ -0,0 +1,199 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a point operation that changes each red, green and blue sample of a pixel
+ * independently of the others, compiled into a table with one entry for every sample value from
+ * 0 to 255. Applying the table to a pixel takes one array load per sample and no branches, no
+ * matter how complicated the operation it was compiled from.
+ *
+ * <p>Tables are immutable. Two tables can be composed with andThen into a single table, so a
+ * chain of tone operations costs the same as one of them.
+ */
+public final class LookupTable implements IntUnaryOperator {
+  private static final int SIZE = 256;
+
+  // each entry is already shifted into the position of its channel in a 0xRRGGBB value
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+
+  private LookupTable(int[] red, int[] green, int[] blue) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+  }
+
+  /**
+   * Compiles an operation on sample values into a table that applies it to the red, green and
+   * blue samples of a pixel. Results outside of 0 to 255 are clamped.
+   * @param operation the operation to apply to every sample
+   * @return the compiled table
+   * @throws IllegalArgumentException if the operation is null
+   */
+  public static LookupTable of(IntUnaryOperator operation) throws IllegalArgumentException {
+    return of(operation, operation, operation);
+  }
+
+  /**
+   * Compiles a separate operation for each channel into a table. Results outside of 0 to 255
+   * are clamped.
+   * @param red the operation to apply to red samples
+   * @param green the operation to apply to green samples
+   * @param blue the operation to apply to blue samples
+   * @return the compiled table
+   * @throws IllegalArgumentException if any of the operations is null
+   */
+  public static LookupTable of(IntUnaryOperator red, IntUnaryOperator green,
+                               IntUnaryOperator blue) throws IllegalArgumentException {
+    if (red == null || green == null || blue == null) {
+      throw new IllegalArgumentException("Operation cannot be null");
+    }
+    return new LookupTable(compile(red, 16), compile(green, 8), compile(blue, 0));
+  }
+
+  private static int[] compile(IntUnaryOperator operation, int shift) {
+    int[] table = new int[SIZE];
+    for (int value = 0; value < SIZE; value++) {
+      table[value] = PackedImage.clamp(operation.applyAsInt(value)) << shift;
+    }
+    return table;
+  }
+
+  /**
+   * Creates a table that leaves every sample unchanged.
+   * @return the identity table
+   */
+  public static LookupTable identity() {
+    return of(value -> value);
+  }
+
+  /**
+   * Creates a table that adds the given amount to every sample, which brightens the image for
+   * positive amounts and darkens it for negative ones.
+   * @param amount the amount to add
+   * @return the compiled table
+   */
+  public static LookupTable brighten(int amount) {
+    int clamped = PixelKernels.clampAmount(amount);
+    return of(value -> value + clamped);
+  }
+
+  /**
+   * Creates a gamma correction table, which raises every sample, scaled to 0 to 1, to the power
+   * of 1 / gamma. A gamma above 1 brightens the mid-tones and a gamma below 1 darkens them.
+   * @param gamma the gamma to correct for
+   * @return the compiled table
+   * @throws IllegalArgumentException if gamma is not a positive finite number
+   */
+  public static LookupTable gamma(double gamma) throws IllegalArgumentException {
+    if (!(gamma > 0) || Double.isInfinite(gamma)) {
+      throw new IllegalArgumentException("Gamma must be a positive number");
+    }
+    return of(value -> (int) Math.round(255 * Math.pow(value / 255.0, 1 / gamma)));
+  }
+
+  /**
+   * Creates a levels table that stretches the samples between black and white over the whole
+   * range: black and everything below it becomes 0, white and everything above it becomes 255.
+   * @param black the sample value to turn into 0
+   * @param white the sample value to turn into 255
+   * @return the compiled table
+   * @throws IllegalArgumentException if the values are not between 0 and 255 or black is not
+   *                                  less than white
+   */
+  public static LookupTable levels(int black, int white) throws IllegalArgumentException {
+    if (black < 0 || white > 255 || black >= white) {
+      throw new IllegalArgumentException("Levels must be between 0 and 255 with black below "
+              + "white");
+    }
+    int range = white - black;
+    return of(value -> ((value - black) * 255 + range / 2) / range);
+  }
+
+  /**
+   * Creates a table from a curve that lists the new value of every sample value.
+   * @param curve the 256 new values, indexed by the old value
+   * @return the compiled table
+   * @throws IllegalArgumentException if the curve is null or does not have 256 values
+   */
+  public static LookupTable curve(int[] curve) throws IllegalArgumentException {
+    if (curve == null || curve.length != SIZE) {
+      throw new IllegalArgumentException("Curve must have 256 values");
+    }
+    int[] values = curve.clone();
+    return of(value -> values[value]);
+  }
+
+  /**
+   * Composes this table with another one into a single table that applies this table first.
+   * @param next the table to apply to the results of this table
+   * @return the composed table
+   * @throws IllegalArgumentException if the table is null
+   */
+  public LookupTable andThen(LookupTable next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("Table cannot be null");
+    }
+    int[] newRed = new int[SIZE];
+    int[] newGreen = new int[SIZE];
+    int[] newBlue = new int[SIZE];
+    for (int value = 0; value < SIZE; value++) {
+      newRed[value] = next.red[red[value] >> 16];
+      newGreen[value] = next.green[green[value] >> 8];
+      newBlue[value] = next.blue[blue[value]];
+    }
+    return new LookupTable(newRed, newGreen, newBlue);
+  }
+
+  /**
+   * Checks whether this table leaves every sample unchanged.
+   * @return true if applying this table never changes a pixel
+   */
+  public boolean isIdentity() {
+    for (int value = 0; value < SIZE; value++) {
+      if (getRed(value) != value || getGreen(value) != value || getBlue(value) != value) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies this table to a pixel.
+   * @param rgb the 0xRRGGBB value of the pixel
+   * @return the new 0xRRGGBB value
+   */
+  @Override
+  public int applyAsInt(int rgb) {
+    return red[(rgb >> 16) & 0xFF] | green[(rgb >> 8) & 0xFF] | blue[rgb & 0xFF];
+  }
+
+  /**
+   * Gets the new value of a red sample.
+   * @param value the sample value between 0 and 255
+   * @return the new value
+   */
+  public int getRed(int value) {
+    return red[value] >> 16;
+  }
+
+  /**
+   * Gets the new value of a green sample.
+   * @param value the sample value between 0 and 255
+   * @return the new value
+   */
+  public int getGreen(int value) {
+    return green[value] >> 8;
+  }
+
+  /**
+   * Gets the new value of a blue sample.
+   * @param value the sample value between 0 and 255
+   * @return the new value
+   */
+  public int getBlue(int value) {
+    return blue[value];
+  }
+}
@@ -0,0 +1,34 @@
+package model;
+
+import java.util.HashMap;
+
+/**
+ * An image store that keeps every image in memory in a hashmap.
+ */
+public class MapImageStore implements ImageStore {
+  private final HashMap<String, Image> images;
+
+  public MapImageStore() {
+    images = new HashMap<String, Image>();
+  }
+
+  @Override
+  public synchronized Image get(String name) {
+    return images.get(name);
+  }
+
+  @Override
+  public synchronized Image put(String name, Image image) {
+    return images.put(name, image);
+  }
+
+  @Override
+  public synchronized boolean containsKey(String name) {
+    return images.containsKey(name);
+  }
+
+  @Override
+  public synchronized Image remove(String name) {
+    return images.remove(name);
+  }
+}
@@ -0,0 +1,73 @@
+package model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Represents a read-only Image backed directly by the pixel bytes of a binary PPM (P6) or
+ * PGM (P5) file that has been mapped into memory. Colors are read from the mapped bytes when
+ * they are asked for, so loading the file does not parse or copy any of its samples.
+ */
+final class MappedImage implements Image {
+  private final int width;
+  private final int height;
+  private final int channels;
+  private final ByteBuffer bytes;
+
+  /**
+   * Creates an image over the given mapped bytes.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param channels 3 if the bytes hold red, green and blue samples, 1 if they hold grey samples
+   * @param bytes the pixel bytes of the image, row by row, starting at index 0
+   */
+  MappedImage(int width, int height, int channels, ByteBuffer bytes) {
+    this.width = width;
+    this.height = height;
+    this.channels = channels;
+    this.bytes = bytes;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGB(row, col);
+    return new Pixel(PackedImage.red(rgb), PackedImage.green(rgb), PackedImage.blue(rgb));
+  }
+
+  @Override
+  public int getRGB(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row > this.height - 1 || col < 0 || col > this.width - 1) {
+      throw new IllegalArgumentException("Invalid row or column");
+    }
+    return rgbAt((row * width + col) * channels);
+  }
+
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    if (row < 0 || row > this.height - 1) {
+      throw new IllegalArgumentException("Invalid row");
+    }
+    int index = row * width * channels;
+    for (int j = 0; j < width; j++) {
+      dest[j] = rgbAt(index);
+      index += channels;
+    }
+  }
+
+  private int rgbAt(int index) {
+    if (channels == 1) {
+      return (bytes.get(index) & 0xFF) * 0x010101;
+    }
+    return ((bytes.get(index) & 0xFF) << 16) | ((bytes.get(index + 1) & 0xFF) << 8)
+            | (bytes.get(index + 2) & 0xFF);
+  }
+}
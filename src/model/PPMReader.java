@@ -0,0 +1,318 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a netpbm file in a single pass. Plain PPM (P3) files are read through a buffered
+ * FileChannel and split into numbers by hand, skipping whitespace and comments, so the pixels go
+ * straight into the packed array of the image without building strings for the file or its
+ * tokens. For binary PPM (P6) and PGM (P5) files only the header is parsed and the pixel bytes
+ * are memory-mapped and used as the image directly.
+ *
+ * <p>Images that are too large to be edited in memory are read a row at a time into a
+ * TiledImage instead.
+ */
+final class PPMReader implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] bytes;
+  private long bufferStart;
+  private int pos;
+  private int limit;
+  private char format;
+  private int width;
+  private int height;
+  private int maxValue;
+
+  private PPMReader(FileChannel channel) {
+    this.channel = channel;
+    this.bytes = new byte[BUFFER_SIZE];
+    this.buffer = ByteBuffer.wrap(bytes);
+    this.bufferStart = 0;
+    this.pos = 0;
+    this.limit = 0;
+  }
+
+  /**
+   * Opens the PPM file with the given pathname and reads its header.
+   * @param pathname the pathname of the file to read
+   * @return a reader positioned at the first pixel of the file
+   * @throws IllegalArgumentException if the file cannot be found or is not a PPM file
+   * @throws IllegalStateException if the file cannot be read
+   */
+  static PPMReader open(String pathname)
+          throws IllegalArgumentException, IllegalStateException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      System.out.println("File " + pathname + " not found!");
+      throw new IllegalArgumentException("The file " + pathname + " could not be found");
+    } catch (IOException e) {
+      throw new IllegalStateException("IOException");
+    }
+
+    PPMReader reader = new PPMReader(channel);
+    try {
+      reader.readHeader();
+    } catch (RuntimeException e) {
+      reader.close();
+      throw e;
+    }
+    return reader;
+  }
+
+  /**
+   * Reads the whole netpbm file with the given pathname. Plain files are read into a packed
+   * image and binary files are mapped into memory, unless the image needs tiles.
+   * @param pathname the pathname of the file to read
+   * @return the image stored in the file
+   * @throws IllegalArgumentException if the file cannot be found or is not a valid PPM file
+   * @throws IllegalStateException if the file cannot be read
+   */
+  static Image read(String pathname) throws IllegalArgumentException, IllegalStateException {
+    try (PPMReader reader = open(pathname)) {
+      if (TiledImage.needsTiles(reader.width, reader.height)) {
+        return reader.readTiles(TiledImage.DEFAULT_TILE_SIZE);
+      }
+      if (reader.format == '3') {
+        return new PackedImage(reader.width, reader.height, reader.readPixels());
+      }
+      return reader.mapPixels();
+    }
+  }
+
+  /**
+   * Reads the whole netpbm file with the given pathname into a tiled image, whatever its size.
+   * @param pathname the pathname of the file to read
+   * @param tileSize the width and height of the tiles
+   * @return the image stored in the file
+   * @throws IllegalArgumentException if the file cannot be found or is not a valid PPM file
+   * @throws IllegalStateException if the file cannot be read
+   */
+  static TiledImage readTiled(String pathname, int tileSize)
+          throws IllegalArgumentException, IllegalStateException {
+    try (PPMReader reader = open(pathname)) {
+      return reader.readTiles(tileSize);
+    }
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  int getMaxValue() {
+    return maxValue;
+  }
+
+  private void readHeader() throws IllegalArgumentException {
+    skipSeparators();
+    int first = read();
+    int second = read();
+    if (first != 'P' || (second != '3' && second != '5' && second != '6')
+            || !isSeparator(peek())) {
+      throw new IllegalArgumentException(
+              "Invalid PPM file: file should begin with P3, P5 or P6");
+    }
+    format = (char) second;
+    width = nextInt();
+    height = nextInt();
+    maxValue = nextInt();
+  }
+
+  /**
+   * Maps the pixel bytes of a binary file into memory. The header of a binary file ends with
+   * exactly one whitespace character after the maximum value, and the samples start right
+   * after it.
+   * @return an image backed by the mapped pixel bytes
+   * @throws IllegalArgumentException if the file uses two bytes per sample or is too short
+   */
+  private Image mapPixels() throws IllegalArgumentException {
+    if (maxValue > 255) {
+      throw new IllegalArgumentException("Invalid PPM file: 16-bit samples are not supported");
+    }
+    if (read() < 0) {
+      throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+    }
+    int channels = format == '6' ? 3 : 1;
+    long size = (long) width * height * channels;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The image in this PPM file is too large");
+    }
+    long start = bufferStart + pos;
+    try {
+      if (channel.size() - start < size) {
+        throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+      }
+      MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      return new MappedImage(width, height, channels, bytes);
+    } catch (IOException e) {
+      throw new IllegalStateException("IOException");
+    }
+  }
+
+  /**
+   * Reads the pixels a row at a time into a tiled image, so the whole image is never in memory.
+   */
+  private TiledImage readTiles(int tileSize) throws IllegalArgumentException {
+    if (format != '3') {
+      if (maxValue > 255) {
+        throw new IllegalArgumentException("Invalid PPM file: 16-bit samples are not supported");
+      }
+      if (read() < 0) {
+        throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+      }
+    }
+    TiledImage image = TiledImage.create(width, height, tileSize);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        if (format == '3') {
+          row[j] = (nextColor() << 16) | (nextColor() << 8) | nextColor();
+        } else if (format == '6') {
+          row[j] = (nextByte() << 16) | (nextByte() << 8) | nextByte();
+        } else {
+          int grey = nextByte();
+          row[j] = (grey << 16) | (grey << 8) | grey;
+        }
+      }
+      image.setRow(i, row);
+    }
+    return image;
+  }
+
+  private int nextByte() throws IllegalArgumentException {
+    int c = read();
+    if (c < 0) {
+      throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+    }
+    return c;
+  }
+
+  private int[] readPixels() throws IllegalArgumentException {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      int r = nextColor();
+      int g = nextColor();
+      int b = nextColor();
+      pixels[i] = (r << 16) | (g << 8) | b;
+    }
+    return pixels;
+  }
+
+  private int nextColor() throws IllegalArgumentException {
+    int value = nextInt();
+    if (value > 255) {
+      throw new IllegalArgumentException("Invalid Color Value. Must be between 0 and 255");
+    }
+    return value;
+  }
+
+  /**
+   * Reads the next non-negative decimal number of the file.
+   * @return the number that was read
+   * @throws IllegalArgumentException if the file ends or the next token is not a number
+   */
+  private int nextInt() throws IllegalArgumentException {
+    skipSeparators();
+    int c = read();
+    if (c < '0' || c > '9') {
+      if (c < 0) {
+        throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+      }
+      throw new IllegalArgumentException("Invalid PPM file: expected a number");
+    }
+    long value = c - '0';
+    while (true) {
+      if (pos == limit && !fill()) {
+        break;
+      }
+      c = bytes[pos];
+      if (c < '0' || c > '9') {
+        break;
+      }
+      pos++;
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Invalid PPM file: number is too large");
+      }
+    }
+    if (!isSeparator(peek())) {
+      throw new IllegalArgumentException("Invalid PPM file: expected a number");
+    }
+    return (int) value;
+  }
+
+  private void skipSeparators() {
+    while (true) {
+      int c = peek();
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c >= 0) {
+          pos++;
+          c = peek();
+        }
+      } else if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f') {
+        pos++;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static boolean isSeparator(int c) {
+    return c < 0 || c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == '#';
+  }
+
+  private int peek() {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return bytes[pos] & 0xFF;
+  }
+
+  private int read() {
+    int c = peek();
+    if (c >= 0) {
+      pos++;
+    }
+    return c;
+  }
+
+  private boolean fill() throws IllegalStateException {
+    try {
+      bufferStart += limit;
+      buffer.clear();
+      int count = channel.read(buffer);
+      while (count == 0) {
+        count = channel.read(buffer);
+      }
+      pos = 0;
+      limit = Math.max(count, 0);
+      return count > 0;
+    } catch (IOException e) {
+      throw new IllegalStateException("IOException");
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("IOException");
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes images in the plain and binary netpbm formats. Rows are converted into a reusable byte
+ * buffer and written in large blocks, so writing a file creates no objects for its pixels and
+ * never holds more than one buffer of the file in memory.
+ */
+final class PPMWriter {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private PPMWriter() {
+  }
+
+  /**
+   * Writes an image as a plain PPM (P3) file. Every sample is written on its own line, with no
+   * line break after the last sample.
+   * @param output the stream to write the file to
+   * @param image the image to write
+   * @throws IOException if the stream cannot be written to
+   */
+  static void writePlain(OutputStream output, Image image) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    String header = "P3\n" + width + " " + height + "\n255\n";
+    output.write(header.getBytes(StandardCharsets.US_ASCII));
+
+    // each sample takes at most three digits and a line break
+    int rowSize = width * 3 * 4;
+    byte[] buffer = new byte[Math.max(BUFFER_SIZE, rowSize)];
+    int[] row = new int[width];
+    int used = 0;
+
+    for (int i = 0; i < height; i++) {
+      if (used + rowSize > buffer.length) {
+        output.write(buffer, 0, used);
+        used = 0;
+      }
+      image.getRow(i, row);
+      for (int j = 0; j < width; j++) {
+        int rgb = row[j];
+        used = writeSample(buffer, used, PackedImage.red(rgb));
+        used = writeSample(buffer, used, PackedImage.green(rgb));
+        used = writeSample(buffer, used, PackedImage.blue(rgb));
+      }
+    }
+    if (used > 0) {
+      // drop the line break after the last sample
+      used--;
+    }
+    output.write(buffer, 0, used);
+  }
+
+  /**
+   * Writes a sample between 0 and 255 as decimal digits followed by a line break.
+   * @param buffer the buffer to write into
+   * @param index the index to write the first digit at
+   * @param value the sample to write
+   * @return the index after the line break
+   */
+  private static int writeSample(byte[] buffer, int index, int value) {
+    if (value >= 100) {
+      buffer[index++] = (byte) ('0' + value / 100);
+      buffer[index++] = (byte) ('0' + (value / 10) % 10);
+    } else if (value >= 10) {
+      buffer[index++] = (byte) ('0' + value / 10);
+    }
+    buffer[index++] = (byte) ('0' + value % 10);
+    buffer[index++] = '\n';
+    return index;
+  }
+
+  /**
+   * Writes an image as a binary PPM (P6) file with one byte for each red, green and blue sample.
+   * @param output the stream to write the file to
+   * @param image the image to write
+   * @throws IOException if the stream cannot be written to
+   */
+  static void writeRaw(OutputStream output, Image image) throws IOException {
+    writeBinary(output, image, 3);
+  }
+
+  /**
+   * Writes an image as a binary PGM (P5) file with one grey byte for each pixel. Colors are
+   * converted to grey using their rounded luma value, so grey pixels keep their exact value.
+   * @param output the stream to write the file to
+   * @param image the image to write
+   * @throws IOException if the stream cannot be written to
+   */
+  static void writeGrey(OutputStream output, Image image) throws IOException {
+    writeBinary(output, image, 1);
+  }
+
+  private static void writeBinary(OutputStream output, Image image, int channels)
+          throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    String header = (channels == 3 ? "P6\n" : "P5\n") + width + " " + height + "\n255\n";
+    output.write(header.getBytes(StandardCharsets.US_ASCII));
+
+    int rowSize = width * channels;
+    byte[] buffer = new byte[Math.max(BUFFER_SIZE, rowSize)];
+    int[] row = new int[width];
+    int used = 0;
+
+    for (int i = 0; i < height; i++) {
+      if (used + rowSize > buffer.length) {
+        output.write(buffer, 0, used);
+        used = 0;
+      }
+      image.getRow(i, row);
+      if (channels == 3) {
+        for (int j = 0; j < width; j++) {
+          int rgb = row[j];
+          buffer[used++] = (byte) (rgb >> 16);
+          buffer[used++] = (byte) (rgb >> 8);
+          buffer[used++] = (byte) rgb;
+        }
+      } else {
+        for (int j = 0; j < width; j++) {
+          buffer[used++] = (byte) grey(row[j]);
+        }
+      }
+    }
+    output.write(buffer, 0, used);
+  }
+
+  private static int grey(int rgb) {
+    return (2126 * PackedImage.red(rgb) + 7152 * PackedImage.green(rgb)
+            + 722 * PackedImage.blue(rgb) + 5000) / 10000;
+  }
+}
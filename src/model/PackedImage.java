@@ -0,0 +1,291 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents an Image whose pixels are packed into one array of integers. Each pixel is stored
+ * as a single 0xRRGGBB value and the pixels are laid out row by row, so an image takes four
+ * bytes per pixel instead of a separate Pixel object for every location.
+ *
+ * <p>Several packed images can share one array through share(). The array is copied only when
+ * one of them is changed while it is still shared, and images that are no longer needed give up
+ * their share with release(), so the last image using an array can change it in place.
+ */
+public class PackedImage implements Image {
+  private final int width;
+  private final int height;
+  // written by detach, and read by other threads when a concurrent model shares the image
+  private volatile int[] data;
+  // the number of images that share the array, which is the same object for all of them
+  private volatile AtomicInteger owners;
+  private volatile boolean released;
+
+  /**
+   * Creates a black packed image with the given width and height.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @throws IllegalArgumentException if the width or height is negative, or the image has more
+   *                                  pixels than an array can hold
+   */
+  public PackedImage(int width, int height) throws IllegalArgumentException {
+    this(width, height, newData(width, height));
+  }
+
+  /**
+   * Creates a packed image with the given width and height that uses the given array as its
+   * pixels. The array is not copied, it is stored row by row with one 0xRRGGBB value per pixel.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param data the packed pixels of the image
+   * @throws IllegalArgumentException if the array is null or does not hold exactly
+   *                                  width * height pixels
+   */
+  public PackedImage(int width, int height, int[] data) throws IllegalArgumentException {
+    if (data == null) {
+      throw new IllegalArgumentException("Pixel array cannot be null");
+    }
+    if (width < 0 || height < 0 || (long) width * height != data.length) {
+      throw new IllegalArgumentException("Pixel array does not match the image size");
+    }
+    this.width = width;
+    this.height = height;
+    this.data = data;
+    this.owners = new AtomicInteger(1);
+  }
+
+  private PackedImage(int width, int height, int[] data, AtomicInteger owners) {
+    this.width = width;
+    this.height = height;
+    this.data = data;
+    this.owners = owners;
+  }
+
+  private static int[] newData(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Width and height cannot be negative");
+    }
+    long size = (long) width * height;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The image is too large to be kept in one array");
+    }
+    return new int[(int) size];
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets a Pixel holding the color at the given location. The Pixel is a copy, so changing it
+   * does not change this image. Use setRGB to change a pixel of a packed image.
+   * @param row the row location of the pixel
+   * @param col the column location of the pixel
+   * @return a copy of the pixel at the given location
+   * @throws IllegalArgumentException if the location is outside of the image
+   */
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGB(row, col);
+    return new Pixel(red(rgb), green(rgb), blue(rgb));
+  }
+
+  @Override
+  public int getRGB(int row, int col) throws IllegalArgumentException {
+    checkLocation(row, col);
+    return data[row * width + col];
+  }
+
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    checkRow(row, dest);
+    System.arraycopy(data, row * width, dest, 0, width);
+  }
+
+  /**
+   * Changes the color of the pixel at the given location.
+   * @param row the row location of the pixel
+   * @param col the column location of the pixel
+   * @param rgb the new color as a 0xRRGGBB value
+   * @throws IllegalArgumentException if the location is outside of the image
+   */
+  public void setRGB(int row, int col, int rgb) throws IllegalArgumentException {
+    checkLocation(row, col);
+    detach();
+    data[row * width + col] = rgb & 0xFFFFFF;
+  }
+
+  /**
+   * Replaces a whole row of this image with the first width values of the given array.
+   * @param row the row to replace
+   * @param src the packed colors of the new row
+   * @throws IllegalArgumentException if the row is outside of the image or the array is
+   *                                  shorter than the width of the image
+   */
+  public void setRow(int row, int[] src) throws IllegalArgumentException {
+    checkRow(row, src);
+    detach();
+    System.arraycopy(src, 0, data, row * width, width);
+  }
+
+  /**
+   * Gets the array backing this image for reading. Pixels are stored row by row as 0xRRGGBB
+   * values, so the pixel at (row, col) is at index row * width + col. The array may be shared
+   * with other images, so use getWritableData to change the pixels.
+   * @return the packed pixels of this image
+   */
+  public int[] getData() {
+    return data;
+  }
+
+  /**
+   * Gets the array backing this image for changing its pixels. If the array is shared with
+   * other images, this image first gets its own copy of it.
+   * @return the packed pixels of this image, which only this image uses
+   */
+  public int[] getWritableData() {
+    detach();
+    return data;
+  }
+
+  /**
+   * Creates an image that shares its pixels with this image until either of them is changed.
+   * @return a new packed image using the same array as this image
+   */
+  public PackedImage share() {
+    owners.incrementAndGet();
+    return new PackedImage(width, height, data, owners);
+  }
+
+  /**
+   * Checks whether the pixels of this image are also used by another image.
+   * @return true if changing this image would first copy its pixels
+   */
+  public boolean isShared() {
+    return released || owners.get() > 1;
+  }
+
+  /**
+   * Gives up the share this image has in its pixels, so that the images still sharing them can
+   * change them in place. The image can still be read, but it may see changes made by those
+   * images, and changing it copies its pixels first.
+   */
+  public synchronized void release() {
+    if (!released) {
+      released = true;
+      owners.decrementAndGet();
+    }
+  }
+
+  /**
+   * Gives this image its own copy of its pixels if they are shared.
+   */
+  private synchronized void detach() {
+    if (isShared()) {
+      int[] copy = data.clone();
+      release();
+      data = copy;
+      owners = new AtomicInteger(1);
+      released = false;
+    }
+  }
+
+  /**
+   * Creates a copy of this image that does not share its pixels with this image.
+   * @return a new packed image with the same pixels
+   */
+  public PackedImage copy() {
+    return new PackedImage(width, height, data.clone());
+  }
+
+  /**
+   * Creates a packed copy of any Image.
+   * @param image the image to copy
+   * @return a new packed image with the same pixels as the given image
+   */
+  public static PackedImage copyOf(Image image) {
+    if (image instanceof PackedImage) {
+      return ((PackedImage) image).copy();
+    }
+    PackedImage result = new PackedImage(image.getWidth(), image.getHeight());
+    int[] row = new int[image.getWidth()];
+    for (int i = 0; i < image.getHeight(); i++) {
+      image.getRow(i, row);
+      result.setRow(i, row);
+    }
+    return result;
+  }
+
+  /**
+   * Packs the given color values into one 0xRRGGBB value. Values outside of 0 to 255 are
+   * clamped the same way Pixel clamps its color changes.
+   * @param red the red value
+   * @param green the green value
+   * @param blue the blue value
+   * @return the packed color
+   */
+  public static int pack(int red, int green, int blue) {
+    return (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+  }
+
+  /**
+   * Clamps a color value to be between 0 and 255.
+   * @param value the value to clamp
+   * @return 0 if the value is negative, 255 if it is above 255, otherwise the value itself
+   */
+  public static int clamp(int value) {
+    if (value > 255) {
+      return 255;
+    } else if (value < 0) {
+      return 0;
+    }
+    return value;
+  }
+
+  /**
+   * Gets the red value of a packed color.
+   * @param rgb the packed color
+   * @return the red value
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * Gets the green value of a packed color.
+   * @param rgb the packed color
+   * @return the green value
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * Gets the blue value of a packed color.
+   * @param rgb the packed color
+   * @return the blue value
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  private void checkLocation(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row > this.height - 1 || col < 0 || col > this.width - 1) {
+      throw new IllegalArgumentException("Invalid row or column");
+    }
+  }
+
+  private void checkRow(int row, int[] buffer) throws IllegalArgumentException {
+    if (row < 0 || row > this.height - 1) {
+      throw new IllegalArgumentException("Invalid row");
+    }
+    if (buffer == null || buffer.length < width) {
+      throw new IllegalArgumentException("Row buffer is smaller than the image width");
+    }
+  }
+}
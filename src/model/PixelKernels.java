@@ -0,0 +1,165 @@
+package model;
+
+/**
+ * Represents a backend for the per-pixel loops of the model, which work on runs of packed
+ * 0xRRGGBB pixels in an array. Every backend gives exactly the same pixels; they only differ in
+ * how many pixels they work on at a time.
+ *
+ * <p>The scalar backend is always available. The vector backend, which works on a whole SIMD
+ * register of pixels at a time with the incubating Vector API, lives in the simd source folder
+ * and is only loaded when its classes are on the class path and the JVM was started with
+ * --add-modules jdk.incubator.vector. It is used by default when it loads, and the backend can
+ * also be chosen by name with setDefault, before models are created.
+ *
+ * <p>The loops read src from index from up to but not including index to and write the same
+ * indices of dst, which may be the same array as src.
+ */
+public abstract class PixelKernels {
+  /** The name of the backend that works on one pixel at a time. */
+  public static final String SCALAR = "scalar";
+  /** The name of the backend that uses the Vector API. */
+  public static final String VECTOR = "vector";
+
+  private static final String VECTOR_CLASS = "model.VectorPixelKernels";
+  private static final PixelKernels SCALAR_KERNELS = new ScalarPixelKernels();
+  private static volatile PixelKernels defaultKernels;
+
+  /**
+   * Gets the name of this backend.
+   * @return the name, such as "scalar" or "vector"
+   */
+  public abstract String getName();
+
+  /**
+   * Adds an amount to every red, green and blue sample, clamping the results to 0 to 255.
+   * @param src the pixels to read
+   * @param dst the array to write the new pixels to
+   * @param from the first index to change
+   * @param to the index after the last one to change
+   * @param amount the amount to add, which darkens the pixels if it is negative
+   */
+  public abstract void add(int[] src, int[] dst, int from, int to, int amount);
+
+  /**
+   * Turns every pixel into the grey of one of its samples.
+   * @param src the pixels to read
+   * @param dst the array to write the new pixels to
+   * @param from the first index to change
+   * @param to the index after the last one to change
+   * @param shift the position of the sample, 16 for red, 8 for green and 0 for blue
+   */
+  public abstract void channel(int[] src, int[] dst, int from, int to, int shift);
+
+  /**
+   * Turns every pixel into the grey of its largest sample.
+   * @param src the pixels to read
+   * @param dst the array to write the new pixels to
+   * @param from the first index to change
+   * @param to the index after the last one to change
+   */
+  public abstract void value(int[] src, int[] dst, int from, int to);
+
+  /**
+   * Turns every pixel into the grey of the mean of its samples, rounded down.
+   * @param src the pixels to read
+   * @param dst the array to write the new pixels to
+   * @param from the first index to change
+   * @param to the index after the last one to change
+   */
+  public abstract void intensity(int[] src, int[] dst, int from, int to);
+
+  /**
+   * Multiplies the red, green and blue samples of every pixel by a color matrix, giving the
+   * same pixels as ColorMatrix.applyAsInt.
+   * @param src the pixels to read
+   * @param dst the array to write the new pixels to
+   * @param from the first index to change
+   * @param to the index after the last one to change
+   * @param matrix the matrix to apply
+   */
+  public abstract void transform(int[] src, int[] dst, int from, int to, ColorMatrix matrix);
+
+  /**
+   * Limits an amount to add to every sample to -255 to 255. This changes no result, because a
+   * sample plus a larger amount is clamped to 0 or 255 anyway, and keeps the sums from
+   * overflowing.
+   * @param amount the amount to add
+   * @return the amount, clamped to -255 to 255
+   */
+  static int clampAmount(int amount) {
+    return Math.max(-255, Math.min(255, amount));
+  }
+
+  /**
+   * Gets the backend that works on one pixel at a time.
+   * @return the scalar backend
+   */
+  public static PixelKernels scalar() {
+    return SCALAR_KERNELS;
+  }
+
+  /**
+   * Gets a backend by its name.
+   * @param name "scalar" or "vector"
+   * @return the backend
+   * @throws IllegalArgumentException if there is no backend with the name, or the vector
+   *                                  backend cannot be loaded
+   */
+  public static PixelKernels named(String name) throws IllegalArgumentException {
+    if (SCALAR.equals(name)) {
+      return SCALAR_KERNELS;
+    }
+    if (VECTOR.equals(name)) {
+      PixelKernels vector = loadVector();
+      if (vector == null) {
+        throw new IllegalArgumentException("The vector backend is not available");
+      }
+      return vector;
+    }
+    throw new IllegalArgumentException("Unknown pixel backend " + name);
+  }
+
+  /**
+   * Gets the backend that new models use, which is the vector backend if it can be loaded and
+   * the scalar backend otherwise, unless another one was set.
+   * @return the default backend
+   */
+  public static PixelKernels getDefault() {
+    PixelKernels kernels = defaultKernels;
+    if (kernels == null) {
+      PixelKernels vector = loadVector();
+      kernels = vector == null ? SCALAR_KERNELS : vector;
+      defaultKernels = kernels;
+    }
+    return kernels;
+  }
+
+  /**
+   * Sets the backend that models created from now on use.
+   * @param kernels the backend to use
+   * @throws IllegalArgumentException if the backend is null
+   */
+  public static void setDefault(PixelKernels kernels) throws IllegalArgumentException {
+    if (kernels == null) {
+      throw new IllegalArgumentException("Pixel backend cannot be null");
+    }
+    defaultKernels = kernels;
+  }
+
+  /**
+   * Loads the vector backend by name, so that this class does not depend on the Vector API.
+   * @return the vector backend, or null if its classes or the Vector API are missing
+   */
+  private static PixelKernels loadVector() {
+    try {
+      return (PixelKernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+}
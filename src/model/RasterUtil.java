@@ -0,0 +1,177 @@
+package model;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * This class contains utility methods to convert between BufferedImages and Images. The common
+ * layouts created by ImageIO (TYPE_INT_RGB, TYPE_INT_ARGB, TYPE_3BYTE_BGR and TYPE_4BYTE_ABGR)
+ * are converted by reading their data buffers directly, and packed images are turned into
+ * BufferedImages without copying their pixels at all.
+ */
+public final class RasterUtil {
+
+  private RasterUtil() {
+  }
+
+  /**
+   * Converts a BufferedImage into a packed image. Alpha is dropped, the same as
+   * BufferedImage.getRGB followed by keeping only the red, green and blue values.
+   * @param input the image to convert
+   * @return a packed image with the colors of the given image
+   */
+  public static PackedImage toImage(BufferedImage input) {
+    int width = input.getWidth();
+    int height = input.getHeight();
+    int[] pixels = new int[width * height];
+    WritableRaster raster = input.getRaster();
+
+    if (!readInts(input, raster, pixels) && !readBytes(input, raster, pixels)) {
+      input.getRGB(0, 0, width, height, pixels, 0, width);
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] &= 0xFFFFFF;
+      }
+    }
+    return new PackedImage(width, height, pixels);
+  }
+
+  /**
+   * Creates a TYPE_INT_RGB BufferedImage with the colors of the given image. A packed image is
+   * wrapped without copying, so the BufferedImage and the packed image share their pixels.
+   * @param image the image to convert
+   * @return a BufferedImage with the colors of the given image
+   */
+  public static BufferedImage toBufferedImage(Image image) {
+    int[] pixels;
+    if (image instanceof PackedImage) {
+      pixels = ((PackedImage) image).getData();
+    } else {
+      int width = image.getWidth();
+      pixels = new int[width * image.getHeight()];
+      int[] row = new int[width];
+      for (int i = 0; i < image.getHeight(); i++) {
+        image.getRow(i, row);
+        System.arraycopy(row, 0, pixels, i * width, width);
+      }
+    }
+    return wrap(pixels, image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Creates a TYPE_INT_RGB BufferedImage that uses the given packed pixels as its data buffer.
+   * @param pixels the 0xRRGGBB pixels of the image, row by row
+   * @param width the width of the image
+   * @param height the height of the image
+   * @return a BufferedImage that shares the given array
+   */
+  static BufferedImage wrap(int[] pixels, int width, int height) {
+    DirectColorModel colorModel = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+    DataBufferInt buffer = new DataBufferInt(pixels, pixels.length);
+    WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width,
+            colorModel.getMasks(), null);
+    return new BufferedImage(colorModel, raster, false, null);
+  }
+
+  /**
+   * Reads an image that keeps each pixel packed into one integer with 8-bit red, green and blue
+   * fields, like TYPE_INT_RGB and TYPE_INT_ARGB.
+   * @return true if the image had this layout and was read, false otherwise
+   */
+  private static boolean readInts(BufferedImage input, WritableRaster raster, int[] pixels) {
+    DataBuffer buffer = raster.getDataBuffer();
+    SampleModel sampleModel = raster.getSampleModel();
+    if (!(buffer instanceof DataBufferInt) || buffer.getNumBanks() != 1
+            || !(sampleModel instanceof SinglePixelPackedSampleModel)
+            || !isPlainRGB(input.getColorModel()) || raster.getParent() != null) {
+      return false;
+    }
+    int[] masks = ((SinglePixelPackedSampleModel) sampleModel).getBitMasks();
+    if (masks.length < 3 || masks[0] != 0xFF0000 || masks[1] != 0x00FF00
+            || masks[2] != 0x0000FF) {
+      return false;
+    }
+
+    int width = input.getWidth();
+    int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+    int[] data = ((DataBufferInt) buffer).getData();
+    int start = buffer.getOffset();
+    for (int i = 0; i < input.getHeight(); i++) {
+      int from = start + i * stride;
+      int to = i * width;
+      for (int j = 0; j < width; j++) {
+        pixels[to + j] = data[from + j] & 0xFFFFFF;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads an image that keeps one byte for every sample, like TYPE_3BYTE_BGR and
+   * TYPE_4BYTE_ABGR.
+   * @return true if the image had this layout and was read, false otherwise
+   */
+  private static boolean readBytes(BufferedImage input, WritableRaster raster, int[] pixels) {
+    DataBuffer buffer = raster.getDataBuffer();
+    SampleModel sampleModel = raster.getSampleModel();
+    if (!(buffer instanceof DataBufferByte) || buffer.getNumBanks() != 1
+            || !(sampleModel instanceof ComponentSampleModel)
+            || sampleModel.getNumBands() < 3 || !isPlainRGB(input.getColorModel())
+            || raster.getParent() != null) {
+      return false;
+    }
+    ComponentSampleModel components = (ComponentSampleModel) sampleModel;
+    int[] bandOffsets = components.getBandOffsets();
+    int[] banks = components.getBankIndices();
+    for (int bank : banks) {
+      if (bank != 0) {
+        return false;
+      }
+    }
+
+    int width = input.getWidth();
+    int stride = components.getScanlineStride();
+    int pixelStride = components.getPixelStride();
+    int redOffset = bandOffsets[0];
+    int greenOffset = bandOffsets[1];
+    int blueOffset = bandOffsets[2];
+    byte[] data = ((DataBufferByte) buffer).getData();
+    int start = buffer.getOffset();
+    for (int i = 0; i < input.getHeight(); i++) {
+      int from = start + i * stride;
+      int to = i * width;
+      for (int j = 0; j < width; j++) {
+        pixels[to + j] = ((data[from + redOffset] & 0xFF) << 16)
+                | ((data[from + greenOffset] & 0xFF) << 8) | (data[from + blueOffset] & 0xFF);
+        from += pixelStride;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks that a color model stores plain 8-bit sRGB samples, so that its samples are the same
+   * values BufferedImage.getRGB would return.
+   */
+  private static boolean isPlainRGB(ColorModel colorModel) {
+    if (!colorModel.getColorSpace().isCS_sRGB() || colorModel.isAlphaPremultiplied()
+            || colorModel.getColorSpace().getType() != ColorSpace.TYPE_RGB) {
+      return false;
+    }
+    for (int size : colorModel.getComponentSize()) {
+      if (size != 8) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
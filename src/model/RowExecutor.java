@@ -0,0 +1,165 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over the rows of an image, either on the calling thread or split into bands of
+ * rows that run on a ForkJoinPool. Images with fewer pixels than the threshold are always
+ * handled on the calling thread, since splitting them costs more than it saves.
+ *
+ * <p>The number of bands only depends on the size of the image and the parallelism, never on
+ * the timing of the threads, so an operation that writes each row from its source rows, or that
+ * combines per-band results in band order, gives exactly the same result as the sequential loop.
+ */
+public final class RowExecutor {
+
+  /**
+   * The default number of pixels an image needs before its rows are split into bands.
+   */
+  public static final int DEFAULT_THRESHOLD = 1 << 16;
+
+  // more bands than threads lets the pool balance bands that take longer than others
+  private static final int BANDS_PER_THREAD = 4;
+
+  private static final RowExecutor SEQUENTIAL = new RowExecutor(null, 1, Integer.MAX_VALUE);
+
+  private final ForkJoinPool pool;
+  private final int parallelism;
+  private final int threshold;
+
+  private RowExecutor(ForkJoinPool pool, int parallelism, int threshold) {
+    this.pool = pool;
+    this.parallelism = parallelism;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Creates an executor that runs on its own ForkJoinPool with the given number of threads.
+   * @param parallelism the number of threads to split the rows between
+   * @param threshold the number of pixels an image needs before its rows are split
+   * @throws IllegalArgumentException if the parallelism is less than one or the threshold is
+   *                                  negative
+   */
+  public RowExecutor(int parallelism, int threshold) throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Threshold cannot be negative");
+    }
+    this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    this.parallelism = parallelism;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Gets an executor that runs every loop on the calling thread.
+   * @return the sequential executor
+   */
+  public static RowExecutor sequential() {
+    return SEQUENTIAL;
+  }
+
+  /**
+   * Gets an executor that runs on the common ForkJoinPool with the default threshold.
+   * @return an executor using the common pool
+   */
+  public static RowExecutor common() {
+    ForkJoinPool common = ForkJoinPool.commonPool();
+    return new RowExecutor(common, common.getParallelism(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Gets the number of threads the rows of large images are split between.
+   * @return the parallelism of this executor
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Gets the number of pixels an image needs before its rows are split into bands.
+   * @return the threshold of this executor
+   */
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Gets the number of bands the rows of an image of the given size are split into.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @return the number of bands, which is 1 if the image is handled on the calling thread
+   */
+  public int bands(int width, int height) {
+    if (pool == null || parallelism == 1 || (long) width * height < threshold || height < 2) {
+      return 1;
+    }
+    return Math.min(height, parallelism * BANDS_PER_THREAD);
+  }
+
+  /**
+   * Runs the given task once for every band of rows of an image of the given size, and waits
+   * for all of them to finish. Bands are numbered from 0 and cover the rows in order.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param task the task to run for each band
+   */
+  public void forEachBand(int width, int height, BandTask task) {
+    int bands = bands(width, height);
+    if (bands == 1) {
+      task.run(0, 0, height);
+    } else {
+      pool.invoke(new Bands(task, height, bands, 0, bands));
+    }
+  }
+
+  /**
+   * A piece of work that handles one band of the rows of an image.
+   */
+  public interface BandTask {
+
+    /**
+     * Handles the rows from rowStart up to but not including rowEnd.
+     * @param band the number of the band
+     * @param rowStart the first row of the band
+     * @param rowEnd the row after the last row of the band
+     */
+    void run(int band, int rowStart, int rowEnd);
+  }
+
+  /**
+   * Splits a range of bands in half until a single band is left, and runs it.
+   */
+  private static final class Bands extends RecursiveAction {
+    private final BandTask task;
+    private final int height;
+    private final int bands;
+    private final int from;
+    private final int to;
+
+    Bands(BandTask task, int height, int bands, int from, int to) {
+      this.task = task;
+      this.height = height;
+      this.bands = bands;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        task.run(from, rowOf(from), rowOf(to));
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Bands(task, height, bands, from, middle),
+                new Bands(task, height, bands, middle, to));
+      }
+    }
+
+    private int rowOf(int band) {
+      return (int) ((long) band * height / bands);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package model;
+
+/**
+ * The pixel backend that works on one pixel at a time. Its per-pixel methods are also used by
+ * the model for images that are not kept in a pixel array, and by the vector backend for the
+ * pixels left over after its last full register, so every path gives the same pixels.
+ */
+final class ScalarPixelKernels extends PixelKernels {
+
+  @Override
+  public String getName() {
+    return SCALAR;
+  }
+
+  @Override
+  public void add(int[] src, int[] dst, int from, int to, int amount) {
+    int clamped = clampAmount(amount);
+    for (int i = from; i < to; i++) {
+      dst[i] = add(src[i], clamped);
+    }
+  }
+
+  @Override
+  public void channel(int[] src, int[] dst, int from, int to, int shift) {
+    for (int i = from; i < to; i++) {
+      dst[i] = channel(src[i], shift);
+    }
+  }
+
+  @Override
+  public void value(int[] src, int[] dst, int from, int to) {
+    for (int i = from; i < to; i++) {
+      dst[i] = value(src[i]);
+    }
+  }
+
+  @Override
+  public void intensity(int[] src, int[] dst, int from, int to) {
+    for (int i = from; i < to; i++) {
+      dst[i] = intensity(src[i]);
+    }
+  }
+
+  @Override
+  public void transform(int[] src, int[] dst, int from, int to, ColorMatrix matrix) {
+    for (int i = from; i < to; i++) {
+      dst[i] = matrix.applyAsInt(src[i]);
+    }
+  }
+
+  static int add(int rgb, int amount) {
+    return PackedImage.pack(PackedImage.red(rgb) + amount, PackedImage.green(rgb) + amount,
+            PackedImage.blue(rgb) + amount);
+  }
+
+  static int channel(int rgb, int shift) {
+    return grey((rgb >> shift) & 0xFF);
+  }
+
+  static int value(int rgb) {
+    int maxRG = Math.max(PackedImage.red(rgb), PackedImage.green(rgb));
+    return grey(Math.max(PackedImage.blue(rgb), maxRG));
+  }
+
+  static int intensity(int rgb) {
+    return grey((PackedImage.red(rgb) + PackedImage.green(rgb) + PackedImage.blue(rgb)) / 3);
+  }
+
+  static int grey(int value) {
+    return (value << 16) | (value << 8) | value;
+  }
+}
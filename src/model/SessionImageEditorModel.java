@@ -0,0 +1,104 @@
+package model;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent model for one session of a server. The images of the session are kept in its
+ * own namespace of the store shared by every session, so two sessions can use the same names
+ * without seeing each other's images, while a file loaded by several sessions is read once and
+ * its pixels are shared between them. Closing the session removes its images from the store.
+ */
+public class SessionImageEditorModel extends ConcurrentImageEditorModel {
+  private final SharedImages shared;
+  private final String session;
+
+  /**
+   * Creates the model of a session.
+   * @param executor the executor that splits the rows of images between threads
+   * @param lazy whether per-pixel operations are deferred until their result is needed
+   * @param shared the images shared by the sessions
+   * @param session the name of the session, which no other open session may have
+   * @throws IllegalArgumentException if any of the arguments is null
+   */
+  public SessionImageEditorModel(RowExecutor executor, boolean lazy, SharedImages shared,
+                                 String session) throws IllegalArgumentException {
+    super(executor, lazy, namespaced(shared, session));
+    this.shared = shared;
+    this.session = session;
+  }
+
+  private static ImageStore namespaced(SharedImages shared, String session)
+          throws IllegalArgumentException {
+    if (shared == null || session == null) {
+      throw new IllegalArgumentException("Must provide shared images and a session");
+    }
+    return new SessionImageStore(shared.getStore(), SharedImages.namespace(session));
+  }
+
+  /**
+   * Gets the name of the session of this model.
+   * @return the name of the session
+   */
+  public String getSession() {
+    return session;
+  }
+
+  @Override
+  protected Image read(String pathname, String filetype) throws IllegalArgumentException {
+    return share(shared.load(pathname, filetype, session, super::read));
+  }
+
+  /**
+   * Removes every image of the session from the shared store, along with the images of the
+   * files it loaded that no other session loaded. The model should not be used afterwards.
+   */
+  public void close() {
+    ((SessionImageStore) images).clear();
+    shared.release(session);
+  }
+
+  /**
+   * The view of a shared store that a session sees, which adds the namespace of the session to
+   * every name and remembers the names it stored so they can be removed.
+   */
+  private static final class SessionImageStore implements ImageStore {
+    private final ImageStore store;
+    private final String namespace;
+    private final Set<String> names;
+
+    SessionImageStore(ImageStore store, String namespace) {
+      this.store = store;
+      this.namespace = namespace;
+      this.names = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public Image get(String name) {
+      return store.get(namespace + name);
+    }
+
+    @Override
+    public Image put(String name, Image image) {
+      names.add(name);
+      return store.put(namespace + name, image);
+    }
+
+    @Override
+    public boolean containsKey(String name) {
+      return store.containsKey(namespace + name);
+    }
+
+    @Override
+    public Image remove(String name) {
+      names.remove(name);
+      return store.remove(namespace + name);
+    }
+
+    void clear() {
+      for (String name : names) {
+        remove(name);
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package model;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * The store of images that the sessions of a server share. Each session keeps its images in its
+ * own namespace of the store, and the images loaded from files are kept once for all of them:
+ * the first session to load a file reads it, and the others get a share of the same image as
+ * long as the file has not changed since. A file counts as changed when its size or its time of
+ * last modification is different.
+ *
+ * <p>Loaded images are kept in the store under names that no session can use, so a store with
+ * a budget spills them like any other image. Each loaded image remembers the sessions that
+ * loaded it, and is removed from the store once all of them have been released.
+ */
+public final class SharedImages {
+  private static final String LOADED = "loaded:";
+  private static final String SESSION = "session:";
+
+  private final ImageStore store;
+  private final ConcurrentHashMap<String, Entry> entries;
+
+  /**
+   * Creates shared images that are kept in the given store.
+   * @param store the store, which must be safe to use from many threads
+   * @throws IllegalArgumentException if the store is null
+   */
+  public SharedImages(ImageStore store) throws IllegalArgumentException {
+    if (store == null) {
+      throw new IllegalArgumentException("Image store cannot be null");
+    }
+    this.store = store;
+    this.entries = new ConcurrentHashMap<String, Entry>();
+  }
+
+  /**
+   * Gets the store the images are kept in.
+   * @return the store shared by every session
+   */
+  public ImageStore getStore() {
+    return store;
+  }
+
+  /**
+   * Gets the prefix of the names of the images of a session in the store.
+   * @param session the name of the session
+   * @return the prefix
+   */
+  static String namespace(String session) {
+    return SESSION + session + "/";
+  }
+
+  /**
+   * Gets the image in a file for a session, reading it only if no session has loaded the file
+   * since it last changed. The file is read without holding up sessions that load other files,
+   * so two sessions loading the same file at once may both read it, but they get the same image.
+   * @param pathname the pathname of the file
+   * @param filetype the type of the file, such as ppm or png
+   * @param session the name of the session that loads the file
+   * @param reader reads the image in a file given its pathname and type
+   * @return the image, which must not be changed
+   * @throws IllegalArgumentException if the file cannot be read
+   */
+  Image load(String pathname, String filetype, String session,
+             BiFunction<String, String, Image> reader) throws IllegalArgumentException {
+    File file = new File(pathname).getAbsoluteFile();
+    String key = filetype.toLowerCase(Locale.ROOT) + ":" + file.toPath().normalize();
+    Stamp current = new Stamp(file.lastModified(), file.length());
+    Entry entry = entries.get(key);
+    Image image = entry != null && current.equals(entry.stamp) ? store.get(LOADED + key) : null;
+    Image read = image == null ? reader.apply(pathname, filetype) : image;
+
+    Image[] loaded = new Image[1];
+    entries.compute(key, (name, published) -> {
+      loaded[0] = published != null && current.equals(published.stamp)
+              ? store.get(LOADED + name) : null;
+      if (loaded[0] == null) {
+        loaded[0] = read;
+        store.put(LOADED + name, read);
+        published = new Entry(current);
+      }
+      published.sessions.add(session);
+      return published;
+    });
+    return loaded[0];
+  }
+
+  /**
+   * Forgets that a session loaded its files, and removes the images that no other session
+   * loaded from the store.
+   * @param session the name of the session
+   */
+  void release(String session) {
+    for (String key : entries.keySet()) {
+      entries.computeIfPresent(key, (name, entry) -> {
+        entry.sessions.remove(session);
+        if (!entry.sessions.isEmpty()) {
+          return entry;
+        }
+        store.remove(LOADED + name);
+        return null;
+      });
+    }
+  }
+
+  /**
+   * A loaded image, with the stamp of its file when it was read and the sessions that loaded it.
+   */
+  private static final class Entry {
+    private final Stamp stamp;
+    private final Set<String> sessions;
+
+    Entry(Stamp stamp) {
+      this.stamp = stamp;
+      this.sessions = ConcurrentHashMap.newKeySet();
+    }
+  }
+
+  /**
+   * The size and time of last modification of a file when it was read.
+   */
+  private static final class Stamp {
+    private final long modified;
+    private final long length;
+
+    Stamp(long modified, long length) {
+      this.modified = modified;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Stamp && ((Stamp) other).modified == modified
+              && ((Stamp) other).length == length;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(modified) * 31 + Long.hashCode(length);
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the tiles of tiled images in memory up to a number of bytes, and moves the least
+ * recently used tiles back to the files of their images when more room is needed. Tiles are
+ * only written back if they were changed. One cache can hold the tiles of any number of images,
+ * so the memory used by tiles does not grow with the number of images.
+ *
+ * <p>Callers never hold on to a cached tile. Pixels are copied into and out of the cache while
+ * holding its lock, so a tile can be evicted at any time without losing a change.
+ */
+final class TileCache {
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  private final long capacity;
+  private final LinkedHashMap<Long, Tile> tiles;
+  private long bytes;
+  private long loads;
+  private long writes;
+
+  /**
+   * Creates a cache that keeps at most the given number of bytes of tiles, and always at least
+   * one tile.
+   * @param capacity the number of bytes of tiles to keep in memory
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  TileCache(long capacity) throws IllegalArgumentException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Cache capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Copies a rectangle of pixels out of one tile.
+   * @param file the file of the image the tile belongs to
+   * @param index the index of the tile in the file
+   * @param from the index of the first pixel to copy in the tile
+   * @param rows the number of rows to copy
+   * @param cols the number of pixels to copy from each row
+   * @param dest the array to copy into
+   * @param destPos the index in dest of the first pixel
+   * @param destStride the distance in dest between the starts of two rows
+   */
+  synchronized void read(TileFile file, int index, int from, int rows, int cols, int[] dest,
+                         int destPos, int destStride) {
+    int[] pixels = tile(file, index).pixels;
+    int stride = file.tileSize;
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(pixels, from + i * stride, dest, destPos + i * destStride, cols);
+    }
+  }
+
+  /**
+   * Copies a rectangle of pixels into one tile.
+   * @param file the file of the image the tile belongs to
+   * @param index the index of the tile in the file
+   * @param to the index of the first pixel to change in the tile
+   * @param rows the number of rows to copy
+   * @param cols the number of pixels to copy into each row
+   * @param src the array to copy from
+   * @param srcPos the index in src of the first pixel
+   * @param srcStride the distance in src between the starts of two rows
+   */
+  synchronized void write(TileFile file, int index, int to, int rows, int cols, int[] src,
+                          int srcPos, int srcStride) {
+    Tile tile = tile(file, index);
+    int stride = file.tileSize;
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(src, srcPos + i * srcStride, tile.pixels, to + i * stride, cols);
+    }
+    tile.dirty = true;
+  }
+
+  /**
+   * Replaces the pixels of a whole tile without reading it from its file first. The cache
+   * takes the array over, so it must not be used by the caller afterwards.
+   * @param file the file of the image the tile belongs to
+   * @param index the index of the tile in the file
+   * @param pixels the tileSize * tileSize pixels of the tile
+   */
+  synchronized void put(TileFile file, int index, int[] pixels) {
+    Tile old = tiles.remove(key(file, index));
+    if (old != null) {
+      bytes -= old.size();
+    }
+    Tile tile = new Tile(file, index, pixels);
+    tile.dirty = true;
+    add(tile);
+  }
+
+  /**
+   * Writes the changed tiles of a file back to it.
+   * @param file the file to write the tiles of
+   */
+  synchronized void flush(TileFile file) {
+    for (Tile tile : tiles.values()) {
+      if (tile.file == file && tile.dirty) {
+        file.write(tile.index, tile.pixels);
+        tile.dirty = false;
+        writes++;
+      }
+    }
+  }
+
+  /**
+   * Forgets the tiles of a file without writing them back, because the file is being deleted.
+   * @param file the file whose tiles are dropped
+   */
+  synchronized void drop(TileFile file) {
+    Iterator<Tile> iterator = tiles.values().iterator();
+    while (iterator.hasNext()) {
+      Tile tile = iterator.next();
+      if (tile.file == file) {
+        bytes -= tile.size();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of tiles that were read from their files.
+   * @return the number of tiles loaded since the cache was created
+   */
+  synchronized long getLoads() {
+    return loads;
+  }
+
+  /**
+   * Gets the number of changed tiles that were written back to their files.
+   * @return the number of tiles written since the cache was created
+   */
+  synchronized long getWrites() {
+    return writes;
+  }
+
+  private Tile tile(TileFile file, int index) {
+    Tile tile = tiles.get(key(file, index));
+    if (tile == null) {
+      int[] pixels = new int[file.tileSize * file.tileSize];
+      file.read(index, pixels);
+      loads++;
+      tile = new Tile(file, index, pixels);
+      add(tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Adds a tile, first evicting the least recently used tiles until it fits.
+   */
+  private void add(Tile tile) {
+    Iterator<Map.Entry<Long, Tile>> eldest = tiles.entrySet().iterator();
+    while (bytes + tile.size() > capacity && eldest.hasNext()) {
+      Tile evicted = eldest.next().getValue();
+      if (evicted.dirty) {
+        evicted.file.write(evicted.index, evicted.pixels);
+        writes++;
+      }
+      bytes -= evicted.size();
+      eldest.remove();
+    }
+    tiles.put(key(tile.file, tile.index), tile);
+    bytes += tile.size();
+  }
+
+  private static Long key(TileFile file, int index) {
+    return ((long) file.id << 32) | (index & 0xFFFFFFFFL);
+  }
+
+  /**
+   * The pixels of one tile while it is in memory.
+   */
+  private static final class Tile {
+    private final TileFile file;
+    private final int index;
+    private final int[] pixels;
+    private boolean dirty;
+
+    Tile(TileFile file, int index, int[] pixels) {
+      this.file = file;
+      this.index = index;
+      this.pixels = pixels;
+    }
+
+    long size() {
+      return 4L * pixels.length;
+    }
+  }
+
+  /**
+   * A temporary file that holds the tiles of one image, one after another, each as
+   * tileSize * tileSize 4-byte pixels. Tiles that were never written read as black. The file is
+   * deleted when it is closed.
+   */
+  static final class TileFile implements Runnable {
+    private final int id;
+    private final int tileSize;
+    private final TileCache cache;
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates an empty temporary file for tiles of the given size.
+     * @param tileSize the width and height of a tile
+     * @param cache the cache that keeps the tiles of the file
+     * @throws IllegalStateException if the file cannot be created
+     */
+    TileFile(int tileSize, TileCache cache) throws IllegalStateException {
+      this.id = NEXT_ID.getAndIncrement();
+      this.tileSize = tileSize;
+      this.cache = cache;
+      try {
+        this.path = Files.createTempFile("image-tiles", ".bin");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        throw new IllegalStateException("IOException");
+      }
+      this.buffer = ByteBuffer.allocateDirect(4 * tileSize * tileSize);
+    }
+
+    TileCache getCache() {
+      return cache;
+    }
+
+    private long offset(int index) {
+      return (long) index * buffer.capacity();
+    }
+
+    /**
+     * Reads a tile, called by the cache while holding its lock.
+     */
+    private void read(int index, int[] pixels) {
+      try {
+        buffer.clear();
+        long position = offset(index);
+        while (buffer.hasRemaining()) {
+          int count = channel.read(buffer, position + buffer.position());
+          if (count < 0) {
+            break;
+          }
+        }
+        buffer.flip();
+        IntBuffer ints = buffer.asIntBuffer();
+        int count = ints.remaining();
+        ints.get(pixels, 0, count);
+        Arrays.fill(pixels, count, pixels.length, 0);
+      } catch (IOException e) {
+        throw new IllegalStateException("IOException");
+      }
+    }
+
+    /**
+     * Writes a tile, called by the cache while holding its lock.
+     */
+    private void write(int index, int[] pixels) {
+      try {
+        buffer.clear();
+        buffer.asIntBuffer().put(pixels);
+        long position = offset(index);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer, position + buffer.position());
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("IOException");
+      }
+    }
+
+    /**
+     * Drops the tiles of the file from its cache, and closes and deletes the file.
+     */
+    @Override
+    public void run() {
+      cache.drop(this);
+      try {
+        channel.close();
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // the file is temporary, so there is nothing left to do
+      }
+    }
+  }
+}
@@ -0,0 +1,417 @@
+package model;
+
+import java.io.Closeable;
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents an image that is split into square tiles which are kept in a temporary file and
+ * loaded into a TileCache when they are used, so the image can be far larger than the heap.
+ * The least recently used tiles are written back to the file when the cache is full. Tiles at
+ * the right and bottom edges are stored at full size, and the pixels past the edge of the image
+ * are never read.
+ *
+ * <p>Operations on a tiled image produce a new tiled image one tile at a time, splitting the
+ * rows of tiles between the threads of a RowExecutor. Kernel filters and blurs read each tile
+ * together with a halo of kernel-radius or blur-radius width around it, so they give exactly
+ * the same pixels as filtering the whole image at once.
+ *
+ * <p>Reading the image a row at a time, as the PPM writers do, touches a whole row of tiles, so
+ * the cache should hold at least one row of tiles. The file is deleted when the image is closed
+ * or no longer used.
+ */
+public final class TiledImage implements Image, Closeable {
+  /** The tile size used unless another one is given. */
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private static final Cleaner CLEANER = Cleaner.create();
+  private static TileCache sharedCache;
+
+  private final int width;
+  private final int height;
+  private final int tileSize;
+  private final int tilesAcross;
+  private final int tilesDown;
+  private final TileCache cache;
+  private final TileCache.TileFile file;
+  private final Cleaner.Cleanable cleanable;
+
+  private TiledImage(int width, int height, int tileSize, TileCache cache)
+          throws IllegalArgumentException, IllegalStateException {
+    if (width <= 0 || height <= 0 || tileSize <= 0) {
+      throw new IllegalArgumentException("Width, height and tile size must be positive");
+    }
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.tilesDown = (height + tileSize - 1) / tileSize;
+    if ((long) tilesAcross * tilesDown > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The image has too many tiles");
+    }
+    this.cache = cache;
+    this.file = new TileCache.TileFile(tileSize, cache);
+    this.cleanable = CLEANER.register(this, file);
+  }
+
+  /**
+   * Creates a black tiled image whose tiles are kept in a cache shared by every tiled image
+   * created this way. The shared cache keeps up to a quarter of the heap.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param tileSize the width and height of a tile
+   * @return the new image
+   * @throws IllegalArgumentException if the width, height or tile size is not positive
+   * @throws IllegalStateException if the file for the tiles cannot be created
+   */
+  public static TiledImage create(int width, int height, int tileSize)
+          throws IllegalArgumentException, IllegalStateException {
+    return new TiledImage(width, height, tileSize, sharedCache());
+  }
+
+  /**
+   * Creates a black tiled image whose tiles are kept in a cache of its own.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param tileSize the width and height of a tile
+   * @param cacheBytes the number of bytes of tiles to keep in memory
+   * @return the new image
+   * @throws IllegalArgumentException if the width, height, tile size or cache size is not
+   *         positive
+   * @throws IllegalStateException if the file for the tiles cannot be created
+   */
+  public static TiledImage create(int width, int height, int tileSize, long cacheBytes)
+          throws IllegalArgumentException, IllegalStateException {
+    return new TiledImage(width, height, tileSize, new TileCache(cacheBytes));
+  }
+
+  private static synchronized TileCache sharedCache() {
+    if (sharedCache == null) {
+      sharedCache = new TileCache(Runtime.getRuntime().maxMemory() / 4);
+    }
+    return sharedCache;
+  }
+
+  /**
+   * Checks whether an image is too large to be edited as a packed image, because its packed
+   * pixels would not fit in an array or would take more than a quarter of the heap.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @return true if the image should be tiled
+   */
+  public static boolean needsTiles(long width, long height) {
+    long pixels = width * height;
+    return pixels > Integer.MAX_VALUE - 8 || 4 * pixels > Runtime.getRuntime().maxMemory() / 4;
+  }
+
+  /**
+   * Creates a tiled copy of any image, in a cache of its own.
+   * @param image the image to copy
+   * @param tileSize the width and height of a tile
+   * @param cacheBytes the number of bytes of tiles to keep in memory
+   * @return a tiled image with the same pixels as the given image
+   */
+  public static TiledImage copyOf(Image image, int tileSize, long cacheBytes) {
+    TiledImage result = create(image.getWidth(), image.getHeight(), tileSize, cacheBytes);
+    int[] row = new int[image.getWidth()];
+    for (int i = 0; i < image.getHeight(); i++) {
+      image.getRow(i, row);
+      result.setRow(i, row);
+    }
+    return result;
+  }
+
+  /**
+   * Creates a black image with the same size, tiles and cache as this image.
+   */
+  private TiledImage createLike() {
+    return new TiledImage(width, height, tileSize, cache);
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the width and height of the tiles of this image.
+   * @return the tile size
+   */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGB(row, col);
+    return new Pixel(PackedImage.red(rgb), PackedImage.green(rgb), PackedImage.blue(rgb));
+  }
+
+  @Override
+  public int getRGB(int row, int col) throws IllegalArgumentException {
+    checkPosition(row, col);
+    int[] pixel = new int[1];
+    cache.read(file, tileIndex(row / tileSize, col / tileSize),
+            (row % tileSize) * tileSize + col % tileSize, 1, 1, pixel, 0, 1);
+    return pixel[0];
+  }
+
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    checkPosition(row, 0);
+    readRegion(row, 0, 1, width, dest);
+  }
+
+  /**
+   * Changes the color of one pixel.
+   * @param row the row of the pixel
+   * @param col the column of the pixel
+   * @param rgb the new 0xRRGGBB color of the pixel
+   * @throws IllegalArgumentException if the position is outside of the image
+   */
+  public void setRGB(int row, int col, int rgb) throws IllegalArgumentException {
+    checkPosition(row, col);
+    cache.write(file, tileIndex(row / tileSize, col / tileSize),
+            (row % tileSize) * tileSize + col % tileSize, 1, 1, new int[] {rgb}, 0, 1);
+  }
+
+  /**
+   * Changes the colors of a whole row.
+   * @param row the row to change
+   * @param src the array holding the new 0xRRGGBB colors in its first width values
+   * @throws IllegalArgumentException if the row is outside of the image
+   */
+  public void setRow(int row, int[] src) throws IllegalArgumentException {
+    checkPosition(row, 0);
+    int tileRow = row / tileSize;
+    int from = (row % tileSize) * tileSize;
+    for (int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+      int col = tileCol * tileSize;
+      cache.write(file, tileIndex(tileRow, tileCol), from, 1,
+              Math.min(tileSize, width - col), src, col, width);
+    }
+  }
+
+  /**
+   * Copies a rectangle of pixels into an array, row by row. The rectangle may reach past the
+   * edges of the image, and the pixels outside of the image are black.
+   * @param top the row of the top edge of the rectangle, which may be negative
+   * @param left the column of the left edge of the rectangle, which may be negative
+   * @param rows the height of the rectangle
+   * @param cols the width of the rectangle
+   * @param dest the array of at least rows * cols values to copy the pixels into
+   */
+  public void readRegion(int top, int left, int rows, int cols, int[] dest) {
+    int rowStart = Math.max(top, 0);
+    int rowEnd = Math.min(top + rows, height);
+    int colStart = Math.max(left, 0);
+    int colEnd = Math.min(left + cols, width);
+    if (rowStart != top || rowEnd != top + rows || colStart != left || colEnd != left + cols) {
+      Arrays.fill(dest, 0, rows * cols, 0);
+    }
+
+    for (int row = rowStart; row < rowEnd; ) {
+      int tileRow = row / tileSize;
+      int rowsInTile = Math.min(rowEnd, (tileRow + 1) * tileSize) - row;
+      for (int col = colStart; col < colEnd; ) {
+        int tileCol = col / tileSize;
+        int colsInTile = Math.min(colEnd, (tileCol + 1) * tileSize) - col;
+        cache.read(file, tileIndex(tileRow, tileCol),
+                (row % tileSize) * tileSize + col % tileSize, rowsInTile, colsInTile,
+                dest, (row - top) * cols + (col - left), cols);
+        col += colsInTile;
+      }
+      row += rowsInTile;
+    }
+  }
+
+  /**
+   * Writes the tiles that changed back to the file of this image.
+   */
+  public void flush() {
+    cache.flush(file);
+  }
+
+  /**
+   * Deletes the file of this image. The image cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    cleanable.clean();
+  }
+
+  /**
+   * Creates a new image by applying an operation to every pixel of this image, a tile at a
+   * time.
+   * @param operation the operation to apply to each 0xRRGGBB value
+   * @param executor the executor that splits the rows of tiles between threads
+   * @return the new image
+   */
+  public TiledImage map(IntUnaryOperator operation, RowExecutor executor) {
+    return mapTiles(executor, (top, left, rows, cols, pixels) -> {
+      readRegion(top, left, rows, cols, pixels);
+      for (int i = 0; i < rows * cols; i++) {
+        pixels[i] = operation.applyAsInt(pixels[i]);
+      }
+    });
+  }
+
+  /**
+   * Creates a new image by applying a kernel to this image, a tile at a time. Each tile is read
+   * with a halo of kernel-radius width, and the pixels of the halo outside of the image are
+   * black, which leaves them out of the weighted sums the same as Convolution.apply does.
+   * @param kernel the kernel to apply
+   * @param executor the executor that splits the rows of tiles between threads
+   * @return the filtered image
+   */
+  public TiledImage filter(Kernel kernel, RowExecutor executor) {
+    int radius = kernel.getSize() / 2;
+    int size = tileSize + 2 * radius;
+    Convolution convolution = new Convolution(kernel, size, size);
+    return mapTiles(executor, (top, left, rows, cols, pixels) -> {
+      int[] src = new int[size * size];
+      int[] dst = new int[size * size];
+      readRegion(top - radius, left - radius, size, size, src);
+      convolution.filterRows(src, dst, radius, radius + rows);
+      for (int i = 0; i < rows; i++) {
+        System.arraycopy(dst, (radius + i) * size + radius, pixels, i * cols, cols);
+      }
+    });
+  }
+
+  /**
+   * Creates a new image by applying a blur to this image, a tile at a time. Each tile is read
+   * with a halo of blur-radius width that stops at the edges of the image, so the blur repeats
+   * the same edge pixels as it does when it blurs the whole image at once.
+   * @param blur the blur to apply
+   * @param executor the executor that splits the rows of tiles between threads
+   * @return the blurred image
+   */
+  public TiledImage blur(BlurFilter blur, RowExecutor executor) {
+    int radius = blur.getRadius();
+    return mapTiles(executor, (top, left, rows, cols, pixels) -> {
+      int haloTop = Math.max(top - radius, 0);
+      int haloLeft = Math.max(left - radius, 0);
+      int haloRows = Math.min(top + rows + radius, height) - haloTop;
+      int haloCols = Math.min(left + cols + radius, width) - haloLeft;
+      int[] src = new int[haloRows * haloCols];
+      readRegion(haloTop, haloLeft, haloRows, haloCols, src);
+      int[] dst = blur.filter(src, haloCols, haloRows, RowExecutor.sequential());
+      for (int i = 0; i < rows; i++) {
+        System.arraycopy(dst, (top - haloTop + i) * haloCols + left - haloLeft, pixels,
+                i * cols, cols);
+      }
+    });
+  }
+
+  /**
+   * Creates a new image that is this image mirrored left to right, a tile at a time.
+   * @param executor the executor that splits the rows of tiles between threads
+   * @return the flipped image
+   */
+  public TiledImage flipHorizontal(RowExecutor executor) {
+    return mapTiles(executor, (top, left, rows, cols, pixels) -> {
+      readRegion(top, width - left - cols, rows, cols, pixels);
+      for (int i = 0; i < rows; i++) {
+        for (int j = i * cols, k = j + cols - 1; j < k; j++, k--) {
+          int swap = pixels[j];
+          pixels[j] = pixels[k];
+          pixels[k] = swap;
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates a new image that is this image mirrored top to bottom, a tile at a time.
+   * @param executor the executor that splits the rows of tiles between threads
+   * @return the flipped image
+   */
+  public TiledImage flipVertical(RowExecutor executor) {
+    return mapTiles(executor, (top, left, rows, cols, pixels) -> {
+      int[] row = new int[cols];
+      for (int i = 0; i < rows; i++) {
+        readRegion(height - 1 - (top + i), left, 1, cols, row);
+        System.arraycopy(row, 0, pixels, i * cols, cols);
+      }
+    });
+  }
+
+  /**
+   * Runs a task for every tile of this image on the calling thread, giving it the pixels of the
+   * tile. The task must not keep the array.
+   * @param task the task to run on each tile
+   */
+  public void forEachTile(TileTask task) {
+    int[] pixels = new int[tileSize * tileSize];
+    for (int tileRow = 0; tileRow < tilesDown; tileRow++) {
+      for (int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+        int top = tileRow * tileSize;
+        int left = tileCol * tileSize;
+        int rows = Math.min(tileSize, height - top);
+        int cols = Math.min(tileSize, width - left);
+        readRegion(top, left, rows, cols, pixels);
+        task.run(top, left, rows, cols, pixels);
+      }
+    }
+  }
+
+  /**
+   * Creates an image of the same size whose tiles are computed by a task, splitting the rows of
+   * tiles between the threads of the executor.
+   */
+  private TiledImage mapTiles(RowExecutor executor, TileTask task) {
+    TiledImage result = createLike();
+    int rowWidth = (int) Math.min(Integer.MAX_VALUE, (long) width * tileSize);
+    executor.forEachBand(rowWidth, tilesDown, (band, tileRowStart, tileRowEnd) -> {
+      for (int tileRow = tileRowStart; tileRow < tileRowEnd; tileRow++) {
+        for (int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+          int top = tileRow * tileSize;
+          int left = tileCol * tileSize;
+          int rows = Math.min(tileSize, height - top);
+          int cols = Math.min(tileSize, width - left);
+          int[] pixels = new int[rows * cols];
+          task.run(top, left, rows, cols, pixels);
+
+          int[] tile = new int[tileSize * tileSize];
+          for (int i = 0; i < rows; i++) {
+            System.arraycopy(pixels, i * cols, tile, i * tileSize, cols);
+          }
+          cache.put(result.file, result.tileIndex(tileRow, tileCol), tile);
+        }
+      }
+    });
+    return result;
+  }
+
+  private int tileIndex(int tileRow, int tileCol) {
+    return tileRow * tilesAcross + tileCol;
+  }
+
+  private void checkPosition(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= height || col < 0 || col >= width) {
+      throw new IllegalArgumentException("Position is outside of the image");
+    }
+  }
+
+  /**
+   * Works on the pixels of one tile.
+   */
+  public interface TileTask {
+    /**
+     * Works on the pixels of the tile with the given position and size.
+     * @param top the row of the top edge of the tile
+     * @param left the column of the left edge of the tile
+     * @param rows the height of the tile, which is smaller than the tile size at the bottom edge
+     * @param cols the width of the tile, which is smaller than the tile size at the right edge
+     * @param pixels the rows * cols pixels of the tile, row by row
+     */
+    void run(int top, int left, int rows, int cols, int[] pixels);
+  }
+}
@@ -1,9 +1,8 @@
 package view;
 
-import java.util.HashMap;
-
 import controller.Features;
-import model.Pixel;
+import model.Histogram;
+import model.Image;
 
 /**
  * An interface containing all the methods used for correctly displaying the GUI and interacting
@@ -21,12 +20,33 @@ public interface ImageEditorGUI extends ImageEditorView {
 
   String getScale();
 
-  void updateImage(int width, int height, Pixel[][] pixels);
-
-  public void updateHistogram(HashMap<Integer, Integer> redHistogram,
-                              HashMap<Integer, Integer> greenHistogram,
-                              HashMap<Integer, Integer> blueHistogram,
-                              HashMap<Integer, Integer> intensityHistogram);
+  /**
+   * Asks the user for the radius of a blur.
+   * @return the radius the user entered, or null if they gave none
+   */
+  String getRadius();
+
+  /**
+   * Shows an image. The view may keep the image and draw it again later without copying it, so
+   * the image must not change until another image is shown.
+   * @param image the image to show
+   */
+  void updateImage(Image image);
+
+  void updateHistogram(Histogram histogram);
+
+  /**
+   * Shows how far the edits that are running in the background have got, and lets the user
+   * cancel them. Views may wait a moment before showing it, so quick edits do not flash it.
+   * @param done the number of edits that have finished
+   * @param total the number of edits that have been asked for so far
+   */
+  void showProgress(int done, int total);
+
+  /**
+   * Hides the progress of the edits once none are left to run.
+   */
+  void hideProgress();
 
   String getFileType();
 
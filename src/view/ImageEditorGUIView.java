@@ -3,13 +3,11 @@ package view;
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.FlowLayout;
-import java.awt.Color;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.HashMap;
 
 import javax.swing.JPanel;
 import javax.swing.JFrame;
+import javax.swing.JProgressBar;
 import javax.swing.JButton;
 import javax.swing.BoxLayout;
 import javax.swing.JScrollPane;
@@ -18,13 +16,13 @@ import javax.swing.ButtonGroup;
 import javax.swing.JOptionPane;
 import javax.swing.JRadioButton;
 import javax.swing.JFileChooser;
-import javax.swing.JLabel;
-import javax.swing.ImageIcon;
+import javax.swing.Timer;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import controller.Features;
+import model.Histogram;
+import model.Image;
 import model.ImageEditorModel;
-import model.Pixel;
 
 /**
  * A class representing the GUI view. It extends JFrame and creates a frame containing multiple
@@ -35,12 +33,15 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
   private JPanel imagePanel;
   private HistogramPanel histogramPanel;
   private JScrollPane imageScroll;
+  private ImagePanel imageView;
   private ButtonGroup buttonGroup;
   private JPanel radioPanel;
 
   private JButton loadButton;
   private JButton saveButton;
   private JButton blurButton;
+  private JButton gaussianBlurButton;
+  private JButton boxBlurButton;
   private JButton sharpenButton;
   private JButton brightenButton;
   private JButton darkenButton;
@@ -54,6 +55,11 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
   private JButton visualizeSepiaButton;
   private JButton visualizeValueButton;
 
+  private JPanel progressPanel;
+  private JProgressBar progressBar;
+  private JButton cancelButton;
+  private Timer progressTimer;
+
   /**
    * The constructor for making the main frame of the GUI. It creates 4 panels - the button panel,
    * the radio button panel, the image panel, and the histogram panel.
@@ -76,7 +82,7 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
     // Add button panel
     JPanel buttonPanel = new JPanel();
     buttonPanel.setBorder(BorderFactory.createTitledBorder("Image Operations"));
-    buttonPanel.setLayout(new GridLayout(2, 8));
+    buttonPanel.setLayout(new GridLayout(3, 6));
     mainPanel.add(buttonPanel);
 
     // Add individual buttons to button panel
@@ -92,6 +98,14 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
     blurButton.setActionCommand("Blur");
     buttonPanel.add(blurButton);
 
+    gaussianBlurButton = new JButton("Gaussian Blur");
+    gaussianBlurButton.setActionCommand("Gaussian Blur");
+    buttonPanel.add(gaussianBlurButton);
+
+    boxBlurButton = new JButton("Box Blur");
+    boxBlurButton.setActionCommand("Box Blur");
+    buttonPanel.add(boxBlurButton);
+
     sharpenButton = new JButton("Sharpen");
     sharpenButton.setActionCommand("Sharpen");
     buttonPanel.add(sharpenButton);
@@ -153,6 +167,21 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
     imagePanel.setBorder(BorderFactory.createTitledBorder("Image"));
     mainPanel.add(imagePanel);
 
+    // Add progress panel, which is shown once edits have run for a moment
+    progressPanel = new JPanel();
+    progressPanel.setBorder(BorderFactory.createTitledBorder("Editing"));
+    progressPanel.setLayout(new FlowLayout());
+    progressBar = new JProgressBar();
+    progressBar.setStringPainted(true);
+    progressPanel.add(progressBar);
+    cancelButton = new JButton("Cancel");
+    cancelButton.setActionCommand("Cancel");
+    progressPanel.add(cancelButton);
+    progressPanel.setVisible(false);
+    mainPanel.add(progressPanel);
+    progressTimer = new Timer(300, evt -> progressPanel.setVisible(true));
+    progressTimer.setRepeats(false);
+
     // Add histogram panel
     histogramPanel = new HistogramPanel(model);
     histogramPanel.setBorder(BorderFactory.createTitledBorder("Histogram"));
@@ -183,9 +212,12 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
     flipVerticalButton.addActionListener(evt -> features.flipVertical());
     visualizeSepiaButton.addActionListener(evt -> features.visualizeSepia());
     blurButton.addActionListener(evt -> features.blur());
+    gaussianBlurButton.addActionListener(evt -> features.gaussianBlur());
+    boxBlurButton.addActionListener(evt -> features.boxBlur());
     sharpenButton.addActionListener(evt -> features.sharpen());
     brightenButton.addActionListener(evt -> features.brighten());
     darkenButton.addActionListener(evt -> features.darken());
+    cancelButton.addActionListener(evt -> features.cancel());
   }
 
   @Override
@@ -226,42 +258,47 @@ public class ImageEditorGUIView extends JFrame implements ImageEditorGUI {
   }
 
   @Override
-  public void updateImage(int width, int height, Pixel[][] pixels) {
-    BufferedImage newImage = new BufferedImage(width, height,
-            BufferedImage.TYPE_INT_RGB);
-
-    Pixel curPixel;
-    int rgb;
-
-    for (int i = 0; i < newImage.getHeight(); i++) {
-      for (int j = 0; j < newImage.getWidth(); j++) {
-        curPixel = pixels[i][j];
-        rgb = new Color(curPixel.getRed(), curPixel.getGreen(), curPixel.getBlue()).getRGB();
-        newImage.setRGB(j, i, rgb);
-      }
-    }
+  public String getRadius() {
+    return JOptionPane.showInputDialog(null, "Enter blur radius");
+  }
 
-    if (imageScroll != null) {
-      imagePanel.remove(imageScroll);
+  @Override
+  public void updateImage(Image image) {
+    // the scroll pane is made for the first image and reused for every image after it
+    if (imageScroll == null) {
+      imageView = new ImagePanel();
+      imageScroll = new JScrollPane(imageView);
+      imageScroll.setPreferredSize(new Dimension(1000, 700));
+      imagePanel.add(imageScroll);
+      imagePanel.revalidate();
     }
-    JLabel imageLabel = new JLabel();
-    imageScroll = new JScrollPane(imageLabel);
-    imageLabel.setIcon(new ImageIcon(newImage));
-    imageScroll.setPreferredSize(new Dimension(1000, 700));
-    imagePanel.add(imageScroll);
-    imagePanel.updateUI();
+    imageView.setImage(image);
   }
 
   @Override
-  public void updateHistogram(HashMap<Integer, Integer> redHistogram,
-                              HashMap<Integer, Integer> greenHistogram,
-                              HashMap<Integer, Integer> blueHistogram,
-                              HashMap<Integer, Integer> intensityHistogram) {
-    this.histogramPanel.setHistogram(redHistogram, greenHistogram,
-            blueHistogram, intensityHistogram);
+  public void updateHistogram(Histogram histogram) {
+    this.histogramPanel.setHistogram(histogram);
     this.repaint();
   }
 
+  @Override
+  public void showProgress(int done, int total) {
+    // a single edit has nothing to count, so the bar only shows that it is running
+    progressBar.setIndeterminate(total == 1);
+    progressBar.setMaximum(total);
+    progressBar.setValue(done);
+    progressBar.setString(total == 1 ? "Editing" : "Edit " + (done + 1) + " of " + total);
+    if (!progressPanel.isVisible() && !progressTimer.isRunning()) {
+      progressTimer.start();
+    }
+  }
+
+  @Override
+  public void hideProgress() {
+    progressTimer.stop();
+    progressPanel.setVisible(false);
+  }
+
   @Override
   public String getFileType() {
     String input = JOptionPane.showInputDialog(null, "Enter filetype");
@@ -0,0 +1,94 @@
+package view;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.JPanel;
+
+import model.Image;
+import model.PackedImage;
+import model.RasterUtil;
+
+/**
+ * Class representing a panel that draws an image. A packed image is drawn from a BufferedImage
+ * that shares its pixel array, so showing it copies nothing. When an image of the same size
+ * replaces the one shown, only the rows between the first and the last row that changed are
+ * repainted.
+ */
+public class ImagePanel extends JPanel {
+  private Image image;
+  private BufferedImage buffered;
+
+  /**
+   * Constructs an empty image panel. Nothing is drawn until an image is set.
+   */
+  public ImagePanel() {
+    super();
+    this.setPreferredSize(new Dimension(0, 0));
+  }
+
+  /**
+   * Sets the image to draw. The panel keeps the image and draws it whenever it is repainted,
+   * so the image must not change while it is shown.
+   * @param newImage the image to draw
+   */
+  protected void setImage(Image newImage) {
+    Image old = image;
+    image = newImage;
+    buffered = RasterUtil.toBufferedImage(newImage);
+
+    if (old == null || old.getWidth() != newImage.getWidth()
+            || old.getHeight() != newImage.getHeight()) {
+      setPreferredSize(new Dimension(newImage.getWidth(), newImage.getHeight()));
+      revalidate();
+      repaint();
+      return;
+    }
+    int[] changed = changedRows(old, newImage);
+    if (changed != null) {
+      repaint(0, changed[0], newImage.getWidth(), changed[1] - changed[0]);
+    }
+  }
+
+  /**
+   * Finds the rows that differ between two images of the same size.
+   * @return the first row that changed and the row after the last one that changed, or null
+   *         if the images are the same
+   */
+  private static int[] changedRows(Image old, Image newImage) {
+    int width = newImage.getWidth();
+    int height = newImage.getHeight();
+    if (!(old instanceof PackedImage) || !(newImage instanceof PackedImage)) {
+      return new int[] {0, height};
+    }
+    int[] oldPixels = ((PackedImage) old).getData();
+    int[] newPixels = ((PackedImage) newImage).getData();
+    if (oldPixels == newPixels) {
+      return null;
+    }
+    int first = 0;
+    while (first < height && Arrays.equals(oldPixels, first * width, (first + 1) * width,
+            newPixels, first * width, (first + 1) * width)) {
+      first++;
+    }
+    if (first == height) {
+      return null;
+    }
+    int last = height;
+    while (Arrays.equals(oldPixels, (last - 1) * width, last * width,
+            newPixels, (last - 1) * width, last * width)) {
+      last--;
+    }
+    return new int[] {first, last};
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    if (buffered != null) {
+      g.drawImage(buffered, 0, 0, null);
+    }
+  }
+}
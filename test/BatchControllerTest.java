@@ -0,0 +1,142 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import controller.BatchController;
+import controller.CommandStats;
+import model.BudgetedImageStore;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import view.ImageEditorTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for running one script on many files through the batch pipeline.
+ */
+public class BatchControllerTest {
+  private static final String SCRIPT = "load {in} image\n"
+          + "brighten 10 image image\n"
+          + "blur image blurred\n"
+          + "save {out}-blur.ppm blurred ppm\n"
+          + "save {out}.ppm image ppm\n";
+
+  private Path createDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("batch-test");
+    directory.toFile().deleteOnExit();
+    return directory;
+  }
+
+  @Test
+  public void testFindInputs() throws IOException {
+    Path directory = createDirectory();
+    Path a = TestImages.createFile(directory, "a.ppm", TestImages.createImage(2, 2, 0));
+    Path b = TestImages.createFile(directory, "b.ppm", TestImages.createImage(2, 2, 1));
+    File text = directory.resolve("notes.txt").toFile();
+    text.createNewFile();
+    text.deleteOnExit();
+
+    assertEquals(Arrays.asList(a, b), BatchController.findInputs(directory.toString()));
+    assertEquals(Arrays.asList(b), BatchController.findInputs(directory + "/b*"));
+    assertEquals(Arrays.asList(a, b), BatchController.findInputs(directory + "/*.{ppm,png}"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testFindInputsMissingDirectory() {
+    BatchController.findInputs("/this-directory-does-not-exist/*.ppm");
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNoThreads() throws IOException {
+    new BatchController(new ImageEditorTextView(new StringBuilder()), Arrays.asList(),
+            SCRIPT, createDirectory(), 0, 0);
+  }
+
+  @Test
+  public void testBatchMatchesScripts() throws IOException {
+    Path in = createDirectory();
+    Path out = createDirectory().resolve("out");
+    for (int i = 0; i < 7; i++) {
+      TestImages.createFile(in, "image" + i + ".ppm", TestImages.createImage(10 + i, 15 - i, i));
+    }
+    List<Path> inputs = BatchController.findInputs(in.toString());
+    StringBuilder log = new StringBuilder();
+    // a budget of one byte lets only one image through at a time
+    new BatchController(new ImageEditorTextView(log), inputs, SCRIPT, out, 3, 1).start();
+
+    assertTrue(log.toString(), log.toString().startsWith("Processed 7 of 7 images in "));
+    for (int i = 0; i < 7; i++) {
+      ImageEditorModel expected = new ImageEditorModelImpl();
+      expected.load(in.resolve("image" + i + ".ppm").toString(), "image", "ppm");
+      expected.brighten(10, "image", "image");
+      expected.blur("image", "blurred");
+
+      Path image = out.resolve("image" + i + ".ppm");
+      Path blurred = out.resolve("image" + i + "-blur.ppm");
+      image.toFile().deleteOnExit();
+      blurred.toFile().deleteOnExit();
+      TestImages.assertSameImage(expected.getImage("image"), ImageUtil.readPPM(image.toString()));
+      TestImages.assertSameImage(expected.getImage("blurred"),
+              ImageUtil.readPPM(blurred.toString()));
+    }
+    out.toFile().deleteOnExit();
+  }
+
+  @Test
+  public void testBatchUsesModelOptions() throws IOException {
+    Path in = createDirectory();
+    Path out = createDirectory();
+    for (int i = 0; i < 3; i++) {
+      TestImages.createFile(in, "image" + i + ".ppm", TestImages.createImage(6, 5, i));
+    }
+    // a store without budget spills every image but the last one it was given
+    BudgetedImageStore store = new BudgetedImageStore(0, createDirectory().toFile());
+    StringBuilder log = new StringBuilder();
+    new BatchController(new ImageEditorTextView(log), BatchController.findInputs(in.toString()),
+            SCRIPT, out, 2, 1, true, store, new CommandStats()).start();
+
+    assertTrue(log.toString(), log.toString().startsWith("Processed 3 of 3 images in "));
+    assertTrue(store.getSpills() > 0);
+    assertEquals(0, store.getSize());
+    for (int i = 0; i < 3; i++) {
+      ImageEditorModel expected = new ImageEditorModelImpl();
+      expected.load(in.resolve("image" + i + ".ppm").toString(), "image", "ppm");
+      expected.brighten(10, "image", "image");
+      expected.blur("image", "blurred");
+
+      Path image = out.resolve("image" + i + ".ppm");
+      Path blurred = out.resolve("image" + i + "-blur.ppm");
+      image.toFile().deleteOnExit();
+      blurred.toFile().deleteOnExit();
+      TestImages.assertSameImage(expected.getImage("image"), ImageUtil.readPPM(image.toString()));
+      TestImages.assertSameImage(expected.getImage("blurred"),
+              ImageUtil.readPPM(blurred.toString()));
+    }
+  }
+
+  @Test
+  public void testFailedFileIsSkipped() throws IOException {
+    Path in = createDirectory();
+    Path out = createDirectory();
+    Path good = TestImages.createFile(in, "good.ppm", TestImages.createImage(4, 4, 0));
+    Path broken = in.resolve("broken.ppm");
+    Files.write(broken, "P3 not an image".getBytes());
+    broken.toFile().deleteOnExit();
+
+    StringBuilder log = new StringBuilder();
+    new BatchController(new ImageEditorTextView(log), Arrays.asList(broken, good),
+            "load {in} image\nsave {out}.ppm image ppm\n", out, 2, 1 << 20).start();
+
+    out.resolve("good.ppm").toFile().deleteOnExit();
+    assertTrue(log.toString(), log.toString().contains("Failed to process " + broken));
+    assertTrue(log.toString(), log.toString().contains("Processed 1 of 2 images"));
+    assertTrue(Files.exists(out.resolve("good.ppm")));
+  }
+}
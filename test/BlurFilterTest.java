@@ -0,0 +1,151 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import model.BlurFilter;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for blurs of any radius, comparing the separable and running-sum passes with blurs
+ * worked out one pixel at a time over the whole square around each pixel.
+ */
+public class BlurFilterTest {
+
+  private static int clamp(int value, int max) {
+    return Math.max(0, Math.min(max - 1, value));
+  }
+
+  /**
+   * Averages the square around every pixel, repeating the edge pixels.
+   */
+  private PackedImage naiveBox(PackedImage image, int radius) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int area = (2 * radius + 1) * (2 * radius + 1);
+    PackedImage result = new PackedImage(width, height);
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int[] sums = new int[3];
+        for (int i = -radius; i <= radius; i++) {
+          for (int j = -radius; j <= radius; j++) {
+            int rgb = image.getRGB(clamp(row + i, height), clamp(col + j, width));
+            sums[0] += PackedImage.red(rgb);
+            sums[1] += PackedImage.green(rgb);
+            sums[2] += PackedImage.blue(rgb);
+          }
+        }
+        result.setRGB(row, col, PackedImage.pack((sums[0] + area / 2) / area,
+                (sums[1] + area / 2) / area, (sums[2] + area / 2) / area));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Weighs the square around every pixel with a two dimensional Gaussian, in floating point.
+   */
+  private double[] naiveGaussian(PackedImage image, int radius, int row, int col) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    double sigma = radius / 2.0;
+    double[] sums = new double[3];
+    double total = 0;
+    for (int i = -radius; i <= radius; i++) {
+      for (int j = -radius; j <= radius; j++) {
+        double weight = Math.exp(-(i * i + j * j) / (2 * sigma * sigma));
+        int rgb = image.getRGB(clamp(row + i, height), clamp(col + j, width));
+        sums[0] += weight * PackedImage.red(rgb);
+        sums[1] += weight * PackedImage.green(rgb);
+        sums[2] += weight * PackedImage.blue(rgb);
+        total += weight;
+      }
+    }
+    for (int i = 0; i < 3; i++) {
+      sums[i] /= total;
+    }
+    return sums;
+  }
+
+  @Test
+  public void testBoxMatchesNaiveMean() {
+    PackedImage image = TestImages.createImage(23, 17);
+    for (int radius : new int[] {1, 2, 5, 30}) {
+      PackedImage expected = naiveBox(image, radius);
+      PackedImage actual = BlurFilter.box(radius).apply(image, RowExecutor.sequential());
+      assertArrayEquals("radius " + radius, expected.getData(), actual.getData());
+    }
+  }
+
+  @Test
+  public void testGaussianCloseToFloatingPoint() {
+    PackedImage image = TestImages.createImage(23, 17);
+    for (int radius : new int[] {1, 3, 8}) {
+      PackedImage actual = BlurFilter.gaussian(radius).apply(image, RowExecutor.sequential());
+      for (int row = 0; row < image.getHeight(); row++) {
+        for (int col = 0; col < image.getWidth(); col++) {
+          double[] expected = naiveGaussian(image, radius, row, col);
+          int rgb = actual.getRGB(row, col);
+          int[] bands = {PackedImage.red(rgb), PackedImage.green(rgb), PackedImage.blue(rgb)};
+          for (int band = 0; band < 3; band++) {
+            assertTrue("radius " + radius + " at " + row + ", " + col,
+                    Math.abs(expected[band] - bands[band]) <= 1);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSingleColorStaysTheSame() {
+    int[] pixels = new int[31 * 9];
+    Arrays.fill(pixels, 0xFF8001);
+    PackedImage image = new PackedImage(31, 9, pixels);
+    for (BlurFilter blur : new BlurFilter[] {BlurFilter.gaussian(4), BlurFilter.box(4),
+        BlurFilter.gaussian(BlurFilter.MAX_RADIUS), BlurFilter.box(BlurFilter.MAX_RADIUS)}) {
+      assertArrayEquals(pixels, blur.apply(image, RowExecutor.sequential()).getData());
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    PackedImage image = TestImages.createImage(61, 47);
+    RowExecutor parallel = new RowExecutor(4, 0);
+    for (BlurFilter blur : new BlurFilter[] {BlurFilter.gaussian(6), BlurFilter.box(6)}) {
+      assertArrayEquals(blur.apply(image, RowExecutor.sequential()).getData(),
+              blur.apply(image, parallel).getData());
+    }
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testZeroRadius() {
+    BlurFilter.gaussian(0);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testRadiusTooLarge() {
+    BlurFilter.box(BlurFilter.MAX_RADIUS + 1);
+  }
+
+  @Test
+  public void testModelBlur() throws IOException {
+    File file = File.createTempFile("blur-filter-test", ".ppm");
+    file.deleteOnExit();
+    PackedImage image = TestImages.createImage(12, 10);
+    ImageUtil.writeRawPPM(file.getPath(), image);
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential());
+    model.load(file.getPath(), "image", "ppm");
+    model.blur(BlurFilter.box(2), "image", "blurred");
+    assertArrayEquals(naiveBox(image, 2).getData(),
+            PackedImage.copyOf(model.getImage("blurred")).getData());
+    assertArrayEquals(image.getData(), PackedImage.copyOf(model.getImage("image")).getData());
+  }
+}
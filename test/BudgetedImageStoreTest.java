@@ -0,0 +1,177 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import model.BudgetedImageStore;
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.MapImageStore;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for keeping images under a memory budget, spilling the least recently used images to
+ * disk and reading them back when they are needed.
+ */
+public class BudgetedImageStoreTest {
+
+  private File createDirectory() throws IOException {
+    File directory = Files.createTempDirectory("budgeted-store-test").toFile();
+    directory.deleteOnExit();
+    return directory;
+  }
+
+  @Test
+  public void testUnderBudgetKeepsImages() throws IOException {
+    BudgetedImageStore store = new BudgetedImageStore(1000, createDirectory());
+    PackedImage image = TestImages.createImage(10, 10, 0);
+    store.put("a", image);
+
+    assertSame(image, store.get("a"));
+    assertEquals(400, store.getSize());
+    assertEquals(1, store.getHits());
+    assertEquals(0, store.getMisses());
+    assertEquals(0, store.getSpills());
+  }
+
+  @Test
+  public void testSpillLeastRecentlyUsed() throws IOException {
+    BudgetedImageStore store = new BudgetedImageStore(1000, createDirectory());
+    PackedImage a = TestImages.createImage(10, 10, 1);
+    PackedImage b = TestImages.createImage(10, 10, 2);
+    PackedImage c = TestImages.createImage(10, 10, 3);
+    store.put("a", a);
+    store.put("b", b);
+    store.get("a");
+    store.put("c", c);
+
+    assertEquals(1, store.getSpills());
+    assertEquals(800, store.getSize());
+    assertSame(a, store.get("a"));
+    assertSame(c, store.get("c"));
+    assertEquals(0, store.getMisses());
+
+    Image reloaded = store.get("b");
+    assertFalse(reloaded instanceof PackedImage);
+    TestImages.assertSameImage(b, reloaded);
+    assertEquals(1, store.getMisses());
+    assertEquals(3, store.getHits());
+  }
+
+  @Test
+  public void testSpilledImagesTakeNoBudget() throws IOException {
+    BudgetedImageStore store = new BudgetedImageStore(0, createDirectory());
+    PackedImage a = TestImages.createImage(4, 3, 1);
+    PackedImage b = TestImages.createImage(4, 3, 2);
+    store.put("a", a);
+    assertEquals(48, store.getSize());
+    store.put("b", b);
+
+    assertEquals(48, store.getSize());
+    assertEquals(1, store.getSpills());
+    TestImages.assertSameImage(a, store.get("a"));
+    assertEquals(0, store.getSize());
+    TestImages.assertSameImage(b, store.get("b"));
+    assertEquals(2, store.getSpills());
+  }
+
+  @Test
+  public void testReplaceImage() throws IOException {
+    BudgetedImageStore store = new BudgetedImageStore(500, createDirectory());
+    PackedImage a = TestImages.createImage(10, 10, 1);
+    PackedImage b = TestImages.createImage(10, 10, 2);
+    assertNull(store.put("a", a));
+    assertSame(a, store.put("a", b));
+    assertEquals(400, store.getSize());
+
+    store.put("b", a.share());
+    assertEquals(1, store.getSpills());
+    assertNull(store.put("a", a));
+    assertEquals(2, store.getSpills());
+    assertEquals(400, store.getSize());
+    assertTrue(store.containsKey("a"));
+    assertFalse(store.containsKey("c"));
+    assertNull(store.get("c"));
+  }
+
+  @Test
+  public void testRemoveImage() throws IOException {
+    File directory = createDirectory();
+    BudgetedImageStore store = new BudgetedImageStore(500, directory);
+    PackedImage a = TestImages.createImage(10, 10, 1);
+    PackedImage b = TestImages.createImage(10, 10, 2);
+    store.put("a", a);
+    store.put("b", b);
+
+    // a was spilled to make room for b
+    assertNull(store.remove("a"));
+    assertSame(b, store.remove("b"));
+    assertFalse(store.containsKey("a"));
+    assertNull(store.get("b"));
+    assertEquals(0, store.getSize());
+    assertEquals(0, directory.list().length);
+  }
+
+  @Test
+  public void testFailedSpillIsReported() throws IOException {
+    // a file where the spill directory should be, so no spill file can be written
+    File notDirectory = File.createTempFile("budgeted-store-test", ".tmp");
+    notDirectory.deleteOnExit();
+    BudgetedImageStore store = new BudgetedImageStore(500, notDirectory);
+    PackedImage a = TestImages.createImage(10, 10, 1);
+    store.put("a", a);
+    try {
+      store.put("b", TestImages.createImage(10, 10, 2));
+      fail("Spilling into a file should fail");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Unable to spill a"));
+    }
+    // the image that could not be spilled is still in memory
+    assertTrue(store.containsKey("a"));
+    assertEquals(800, store.getSize());
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNegativeBudget() throws IOException {
+    new BudgetedImageStore(-1, createDirectory());
+  }
+
+  @Test
+  public void testModelWithBudget() throws IOException {
+    File file = File.createTempFile("budgeted-store-test", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), TestImages.createImage(20, 10, 5));
+
+    BudgetedImageStore store = new BudgetedImageStore(1000, createDirectory());
+    ImageEditorModel budgeted = new ImageEditorModelImpl(RowExecutor.sequential(), false, store);
+    ImageEditorModel unbounded = new ImageEditorModelImpl(RowExecutor.sequential(), false,
+            new MapImageStore());
+    for (ImageEditorModel model : new ImageEditorModel[] {budgeted, unbounded}) {
+      model.load(file.getPath(), "a", "ppm");
+      model.brighten(10, "a", "b");
+      model.blur("b", "c");
+      model.visualizeLuma("c", "d");
+      model.flipVertical("b", "e");
+      model.sharpen("d", "f");
+      model.darken(5, "b", "g");
+    }
+
+    assertTrue(store.getSpills() > 0);
+    assertTrue(store.getSize() <= 1000);
+    for (String name : new String[] {"a", "b", "c", "d", "e", "f", "g"}) {
+      TestImages.assertSameImage(unbounded.getImage(name), budgeted.getImage(name));
+    }
+    assertTrue(store.getMisses() > 0);
+  }
+}
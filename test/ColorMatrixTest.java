@@ -0,0 +1,173 @@
+import org.junit.Test;
+
+import java.io.IOException;
+
+import model.ColorMatrix;
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for color matrices, comparing the fixed point arithmetic with the same matrices
+ * evaluated in double precision, which may differ by one.
+ */
+public class ColorMatrixTest {
+  private static final ColorMatrix HALF = ColorMatrix.of(
+      0.5, 0, 0,
+      0.25, 0.25, 0,
+      0.1, 0.2, 0.3);
+  private static final ColorMatrix SWAP = ColorMatrix.of(
+      0, 0, 1.5,
+      0, 1, 0,
+      -1, 2, 0);
+
+  private static int sample(ColorMatrix matrix, int row, int rgb) {
+    double sum = matrix.getCoefficient(row, 0) * ((rgb >> 16) & 0xFF)
+            + matrix.getCoefficient(row, 1) * ((rgb >> 8) & 0xFF)
+            + matrix.getCoefficient(row, 2) * (rgb & 0xFF);
+    return Math.max(0, Math.min(255, (int) Math.floor(sum)));
+  }
+
+  private static void assertClose(int expected, int actual) {
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int difference = ((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF);
+      assertTrue(Integer.toHexString(expected) + " " + Integer.toHexString(actual),
+              Math.abs(difference) <= 1);
+    }
+  }
+
+  private void assertCloseToDouble(ColorMatrix matrix) {
+    for (int i = 0; i < 1 << 24; i += 97) {
+      int expected = (sample(matrix, 0, i) << 16) | (sample(matrix, 1, i) << 8)
+              | sample(matrix, 2, i);
+      assertClose(expected, matrix.applyAsInt(i));
+    }
+  }
+
+  @Test
+  public void testCloseToDouble() {
+    assertCloseToDouble(ColorMatrix.LUMA);
+    assertCloseToDouble(ColorMatrix.SEPIA);
+    assertCloseToDouble(SWAP);
+  }
+
+  @Test
+  public void testApply() {
+    assertEquals(0x686868, ColorMatrix.LUMA.applyAsInt(0x3A6FB2));
+    assertEquals(0xFFFFFF, ColorMatrix.LUMA.applyAsInt(0xFFFFFF));
+    assertEquals(0x8D7E62, ColorMatrix.SEPIA.applyAsInt(0x3A6FB2));
+    assertEquals(0xFF6FA4, SWAP.applyAsInt(0x3A6FB2));
+  }
+
+  @Test
+  public void testGreyAndRange() {
+    assertTrue(ColorMatrix.LUMA.isGrey());
+    assertTrue(ColorMatrix.LUMA.staysInRange());
+    assertFalse(ColorMatrix.SEPIA.isGrey());
+    assertFalse(ColorMatrix.SEPIA.staysInRange());
+    assertTrue(HALF.staysInRange());
+    assertFalse(SWAP.staysInRange());
+  }
+
+  @Test
+  public void testAndThen() {
+    ColorMatrix product = HALF.andThen(SWAP);
+    assertEquals(1.5 * 0.1, product.getCoefficient(0, 0), 1e-12);
+    assertEquals(-0.5 + 2 * 0.25, product.getCoefficient(2, 0), 1e-12);
+    product = HALF.andThen(ColorMatrix.LUMA);
+    for (int i = 0; i < 1 << 24; i += 101) {
+      assertClose(ColorMatrix.LUMA.applyAsInt(HALF.applyAsInt(i)), product.applyAsInt(i));
+    }
+  }
+
+  /**
+   * Creates an eager and a lazy model with the same image loaded as "a".
+   */
+  private static ImageEditorModel[] createModels() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(64, 48));
+    ImageEditorModel[] models = {new ImageEditorModelImpl(RowExecutor.sequential(), false),
+        new ImageEditorModelImpl(RowExecutor.sequential(), true)};
+    for (ImageEditorModel model : models) {
+      model.load(path, "a", "ppm");
+    }
+    return models;
+  }
+
+  @Test
+  public void testLazyModelFusesMatrices() throws IOException {
+    ImageEditorModel[] models = createModels();
+    for (ImageEditorModel model : models) {
+      model.applyColorMatrix(SWAP, "a", "b");
+      model.applyColorMatrix(HALF, "b", "c");
+      model.applyColorMatrix(ColorMatrix.LUMA, "c", "d");
+    }
+    Image expected = models[0].getImage("d");
+    Image actual = models[1].getImage("d");
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertClose(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testLazyModelFusesMatricesInRange() throws IOException {
+    // both matrices stay in range, so the lazy model multiplies them into one
+    ImageEditorModel[] models = createModels();
+    for (ImageEditorModel model : models) {
+      model.applyColorMatrix(HALF, "a", "b");
+      model.visualizeLuma("b", "c");
+    }
+    Image expected = models[0].getImage("c");
+    Image actual = models[1].getImage("c");
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertClose(expected.getRGB(i, j), actual.getRGB(i, j));
+        assertClose(HALF.andThen(ColorMatrix.LUMA).applyAsInt(models[0].getImage("a")
+                .getRGB(i, j)), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testLazyModelChainsSepiaAndLuma() throws IOException {
+    // sepia clamps its samples, so the lazy model applies it and luma one after the other
+    ImageEditorModel[] models = createModels();
+    for (ImageEditorModel model : models) {
+      model.visualizeSepia("a", "b");
+      model.visualizeLuma("b", "c");
+    }
+    Image expected = models[0].getImage("c");
+    Image actual = models[1].getImage("c");
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testTooFewCoefficients() {
+    ColorMatrix.of(1, 0, 0, 0, 1, 0, 0, 0);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testCoefficientTooLarge() {
+    ColorMatrix.of(1, 0, 0, 0, 33, 0, 0, 0, 1);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testCoefficientNotANumber() {
+    ColorMatrix.of(1, 0, 0, 0, Double.NaN, 0, 0, 0, 1);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testProductTooLarge() {
+    ColorMatrix.of(32, 0, 0, 0, 1, 0, 0, 0, 1).andThen(ColorMatrix.of(2, 0, 0, 0, 1, 0, 0, 0, 1));
+  }
+}
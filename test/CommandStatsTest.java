@@ -0,0 +1,94 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import controller.CommandStats;
+import controller.ImageEditorControllerImpl;
+import controller.InstrumentedCommand;
+import controller.commands.FlipHorizontal;
+import controller.commands.VisualizeRed;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.PackedImage;
+import view.ImageEditorTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for recording how long commands take and showing the statistics with the stats
+ * command.
+ */
+public class CommandStatsTest {
+
+  @Test
+  public void testPercentiles() {
+    CommandStats stats = new CommandStats();
+    for (int i = 1; i <= 100; i++) {
+      stats.record("blur", i * 1000L, 0, 0);
+    }
+    assertEquals(100, stats.getCount("blur"));
+    assertEquals(100000, stats.getMax("blur"));
+    // percentiles are rounded up to their bucket, by at most one sixteenth
+    long median = stats.getPercentile("blur", 50);
+    assertTrue(median + "", median >= 50000 && median <= 50000 + 50000 / 16);
+    long p99 = stats.getPercentile("blur", 99);
+    assertTrue(p99 + "", p99 >= 99000 && p99 <= 100000);
+    assertEquals(100000, stats.getPercentile("blur", 100));
+    assertEquals(0, stats.getCount("sharpen"));
+    assertEquals(0, stats.getPercentile("sharpen", 50));
+  }
+
+  @Test
+  public void testSmallDurationsAreExact() {
+    CommandStats stats = new CommandStats();
+    for (int i = 0; i < 10; i++) {
+      stats.record("load", i, -1, 0);
+    }
+    assertEquals(4, stats.getPercentile("load", 50));
+    assertEquals(9, stats.getPercentile("load", 99));
+    assertTrue(stats.toString(), stats.toString().contains("n/a"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidPercentile() {
+    new CommandStats().getPercentile("blur", 101);
+  }
+
+  @Test
+  public void testCommandNames() {
+    assertEquals("visualize-red", InstrumentedCommand.nameOf(new VisualizeRed("a", "b", null)));
+    assertEquals("flip-horizontal",
+            InstrumentedCommand.nameOf(new FlipHorizontal("a", "b", null)));
+  }
+
+  @Test
+  public void testStatsCommand() throws IOException {
+    File file = File.createTempFile("command-stats-test", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), new PackedImage(4, 3, new int[12]));
+
+    CommandStats stats = new CommandStats();
+    StringBuilder output = new StringBuilder();
+    new ImageEditorControllerImpl(new ImageEditorModelImpl(), new ImageEditorTextView(output),
+            new StringReader("load " + file.getPath() + " a\n"
+                    + "brighten 10 a b\n"
+                    + "brighten 20 b c\n"
+                    + "blur missing d\n"
+                    + "stats\n"), stats).start();
+
+    assertEquals(1, stats.getCount("load"));
+    assertEquals(2, stats.getCount("brighten"));
+    assertEquals(1, stats.getCount("blur"));
+    assertEquals(0, stats.getCount("stats"));
+    String[] lines = output.toString().split("\n");
+    assertEquals("This file has not been loaded yet.", lines[0]);
+    assertTrue(lines[1], lines[1].startsWith("command"));
+    assertTrue(lines[2], lines[2].startsWith("blur"));
+    assertTrue(lines[3], lines[3].startsWith("brighten"));
+    assertTrue(lines[4], lines[4].startsWith("load"));
+    assertEquals(5, lines.length);
+  }
+}
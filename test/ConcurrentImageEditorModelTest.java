@@ -0,0 +1,117 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.ConcurrentImageEditorModel;
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Tests for running commands against one model from many threads at once.
+ */
+public class ConcurrentImageEditorModelTest {
+  private static final int THREADS = 8;
+
+  private void runAll(List<Callable<Void>> tasks) throws InterruptedException,
+          ExecutionException {
+    ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (Future<Void> future : threads.invokeAll(tasks)) {
+        future.get();
+      }
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  @Test
+  public void testEditsToSameNameAreNotLost() throws Exception {
+    String path = TestImages.createFile(TestImages.createImage(37, 23, 0));
+    for (boolean lazy : new boolean[] {false, true}) {
+      ImageEditorModel model = new ConcurrentImageEditorModel(new RowExecutor(2, 0), lazy);
+      model.load(path, "a", "ppm");
+
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+      for (int i = 0; i < THREADS; i++) {
+        tasks.add(() -> {
+          for (int j = 0; j < 10; j++) {
+            model.brighten(1, "a", "a");
+          }
+          return null;
+        });
+      }
+      runAll(tasks);
+
+      ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+      expected.load(path, "a", "ppm");
+      expected.brighten(THREADS * 10, "a", "b");
+      TestImages.assertSameImage(expected.getImage("b"), model.getImage("a"));
+    }
+  }
+
+  @Test
+  public void testIndependentScriptsMatchSequentialRuns() throws Exception {
+    String path = TestImages.createFile(TestImages.createImage(41, 29, 3));
+    ImageEditorModel model = new ConcurrentImageEditorModel();
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    model.load(path, "source", "ppm");
+    expected.load(path, "source", "ppm");
+
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    for (int i = 0; i < THREADS; i++) {
+      String prefix = "script" + i + "-";
+      int amount = i * 7;
+      tasks.add(() -> {
+        model.brighten(amount, "source", prefix + "bright");
+        model.blur(prefix + "bright", prefix + "blur");
+        model.visualizeSepia(prefix + "blur", prefix + "sepia");
+        model.flipHorizontal(prefix + "sepia", prefix + "sepia");
+        model.sharpen(prefix + "sepia", prefix + "result");
+        model.calculateRedHistogram(prefix + "result", prefix + "result");
+        return null;
+      });
+
+      expected.brighten(amount, "source", prefix + "bright");
+      expected.blur(prefix + "bright", prefix + "blur");
+      expected.visualizeSepia(prefix + "blur", prefix + "sepia");
+      expected.flipHorizontal(prefix + "sepia", prefix + "sepia");
+      expected.sharpen(prefix + "sepia", prefix + "result");
+    }
+    runAll(tasks);
+
+    for (int i = 0; i < THREADS; i++) {
+      TestImages.assertSameImage(expected.getImage("script" + i + "-result"),
+              model.getImage("script" + i + "-result"));
+      assertEquals(expected.calculateRedHistogram("script" + i + "-result", ""),
+              model.calculateRedHistogram("script" + i + "-result", ""));
+    }
+  }
+
+  @Test
+  public void testStoredImagesAreNotChanged() throws IOException {
+    ImageEditorModel model = new ConcurrentImageEditorModel(RowExecutor.sequential(), false);
+    model.load(TestImages.createFile(TestImages.createImage(5, 4, 0)), "a", "ppm");
+    model.brighten(10, "a", "b");
+
+    Image before = model.getImage("b");
+    int[] pixels = ((PackedImage) before).getData().clone();
+    model.brighten(10, "b", "b");
+    model.flipVertical("b", "b");
+
+    assertNotSame(before, model.getImage("b"));
+    TestImages.assertSameImage(new PackedImage(5, 4, pixels), before);
+  }
+}
@@ -0,0 +1,90 @@
+import org.junit.Test;
+
+import model.Convolution;
+import model.Kernel;
+import model.PackedImage;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for applying kernels to images, comparing the convolution engine with a direct
+ * calculation of each weighted sum.
+ */
+public class ConvolutionTest {
+
+  private int expected(Kernel kernel, PackedImage image, int row, int col, int shift) {
+    int radius = kernel.getSize() / 2;
+    double sum = 0;
+    for (int i = 0; i < kernel.getSize(); i++) {
+      for (int j = 0; j < kernel.getSize(); j++) {
+        int r = row + i - radius;
+        int c = col + j - radius;
+        if (r >= 0 && r < image.getHeight() && c >= 0 && c < image.getWidth()) {
+          sum += kernel.getWeight(i, j) * ((image.getRGB(r, c) >> shift) & 0xFF);
+        }
+      }
+    }
+    return PackedImage.clamp((int) sum);
+  }
+
+  private void assertFiltered(Kernel kernel, PackedImage image) {
+    PackedImage result = Convolution.apply(kernel, image);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(expected(kernel, image, i, j, 16), PackedImage.red(result.getRGB(i, j)));
+        assertEquals(expected(kernel, image, i, j, 8), PackedImage.green(result.getRGB(i, j)));
+        assertEquals(expected(kernel, image, i, j, 0), PackedImage.blue(result.getRGB(i, j)));
+      }
+    }
+  }
+
+  @Test
+  public void testBlur() {
+    assertFiltered(Kernel.GAUSSIAN_BLUR, TestImages.createImage(23, 17));
+  }
+
+  @Test
+  public void testSharpen() {
+    assertFiltered(Kernel.SHARPEN, TestImages.createImage(23, 17));
+  }
+
+  @Test
+  public void testImageSmallerThanKernel() {
+    assertFiltered(Kernel.SHARPEN, TestImages.createImage(3, 2));
+    assertFiltered(Kernel.SHARPEN, TestImages.createImage(1, 1));
+    assertFiltered(Kernel.GAUSSIAN_BLUR, TestImages.createImage(1, 5));
+  }
+
+  @Test
+  public void testFloatingPointKernel() {
+    Kernel kernel = new Kernel(new double[][] {
+      {0.1, 0.2, 0.1},
+      {0.0, 0.3, 0.0},
+      {0.1, 0.1, 0.1}});
+    assertFiltered(kernel, TestImages.createImage(11, 9));
+  }
+
+  @Test
+  public void testIdentityKernel() {
+    PackedImage image = TestImages.createImage(6, 4);
+    PackedImage result = Convolution.apply(new Kernel(new double[][] {{1}}), image);
+    for (int i = 0; i < image.getData().length; i++) {
+      assertEquals(image.getData()[i], result.getData()[i]);
+    }
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testEvenKernel() {
+    new Kernel(new double[][] {{1, 0}, {0, 1}});
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNotSquareKernel() {
+    new Kernel(new double[][] {{1, 0, 0}, {0, 1}, {0, 0, 1}});
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNaNKernel() {
+    new Kernel(new double[][] {{Double.NaN}});
+  }
+}
@@ -0,0 +1,224 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import controller.CommandStats;
+import controller.GUIController;
+import model.BlurFilter;
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.MapImageStore;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for running the edits of the GUI controller on a worker, queueing the edits asked for
+ * while others run, and cancelling them.
+ */
+public class GUIControllerTest {
+  private String path;
+  private StringBuilder viewLog;
+  private Deque<Runnable> worker;
+
+  @Before
+  public void setup() throws IOException {
+    path = TestImages.createFile(TestImages.createImage(7, 5));
+    viewLog = new StringBuilder();
+    worker = new ArrayDeque<>();
+  }
+
+  private GUIController createController(ImageEditorModel model) {
+    model.load(path, "image", "ppm");
+    GUIController controller = new GUIController(model, new CommandStats(), worker::add,
+            Runnable::run);
+    controller.setView(new MockGUIView(viewLog));
+    controller.setCurFile("image");
+    worker.poll().run();
+    viewLog.setLength(0);
+    return controller;
+  }
+
+  @Test
+  public void testQueuedEditsUpdateViewOnce() {
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential());
+    GUIController controller = createController(model);
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    expected.load(path, "image", "ppm");
+
+    controller.flipHorizontal();
+    controller.visualizeRed();
+    controller.flipVertical();
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("image"));
+    assertEquals(1, worker.size());
+
+    worker.poll().run();
+    expected.flipHorizontal("image", "image");
+    expected.visualizeRed("image", "image");
+    expected.flipVertical("image", "image");
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("image"));
+    assertEquals("progress: 0/3 progress: 1/3 progress: 2/3 image updated histogram updated "
+            + "progress hidden ", viewLog.toString());
+  }
+
+  @Test
+  public void testQueuedEditsRunInPlace() {
+    int[] stored = new int[1];
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential(), false,
+            new MapImageStore() {
+              @Override
+              public Image put(String name, Image image) {
+                if (name.equals("image")) {
+                  stored[0]++;
+                }
+                return super.put(name, image);
+              }
+            });
+    GUIController controller = createController(model);
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    expected.load(path, "image", "ppm");
+    stored[0] = 0;
+
+    controller.flipHorizontal();
+    controller.visualizeRed();
+    controller.flipVertical();
+    worker.poll().run();
+    expected.flipHorizontal("image", "image");
+    expected.visualizeRed("image", "image");
+    expected.flipVertical("image", "image");
+
+    // the view and the backup share the image the first edit reads, but not its result
+    assertEquals(1, stored[0]);
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("image"));
+  }
+
+  @Test
+  public void testBlursWithRadiusFromView() {
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential());
+    GUIController controller = createController(model);
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    expected.load(path, "image", "ppm");
+
+    controller.gaussianBlur();
+    controller.boxBlur();
+    worker.poll().run();
+    expected.blur(BlurFilter.gaussian(2), "image", "image");
+    expected.blur(BlurFilter.box(2), "image", "image");
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("image"));
+  }
+
+  @Test
+  public void testCancelBeforeEditsRun() {
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential());
+    GUIController controller = createController(model);
+    Image before = model.getImage("image");
+
+    controller.visualizeRed();
+    controller.blur();
+    controller.cancel();
+    worker.poll().run();
+
+    TestImages.assertSameImage(before, model.getImage("image"));
+    assertFalse(viewLog.toString().contains("image updated"));
+  }
+
+  @Test
+  public void testCancelRunningEdit() {
+    GUIController[] controller = new GUIController[1];
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential()) {
+      @Override
+      public void flipVertical(String filename, String destination) {
+        super.flipVertical(filename, destination);
+        controller[0].cancel();
+      }
+    };
+    controller[0] = createController(model);
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    expected.load(path, "image", "ppm");
+
+    controller[0].flipHorizontal();
+    controller[0].flipVertical();
+    controller[0].visualizeRed();
+    worker.poll().run();
+
+    // the edit that was running finished, but the image was put back and nothing after it ran
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("image"));
+    assertFalse(viewLog.toString().contains("image updated"));
+    assertTrue(viewLog.toString().endsWith("progress hidden "));
+
+    controller[0].flipHorizontal();
+    worker.poll().run();
+    expected.flipHorizontal("image", "image");
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("image"));
+    assertTrue(viewLog.toString().contains("image updated"));
+  }
+
+  @Test
+  public void testLoadRunsOnWorker() {
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential());
+    GUIController controller = new GUIController(model, new CommandStats(), worker::add,
+            Runnable::run);
+    controller.setView(new MockGUIView(viewLog) {
+      @Override
+      public String openFile() {
+        return path;
+      }
+    });
+    viewLog.setLength(0);
+
+    controller.load();
+    controller.flipHorizontal();
+    assertEquals(0, model.getPixelCount("curFile"));
+    assertEquals("", viewLog.toString());
+
+    worker.poll().run();
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    expected.load(path, "image", "ppm");
+    expected.flipHorizontal("image", "image");
+    TestImages.assertSameImage(expected.getImage("image"), model.getImage("curFile"));
+    assertEquals("progress: 0/2 progress: 1/2 image updated histogram updated "
+            + "image added: curFileprogress hidden ", viewLog.toString());
+  }
+
+  @Test
+  public void testFailedLoadShowsMessage() {
+    ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential());
+    GUIController controller = new GUIController(model, new CommandStats(), worker::add,
+            Runnable::run);
+    controller.setView(new MockGUIView(viewLog));
+    viewLog.setLength(0);
+
+    controller.load();
+    worker.poll().run();
+    assertEquals("progress: 0/1 message: File Not Foundprogress hidden ", viewLog.toString());
+  }
+
+  @Test
+  public void testShowMissingImage() {
+    GUIController controller = createController(
+            new ImageEditorModelImpl(RowExecutor.sequential()));
+
+    controller.setCurFile("missing");
+    worker.poll().run();
+    assertEquals("message: No image named missing is loaded", viewLog.toString());
+  }
+
+  @Test
+  public void testEditWithoutImage() {
+    GUIController controller = new GUIController(
+            new ImageEditorModelImpl(RowExecutor.sequential()), new CommandStats(), worker::add,
+            Runnable::run);
+    controller.setView(new MockGUIView(viewLog));
+    viewLog.setLength(0);
+
+    controller.visualizeRed();
+    assertTrue(worker.isEmpty());
+    assertEquals("message: Load an image first", viewLog.toString());
+  }
+}
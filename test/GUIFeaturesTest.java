@@ -30,8 +30,8 @@ public class GUIFeaturesTest {
   @Test
   public void testLoad() {
     controller.load();
-    assertEquals("features added image updated histogram updated image updated" +
-                    " histogram updated image added: curFile",
+    assertEquals("features added image updated histogram updated progress: 0/1 image updated" +
+                    " histogram updated image added: curFileprogress hidden ",
             viewLog.toString());
     assertEquals("pathname: pathname filename: curFile", modelLog.toString());
   }
@@ -39,7 +39,8 @@ public class GUIFeaturesTest {
   @Test
   public void testSave() {
     controller.save();
-    assertEquals("features added image updated histogram updated ", viewLog.toString());
+    assertEquals("features added image updated histogram updated progress: 0/1 progress hidden ",
+            viewLog.toString());
     assertEquals("pathname: pathname  filename: curFile filetype: filetype ",
             modelLog.toString());
   }
@@ -0,0 +1,208 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.Histogram;
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.LookupTable;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for counting the red, green, blue and intensity histograms of an image in one pass, and
+ * for working them out across edits.
+ */
+public class HistogramTest {
+
+  /**
+   * Counts the histograms of an image one pixel at a time.
+   */
+  private int[][] countSlowly(Image image) {
+    int[][] counts = new int[4][256];
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        int rgb = image.getRGB(i, j);
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        counts[0][r]++;
+        counts[1][g]++;
+        counts[2][b]++;
+        counts[3][(r + g + b) / 3]++;
+      }
+    }
+    return counts;
+  }
+
+  private void assertHistogram(int[][] expected, Histogram actual) {
+    assertArrayEquals(expected[0], actual.getRed());
+    assertArrayEquals(expected[1], actual.getGreen());
+    assertArrayEquals(expected[2], actual.getBlue());
+    assertArrayEquals(expected[3], actual.getIntensity());
+  }
+
+  @Test
+  public void testPackedImage() {
+    PackedImage image = TestImages.createImage(37, 29);
+    assertHistogram(countSlowly(image), Histogram.of(image));
+    assertHistogram(countSlowly(image), Histogram.of(image, new RowExecutor(4, 0)));
+  }
+
+  @Test
+  public void testMappedImage() throws IOException {
+    File file = File.createTempFile("histogram-test", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), TestImages.createImage(23, 41));
+    Image image = ImageUtil.readPPM(file.getPath());
+
+    assertHistogram(countSlowly(image), Histogram.of(image, new RowExecutor(3, 0)));
+  }
+
+  @Test
+  public void testModelHistogramMatchesMaps() throws IOException {
+    File file = File.createTempFile("histogram-test", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), TestImages.createImage(19, 17));
+    ImageEditorModel model = new ImageEditorModelImpl(new RowExecutor(2, 0));
+    model.load(file.getPath(), "image", "ppm");
+
+    Histogram histogram = model.calculateHistogram("image");
+    assertEquals(Histogram.toMap(histogram.getRed()), model.calculateRedHistogram("image", ""));
+    assertEquals(Histogram.toMap(histogram.getIntensity()),
+            model.calculateIntensityHistogram("image", ""));
+    int total = 0;
+    for (int count : histogram.getBlue()) {
+      total += count;
+    }
+    assertEquals(19 * 17, total);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testMissingImage() {
+    new ImageEditorModelImpl().calculateHistogram("missing");
+  }
+
+  private PackedImage map(PackedImage image, LookupTable table) {
+    int[] pixels = image.getData().clone();
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = table.applyAsInt(pixels[i]);
+    }
+    return new PackedImage(image.getWidth(), image.getHeight(), pixels);
+  }
+
+  @Test
+  public void testRemapWithoutClamping() {
+    int[] pixels = new int[31 * 23];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = PackedImage.pack(10 + i % 190, 10 + (i * 7) % 190, 10 + (i * 13) % 190);
+    }
+    PackedImage image = new PackedImage(31, 23, pixels);
+    LookupTable brighten = LookupTable.brighten(40);
+
+    Histogram remapped = Histogram.of(image).remap(brighten);
+    assertTrue(remapped.isComplete());
+    assertHistogram(countSlowly(map(image, brighten)), remapped);
+  }
+
+  @Test
+  public void testRemapWithClamping() {
+    PackedImage image = TestImages.createImage(37, 29);
+    LookupTable brighten = LookupTable.brighten(50);
+    PackedImage brightened = map(image, brighten);
+
+    Histogram remapped = Histogram.of(image).remap(brighten);
+    assertFalse(remapped.isComplete());
+    int[][] expected = countSlowly(brightened);
+    assertArrayEquals(expected[0], remapped.getRed());
+    assertArrayEquals(expected[1], remapped.getGreen());
+    assertArrayEquals(expected[2], remapped.getBlue());
+    assertHistogram(expected, remapped.complete(brightened, new RowExecutor(3, 0)));
+  }
+
+  @Test
+  public void testGrey() {
+    PackedImage image = TestImages.createImage(13, 11);
+    Histogram histogram = Histogram.grey(Histogram.of(image).getGreen());
+    assertArrayEquals(countSlowly(image)[1], histogram.getRed());
+    assertArrayEquals(countSlowly(image)[1], histogram.getIntensity());
+  }
+
+  /**
+   * Edits an image with every kind of operation, in place and into new images, and checks that
+   * the histograms the model keeps are always those of the image it stores.
+   */
+  private void testModelKeepsHistograms(boolean lazy) throws IOException {
+    File file = File.createTempFile("histogram-test", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), TestImages.createImage(29, 19));
+    ImageEditorModel model = new ImageEditorModelImpl(new RowExecutor(2, 0), lazy);
+    model.load(file.getPath(), "image", "ppm");
+
+    Histogram original = model.calculateHistogram("image");
+    assertSame(original, model.calculateHistogram("image"));
+    model.flipHorizontal("image", "flipped");
+    assertSame(original, model.calculateHistogram("flipped"));
+
+    String[] edits = {"brighten", "visualize-red", "flip-vertical", "darken",
+        "visualize-intensity", "flip-horizontal", "visualize-value", "brighten", "blur",
+        "visualize-sepia", "visualize-blue"};
+    for (String edit : edits) {
+      for (String destination : new String[] {"other", "image"}) {
+        switch (edit) {
+          case "brighten":
+            model.brighten(30, "image", destination);
+            break;
+          case "darken":
+            model.darken(70, "image", destination);
+            break;
+          case "visualize-red":
+            model.visualizeRed("image", destination);
+            break;
+          case "visualize-blue":
+            model.visualizeBlue("image", destination);
+            break;
+          case "visualize-intensity":
+            model.visualizeIntensity("image", destination);
+            break;
+          case "visualize-value":
+            model.visualizeValue("image", destination);
+            break;
+          case "visualize-sepia":
+            model.visualizeSepia("image", destination);
+            break;
+          case "flip-vertical":
+            model.flipVertical("image", destination);
+            break;
+          case "flip-horizontal":
+            model.flipHorizontal("image", destination);
+            break;
+          default:
+            model.blur("image", destination);
+            break;
+        }
+        assertHistogram(countSlowly(model.getImage(destination)),
+                model.calculateHistogram(destination));
+      }
+    }
+  }
+
+  @Test
+  public void testModelKeepsHistograms() throws IOException {
+    testModelKeepsHistograms(false);
+  }
+
+  @Test
+  public void testLazyModelKeepsHistograms() throws IOException {
+    testModelKeepsHistograms(true);
+  }
+}
@@ -11,6 +11,7 @@ import view.ImageEditorTextView;
 import view.ImageEditorView;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Represents a class for testing the controller of the program. This class tests that information
@@ -166,6 +167,76 @@ public class ImageEditorControllerTest {
     assertEquals("filename: example.txt destination: example", log.toString());
   }
 
+  @Test
+  public void testBlurRadius() {
+    readable = new StringReader("blur -r 3 example.txt example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("radius: 3 box: false filename: example.txt destination: example",
+            log.toString());
+  }
+
+  @Test
+  public void testBlurImageNamedByNumber() {
+    readable = new StringReader("blur 3 example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("filename: 3 destination: example", log.toString());
+  }
+
+  @Test
+  public void testBlurRadiusMissing() {
+    readable = new StringReader("blur -r example.txt example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("", log.toString());
+    assertTrue(ap.toString().startsWith("Illegal arguments for blur\n"));
+  }
+
+  @Test
+  public void testBoxBlur() {
+    readable = new StringReader("box-blur 25 example.txt example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("radius: 25 box: true filename: example.txt destination: example",
+            log.toString());
+  }
+
+  @Test
+  public void testColorMatrix() {
+    readable = new StringReader("color-matrix 0.5 0 0.25 0 1 0 0 0 1 example.txt example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("red row: 0.5 0.0 0.25 filename: example.txt destination: example",
+            log.toString());
+  }
+
+  @Test
+  public void testColorMatrixOutOfRange() {
+    readable = new StringReader("color-matrix 1 0 0 0 100 0 0 0 1 example.txt example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("", log.toString());
+    assertEquals("Color matrix coefficients must be between -32 and 32\n", ap.toString());
+  }
+
+  @Test
+  public void testBlurRadiusOutOfRange() {
+    readable = new StringReader("blur -r 0 example.txt example box-blur -1 example.txt example");
+    controller = new ImageEditorControllerImpl(mock, view, readable);
+    controller.start();
+
+    assertEquals("", log.toString());
+    assertEquals("Blur radius must be between 1 and 1000\n"
+            + "Blur radius must be between 1 and 1000\n", ap.toString());
+  }
+
   @Test
   public void testSharpen() {
     readable = new StringReader("sharpen example.txt example");
@@ -6,8 +6,12 @@ import model.Image;
 import model.ImageEditorModel;
 import model.ImageEditorModelImpl;
 import model.ImageUtil;
+import model.PackedImage;
+import model.RowExecutor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 
@@ -699,4 +703,75 @@ public class ImageEditorModelImplTest {
               model.calculateIntensityHistogram("test", "test2").get(i));
     }
   }
+
+  @Test
+  public void testBrightenAndDarkenByExtremeAmounts() {
+    for (boolean lazy : new boolean[] {false, true}) {
+      ImageEditorModelImpl model = new ImageEditorModelImpl(RowExecutor.sequential(), lazy);
+
+      model.load("Test.ppm", "test", "ppm");
+      model.brighten(Integer.MAX_VALUE, "test", "brighten-max");
+      model.darken(Integer.MIN_VALUE, "test", "darken-min");
+      model.brighten(Integer.MIN_VALUE, "test", "brighten-min");
+      model.darken(Integer.MAX_VALUE, "test", "darken-max");
+
+      assertEquals(0xFFFFFF, model.getImage("brighten-max").getRGB(0, 0));
+      assertEquals(0xFFFFFF, model.getImage("darken-min").getRGB(0, 0));
+      assertEquals(0x000000, model.getImage("brighten-min").getRGB(0, 0));
+      assertEquals(0x000000, model.getImage("darken-max").getRGB(0, 0));
+    }
+  }
+
+  @Test
+  public void testUnchangedEditSharesPixels() {
+    ImageEditorModelImpl model = new ImageEditorModelImpl();
+
+    model.load("Test.ppm", "test", "ppm");
+    model.brighten(0, "test", "test-copy");
+    model.darken(0, "test-copy", "test-copy2");
+
+    int[] pixels = ((PackedImage) model.getImage("test")).getData();
+    assertSame(pixels, ((PackedImage) model.getImage("test-copy")).getData());
+    assertSame(pixels, ((PackedImage) model.getImage("test-copy2")).getData());
+  }
+
+  @Test
+  public void testEditInPlace() {
+    ImageEditorModelImpl model = new ImageEditorModelImpl();
+    ImageEditorModelImpl expected = new ImageEditorModelImpl();
+
+    model.load("Test.ppm", "test", "ppm");
+    expected.load("Test.ppm", "test", "ppm");
+    int[] pixels = ((PackedImage) model.getImage("test")).getData();
+
+    model.brighten(20, "test", "test");
+    model.visualizeLuma("test", "test");
+    model.flipHorizontal("test", "test");
+    model.flipVertical("test", "test");
+    expected.brighten(20, "test", "test-brighten");
+    expected.visualizeLuma("test-brighten", "test-luma");
+    expected.flipHorizontal("test-luma", "test-horizontal");
+    expected.flipVertical("test-horizontal", "test-vertical");
+
+    assertSame(pixels, ((PackedImage) model.getImage("test")).getData());
+    TestImages.assertSameImage(expected.getImage("test-vertical"), model.getImage("test"));
+  }
+
+  @Test
+  public void testEditInPlaceKeepsSharedImage() {
+    ImageEditorModelImpl model = new ImageEditorModelImpl();
+
+    model.load("Test.ppm", "test", "ppm");
+    Image original = ImageUtil.readPPM("Test.ppm");
+    model.brighten(0, "test", "test-copy");
+    model.brighten(20, "test", "test");
+    model.flipVertical("test-copy", "test-copy2");
+
+    TestImages.assertSameImage(original, model.getImage("test-copy"));
+    assertEquals(PackedImage.pack(PackedImage.red(original.getRGB(0, 0)) + 20,
+            PackedImage.green(original.getRGB(0, 0)) + 20,
+            PackedImage.blue(original.getRGB(0, 0)) + 20), model.getImage("test").getRGB(0, 0));
+    assertNotSame(((PackedImage) model.getImage("test")).getData(),
+            ((PackedImage) model.getImage("test-copy")).getData());
+  }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import model.Image;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.PackedImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for reading and writing image files with ImageUtil, including comments and layout
+ * differences in PPM files and invalid files.
+ */
+public class ImageUtilTest {
+
+  private String createFile(String contents) throws IOException {
+    return createFile(contents.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private String createFile(byte[] contents) throws IOException {
+    File file = File.createTempFile("image-util-test", ".ppm");
+    file.deleteOnExit();
+    try (FileOutputStream output = new FileOutputStream(file)) {
+      output.write(contents);
+    }
+    return file.getPath();
+  }
+
+  private PackedImage colorImage() {
+    return new PackedImage(3, 2, new int[] {
+      0x000000, 0xFF8001, 0x123456,
+      0x808080, 0xFFFFFF, 0x0A0B0C});
+  }
+
+  @Test
+  public void testReadPPM() throws IOException {
+    String path = createFile("P3\n# a comment line\n2 2\n255\n"
+            + "1 2 3 4 5 6\n7 8 9 250 251 252");
+    Image image = ImageUtil.readPPM(path);
+
+    assertEquals(2, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(0x010203, image.getRGB(0, 0));
+    assertEquals(0x040506, image.getRGB(0, 1));
+    assertEquals(0x070809, image.getRGB(1, 0));
+    assertEquals(0xFAFBFC, image.getRGB(1, 1));
+  }
+
+  @Test
+  public void testReadPPMCommentsAndSpacing() throws IOException {
+    String path = createFile("P3 # comment after the magic number\n"
+            + "1\t1 # comment after the size\r\n255\n\n  10   20\n#between samples\n30\n");
+    Image image = ImageUtil.readPPM(path);
+
+    assertEquals(10, image.getPixelAt(0, 0).getRed());
+    assertEquals(20, image.getPixelAt(0, 0).getGreen());
+    assertEquals(30, image.getPixelAt(0, 0).getBlue());
+  }
+
+  @Test
+  public void testReadLargePPM() throws IOException {
+    StringBuilder builder = new StringBuilder("P3\n300 200\n255\n");
+    for (int i = 0; i < 300 * 200; i++) {
+      builder.append(i % 256).append(' ').append((i / 256) % 256).append(" 7\n");
+    }
+    Image image = ImageUtil.readPPM(createFile(builder.toString()));
+
+    for (int i = 0; i < 200; i++) {
+      for (int j = 0; j < 300; j++) {
+        int index = i * 300 + j;
+        assertEquals(((index % 256) << 16) | (((index / 256) % 256) << 8) | 7,
+                image.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testReadHeader() throws IOException {
+    String path = createFile("P3\n# size\n3 1\n255\n1 1 1 2 2 2 3 3 3\n");
+    assertEquals(3, ImageUtil.getWidth(path));
+    assertEquals(1, ImageUtil.getHeight(path));
+    assertEquals(255, ImageUtil.getMaxValue(path));
+    assertEquals(2, ImageUtil.getImagePixels(path)[0][1].getGreen());
+  }
+
+  @Test
+  public void testGetSize() throws IOException {
+    String ppm = createFile("");
+    ImageUtil.writeRawPPM(ppm, colorImage());
+    assertArrayEquals(new int[] {3, 2}, ImageUtil.getSize(ppm, "ppm"));
+    String png = createFile("");
+    ImageUtil.writeImage(png, colorImage(), "png");
+    assertArrayEquals(new int[] {3, 2}, ImageUtil.getSize(png, "png"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testGetSizeOfMissingFile() {
+    ImageUtil.getSize("this-file-does-not-exist.png", "png");
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadMissingFile() {
+    ImageUtil.readPPM("this-file-does-not-exist.ppm");
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadWrongMagicNumber() throws IOException {
+    ImageUtil.readPPM(createFile("P2\n1 1\n255\n1\n"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadTruncatedFile() throws IOException {
+    ImageUtil.readPPM(createFile("P3\n2 1\n255\n1 2 3 4 5\n"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadNotANumber() throws IOException {
+    ImageUtil.readPPM(createFile("P3\n1 1\n255\n1 x 3\n"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadColorTooLarge() throws IOException {
+    ImageUtil.readPPM(createFile("P3\n1 1\n255\n1 256 3\n"));
+  }
+
+  @Test
+  public void testReadRawPPM() throws IOException {
+    byte[] header = "P6\n# binary\n2 1\n255\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] file = new byte[header.length + 6];
+    System.arraycopy(header, 0, file, 0, header.length);
+    byte[] samples = {(byte) 255, 10, 32, 0, (byte) 200, (byte) 128};
+    System.arraycopy(samples, 0, file, header.length, samples.length);
+    Image image = ImageUtil.readPPM(createFile(file));
+
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(0xFF0A20, image.getRGB(0, 0));
+    assertEquals(0x00C880, image.getRGB(0, 1));
+    assertEquals(200, image.getPixelAt(0, 1).getGreen());
+  }
+
+  @Test
+  public void testRawPPMRoundTrip() throws IOException {
+    String path = createFile("");
+    ImageUtil.writeRawPPM(path, colorImage());
+
+    TestImages.assertSameImage(colorImage(), ImageUtil.readPPM(path));
+    assertEquals(3, ImageUtil.getWidth(path));
+    assertEquals(2, ImageUtil.getHeight(path));
+  }
+
+  @Test
+  public void testPGMRoundTrip() throws IOException {
+    String path = createFile("");
+    ImageUtil.writePGM(path, colorImage());
+    Image image = ImageUtil.readPPM(path);
+
+    assertEquals(0x000000, image.getRGB(0, 0));
+    assertEquals(0x808080, image.getRGB(1, 0));
+    assertEquals(0xFFFFFF, image.getRGB(1, 1));
+    int luma = (int) Math.round(0.2126 * 255 + 0.7152 * 128 + 0.0722 * 1);
+    assertEquals(luma * 0x010101, image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testSaveOverMappedFile() throws IOException {
+    String path = createFile("");
+    ImageUtil.writeRawPPM(path, colorImage());
+
+    ImageEditorModel model = new ImageEditorModelImpl();
+    model.load(path, "mapped", "ppm");
+    model.save(path, "mapped", "ppm");
+    model.save(path, "mapped", "p6");
+
+    TestImages.assertSameImage(colorImage(), model.getImage("mapped"));
+    TestImages.assertSameImage(colorImage(), ImageUtil.readPPM(path));
+  }
+
+  @Test
+  public void testSavedFilePermissions() throws IOException {
+    Path directory = Files.createTempDirectory("image-util-test");
+    directory.toFile().deleteOnExit();
+    Assume.assumeTrue(Files.getFileAttributeView(directory, PosixFileAttributeView.class)
+            != null);
+    // a file created the usual way gets the permissions the umask allows
+    Path plain = directory.resolve("plain.ppm");
+    new FileOutputStream(plain.toFile()).close();
+    plain.toFile().deleteOnExit();
+    Path saved = directory.resolve("saved.ppm");
+    saved.toFile().deleteOnExit();
+
+    ImageUtil.writeRawPPM(saved.toString(), colorImage());
+    assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(saved));
+
+    // replacing a file keeps its permissions
+    Files.setPosixFilePermissions(saved, PosixFilePermissions.fromString("rw-rw----"));
+    ImageUtil.writePPM(saved.toString(), colorImage());
+    assertEquals(PosixFilePermissions.fromString("rw-rw----"),
+            Files.getPosixFilePermissions(saved));
+    TestImages.assertSameImage(colorImage(), ImageUtil.readPPM(saved.toString()));
+    assertEquals(2, directory.toFile().list().length);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadSixteenBitPPM() throws IOException {
+    ImageUtil.readPPM(createFile("P6\n1 1\n65535\n\0\0\0\0\0\0"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testReadTruncatedRawPPM() throws IOException {
+    ImageUtil.readPPM(createFile("P6\n2 2\n255\nabcdef"));
+  }
+
+  @Test
+  public void testWritePPM() throws IOException {
+    String path = createFile("");
+    ImageUtil.writePPM(path, colorImage());
+
+    String expected = "P3\n3 2\n255\n0\n0\n0\n255\n128\n1\n18\n52\n86\n"
+            + "128\n128\n128\n255\n255\n255\n10\n11\n12";
+    assertEquals(expected, new String(Files.readAllBytes(Paths.get(path)),
+            StandardCharsets.US_ASCII));
+    TestImages.assertSameImage(colorImage(), ImageUtil.readPPM(path));
+  }
+
+  @Test
+  public void testWriteLargePPM() throws IOException {
+    PackedImage image = TestImages.createImage(500, 300);
+    String path = createFile("");
+    ImageUtil.writePPM(path, image);
+
+    TestImages.assertSameImage(image, ImageUtil.readPPM(path));
+  }
+}
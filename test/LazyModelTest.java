@@ -0,0 +1,129 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the lazy mode of the model, making sure that deferred and fused edits give exactly
+ * the same images as edits that are computed right away.
+ */
+public class LazyModelTest {
+
+  private String tempPath() throws IOException {
+    File file = File.createTempFile("lazy-model-test", ".ppm");
+    file.deleteOnExit();
+    return file.getPath();
+  }
+
+  private void edit(ImageEditorModel model, String path) {
+    model.load(path, "a", "ppm");
+    model.brighten(10, "a", "b");
+    model.visualizeLuma("b", "c");
+    model.darken(5, "c", "d");
+    model.visualizeSepia("a", "e");
+    model.visualizeRed("e", "f");
+    model.blur("d", "g");
+    model.brighten(30, "g", "h");
+    model.flipHorizontal("h", "i");
+    model.visualizeIntensity("i", "j");
+    model.visualizeValue("b", "k");
+    model.visualizeGreen("k", "l");
+    model.visualizeBlue("d", "m");
+    model.sharpen("b", "n");
+  }
+
+  @Test
+  public void testLazyEditsMatchEagerEdits() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(29, 31));
+    ImageEditorModel eager = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModel lazy = new ImageEditorModelImpl(RowExecutor.sequential(), true);
+    edit(eager, path);
+    edit(lazy, path);
+
+    for (String name : new String[] {"a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k",
+        "l", "m", "n"}) {
+      TestImages.assertSameImage(eager.getImage(name), lazy.getImage(name));
+    }
+  }
+
+  @Test
+  public void testLazyEditsInParallel() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(29, 31));
+    ImageEditorModel eager = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModel lazy = new ImageEditorModelImpl(new RowExecutor(3, 0), true);
+    edit(eager, path);
+    edit(lazy, path);
+
+    for (String name : new String[] {"d", "g", "j", "n"}) {
+      TestImages.assertSameImage(eager.getImage(name), lazy.getImage(name));
+    }
+  }
+
+  @Test
+  public void testSaveDeferredImage() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(13, 7));
+    ImageEditorModel eager = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModel lazy = new ImageEditorModelImpl(RowExecutor.sequential(), true);
+    edit(eager, path);
+    edit(lazy, path);
+
+    String eagerPath = tempPath();
+    String lazyPath = tempPath();
+    eager.save(eagerPath, "d", "ppm");
+    lazy.save(lazyPath, "d", "ppm");
+    TestImages.assertSameImage(ImageUtil.readPPM(eagerPath), ImageUtil.readPPM(lazyPath));
+  }
+
+  @Test
+  public void testHistogramOfDeferredImage() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(13, 7));
+    ImageEditorModel eager = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModel lazy = new ImageEditorModelImpl(RowExecutor.sequential(), true);
+    edit(eager, path);
+    edit(lazy, path);
+
+    assertEquals(eager.calculateRedHistogram("c", ""), lazy.calculateRedHistogram("c", ""));
+    assertEquals(eager.calculateIntensityHistogram("e", ""),
+            lazy.calculateIntensityHistogram("e", ""));
+  }
+
+  @Test
+  public void testSourceUnchanged() throws IOException {
+    PackedImage image = TestImages.createImage(13, 7);
+    ImageEditorModel lazy = new ImageEditorModelImpl(RowExecutor.sequential(), true);
+    edit(lazy, TestImages.createFile(image));
+
+    TestImages.assertSameImage(image, lazy.getImage("a"));
+  }
+
+  @Test
+  public void testLongChainOfEdits() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(3, 2));
+    ImageEditorModel eager = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModel lazy = new ImageEditorModelImpl(RowExecutor.sequential(), true);
+    for (ImageEditorModel model : new ImageEditorModel[] {eager, lazy}) {
+      model.load(path, "a", "ppm");
+      // a lookup table and a color matrix never fuse, so every edit adds to the chain
+      for (int i = 0; i < 50000; i++) {
+        model.darken(1, "a", "a");
+        model.visualizeSepia("a", "a");
+      }
+    }
+
+    TestImages.assertSameImage(eager.getImage("a"), lazy.getImage("a"));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testLazyEditOfMissingImage() {
+    ImageEditorModel lazy = new ImageEditorModelImpl(RowExecutor.sequential(), true);
+    lazy.brighten(10, "missing", "b");
+  }
+}
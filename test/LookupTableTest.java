@@ -0,0 +1,135 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.LookupTable;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for compiling point operations into lookup tables and applying them to images.
+ */
+public class LookupTableTest {
+
+  @Test
+  public void testCompileClamps() {
+    LookupTable table = LookupTable.brighten(100);
+    assertEquals(100, table.getRed(0));
+    assertEquals(255, table.getGreen(155));
+    assertEquals(255, table.getBlue(255));
+
+    table = LookupTable.brighten(-100);
+    assertEquals(0, table.getRed(99));
+    assertEquals(1, table.getGreen(101));
+
+    table = LookupTable.brighten(Integer.MAX_VALUE);
+    assertEquals(255, table.getRed(0));
+    table = LookupTable.brighten(Integer.MIN_VALUE);
+    assertEquals(0, table.getBlue(255));
+  }
+
+  @Test
+  public void testApplyToPixel() {
+    LookupTable table = LookupTable.of(value -> value + 1, value -> value * 2,
+        value -> 255 - value);
+    assertEquals(0x0B1EF0, table.applyAsInt(0x0A0F0F));
+    assertEquals(0xFFFF00, table.applyAsInt(0xFEFFFF));
+  }
+
+  @Test
+  public void testIdentity() {
+    LookupTable table = LookupTable.identity();
+    for (int i = 0; i < 256; i++) {
+      assertEquals(i, table.getRed(i));
+      assertEquals(i, table.getGreen(i));
+      assertEquals(i, table.getBlue(i));
+    }
+    assertEquals(0x123456, table.applyAsInt(0x123456));
+  }
+
+  @Test
+  public void testAndThenMatchesApplyingBoth() {
+    LookupTable first = LookupTable.of(value -> value * 3, value -> value - 20,
+        value -> value / 2);
+    LookupTable second = LookupTable.gamma(2.2);
+    LookupTable composed = first.andThen(second);
+    for (int rgb = 0; rgb < 0x1000000; rgb += 0x010305) {
+      assertEquals(second.applyAsInt(first.applyAsInt(rgb)), composed.applyAsInt(rgb));
+    }
+  }
+
+  @Test
+  public void testGamma() {
+    LookupTable table = LookupTable.gamma(2.0);
+    assertEquals(0, table.getRed(0));
+    assertEquals(255, table.getRed(255));
+    assertEquals(128, table.getGreen(64));
+    assertEquals(64, LookupTable.gamma(0.5).getBlue(128));
+  }
+
+  @Test
+  public void testLevels() {
+    LookupTable table = LookupTable.levels(50, 200);
+    assertEquals(0, table.getRed(0));
+    assertEquals(0, table.getRed(50));
+    assertEquals(128, table.getRed(125));
+    assertEquals(255, table.getRed(200));
+    assertEquals(255, table.getRed(230));
+  }
+
+  @Test
+  public void testCurve() {
+    int[] curve = new int[256];
+    for (int i = 0; i < curve.length; i++) {
+      curve[i] = 255 - i;
+    }
+    LookupTable table = LookupTable.curve(curve);
+    curve[0] = 7;
+    assertEquals(255, table.getRed(0));
+    assertEquals(0xEDCBA9, table.applyAsInt(0x123456));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidGamma() {
+    LookupTable.gamma(0);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidLevels() {
+    LookupTable.levels(200, 200);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidCurve() {
+    LookupTable.curve(new int[255]);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNullOperation() {
+    LookupTable.of(null);
+  }
+
+  @Test
+  public void testApplyLookupTableToImage() throws IOException {
+    PackedImage image = new PackedImage(3, 1, new int[] {0x000000, 0x7F8081, 0xFFFFFF});
+    File file = File.createTempFile("lookup-table-test", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), image);
+
+    for (boolean lazy : new boolean[] {false, true}) {
+      ImageEditorModel model = new ImageEditorModelImpl(RowExecutor.sequential(), lazy);
+      model.load(file.getPath(), "image", "ppm");
+      model.applyLookupTable(LookupTable.levels(0, 128), "image", "levels");
+      model.brighten(-10, "levels", "darker");
+      assertEquals(0x000000, model.getImage("darker").getRGB(0, 0));
+      assertEquals(0xF3F5F5, model.getImage("darker").getRGB(0, 1));
+      assertEquals(0xF5F5F5, model.getImage("darker").getRGB(0, 2));
+    }
+  }
+}
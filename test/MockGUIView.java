@@ -1,7 +1,6 @@
-import java.util.HashMap;
-
 import controller.Features;
-import model.Pixel;
+import model.Histogram;
+import model.Image;
 import view.ImageEditorGUI;
 
 /**
@@ -41,18 +40,30 @@ public class MockGUIView implements ImageEditorGUI {
   }
 
   @Override
-  public void updateImage(int width, int height, Pixel[][] pixels) {
+  public String getRadius() {
+    return "2";
+  }
+
+  @Override
+  public void updateImage(Image image) {
     log.append("image updated ");
   }
 
   @Override
-  public void updateHistogram(HashMap<Integer, Integer> redHistogram,
-                              HashMap<Integer, Integer> greenHistogram,
-                              HashMap<Integer, Integer> blueHistogram,
-                              HashMap<Integer, Integer> intensityHistogram) {
+  public void updateHistogram(Histogram histogram) {
     log.append("histogram updated ");
   }
 
+  @Override
+  public void showProgress(int done, int total) {
+    log.append("progress: " + done + "/" + total + " ");
+  }
+
+  @Override
+  public void hideProgress() {
+    log.append("progress hidden ");
+  }
+
   @Override
   public String getFileType() {
     return "filetype ";
@@ -1,6 +1,9 @@
 import java.util.HashMap;
 
+import model.BlurFilter;
+import model.ColorMatrix;
 import model.GenericImage;
+import model.Histogram;
 import model.Image;
 import model.ImageEditorModelImpl;
 import model.Pixel;
@@ -72,6 +75,17 @@ public class MockImageEditModel extends ImageEditorModelImpl {
     log.append("scale: " + scale + " filename: " + filename + " destination: " + destination);
   }
 
+  public void applyColorMatrix(ColorMatrix matrix, String filename, String destination) {
+    log.append("red row: " + matrix.getCoefficient(0, 0) + " " + matrix.getCoefficient(0, 1)
+            + " " + matrix.getCoefficient(0, 2) + " filename: " + filename + " destination: "
+            + destination);
+  }
+
+  public void blur(BlurFilter blur, String filename, String destination) {
+    log.append("radius: " + blur.getRadius() + " box: " + blur.isBox() + " filename: "
+            + filename + " destination: " + destination);
+  }
+
   public void blur(String filename, String destination) {
     log.append("filename: " + filename + " destination: " + destination);
   }
@@ -84,6 +98,11 @@ public class MockImageEditModel extends ImageEditorModelImpl {
     log.append("filename: " + filename + " destination: " + destination);
   }
 
+  @Override
+  public Histogram calculateHistogram(String filename) {
+    return Histogram.of(getImage(filename));
+  }
+
   public HashMap<Integer, Integer> calculateRedHistogram(String filename, String destination) {
     return new HashMap<Integer, Integer>();
   }
@@ -0,0 +1,170 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.GenericImage;
+import model.PackedImage;
+import model.Pixel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for a packed image involving construction, reading and changing packed colors,
+ * copying from other images, and sharing pixels between images.
+ */
+public class PackedImageTest {
+
+  private PackedImage image1;
+
+  @Before
+  public void setup() {
+    image1 = new PackedImage(3, 2, new int[] {
+      0x0A141E, 0x0A141E, 0x0A141E,
+      0x010203, 0x040506, 0xFFFFFF});
+  }
+
+  @Test
+  public void testConstructor() {
+    assertEquals(2, image1.getHeight());
+    assertEquals(3, image1.getWidth());
+    assertEquals(10, image1.getPixelAt(0, 1).getRed());
+    assertEquals(20, image1.getPixelAt(0, 1).getGreen());
+    assertEquals(30, image1.getPixelAt(0, 1).getBlue());
+    assertEquals(0x040506, image1.getRGB(1, 1));
+  }
+
+  @Test
+  public void testBlankImage() {
+    PackedImage blank = new PackedImage(2, 2);
+    assertEquals(0, blank.getRGB(1, 1));
+  }
+
+  @Test
+  public void testGetPixelIsCopy() {
+    Pixel p = image1.getPixelAt(0, 0);
+    p.changeRed(200);
+    assertEquals(10, image1.getPixelAt(0, 0).getRed());
+  }
+
+  @Test
+  public void testSetRGB() {
+    image1.setRGB(1, 2, 0x112233);
+    assertEquals(0x11, image1.getPixelAt(1, 2).getRed());
+    assertEquals(0x22, image1.getPixelAt(1, 2).getGreen());
+    assertEquals(0x33, image1.getPixelAt(1, 2).getBlue());
+  }
+
+  @Test
+  public void testRows() {
+    int[] row = new int[3];
+    image1.getRow(1, row);
+    assertArrayEquals(new int[] {0x010203, 0x040506, 0xFFFFFF}, row);
+
+    image1.setRow(0, new int[] {1, 2, 3});
+    assertEquals(2, image1.getRGB(0, 1));
+  }
+
+  @Test
+  public void testCopy() {
+    PackedImage copy = image1.copy();
+    copy.setRGB(0, 0, 0);
+    assertEquals(0x0A141E, image1.getRGB(0, 0));
+    assertEquals(0, copy.getRGB(0, 0));
+  }
+
+  @Test
+  public void testCopyOfGenericImage() {
+    Pixel[][] pixels = new Pixel[1][2];
+    pixels[0][0] = new Pixel(1, 2, 3);
+    pixels[0][1] = new Pixel(250, 251, 252);
+    PackedImage copy = PackedImage.copyOf(new GenericImage(2, 1, pixels));
+
+    assertArrayEquals(new int[] {0x010203, 0xFAFBFC}, copy.getData());
+  }
+
+  @Test
+  public void testPackClamps() {
+    assertEquals(0xFF00FF, PackedImage.pack(300, -5, 255));
+    assertEquals(12, PackedImage.red(PackedImage.pack(12, 34, 56)));
+    assertEquals(34, PackedImage.green(PackedImage.pack(12, 34, 56)));
+    assertEquals(56, PackedImage.blue(PackedImage.pack(12, 34, 56)));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testWrongSizeArray() {
+    new PackedImage(2, 2, new int[3]);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testTooManyPixels() {
+    // 65536 * 65536 is 0 in int arithmetic
+    new PackedImage(65536, 65536);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNullArray() {
+    new PackedImage(2, 2, null);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNegativeRowGetPixel() {
+    image1.getPixelAt(-1, 1);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testColTooBigGetRGB() {
+    image1.getRGB(1, 3);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testRowTooBigSetRGB() {
+    image1.setRGB(2, 0, 0);
+  }
+
+  @Test
+  public void testShareUsesSameArray() {
+    PackedImage shared = image1.share();
+    assertSame(image1.getData(), shared.getData());
+    assertTrue(image1.isShared());
+    assertTrue(shared.isShared());
+  }
+
+  @Test
+  public void testWriteToSharedImageCopies() {
+    PackedImage shared = image1.share();
+    shared.setRGB(0, 0, 0x123456);
+    assertEquals(0x0A141E, image1.getRGB(0, 0));
+    assertEquals(0x123456, shared.getRGB(0, 0));
+    assertNotSame(image1.getData(), shared.getData());
+    assertFalse(image1.isShared());
+    assertFalse(shared.isShared());
+  }
+
+  @Test
+  public void testWritableDataOfSharedImage() {
+    PackedImage shared = image1.share();
+    image1.getWritableData()[0] = 7;
+    assertEquals(7, image1.getRGB(0, 0));
+    assertEquals(0x0A141E, shared.getRGB(0, 0));
+  }
+
+  @Test
+  public void testReleaseLetsOtherImageWriteInPlace() {
+    PackedImage shared = image1.share();
+    int[] data = image1.getData();
+    shared.release();
+    assertFalse(image1.isShared());
+    assertTrue(shared.isShared());
+    image1.setRow(1, new int[] {1, 2, 3});
+    assertSame(data, image1.getData());
+
+    shared.release();
+    assertFalse(image1.isShared());
+    shared.setRGB(0, 0, 0);
+    assertEquals(0x0A141E, image1.getRGB(0, 0));
+  }
+}
@@ -0,0 +1,154 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import controller.ImageEditorController;
+import controller.ImageEditorControllerImpl;
+import controller.ParallelScriptController;
+import model.ConcurrentImageEditorModel;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.RowExecutor;
+import view.ImageEditorTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that running a script on the parallel scheduler gives the same images, files, messages
+ * and errors as running it one command at a time.
+ */
+public class ParallelScriptControllerTest {
+  private static final String[] NAMES = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+  private String createPath() throws IOException {
+    File file = File.createTempFile("parallel-script-test", ".ppm");
+    file.delete();
+    file.deleteOnExit();
+    return file.getPath();
+  }
+
+  /**
+   * Runs the script one command at a time and on the parallel scheduler, and checks that both
+   * show the same messages and end with the same images.
+   */
+  private void assertSameRun(String script) {
+    StringBuilder expectedOutput = new StringBuilder();
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    new ImageEditorControllerImpl(expected, new ImageEditorTextView(expectedOutput),
+            new StringReader(script)).start();
+
+    for (int threads : new int[] {1, 4}) {
+      StringBuilder output = new StringBuilder();
+      ImageEditorModel model = new ConcurrentImageEditorModel();
+      new ParallelScriptController(model, new ImageEditorTextView(output),
+              new StringReader(script), threads).start();
+
+      assertEquals(expectedOutput.toString(), output.toString());
+      for (String name : NAMES) {
+        if (expected.getImage(name) != null) {
+          TestImages.assertSameImage(expected.getImage(name), model.getImage(name));
+        }
+      }
+    }
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNullModel() {
+    new ParallelScriptController(null, new ImageEditorTextView(new StringBuilder()),
+            new StringReader(""), 2);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNoThreads() {
+    new ParallelScriptController(new ConcurrentImageEditorModel(),
+            new ImageEditorTextView(new StringBuilder()), new StringReader(""), 0);
+  }
+
+  @Test
+  public void testIndependentChains() throws IOException {
+    String first = TestImages.createFile(TestImages.createImage(31, 17, 0));
+    String second = TestImages.createFile(TestImages.createImage(23, 29, 5));
+    assertSameRun("load " + first + " a\n"
+            + "load " + second + " b\n"
+            + "brighten 20 a c\n"
+            + "visualize-luma b d\n"
+            + "blur c e\n"
+            + "sharpen d f\n"
+            + "flip-vertical e g\n"
+            + "darken 15 f h\n");
+  }
+
+  @Test
+  public void testEditsToSameName() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(19, 13, 2));
+    assertSameRun("load " + path + " a\n"
+            + "brighten 10 a a\n"
+            + "blur a b\n"
+            + "flip-horizontal a a\n"
+            + "sharpen a a\n"
+            + "visualize-sepia b a\n"
+            + "darken 5 a c\n"
+            + "flip-vertical b b\n");
+  }
+
+  @Test
+  public void testMessagesInScriptOrder() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(7, 5, 1));
+    assertSameRun("blur x y\n"
+            + "load " + path + " a\n"
+            + "flip-diagonal a b\n"
+            + "sharpen a b\n"
+            + "brighten 10 z c\n"
+            + "visualize-red b c\n"
+            + "darken a\n");
+  }
+
+  @Test
+  public void testQuitStopsScript() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(7, 5, 1));
+    assertSameRun("load " + path + " a\n"
+            + "brighten 10 a b\n"
+            + "q\n"
+            + "darken 10 a c\n");
+  }
+
+  @Test
+  public void testSaveThenLoad() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(9, 11, 3));
+    String saved = createPath();
+    assertSameRun("load " + path + " a\n"
+            + "brighten 30 a b\n"
+            + "save " + saved + " b ppm\n"
+            + "load " + saved + " c\n"
+            + "flip-vertical c d\n"
+            + "save " + saved + " a ppm\n"
+            + "load " + saved + " e\n");
+  }
+
+  @Test
+  public void testMissingFileStopsLaterCommands() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(9, 11, 3));
+    String missing = createPath();
+    String saved = createPath();
+    StringBuilder output = new StringBuilder();
+    ImageEditorController controller = new ParallelScriptController(
+            new ConcurrentImageEditorModel(), new ImageEditorTextView(output),
+            new StringReader("load " + path + " a\n"
+                    + "blur x y\n"
+                    + "load " + missing + " b\n"
+                    + "save " + saved + " a ppm\n"
+                    + "brighten 10 a c\n"), 4);
+    try {
+      controller.start();
+      fail("Loading a missing file should throw an exception");
+    } catch (IllegalArgumentException e) {
+      // the same exception the sequential controller throws
+    }
+    assertEquals("This file has not been loaded yet.\n", output.toString());
+    assertFalse(new File(saved).exists());
+  }
+}
@@ -0,0 +1,145 @@
+import org.junit.Assume;
+import org.junit.Test;
+
+import model.ColorMatrix;
+import model.PixelKernels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the pixel backends. The vector backend must give the same pixels as the scalar
+ * backend to the last bit; its tests are skipped when the JVM was not started with
+ * --add-modules jdk.incubator.vector and the simd classes on the class path.
+ */
+public class PixelKernelsTest {
+  private static final ColorMatrix MIXED = ColorMatrix.of(
+      -0.5, 1.25, 0.3,
+      2.0, -1.0, 0.0,
+      0.2126, 0.7152, 0.0722);
+  private static final ColorMatrix LARGEST = ColorMatrix.of(
+      32, 32, 32,
+      -32, -32, -32,
+      32, -32, 0.00001);
+
+  /**
+   * Creates pixels that include every sample value in every channel, then pseudo-random ones.
+   */
+  private int[] createPixels(int count) {
+    int[] pixels = new int[count];
+    for (int i = 0; i < count; i++) {
+      pixels[i] = i < 256 ? (i << 16) | ((255 - i) << 8) | ((i * 7) & 0xFF)
+              : (int) ((i * 2654435761L) & 0xFFFFFF);
+    }
+    return pixels;
+  }
+
+  /**
+   * Runs one loop of a backend over a range of pixels, leaving the rest of the array alone.
+   */
+  private interface Loop {
+    void run(PixelKernels kernels, int[] src, int[] dst, int from, int to);
+  }
+
+  private void assertSameAsScalar(PixelKernels kernels, Loop loop) {
+    int[] src = createPixels(1031);
+    // ranges that start and end away from a multiple of the register size
+    int[][] ranges = {{0, 1031}, {3, 1000}, {5, 9}, {0, 0}, {17, 18}};
+    for (int[] range : ranges) {
+      int[] expected = new int[src.length];
+      int[] actual = new int[src.length];
+      loop.run(PixelKernels.scalar(), src, expected, range[0], range[1]);
+      loop.run(kernels, src, actual, range[0], range[1]);
+      assertArrayEquals(range[0] + " to " + range[1], expected, actual);
+    }
+    // in place, as the model does when an edit writes over its source
+    int[] expected = src.clone();
+    int[] actual = src.clone();
+    loop.run(PixelKernels.scalar(), expected, expected, 1, 1030);
+    loop.run(kernels, actual, actual, 1, 1030);
+    assertArrayEquals(expected, actual);
+  }
+
+  private void assertAllLoops(PixelKernels kernels) {
+    for (int amount : new int[] {0, 1, 40, -40, 255, -255, 1000,
+        Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+      assertSameAsScalar(kernels, (k, src, dst, from, to) -> k.add(src, dst, from, to, amount));
+    }
+    for (int shift : new int[] {0, 8, 16}) {
+      assertSameAsScalar(kernels,
+          (k, src, dst, from, to) -> k.channel(src, dst, from, to, shift));
+    }
+    assertSameAsScalar(kernels, (k, src, dst, from, to) -> k.value(src, dst, from, to));
+    assertSameAsScalar(kernels, (k, src, dst, from, to) -> k.intensity(src, dst, from, to));
+    for (ColorMatrix matrix : new ColorMatrix[] {ColorMatrix.SEPIA, ColorMatrix.LUMA, MIXED,
+        LARGEST}) {
+      assertSameAsScalar(kernels,
+          (k, src, dst, from, to) -> k.transform(src, dst, from, to, matrix));
+    }
+  }
+
+  private PixelKernels vector() {
+    try {
+      return PixelKernels.named(PixelKernels.VECTOR);
+    } catch (IllegalArgumentException e) {
+      Assume.assumeNoException(e);
+      return null;
+    }
+  }
+
+  @Test
+  public void testScalarLoops() {
+    int[] src = {0x102030, 0xFFFFFF, 0x000000, 0xFF0080};
+    int[] dst = new int[4];
+    PixelKernels scalar = PixelKernels.scalar();
+    scalar.add(src, dst, 0, 4, 10);
+    assertArrayEquals(new int[] {0x1A2A3A, 0xFFFFFF, 0x0A0A0A, 0xFF0A8A}, dst);
+    scalar.add(src, dst, 0, 4, Integer.MAX_VALUE);
+    assertArrayEquals(new int[] {0xFFFFFF, 0xFFFFFF, 0xFFFFFF, 0xFFFFFF}, dst);
+    scalar.add(src, dst, 0, 4, Integer.MIN_VALUE);
+    assertArrayEquals(new int[] {0x000000, 0x000000, 0x000000, 0x000000}, dst);
+    scalar.value(src, dst, 0, 4);
+    assertArrayEquals(new int[] {0x303030, 0xFFFFFF, 0x000000, 0xFFFFFF}, dst);
+    scalar.intensity(src, dst, 0, 4);
+    assertArrayEquals(new int[] {0x202020, 0xFFFFFF, 0x000000, 0x7F7F7F}, dst);
+    scalar.channel(src, dst, 1, 4, 8);
+    assertArrayEquals(new int[] {0x202020, 0xFFFFFF, 0x000000, 0x000000}, dst);
+    scalar.transform(src, dst, 0, 4, ColorMatrix.LUMA);
+    assertArrayEquals(new int[] {0x1D1D1D, 0xFFFFFF, 0x000000, 0x3F3F3F}, dst);
+  }
+
+  @Test
+  public void testVectorMatchesScalar() {
+    PixelKernels vector = vector();
+    assertEquals(PixelKernels.VECTOR, vector.getName());
+    assertAllLoops(vector);
+  }
+
+  @Test
+  public void testVectorIntensityOfEverySum() {
+    PixelKernels vector = vector();
+    // every sum of three samples, 0 to 765, with a run long enough to fill any register
+    int[] src = new int[3 * 255 + 1];
+    for (int sum = 0; sum < src.length; sum++) {
+      int red = Math.min(sum, 255);
+      int green = Math.min(sum - red, 255);
+      src[sum] = (red << 16) | (green << 8) | (sum - red - green);
+    }
+    int[] expected = new int[src.length];
+    int[] actual = new int[src.length];
+    PixelKernels.scalar().intensity(src, expected, 0, src.length);
+    vector.intensity(src, actual, 0, src.length);
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void testNamed() {
+    assertSame(PixelKernels.scalar(), PixelKernels.named(PixelKernels.SCALAR));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testUnknownName() {
+    PixelKernels.named("gpu");
+  }
+}
@@ -0,0 +1,83 @@
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import model.PackedImage;
+import model.RasterUtil;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for converting between BufferedImages and packed images, checking that every supported
+ * layout gives the same colors as BufferedImage.getRGB.
+ */
+public class RasterUtilTest {
+
+  private BufferedImage createImage(int type) {
+    BufferedImage image = new BufferedImage(7, 5, type);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        image.setRGB(j, i, 0x80000000 | (j * 37 << 16) | (i * 51 << 8) | ((i + j) * 19));
+      }
+    }
+    return image;
+  }
+
+  private void assertConverted(BufferedImage input) {
+    PackedImage image = RasterUtil.toImage(input);
+    assertEquals(input.getWidth(), image.getWidth());
+    assertEquals(input.getHeight(), image.getHeight());
+    for (int i = 0; i < input.getHeight(); i++) {
+      for (int j = 0; j < input.getWidth(); j++) {
+        assertEquals(input.getRGB(j, i) & 0xFFFFFF, image.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testIntRGB() {
+    assertConverted(createImage(BufferedImage.TYPE_INT_RGB));
+  }
+
+  @Test
+  public void testIntARGB() {
+    assertConverted(createImage(BufferedImage.TYPE_INT_ARGB));
+  }
+
+  @Test
+  public void testThreeByteBGR() {
+    assertConverted(createImage(BufferedImage.TYPE_3BYTE_BGR));
+  }
+
+  @Test
+  public void testFourByteABGR() {
+    assertConverted(createImage(BufferedImage.TYPE_4BYTE_ABGR));
+  }
+
+  @Test
+  public void testOtherLayouts() {
+    assertConverted(createImage(BufferedImage.TYPE_INT_BGR));
+    assertConverted(createImage(BufferedImage.TYPE_BYTE_GRAY));
+    assertConverted(createImage(BufferedImage.TYPE_USHORT_565_RGB));
+    assertConverted(createImage(BufferedImage.TYPE_INT_ARGB_PRE));
+  }
+
+  @Test
+  public void testSubimage() {
+    assertConverted(createImage(BufferedImage.TYPE_3BYTE_BGR).getSubimage(2, 1, 4, 3));
+    assertConverted(createImage(BufferedImage.TYPE_INT_RGB).getSubimage(1, 2, 5, 2));
+  }
+
+  @Test
+  public void testToBufferedImageSharesPixels() {
+    PackedImage image = new PackedImage(2, 1, new int[] {0x102030, 0xA0B0C0});
+    BufferedImage output = RasterUtil.toBufferedImage(image);
+
+    assertEquals(BufferedImage.TYPE_INT_RGB, output.getType());
+    assertEquals(0x102030, output.getRGB(0, 0) & 0xFFFFFF);
+    assertEquals(0xA0B0C0, output.getRGB(1, 0) & 0xFFFFFF);
+
+    image.setRGB(0, 1, 0x010203);
+    assertEquals(0x010203, output.getRGB(1, 0) & 0xFFFFFF);
+  }
+}
@@ -0,0 +1,149 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import model.Convolution;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.Kernel;
+import model.PackedImage;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for splitting the rows of images between threads, making sure that every operation of
+ * the model gives exactly the same image when it runs in parallel as when it runs sequentially.
+ */
+public class RowExecutorTest {
+
+  @Test
+  public void testBandsCoverEveryRowOnce() {
+    RowExecutor executor = new RowExecutor(3, 0);
+    int height = 101;
+    int bands = executor.bands(7, height);
+    assertEquals(12, bands);
+
+    AtomicIntegerArray rows = new AtomicIntegerArray(height);
+    AtomicIntegerArray seen = new AtomicIntegerArray(bands);
+    executor.forEachBand(7, height, (band, rowStart, rowEnd) -> {
+      seen.incrementAndGet(band);
+      for (int i = rowStart; i < rowEnd; i++) {
+        rows.incrementAndGet(i);
+      }
+    });
+    for (int i = 0; i < height; i++) {
+      assertEquals(1, rows.get(i));
+    }
+    for (int i = 0; i < bands; i++) {
+      assertEquals(1, seen.get(i));
+    }
+  }
+
+  @Test
+  public void testMoreThreadsThanRows() {
+    RowExecutor executor = new RowExecutor(8, 0);
+    assertEquals(3, executor.bands(100, 3));
+  }
+
+  @Test
+  public void testSmallImagesStaySequential() {
+    RowExecutor executor = new RowExecutor(4, 1000);
+    assertEquals(1, executor.bands(10, 99));
+    assertEquals(16, executor.bands(10, 100));
+    assertEquals(1, RowExecutor.sequential().bands(10000, 10000));
+    assertEquals(1, new RowExecutor(1, 0).bands(10000, 10000));
+  }
+
+  @Test
+  public void testSequentialRunsOnCallingThread() {
+    Thread caller = Thread.currentThread();
+    RowExecutor.sequential().forEachBand(5, 5, (band, rowStart, rowEnd) -> {
+      assertTrue(Thread.currentThread() == caller);
+      assertEquals(0, band);
+      assertEquals(0, rowStart);
+      assertEquals(5, rowEnd);
+    });
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new RowExecutor(0, 0);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidThreshold() {
+    new RowExecutor(2, -1);
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testNullExecutor() {
+    new ImageEditorModelImpl(null);
+  }
+
+  @Test
+  public void testParallelConvolution() {
+    PackedImage image = TestImages.createImage(61, 47);
+    RowExecutor executor = new RowExecutor(4, 0);
+    TestImages.assertSameImage(Convolution.apply(Kernel.GAUSSIAN_BLUR, image),
+            Convolution.apply(Kernel.GAUSSIAN_BLUR, image, executor));
+    TestImages.assertSameImage(Convolution.apply(Kernel.SHARPEN, image),
+            Convolution.apply(Kernel.SHARPEN, image, executor));
+  }
+
+  @Test
+  public void testParallelModelMatchesSequential() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(61, 47));
+    ImageEditorModelImpl sequential = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModelImpl parallel = new ImageEditorModelImpl(new RowExecutor(4, 0));
+
+    for (ImageEditorModel model : new ImageEditorModel[] {sequential, parallel}) {
+      model.load(path, "image", "ppm");
+      model.visualizeRed("image", "red");
+      model.visualizeGreen("image", "green");
+      model.visualizeBlue("image", "blue");
+      model.visualizeValue("image", "value");
+      model.visualizeIntensity("image", "intensity");
+      model.visualizeLuma("image", "luma");
+      model.visualizeSepia("image", "sepia");
+      model.brighten(40, "image", "brighten");
+      model.darken(40, "image", "darken");
+      model.flipHorizontal("image", "horizontal");
+      model.flipVertical("image", "vertical");
+      model.blur("image", "blur");
+      model.sharpen("blur", "sharpen");
+    }
+
+    for (String name : new String[] {"red", "green", "blue", "value", "intensity", "luma",
+        "sepia", "brighten", "darken", "horizontal", "vertical", "blur", "sharpen"}) {
+      TestImages.assertSameImage(sequential.getImage(name), parallel.getImage(name));
+    }
+  }
+
+  @Test
+  public void testParallelHistogramsMatchSequential() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(61, 47));
+    ImageEditorModel sequential = new ImageEditorModelImpl(RowExecutor.sequential());
+    ImageEditorModel parallel = new ImageEditorModelImpl(new RowExecutor(4, 0));
+    sequential.load(path, "image", "ppm");
+    parallel.load(path, "image", "ppm");
+
+    HashMap<Integer, Integer> red = parallel.calculateRedHistogram("image", "");
+    assertEquals(sequential.calculateRedHistogram("image", ""), red);
+    assertEquals(sequential.calculateGreenHistogram("image", ""),
+            parallel.calculateGreenHistogram("image", ""));
+    assertEquals(sequential.calculateBlueHistogram("image", ""),
+            parallel.calculateBlueHistogram("image", ""));
+    assertEquals(sequential.calculateIntensityHistogram("image", ""),
+            parallel.calculateIntensityHistogram("image", ""));
+
+    int total = 0;
+    for (int count : red.values()) {
+      total += count;
+    }
+    assertEquals(61 * 47, total);
+  }
+}
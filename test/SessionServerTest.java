@@ -0,0 +1,246 @@
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import controller.CommandStats;
+import controller.SessionServer;
+import model.ConcurrentImageStore;
+import model.Image;
+import model.ImageUtil;
+import model.PackedImage;
+import model.RowExecutor;
+import model.SessionImageEditorModel;
+import model.SharedImages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for serving sessions to many clients from one JVM, each with its own names for images
+ * while the files they load are read once.
+ */
+public class SessionServerTest {
+
+  private SessionImageEditorModel session(SharedImages shared, String name) {
+    return new SessionImageEditorModel(RowExecutor.sequential(), false, shared, name);
+  }
+
+  @Test
+  public void testSessionsHaveTheirOwnNames() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(8, 6, 1));
+    SharedImages shared = new SharedImages(new ConcurrentImageStore());
+    SessionImageEditorModel first = session(shared, "1");
+    SessionImageEditorModel second = session(shared, "2");
+    first.load(path, "a", "ppm");
+    second.load(path, "a", "ppm");
+    first.brighten(10, "a", "a");
+    second.visualizeRed("a", "b");
+
+    assertEquals(ImageUtil.readPPM(path).getRGB(0, 0), second.getImage("a").getRGB(0, 0));
+    assertEquals(0, first.getPixelCount("b"));
+    assertEquals(48, second.getPixelCount("b"));
+  }
+
+  @Test
+  public void testLoadedFilesAreShared() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(8, 6, 1));
+    SharedImages shared = new SharedImages(new ConcurrentImageStore());
+    SessionImageEditorModel first = session(shared, "1");
+    SessionImageEditorModel second = session(shared, "2");
+    first.load(path, "a", "ppm");
+    second.load(path, "b", "ppm");
+
+    // binary files are memory-mapped, so both sessions get the same mapped image
+    assertSame(first.getImage("a"), second.getImage("b"));
+
+    // a file that changed is read again; it is replaced instead of rewritten while mapped
+    Files.move(Path.of(TestImages.createFile(TestImages.createImage(4, 3, 2))), Path.of(path),
+            StandardCopyOption.REPLACE_EXISTING);
+    second.load(path, "c", "ppm");
+    assertEquals(12, second.getPixelCount("c"));
+    assertEquals(48, first.getPixelCount("a"));
+    assertNotSame(first.getImage("a"), second.getImage("c"));
+  }
+
+  @Test
+  public void testCloseRemovesImagesOfSession() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(8, 6, 1));
+    SharedImages shared = new SharedImages(new ConcurrentImageStore());
+    SessionImageEditorModel first = session(shared, "1");
+    SessionImageEditorModel second = session(shared, "2");
+    first.load(path, "a", "ppm");
+    first.brighten(10, "a", "b");
+    second.load(path, "a", "ppm");
+    first.close();
+
+    assertEquals(0, session(shared, "1").getPixelCount("a"));
+    assertEquals(0, session(shared, "1").getPixelCount("b"));
+    assertEquals(48, second.getPixelCount("a"));
+  }
+
+  @Test
+  public void testLoadedImageIsRemovedWithLastSession() throws IOException {
+    String path = TestImages.createFile(TestImages.createImage(8, 6, 1));
+    Set<String> names = ConcurrentHashMap.newKeySet();
+    SharedImages shared = new SharedImages(new ConcurrentImageStore() {
+      @Override
+      public Image put(String name, Image image) {
+        names.add(name);
+        return super.put(name, image);
+      }
+
+      @Override
+      public Image remove(String name) {
+        names.remove(name);
+        return super.remove(name);
+      }
+    });
+    SessionImageEditorModel first = session(shared, "1");
+    SessionImageEditorModel second = session(shared, "2");
+    first.load(path, "a", "ppm");
+    second.load(path, "a", "ppm");
+    second.load(path, "b", "ppm");
+    assertEquals(4, names.size());
+
+    // the second session still has the file loaded
+    first.close();
+    assertEquals(3, names.size());
+    second.close();
+    assertTrue(names.isEmpty());
+  }
+
+  private String readAll(Reader reader) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    BufferedReader lines = new BufferedReader(reader);
+    String line;
+    while ((line = lines.readLine()) != null) {
+      builder.append(line).append("\n");
+    }
+    return builder.toString();
+  }
+
+  private Thread startInBackground(SessionServer server) {
+    Thread thread = new Thread(server::start);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  @Test (timeout = 20000)
+  public void testClientsAreServedAtOnce() throws IOException, InterruptedException {
+    String path = TestImages.createFile(TestImages.createImage(8, 6, 1));
+    String brightened = TestImages.createFile(TestImages.createImage(1, 1, 0));
+    String loaded = TestImages.createFile(TestImages.createImage(1, 1, 0));
+    CommandStats stats = new CommandStats();
+    SessionServer server = new SessionServer(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), RowExecutor.common(),
+            false, new SharedImages(new ConcurrentImageStore()), stats);
+    Thread thread = startInBackground(server);
+    try (Socket first = new Socket()) {
+      first.connect(server.getAddress());
+      Writer firstOut = new OutputStreamWriter(first.getOutputStream(),
+              StandardCharsets.UTF_8);
+      firstOut.write("load " + path + " a\nbrighten 10 a a\n");
+      firstOut.flush();
+
+      // the second client runs its whole session while the first one is still open
+      try (Socket second = new Socket()) {
+        second.connect(server.getAddress());
+        Writer secondOut = new OutputStreamWriter(second.getOutputStream(),
+                StandardCharsets.UTF_8);
+        secondOut.write("load " + path + " a\nsave " + loaded + " a ppm\nfoo\nq\n");
+        secondOut.flush();
+        assertEquals("Unknown Command. Try again!\nSuccessfully Quit\n", readAll(
+                new InputStreamReader(second.getInputStream(), StandardCharsets.UTF_8)));
+      }
+
+      firstOut.write("save " + brightened + " a ppm\nquit\n");
+      firstOut.flush();
+      assertEquals("Successfully Quit\n", readAll(
+              new InputStreamReader(first.getInputStream(), StandardCharsets.UTF_8)));
+    } finally {
+      server.close();
+    }
+    thread.join();
+
+    PackedImage original = PackedImage.copyOf(ImageUtil.readPPM(path));
+    assertEquals(original.getRGB(2, 3), ImageUtil.readPPM(loaded).getRGB(2, 3));
+    assertEquals(ImageUtil.readPPM(brightened).getRGB(2, 3),
+            PackedImage.pack(PackedImage.red(original.getRGB(2, 3)) + 10,
+                    PackedImage.green(original.getRGB(2, 3)) + 10,
+                    PackedImage.blue(original.getRGB(2, 3)) + 10));
+    assertEquals(2, stats.getCount("load"));
+  }
+
+  @Test (timeout = 20000)
+  public void testUnixDomainSocket() throws IOException, InterruptedException {
+    Path directory = Files.createTempDirectory("session-server-test");
+    directory.toFile().deleteOnExit();
+    Path socket = directory.resolve("editor.sock");
+    SessionServer server = new SessionServer(SessionServer.parseAddress(socket.toString()),
+            RowExecutor.common(), true, new SharedImages(new ConcurrentImageStore()),
+            new CommandStats());
+    Thread thread = startInBackground(server);
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      channel.write(StandardCharsets.UTF_8.encode("brighten 10 a a\nq\n"));
+      assertEquals("This file has not been loaded yet.\nSuccessfully Quit\n",
+              readAll(Channels.newReader(channel, StandardCharsets.UTF_8)));
+    } finally {
+      server.close();
+    }
+    thread.join();
+    assertFalse(Files.exists(socket));
+    assertTrue(server.getAddress() instanceof UnixDomainSocketAddress);
+  }
+
+  @Test (timeout = 20000)
+  public void testFailedCommandsKeepSessionOpen() throws IOException, InterruptedException {
+    Path directory = Files.createTempDirectory("session-server-test");
+    directory.toFile().deleteOnExit();
+    String missing = directory.resolve("missing.ppm").toString();
+    SessionServer server = new SessionServer(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), RowExecutor.common(),
+            false, new SharedImages(new ConcurrentImageStore()), new CommandStats());
+    Thread thread = startInBackground(server);
+    try (Socket client = new Socket()) {
+      client.connect(server.getAddress());
+      Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+      out.write("load " + missing + " a\nload ab a\nq\n");
+      out.flush();
+      assertEquals("The file " + missing + " could not be found\nIllegal arguments for load\n"
+              + "Successfully Quit\n", readAll(
+              new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)));
+    } finally {
+      server.close();
+    }
+    thread.join();
+  }
+
+  @Test
+  public void testParseAddress() {
+    assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(), 8080),
+            SessionServer.parseAddress("8080"));
+    assertEquals(UnixDomainSocketAddress.of("/tmp/editor.sock"),
+            SessionServer.parseAddress("/tmp/editor.sock"));
+  }
+}
@@ -0,0 +1,95 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import model.Image;
+import model.ImageUtil;
+import model.PackedImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Images for the tests to edit, with pixels that change from one to the next in every channel,
+ * along with temporary files that hold them and a check that two images have the same pixels.
+ */
+public final class TestImages {
+
+  private TestImages() {
+  }
+
+  /**
+   * Creates an image whose pixels are spread over every color.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @return the image
+   */
+  public static PackedImage createImage(int width, int height) {
+    return createImage(width, height, 0);
+  }
+
+  /**
+   * Creates an image whose pixels are spread over every color, starting at a different pixel of
+   * the same sequence for every seed, so that images of the same size can differ.
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param seed where in the sequence of pixels the image starts
+   * @return the image
+   */
+  public static PackedImage createImage(int width, int height, int seed) {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (int) (((i + seed) * 2654435761L) & 0xFFFFFF);
+    }
+    return new PackedImage(width, height, pixels);
+  }
+
+  /**
+   * Writes an image to a temporary binary PPM file that is deleted when the tests end.
+   * @param image the image to write
+   * @return the pathname of the file
+   * @throws IOException if the file cannot be written
+   */
+  public static String createFile(Image image) throws IOException {
+    File file = File.createTempFile("test-image", ".ppm");
+    file.deleteOnExit();
+    ImageUtil.writeRawPPM(file.getPath(), image);
+    return file.getPath();
+  }
+
+  /**
+   * Writes an image to a binary PPM file in a directory, which is deleted when the tests end.
+   * @param directory the directory to write the file to
+   * @param name the name of the file
+   * @param image the image to write
+   * @return the path of the file
+   * @throws IOException if the file cannot be written
+   */
+  public static Path createFile(Path directory, String name, Image image) throws IOException {
+    Path path = directory.resolve(name);
+    path.toFile().deleteOnExit();
+    ImageUtil.writeRawPPM(path.toString(), image);
+    return path;
+  }
+
+  /**
+   * Checks that two images have the same size and the same pixels, read one at a time and a row
+   * at a time.
+   * @param expected the image that is expected
+   * @param actual the image that is checked
+   */
+  public static void assertSameImage(Image expected, Image actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    int[] expectedRow = new int[expected.getWidth()];
+    int[] actualRow = new int[expected.getWidth()];
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+      expected.getRow(i, expectedRow);
+      actual.getRow(i, actualRow);
+      assertArrayEquals(expectedRow, actualRow);
+    }
+  }
+}
@@ -0,0 +1,189 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.BlurFilter;
+import model.Convolution;
+import model.Histogram;
+import model.ImageEditorModel;
+import model.ImageEditorModelImpl;
+import model.ImageUtil;
+import model.Kernel;
+import model.LookupTable;
+import model.PackedImage;
+import model.RowExecutor;
+import model.TiledImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for images kept in tiles, comparing every operation on a tiled image with the same
+ * operation on a packed image. The images are not a multiple of the tile size, and the caches
+ * only hold a few tiles, so tiles are written back and read again all the time.
+ */
+public class TiledImageTest {
+  private static final int TILE = 8;
+  private static final long SMALL_CACHE = 4L * TILE * TILE * 4;
+
+  @Test
+  public void testCopyKeepsPixels() {
+    PackedImage image = TestImages.createImage(37, 29);
+    TiledImage tiled = TiledImage.copyOf(image, TILE, SMALL_CACHE);
+    TestImages.assertSameImage(image, tiled);
+    for (int i = 0; i < image.getHeight(); i += 5) {
+      for (int j = 0; j < image.getWidth(); j += 3) {
+        assertEquals(image.getRGB(i, j), tiled.getRGB(i, j));
+      }
+    }
+    tiled.close();
+  }
+
+  @Test
+  public void testSetRGB() {
+    TiledImage tiled = TiledImage.create(20, 20, TILE, SMALL_CACHE);
+    tiled.setRGB(19, 19, 0x123456);
+    tiled.setRGB(0, 0, 0xABCDEF);
+    // go through every tile so the changed ones are written back and read again
+    TestImages.assertSameImage(TiledImage.copyOf(tiled, TILE, SMALL_CACHE), tiled);
+    assertEquals(0x123456, tiled.getRGB(19, 19));
+    assertEquals(0xABCDEF, tiled.getRGB(0, 0));
+    assertEquals(0, tiled.getRGB(10, 10));
+  }
+
+  @Test
+  public void testReadRegionPastEdges() {
+    PackedImage image = TestImages.createImage(10, 9);
+    TiledImage tiled = TiledImage.copyOf(image, 4, SMALL_CACHE);
+    int[] region = new int[5 * 6];
+    tiled.readRegion(-2, 7, 5, 6, region);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 6; j++) {
+        int row = i - 2;
+        int col = j + 7;
+        int expected = row >= 0 && col < 10 ? image.getRGB(row, col) : 0;
+        assertEquals(expected, region[i * 6 + j]);
+      }
+    }
+  }
+
+  @Test
+  public void testMap() {
+    PackedImage image = TestImages.createImage(37, 29);
+    LookupTable table = LookupTable.brighten(40);
+    int[] pixels = image.getData().clone();
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = table.applyAsInt(pixels[i]);
+    }
+    TiledImage tiled = TiledImage.copyOf(image, TILE, SMALL_CACHE);
+    TestImages.assertSameImage(new PackedImage(37, 29, pixels),
+            tiled.map(table, new RowExecutor(3, 0)));
+  }
+
+  @Test
+  public void testFilterMatchesConvolution() {
+    PackedImage image = TestImages.createImage(37, 29);
+    TiledImage tiled = TiledImage.copyOf(image, TILE, SMALL_CACHE);
+    Kernel weighted = new Kernel(new double[][] {
+        {0.05, 0.1, 0.05},
+        {0.1, 0.3, 0.1},
+        {0.05, 0.1, 0.05}});
+    for (Kernel kernel : new Kernel[] {Kernel.GAUSSIAN_BLUR, Kernel.SHARPEN, weighted}) {
+      TestImages.assertSameImage(Convolution.apply(kernel, image),
+              tiled.filter(kernel, new RowExecutor(2, 0)));
+    }
+  }
+
+  @Test
+  public void testBlurMatchesWholeImage() {
+    PackedImage image = TestImages.createImage(37, 29);
+    TiledImage tiled = TiledImage.copyOf(image, TILE, SMALL_CACHE);
+    for (BlurFilter blur : new BlurFilter[] {BlurFilter.gaussian(3), BlurFilter.box(3),
+        BlurFilter.gaussian(20), BlurFilter.box(20)}) {
+      TestImages.assertSameImage(blur.apply(image, RowExecutor.sequential()),
+              tiled.blur(blur, new RowExecutor(2, 0)));
+    }
+  }
+
+  @Test
+  public void testFlips() {
+    PackedImage image = TestImages.createImage(37, 29);
+    TiledImage tiled = TiledImage.copyOf(image, TILE, SMALL_CACHE);
+    PackedImage flipped = new PackedImage(37, 29);
+    PackedImage upsideDown = new PackedImage(37, 29);
+    for (int i = 0; i < 29; i++) {
+      for (int j = 0; j < 37; j++) {
+        flipped.setRGB(i, 36 - j, image.getRGB(i, j));
+        upsideDown.setRGB(28 - i, j, image.getRGB(i, j));
+      }
+    }
+    TestImages.assertSameImage(flipped, tiled.flipHorizontal(RowExecutor.sequential()));
+    TestImages.assertSameImage(upsideDown, tiled.flipVertical(new RowExecutor(2, 0)));
+  }
+
+  @Test
+  public void testHistogram() {
+    PackedImage image = TestImages.createImage(37, 29);
+    Histogram expected = Histogram.of(image);
+    Histogram actual = Histogram.of(TiledImage.copyOf(image, TILE, SMALL_CACHE));
+    assertArrayEquals(expected.getRed(), actual.getRed());
+    assertArrayEquals(expected.getBlue(), actual.getBlue());
+    assertArrayEquals(expected.getIntensity(), actual.getIntensity());
+  }
+
+  @Test
+  public void testReadTiledPPM() throws IOException {
+    File file = File.createTempFile("tiled-image-test", ".ppm");
+    file.deleteOnExit();
+    PackedImage image = TestImages.createImage(23, 17);
+    ImageUtil.writeRawPPM(file.getPath(), image);
+    TestImages.assertSameImage(image, ImageUtil.readTiledPPM(file.getPath(), 5));
+
+    ImageUtil.writePPM(file.getPath(), image);
+    TestImages.assertSameImage(image, ImageUtil.readTiledPPM(file.getPath(), 5));
+  }
+
+  /**
+   * A model that starts with a tiled image, which it would otherwise only load for files too
+   * large for the heap.
+   */
+  private static final class TiledModel extends ImageEditorModelImpl {
+    TiledModel(TiledImage image) {
+      super(new RowExecutor(2, 0));
+      images.put("image", image);
+    }
+  }
+
+  @Test
+  public void testModelKeepsImagesTiled() throws IOException {
+    File file = File.createTempFile("tiled-image-test", ".ppm");
+    file.deleteOnExit();
+    PackedImage image = TestImages.createImage(37, 29);
+    ImageUtil.writeRawPPM(file.getPath(), image);
+    ImageEditorModel expected = new ImageEditorModelImpl(RowExecutor.sequential());
+    expected.load(file.getPath(), "image", "ppm");
+    ImageEditorModel model = new TiledModel(ImageUtil.readTiledPPM(file.getPath(), TILE));
+
+    for (ImageEditorModel each : new ImageEditorModel[] {expected, model}) {
+      each.brighten(25, "image", "image");
+      each.blur("image", "blurred");
+      each.flipHorizontal("blurred", "blurred");
+      each.visualizeSepia("blurred", "sepia");
+      each.sharpen("sepia", "sepia");
+      each.flipVertical("sepia", "sepia");
+    }
+    for (String name : new String[] {"image", "blurred", "sepia"}) {
+      assertTrue(model.getImage(name) instanceof TiledImage);
+      TestImages.assertSameImage(expected.getImage(name), model.getImage(name));
+      assertArrayEquals(expected.calculateHistogram(name).getGreen(),
+              model.calculateHistogram(name).getGreen());
+    }
+
+    File saved = File.createTempFile("tiled-image-test", ".ppm");
+    saved.deleteOnExit();
+    model.save(saved.getPath(), "sepia", "ppm");
+    TestImages.assertSameImage(expected.getImage("sepia"), ImageUtil.readPPM(saved.getPath()));
+  }
+}